@@ -3,8 +3,24 @@ package modell.quarkus.resourceService;
 
 import io.github.agache41.rest.contract.entities.Modell2;
 import io.github.agache41.rest.contract.resourceService.AbstractResourceServiceImpl;
+import io.github.agache41.rest.contract.resourceServiceBase.ResourceServiceConfig;
+import io.github.agache41.rest.contract.responseCache.CachedResponses;
 import jakarta.ws.rs.Path;
 
 @Path("/modell2")
+@CachedResponses
 public class Modell2ResourceService extends AbstractResourceServiceImpl<Modell2, Modell2, String> {
+
+    private static final ResourceServiceConfig config = new ResourceServiceConfig() {
+        // the test model lists the changes without waiting, no write of the tests commits late
+        @Override
+        public long getChangesSettleTime() {
+            return 0;
+        }
+    };
+
+    @Override
+    public ResourceServiceConfig getConfig() {
+        return config;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package modell.quarkus.resourceService;
+
+
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.resourceService.AbstractResourceServiceImpl;
+import io.github.agache41.rest.contract.resourceServiceBase.ResourceServiceConfig;
+import jakarta.ws.rs.Path;
+
+@Path("/modell2WriteBehind")
+public class Modell2WriteBehindResourceService extends AbstractResourceServiceImpl<Modell2, Modell2, String> {
+
+    private static final ResourceServiceConfig config = new ResourceServiceConfig() {
+        @Override
+        public boolean isWriteBehind() {
+            return true;
+        }
+
+        @Override
+        public long getWriteBehindFlushInterval() {
+            return 100;
+        }
+    };
+
+    @Override
+    public ResourceServiceConfig getConfig() {
+        return config;
+    }
+}
@@ -0,0 +1,84 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package modell.quarkus.resourceService;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.http.ContentType.JSON;
+import static org.hamcrest.Matchers.*;
+
+@QuarkusTest
+public class Modell2NdjsonImportTest {
+
+    private static final String path = "/modell2";
+
+    @Test
+    public void testImportAsStream() {
+        final String input = "this line is skipped\n" +
+                             "{\"id\":\"imp1\",\"name\":\"one\",\"age\":1}\n" +
+                             "{\"id\":\"imp2\",\"name\":\"two\",\"age\":2}\n" +
+                             "{\"id\":\"imp3\",\"name\":\"three\",\"age\":3}\n" +
+                             "{\"id\":\"imp4\",\"name\":\"four\",\"age\":4}\n" +
+                             "{\"id\":\"imp5\",\"name\":\"five\",\"age\":5}";
+        given().contentType("application/x-ndjson")
+               .accept(JSON)
+               .queryParam("skip", 1)
+               .queryParam("chunkSize", 2)
+               .body(input.getBytes(StandardCharsets.UTF_8))
+               .post(path + "/import/asStream")
+               .then()
+               .statusCode(200)
+               .body("firstLine", contains(1, 3, 5))
+               .body("lines", contains(2, 2, 1))
+               .body("written", contains(2, 2, 1))
+               .body("nextLine", contains(3, 5, 6))
+               .body("error", everyItem(nullValue()));
+
+        given().accept(JSON)
+               .get(path + "/byIds/imp1,imp2,imp3,imp4,imp5/asList")
+               .then()
+               .statusCode(200)
+               .body("name", containsInAnyOrder("one", "two", "three", "four", "five"));
+
+        given().contentType("application/x-ndjson")
+               .accept(JSON)
+               .body(("{\"id\":\"imp6\",\"name\":\"six\"}\n" +
+                      "not json\n").getBytes(StandardCharsets.UTF_8))
+               .post(path + "/import/asStream")
+               .then()
+               .statusCode(200)
+               .body("firstLine", contains(0))
+               .body("written", contains(0))
+               .body("nextLine", contains(0))
+               .body("error", contains(notNullValue()));
+
+        given().accept(JSON)
+               .get(path + "/byIds/imp6/asList")
+               .then()
+               .statusCode(200)
+               .body("$", empty());
+
+        given().delete(path + "/byIds/imp1,imp2,imp3,imp4,imp5")
+               .then()
+               .statusCode(lessThan(300));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package modell.quarkus.resourceService;
+
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.producer.Producer;
+import io.github.agache41.rest.contract.resourceService.ResourceServiceTestClient;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+public class Modell2ResponseCacheTest {
+
+    private static final String path = "/modell2";
+    private final ResourceServiceTestClient<Modell2, String> client = new ResourceServiceTestClient<>(Modell2.class, path);
+    private final Producer<Modell2> producer = Producer.ofClass(Modell2.class);
+
+    private static Response getByIdsAsList(final List<String> ids) {
+        final Response response = given().get(path + "/byIds/{ids}/asList", String.join(",", ids));
+        response.then()
+                .statusCode(200)
+                .header("ETag", notNullValue());
+        return response;
+    }
+
+    @Test
+    public void testGetByIdsAsListFromTheCache() {
+        //given
+        final List<Modell2> insertedData = this.client.postListAsList(this.producer.produceList(2));
+        final String a = insertedData.get(0)
+                                     .getId();
+        final String b = insertedData.get(1)
+                                     .getId();
+        final List<String> ids = List.of(b, a, b);
+
+        //when the first request reads and caches, the second is served from the cache
+        final Response miss = getByIdsAsList(ids);
+        final Response hit = getByIdsAsList(ids);
+
+        //then
+        assertEquals(ids, miss.jsonPath()
+                              .getList("id"));
+        assertEquals(miss.asString(), hit.asString());
+        assertEquals(miss.header("ETag"), hit.header("ETag"));
+
+        this.client.deleteByIds(List.of(a, b));
+    }
+}
@@ -0,0 +1,85 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package modell.quarkus.resourceService;
+
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.producer.Producer;
+import io.github.agache41.rest.contract.resourceService.ResourceServiceTestClient;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.http.ContentType.JSON;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+public class Modell2WriteBehindTest {
+
+    private static final String path = "/modell2WriteBehind";
+    private final ResourceServiceTestClient<Modell2, String> client = new ResourceServiceTestClient<>(Modell2.class, path);
+    private final Producer<Modell2> producer = Producer.ofClass(Modell2.class);
+
+    private static void putAccepted(final Modell2 source) {
+        given().contentType(JSON)
+               .body(source)
+               .put(path)
+               .then()
+               .statusCode(202);
+    }
+
+    private Modell2 change(final Modell2 source) {
+        final Modell2 change = this.producer.change(source);
+        change.setId(source.getId());
+        return change;
+    }
+
+    @Test
+    public void testWriteBehind() throws InterruptedException {
+        //given
+        final List<Modell2> insertedData = this.client.postListAsList(this.producer.produceList(2));
+        final String id = insertedData.get(0)
+                                      .getId();
+        final Modell2 first = this.change(insertedData.get(0));
+        final Modell2 street = this.change(first);
+        street.setName(null);
+        final Modell2 last = this.change(street);
+        last.setStreet(null);
+        final Modell2 other = this.change(insertedData.get(1));
+
+        //when the updates are merged by field, the null values do not override the pending ones
+        putAccepted(first);
+        putAccepted(street);
+        putAccepted(other);
+        putAccepted(last);
+
+        //then the updates are written by the next flush
+        Modell2 written = this.client.get(id);
+        for (int wait = 0; wait < 50 && !last.getName()
+                                             .equals(written.getName()); wait++) {
+            Thread.sleep(100);
+            written = this.client.get(id);
+        }
+        assertEquals(last.getName(), written.getName());
+        assertEquals(street.getStreet(), written.getStreet());
+        assertEquals(other, this.client.get(other.getId()));
+
+        this.client.deleteByIds(List.of(id, other.getId()));
+    }
+}
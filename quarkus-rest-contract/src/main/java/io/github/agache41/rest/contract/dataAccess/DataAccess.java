@@ -18,14 +18,32 @@
 package io.github.agache41.rest.contract.dataAccess;
 
 import io.github.agache41.rest.contract.dataAccessBase.AbstractDataAccess;
+import io.github.agache41.rest.contract.dataAccessBase.Collation;
 import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
 import jakarta.enterprise.context.Dependent;
 import jakarta.enterprise.inject.spi.InjectionPoint;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.transaction.Transactional;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
 
 import java.lang.reflect.ParameterizedType;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collection;
 
 
 /**
@@ -54,6 +72,19 @@ public class DataAccess<ENTITY extends PrimaryKey<PK>, PK> extends AbstractDataA
     @Inject
     protected EntityManager em;
 
+    /**
+     * <pre>
+     * The transaction registry, used to tell if a transaction is active without touching the EntityManager.
+     * </pre>
+     */
+    @Inject
+    protected TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * If the entities can be written with upsert, resolved on first use.
+     */
+    private Boolean upsertSupported;
+
     /**
      * Constructs a new DataAccess, based on the generic types
      * @param type - the class for the type
@@ -82,4 +113,160 @@ public class DataAccess<ENTITY extends PrimaryKey<PK>, PK> extends AbstractDataA
     protected EntityManager em() {
         return this.em;
     }
+
+    @Override
+    protected boolean isInTransaction() {
+        if (this.transactionRegistry == null) {
+            return super.isInTransaction();
+        }
+        return this.transactionRegistry.getTransactionStatus() != Status.STATUS_NO_TRANSACTION;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The action is registered in the JTA transaction, outside of it, e.g. with a resource local transaction, in the Hibernate session.
+     */
+    @Override
+    public void afterTransaction(final Runnable action) {
+        if (this.transactionRegistry != null && this.transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            this.transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    // nothing to do before
+                }
+
+                @Override
+                public void afterCompletion(final int status) {
+                    action.run();
+                }
+            });
+            return;
+        }
+        this.em()
+            .unwrap(SessionImplementor.class)
+            .getActionQueue()
+            .registerProcess((AfterTransactionCompletionProcess) (success, session) -> action.run());
+    }
+
+    /**
+     * {@inheritDoc}
+     * The Hibernate session takes its connection only when the first row is pulled and holds it until it is closed.
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    protected EntityManager openStream() {
+        return this.reader()
+                   .getEntityManagerFactory()
+                   .unwrap(SessionFactory.class)
+                   .withOptions()
+                   .connectionHandlingMode(PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_HOLD)
+                   .openSession();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Unless the connection is already part of a transaction, a read only transaction is begun on it.
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    protected boolean beginStream(final EntityManager streamEm) {
+        return streamEm.unwrap(Session.class)
+                       .doReturningWork(connection -> {
+                           if (!connection.getAutoCommit()) {
+                               // already part of a transaction
+                               return false;
+                           }
+                           connection.setAutoCommit(false);
+                           connection.setReadOnly(true);
+                           return true;
+                       });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    protected void closeStream(final EntityManager streamEm,
+                               final boolean began) {
+        try {
+            if (began) {
+                // ends the read only transaction and hands the connection back as it was taken
+                streamEm.unwrap(Session.class)
+                        .doWork(connection -> {
+                            connection.rollback();
+                            connection.setReadOnly(false);
+                            connection.setAutoCommit(true);
+                        });
+            }
+        } finally {
+            streamEm.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The statements are generated from the Hibernate mapping of the entity.
+     *
+     * @see Upsert
+     */
+    @Override
+    protected int upsert(final Collection<ENTITY> sources) {
+        return Upsert.of(this.em(), this.type)
+                     .execute(this.em(), sources, this.upsertBatchSize());
+    }
+
+    /**
+     * {@inheritDoc}
+     * Upsert is supported for the entities mapped in a single table.
+     */
+    @Override
+    public boolean isUpsertSupported() {
+        if (this.upsertSupported == null) {
+            try {
+                Upsert.of(this.em(), this.type);
+                this.upsertSupported = Boolean.TRUE;
+            } catch (final UnexpectedException exception) {
+                this.upsertSupported = Boolean.FALSE;
+            }
+        }
+        return this.upsertSupported;
+    }
+
+    /**
+     * {@inheritDoc}
+     * H2 and the PostgreSQL databases created with the C or POSIX collation are binary.
+     */
+    @Override
+    protected Collation detectCollation() {
+        final SessionImplementor session = this.em()
+                                               .unwrap(SessionImplementor.class);
+        final Dialect dialect = session.getJdbcServices()
+                                       .getDialect();
+        if (dialect instanceof H2Dialect) {
+            return Collation.BINARY;
+        }
+        if (dialect instanceof PostgreSQLDialect) {
+            final String collate = session.doReturningWork(connection -> {
+                try (final Statement statement = connection.createStatement();
+                     final ResultSet resultSet = statement.executeQuery("select datcollate from pg_database where datname = current_database()")) {
+                    return resultSet.next() ? resultSet.getString(1) : null;
+                }
+            });
+            if ("C".equals(collate) || "POSIX".equals(collate) || collate != null && collate.startsWith("C.")) {
+                return Collation.BINARY;
+            }
+        }
+        return Collation.UNKNOWN;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    protected Object unproxy(final Object value) {
+        return Hibernate.unproxy(value);
+    }
 }
+
@@ -0,0 +1,428 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.dataAccessBase.AbstractDataAccess;
+import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.exceptions.ExpectedException;
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import io.smallrye.mutiny.Uni;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.FlushMode;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static io.github.agache41.rest.contract.dataAccessBase.PrimaryKey.ID;
+
+/**
+ * <pre>
+ * Non blocking data access layer over a Hibernate Reactive Mutiny.SessionFactory.
+ * It is the reactive counterpart of the {@link DataAccess} and is meant to be used on the event loop.
+ * The methods take the session to work with, the session and the transaction are opened with
+ * withSession, withReadOnlySession or withTransaction.
+ * Example:
+ *      dataAccess.withReadOnlySession(session -&#x3E; dataAccess.findById(session, id));
+ *
+ * The class is not a CDI bean, so that applications without Hibernate Reactive are not affected.
+ * It is created by the {@link io.github.agache41.rest.contract.resourceService.AbstractReactiveResourceServiceImpl}.
+ * </pre>
+ *
+ * @param <ENTITY> the type parameter
+ * @param <PK>     the type parameter
+ */
+public class ReactiveDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
+
+    /**
+     * <pre>
+     * The type of the persisted Object
+     * </pre>
+     */
+    protected final Class<ENTITY> type;
+
+    /**
+     * <pre>
+     * The type of the persisted Object Primary Key
+     * </pre>
+     */
+    protected final Class<PK> keyType;
+
+    /**
+     * <pre>
+     * The session factory in use.
+     * </pre>
+     */
+    protected final Mutiny.SessionFactory sessionFactory;
+
+    /**
+     * <pre>
+     * The Name of this Dao.
+     * </pre>
+     */
+    protected final String name;
+
+    /**
+     * Instantiates a new Reactive data access.
+     *
+     * @param type           the type of the persisting Object
+     * @param keyType        the type of the persisting Object Primary Key
+     * @param sessionFactory the session factory
+     */
+    public ReactiveDataAccess(final Class<ENTITY> type,
+                              final Class<PK> keyType,
+                              final Mutiny.SessionFactory sessionFactory) {
+        this.type = type;
+        this.keyType = keyType;
+        this.sessionFactory = sessionFactory;
+        this.name = ReactiveDataAccess.class.getSimpleName() + "<" + this.type.getSimpleName() + "," + this.keyType.getSimpleName() + ">";
+    }
+
+    /**
+     * <pre>
+     * Runs the given work in a new session.
+     * </pre>
+     *
+     * @param <T>  the type parameter
+     * @param work the work
+     * @return the result of the work
+     */
+    public <T> Uni<T> withSession(final Function<Mutiny.Session, Uni<T>> work) {
+        return this.sessionFactory.withSession(work);
+    }
+
+    /**
+     * <pre>
+     * Runs the given work in a new session that loads the entities read only and never flushes,
+     * the same fast path the blocking {@link AbstractDataAccess#readOnly(java.util.function.Supplier)} provides.
+     * </pre>
+     *
+     * @param <T>  the type parameter
+     * @param work the work
+     * @return the result of the work
+     */
+    public <T> Uni<T> withReadOnlySession(final Function<Mutiny.Session, Uni<T>> work) {
+        return this.sessionFactory.withSession(session -> work.apply(session.setDefaultReadOnly(true)
+                                                                            .setFlushMode(FlushMode.MANUAL)));
+    }
+
+    /**
+     * <pre>
+     * Runs the given work in a new session and transaction.
+     * </pre>
+     *
+     * @param <T>  the type parameter
+     * @param work the work
+     * @return the result of the work
+     */
+    public <T> Uni<T> withTransaction(final Function<Mutiny.Session, Uni<T>> work) {
+        return this.sessionFactory.withTransaction(work);
+    }
+
+    /**
+     * <pre>
+     * Finds an entity in the database using the Primary Key.
+     * </pre>
+     *
+     * @param session the session
+     * @param id      the primary key to use, must be not null
+     * @return the entity, or a failure with ExpectedException if no entity is found
+     */
+    public Uni<ENTITY> findById(final Mutiny.Session session,
+                                final PK id) {
+        return session.find(this.type, this.assertNotNull(id))
+                      .onItem()
+                      .ifNull()
+                      .failWith(() -> new ExpectedException(this.name + ": Entity was not found"));
+    }
+
+    /**
+     * <pre>
+     * Finds an entity in the database using the Primary Key of the provided source entity.
+     * </pre>
+     *
+     * @param session the session
+     * @param source  the object that contains the id.
+     * @return the persisted entity, or a failure with ExpectedException if no entity is found
+     */
+    public Uni<ENTITY> findPersisted(final Mutiny.Session session,
+                                     final PrimaryKey<PK> source) {
+        return this.findById(session, this.assertNotNull(source.getId()));
+    }
+
+    /**
+     * <pre>
+     * Returns all the entities in the table, paginated.
+     * </pre>
+     *
+     * @param session     the session
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the entities
+     */
+    public Uni<List<ENTITY>> listAll(final Mutiny.Session session,
+                                     final int firstResult,
+                                     final int maxResults) {
+        final CriteriaQuery<ENTITY> query = this.query();
+        final Root<ENTITY> entity = query.from(this.type);
+        return session.createQuery(query.select(entity)
+                                        .orderBy(this.cb()
+                                                     .asc(entity.get(ID))))
+                      .setFirstResult(firstResult)
+                      .setMaxResults(maxResults)
+                      .getResultList();
+    }
+
+    /**
+     * <pre>
+     * Finds all entities with the Primary Key within the given collection of ids.
+     * </pre>
+     *
+     * @param session the session
+     * @param ids     the ids
+     * @return the entities
+     */
+    public Uni<List<ENTITY>> listByIds(final Mutiny.Session session,
+                                       final Collection<? extends PK> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Uni.createFrom()
+                      .item(Collections.emptyList());
+        }
+        return this.listByColumnInValues(session, ID, ids, 0, ids.size());
+    }
+
+    /**
+     * <pre>
+     * Finds all entities whose value in a specified column equals the given value.
+     * </pre>
+     *
+     * @param session     the session
+     * @param column      the column
+     * @param value       the value
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the entities
+     */
+    public Uni<List<ENTITY>> listByColumnEqualsValue(final Mutiny.Session session,
+                                                     final String column,
+                                                     final Object value,
+                                                     final int firstResult,
+                                                     final int maxResults) {
+        final CriteriaQuery<ENTITY> query = this.query();
+        final Root<ENTITY> entity = query.from(this.type);
+        return session.createQuery(query.select(entity)
+                                        .where(this.cb()
+                                                   .equal(this.attr(entity, column), this.assertNotNull(value))))
+                      .setFirstResult(firstResult)
+                      .setMaxResults(maxResults)
+                      .getResultList();
+    }
+
+    /**
+     * <pre>
+     * Finds all entities whose value in a specified column is like the given value.
+     * </pre>
+     *
+     * @param session     the session
+     * @param column      the column
+     * @param value       the value
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the entities
+     */
+    public Uni<List<ENTITY>> listByColumnLikeValue(final Mutiny.Session session,
+                                                   final String column,
+                                                   final String value,
+                                                   final int firstResult,
+                                                   final int maxResults) {
+        final CriteriaQuery<ENTITY> query = this.query();
+        final Root<ENTITY> entity = query.from(this.type);
+        return session.createQuery(query.select(entity)
+                                        .where(this.cb()
+                                                   .like(this.attr(entity, column), this.assertNotNull(value))))
+                      .setFirstResult(firstResult)
+                      .setMaxResults(maxResults)
+                      .getResultList();
+    }
+
+    /**
+     * <pre>
+     * Finds all entities whose value in a specified column is in the given values.
+     * </pre>
+     *
+     * @param session     the session
+     * @param column      the column
+     * @param values      the values
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the entities
+     */
+    public Uni<List<ENTITY>> listByColumnInValues(final Mutiny.Session session,
+                                                  final String column,
+                                                  final Collection<?> values,
+                                                  final int firstResult,
+                                                  final int maxResults) {
+        final CriteriaQuery<ENTITY> query = this.query();
+        final Root<ENTITY> entity = query.from(this.type);
+        return session.createQuery(query.select(entity)
+                                        .where(this.attr(entity, column)
+                                                   .in(this.assertNotNull(values))))
+                      .setFirstResult(firstResult)
+                      .setMaxResults(maxResults)
+                      .getResultList();
+    }
+
+    /**
+     * <pre>
+     * Persists an entity.
+     * </pre>
+     *
+     * @param session   the session
+     * @param newEntity the new entity
+     * @return the persisted entity
+     */
+    public Uni<ENTITY> persist(final Mutiny.Session session,
+                               final ENTITY newEntity) {
+        return session.persist(this.assertNotNull(newEntity))
+                      .replaceWith(newEntity);
+    }
+
+    /**
+     * <pre>
+     * Merges an entity.
+     * </pre>
+     *
+     * @param session the session
+     * @param entity  the entity
+     * @return the merged entity
+     */
+    public Uni<ENTITY> merge(final Mutiny.Session session,
+                             final ENTITY entity) {
+        return session.merge(this.assertNotNull(entity));
+    }
+
+    /**
+     * <pre>
+     * Deletes the entity with the given Primary Key, if any.
+     * </pre>
+     *
+     * @param session the session
+     * @param id      the primary key
+     * @return the completion
+     */
+    public Uni<Void> removeById(final Mutiny.Session session,
+                                final PK id) {
+        return session.find(this.type, this.assertNotNull(id))
+                      .chain(entity -> entity == null ? Uni.createFrom()
+                                                           .voidItem() : session.remove(entity));
+    }
+
+    /**
+     * <pre>
+     * Deletes the entities with the given Primary Keys.
+     * </pre>
+     *
+     * @param session the session
+     * @param ids     the primary keys
+     * @return the completion
+     */
+    public Uni<Void> removeByIds(final Mutiny.Session session,
+                                 final Collection<PK> ids) {
+        return this.listByIds(session, ids)
+                   .chain(entities -> session.removeAll(entities.toArray()));
+    }
+
+    /**
+     * Returns the Criteria Builder
+     *
+     * @return the Criteria Builder
+     */
+    protected CriteriaBuilder cb() {
+        return this.sessionFactory.getCriteriaBuilder();
+    }
+
+    /**
+     * Return the base of the query
+     *
+     * @return the Criteria Query
+     */
+    protected CriteriaQuery<ENTITY> query() {
+        return this.cb()
+                   .createQuery(this.type);
+    }
+
+    /**
+     * <pre>
+     * Returns the path for the given attribute name, supporting nested names (e.g. address.street).
+     * </pre>
+     *
+     * @param <Y>    the type parameter
+     * @param entity the entity root
+     * @param name   the attribute name
+     * @return the path
+     */
+    protected <Y> Path<Y> attr(final Root<ENTITY> entity,
+                               final String name) {
+        Path<Y> result = null;
+        for (final String path : name.split("\\.")) {
+            result = result == null ? entity.get(path) : result.get(path);
+        }
+        return result;
+    }
+
+    /**
+     * <pre>
+     * Asserts that the given value is not null.
+     * </pre>
+     *
+     * @param <T>   the type parameter
+     * @param value the value
+     * @return the value
+     * @throws UnexpectedException if the value is null
+     */
+    protected <T> T assertNotNull(final T value) {
+        if (value == null) {
+            throw new UnexpectedException(this.name + ": not null expected");
+        }
+        return value;
+    }
+
+    /**
+     * Gets the type of the persisted Object.
+     *
+     * @return the type
+     */
+    public Class<ENTITY> getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets the type of the persisted Object Primary Key.
+     *
+     * @return the key type
+     */
+    public Class<PK> getKeyType() {
+        return this.keyType;
+    }
+}
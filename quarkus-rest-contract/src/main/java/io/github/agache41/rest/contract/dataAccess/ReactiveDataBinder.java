@@ -0,0 +1,321 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.dataAccessBase.Creator;
+import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import io.github.agache41.rest.contract.update.TransferObject;
+import io.github.agache41.rest.contract.update.Update;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * <pre>
+ * Non blocking data binder between the transfer objects and the entities.
+ * It is the reactive counterpart of the {@link DataBinder} and reuses the same update and render logic,
+ * the rendering happens within the session, so the associations rendered must be eager or already fetched.
+ * </pre>
+ *
+ * @param <TO>     the type parameter
+ * @param <ENTITY> the type parameter
+ * @param <PK>     the type parameter
+ */
+public class ReactiveDataBinder<TO extends PrimaryKey<PK> & TransferObject<TO, ENTITY>, ENTITY extends PrimaryKey<PK>, PK> {
+
+    /**
+     * <pre>
+     * The Name of this binder.
+     * </pre>
+     */
+    protected final String name;
+
+    /**
+     * The TO creator.
+     */
+    protected final Creator<TO> toCreator;
+
+    /**
+     * The Entity creator.
+     */
+    protected final Creator<ENTITY> entityCreator;
+
+    /**
+     * The data access layer.
+     */
+    protected final ReactiveDataAccess<ENTITY, PK> dataAccess;
+
+    /**
+     * Instantiates a new Reactive data binder.
+     *
+     * @param toCLass    the to class
+     * @param dataAccess the data access
+     */
+    public ReactiveDataBinder(final Class<TO> toCLass,
+                              final ReactiveDataAccess<ENTITY, PK> dataAccess) {
+        this.toCreator = new Creator<>(toCLass);
+        this.entityCreator = new Creator<>(dataAccess.getType());
+        this.dataAccess = dataAccess;
+        this.name = ReactiveDataBinder.class.getSimpleName() + "<" + toCLass.getSimpleName() + "," + dataAccess.getType()
+                                                                                                             .getSimpleName() + ">";
+    }
+
+    /**
+     * Find by id.
+     *
+     * @param id the id
+     * @return the to
+     */
+    public Uni<TO> findById(final PK id) {
+        return this.dataAccess.withReadOnlySession(session -> this.dataAccess.findById(session, id)
+                                                                             .map(this::render));
+    }
+
+    /**
+     * List all.
+     *
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the stream of to
+     */
+    public Multi<TO> listAll(final int firstResult,
+                             final int maxResults) {
+        return this.readList(session -> this.dataAccess.listAll(session, firstResult, maxResults));
+    }
+
+    /**
+     * List by ids.
+     *
+     * @param ids the ids
+     * @return the stream of to
+     */
+    public Multi<TO> listByIds(final List<PK> ids) {
+        return this.readList(session -> this.dataAccess.listByIds(session, ids));
+    }
+
+    /**
+     * List by column equals value.
+     *
+     * @param stringField the string field
+     * @param value       the value
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the stream of to
+     */
+    public Multi<TO> listByColumnEqualsValue(final String stringField,
+                                             final String value,
+                                             final int firstResult,
+                                             final int maxResults) {
+        return this.readList(session -> this.dataAccess.listByColumnEqualsValue(session, stringField, value, firstResult, maxResults));
+    }
+
+    /**
+     * List by column like value.
+     *
+     * @param stringField the string field
+     * @param value       the value
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the stream of to
+     */
+    public Multi<TO> listByColumnLikeValue(final String stringField,
+                                           final String value,
+                                           final int firstResult,
+                                           final int maxResults) {
+        return this.readList(session -> this.dataAccess.listByColumnLikeValue(session, stringField, value, firstResult, maxResults));
+    }
+
+    /**
+     * List by column in values.
+     *
+     * @param stringField the string field
+     * @param values      the values
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the stream of to
+     */
+    public Multi<TO> listByColumnInValues(final String stringField,
+                                          final List<String> values,
+                                          final int firstResult,
+                                          final int maxResults) {
+        return this.readList(session -> this.dataAccess.listByColumnInValues(session, stringField, values, firstResult, maxResults));
+    }
+
+    /**
+     * Persist.
+     *
+     * @param to the to
+     * @return the to
+     */
+    public Uni<TO> persist(final TO to) {
+        return this.dataAccess.withTransaction(session -> this.dataAccess.persist(session, to.create(this.entityCreator.create(), this))
+                                                                         .call(session::flush)
+                                                                         .map(this::render));
+    }
+
+    /**
+     * Merge.
+     *
+     * @param to the to
+     * @return the to
+     */
+    public Uni<TO> merge(final TO to) {
+        return this.dataAccess.withTransaction(session -> this.dataAccess.merge(session, to.create(this.entityCreator.create(), this))
+                                                                         .call(session::flush)
+                                                                         .map(this::render));
+    }
+
+    /**
+     * <pre>
+     * Updates an entity.
+     * The persisted entity is located by the primary key and updated from the to
+     * using only the fields marked with @ {@link Update } annotation.
+     * </pre>
+     *
+     * @param to the object that contains the id and is the source for update
+     * @return the to for the persisted entity.
+     */
+    public Uni<TO> updateById(final TO to) {
+        return this.dataAccess.withTransaction(session -> this.dataAccess.findPersisted(session, to)
+                                                                         .invoke(persisted -> to.update(persisted, this))
+                                                                         .call(session::flush)
+                                                                         .map(this::render));
+    }
+
+    /**
+     * <pre>
+     * Updates multiple entities in one transaction.
+     * All the entities with the given ids must exist in the database or an UnexpectedException is raised.
+     * </pre>
+     *
+     * @param toCollection the Collection of TO objects that contains the ids and is the source for update
+     * @return the updated to
+     */
+    public Uni<List<TO>> updateByIds(final Collection<TO> toCollection) {
+        final List<PK> ids = toCollection.stream()
+                                         .map(PrimaryKey::getId)
+                                         .collect(toList());
+        return this.dataAccess.withTransaction(session -> this.dataAccess.listByIds(session, ids)
+                                                                         .map(persisted -> this.update(toCollection, persisted))
+                                                                         .call(session::flush)
+                                                                         .map(this::render));
+    }
+
+    /**
+     * <pre>
+     * Updates the persisted entities from the matching to.
+     * </pre>
+     *
+     * @param toCollection the source for update
+     * @param persisted    the persisted entities
+     * @return the updated entities, in the order of the to collection
+     */
+    protected List<ENTITY> update(final Collection<TO> toCollection,
+                                  final List<ENTITY> persisted) {
+        final Map<PK, ENTITY> persistedMap = persisted.stream()
+                                                      .collect(toMap(PrimaryKey::getId, Function.identity()));
+        return toCollection.stream()
+                           .map(to -> {
+                               final ENTITY entity = persistedMap.get(to.getId());
+                               if (entity == null) {
+                                   throw new UnexpectedException(this.name + ": Missing Entity in Update for PK=" + to.getId());
+                               }
+                               to.update(entity, this);
+                               return entity;
+                           })
+                           .collect(toList());
+    }
+
+    /**
+     * Remove by id.
+     *
+     * @param id the id
+     * @return the completion
+     */
+    public Uni<Void> removeById(final PK id) {
+        return this.dataAccess.withTransaction(session -> this.dataAccess.removeById(session, id));
+    }
+
+    /**
+     * Remove by ids.
+     *
+     * @param ids the ids
+     * @return the completion
+     */
+    public Uni<Void> removeByIds(final List<PK> ids) {
+        return this.dataAccess.withTransaction(session -> this.dataAccess.removeByIds(session, ids));
+    }
+
+    /**
+     * Render to.
+     *
+     * @param entity the entity
+     * @return the to
+     */
+    protected TO render(final ENTITY entity) {
+        return this.toCreator.create()
+                             .render(entity, this);
+    }
+
+    /**
+     * Render the list of entities.
+     *
+     * @param entities the entities
+     * @return the list of to
+     */
+    protected List<TO> render(final List<ENTITY> entities) {
+        return entities.stream()
+                       .map(this::render)
+                       .collect(toList());
+    }
+
+    /**
+     * <pre>
+     * Runs the given list read in a read only session and streams the rendered results.
+     * </pre>
+     *
+     * @param read the read
+     * @return the stream of to
+     */
+    protected Multi<TO> readList(final Function<Mutiny.Session, Uni<List<ENTITY>>> read) {
+        return this.dataAccess.withReadOnlySession(session -> read.apply(session)
+                                                                  .map(this::render))
+                              .onItem()
+                              .transformToMulti(list -> Multi.createFrom()
+                                                             .iterable(list));
+    }
+
+    /**
+     * Gets the data access.
+     *
+     * @return the data access
+     */
+    public ReactiveDataAccess<ENTITY, PK> getDataAccess() {
+        return this.dataAccess;
+    }
+}
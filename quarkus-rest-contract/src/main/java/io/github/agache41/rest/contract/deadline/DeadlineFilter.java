@@ -0,0 +1,90 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.deadline;
+
+import io.github.agache41.rest.contract.dataAccessBase.Deadline;
+import io.github.agache41.rest.contract.resourceService.ResourceService;
+import io.github.agache41.rest.contract.resourceServiceBase.ResourceServiceConfig;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <pre>
+ * Starts the Deadline of the requests on the resource services.
+ * The timeout is the shorter one of the X-Request-Timeout header and the timeout configured for the endpoint
+ * in the ResourceServiceConfig of the resource service. The deadline is removed with the response.
+ * </pre>
+ */
+@Provider
+public class DeadlineFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final ResourceServiceConfig NONE = new ResourceServiceConfig() {
+    };
+
+    private final Map<Class<?>, ResourceServiceConfig> configs = new ConcurrentHashMap<>();
+
+    /**
+     * The resource method matched by the request.
+     */
+    @Context
+    protected ResourceInfo resourceInfo;
+
+    /**
+     * The beans, used to look up the configuration of the resource services.
+     */
+    @Inject
+    protected Instance<Object> beans;
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext) {
+        long configured = 0;
+        final Method method = this.resourceInfo == null ? null : this.resourceInfo.getResourceMethod();
+        if (method != null) {
+            configured = this.config(this.resourceInfo.getResourceClass())
+                             .getTimeout(method.getName(), requestContext.getMethod());
+        }
+        Deadline.start(Deadline.timeout(Deadline.parse(requestContext.getHeaderString(Deadline.HEADER)), configured));
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext,
+                       final ContainerResponseContext responseContext) {
+        Deadline.clear();
+    }
+
+    private ResourceServiceConfig config(final Class<?> resourceClass) {
+        return this.configs.computeIfAbsent(resourceClass, type -> {
+            if (this.beans == null || !ResourceService.class.isAssignableFrom(type)) {
+                return NONE;
+            }
+            final Instance<?> resourceService = this.beans.select(type);
+            if (!resourceService.isResolvable()) {
+                return NONE;
+            }
+            return ((ResourceService<?, ?>) resourceService.get()).getConfig();
+        });
+    }
+}
@@ -0,0 +1,42 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.deadline;
+
+import jakarta.persistence.QueryTimeoutException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * <pre>
+ * Answers the requests whose query was cancelled by the query timeout with 503 Service Unavailable.
+ * </pre>
+ */
+@Provider
+public class QueryTimeoutExceptionMapper implements ExceptionMapper<QueryTimeoutException> {
+
+    @Override
+    public Response toResponse(final QueryTimeoutException exception) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                       .type(MediaType.TEXT_PLAIN)
+                       .entity(exception.getMessage())
+                       .build();
+    }
+}
@@ -0,0 +1,62 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.eTag;
+
+import io.github.agache41.rest.contract.utils.ETags;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * <pre>
+ * Adds a strong ETag header to the GET responses carrying a transfer object or a list of transfer objects.
+ * When the request holds a matching If-None-Match header, the body is dropped and 304 Not Modified is returned,
+ * so the payload is neither serialized nor transferred.
+ * </pre>
+ */
+@Provider
+public class ETagFilter implements ContainerResponseFilter {
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext,
+                       final ContainerResponseContext responseContext) {
+        if (!HttpMethod.GET.equals(requestContext.getMethod())) {
+            return;
+        }
+        if (responseContext.getStatus() != Response.Status.OK.getStatusCode() || responseContext.getHeaders()
+                                                                                                .containsKey(HttpHeaders.ETAG)) {
+            return;
+        }
+        final String eTag = ETags.of(responseContext.getEntity());
+        if (eTag == null) {
+            return;
+        }
+        final EntityTag entityTag = new EntityTag(eTag);
+        responseContext.getHeaders()
+                       .putSingle(HttpHeaders.ETAG, entityTag);
+        if (ETags.matches(requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            responseContext.setStatus(Response.Status.NOT_MODIFIED.getStatusCode());
+            responseContext.setEntity(null);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.readRouting;
+
+import io.github.agache41.rest.contract.dataAccessBase.ReadRouting;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.Cookie;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.NewCookie;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * <pre>
+ * Carries the time of the last write of the client for the {@link ReadRouting}.
+ * The request starts with the time read from the X-Last-Write header or the last-write cookie,
+ * a response to a request that wrote returns the time of its write in both, and the state is removed with the response.
+ * </pre>
+ */
+@Provider
+public class ReadRoutingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext) {
+        Long clientLastWrite = ReadRouting.parse(requestContext.getHeaderString(ReadRouting.HEADER));
+        final Cookie cookie = requestContext.getCookies()
+                                            .get(ReadRouting.COOKIE);
+        if (clientLastWrite == null && cookie != null) {
+            clientLastWrite = ReadRouting.parse(cookie.getValue());
+        }
+        ReadRouting.start(clientLastWrite);
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext,
+                       final ContainerResponseContext responseContext) {
+        final long written = ReadRouting.written();
+        if (written > 0) {
+            responseContext.getHeaders()
+                           .putSingle(ReadRouting.HEADER, String.valueOf(written));
+            responseContext.getHeaders()
+                           .add(HttpHeaders.SET_COOKIE, new NewCookie.Builder(ReadRouting.COOKIE).value(String.valueOf(written))
+                                                                                                  .path("/")
+                                                                                                  .httpOnly(true)
+                                                                                                  .build());
+        }
+        ReadRouting.clear();
+    }
+}
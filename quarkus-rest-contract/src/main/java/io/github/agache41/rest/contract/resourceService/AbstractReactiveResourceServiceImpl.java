@@ -0,0 +1,361 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.resourceService;
+
+import io.github.agache41.rest.contract.dataAccess.ReactiveDataAccess;
+import io.github.agache41.rest.contract.dataAccess.ReactiveDataBinder;
+import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import io.github.agache41.rest.contract.resourceServiceBase.ResourceServiceConfig;
+import io.github.agache41.rest.contract.update.TransferObject;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * <pre>
+ * Non blocking base class for resource REST APIs, built on Hibernate Reactive.
+ * It offers the basic paths of the {@link AbstractResourceServiceImpl} : by id and by ids, all as list, the filters equals, like and in,
+ * post, put and delete, returning Uni for single objects and Multi for lists,
+ * so that the requests are served on the event loop without pinning a worker thread during the database round trip.
+ * The autocomplete, content, between and search paths are not offered,
+ * and all as list reads the entities ordered by id, without the filter and orderBy request parameters.
+ * The deriving class only declares the path and the types:
+ *      &#064;Path("/modell")
+ *      &#064;ApplicationScoped
+ *      public class ModellResourceService extends AbstractReactiveResourceServiceImpl&#x3C;Modell, Modell, Long&#x3E; {
+ *      }
+ * The application must include the Quarkus Hibernate Reactive extension.
+ * </pre>
+ *
+ * @param <TO>     the type parameter
+ * @param <ENTITY> the type parameter
+ * @param <PK>     the type parameter
+ */
+public abstract class AbstractReactiveResourceServiceImpl<TO extends PrimaryKey<PK> & TransferObject<TO, ENTITY>, ENTITY extends PrimaryKey<PK>, PK> {
+
+    /**
+     * <pre>
+     * The reactive session factory.
+     * </pre>
+     */
+    @Inject
+    protected Mutiny.SessionFactory sessionFactory;
+
+    /**
+     * The data binder handling the binding between TO and ENTITY
+     */
+    protected ReactiveDataBinder<TO, ENTITY, PK> dataBinder;
+
+    /**
+     * Post construct builds the data access and the data binder from the generic types of the deriving class.
+     */
+    @PostConstruct
+    public void postConstruct() {
+        final Type[] types = this.typeArguments();
+        final ReactiveDataAccess<ENTITY, PK> dataAccess = new ReactiveDataAccess<>((Class<ENTITY>) types[1], (Class<PK>) types[2], this.sessionFactory);
+        this.dataBinder = new ReactiveDataBinder<>((Class<TO>) types[0], dataAccess);
+    }
+
+    /**
+     * Finds and returns the corresponding entity for the given id.
+     *
+     * @param id the id
+     * @return the to
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/{id}")
+    public Uni<TO> get(@PathParam("id") final PK id) {
+        return this.getDataBinder()
+                   .findById(id);
+    }
+
+    /**
+     * Finds and returns the corresponding entity for the given id.
+     *
+     * @param id the id
+     * @return the to
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/byId")
+    public Uni<TO> postById(final PK id) {
+        return this.get(id);
+    }
+
+    /**
+     * Returns all the entities for the given table, ordered by id and paginated.
+     *
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the stream of to
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/all/asList")
+    public Multi<TO> getAllAsList(@QueryParam("firstResult") final Integer firstResult,
+                                  @QueryParam("maxResults") final Integer maxResults) {
+        return this.getDataBinder()
+                   .listAll(this.getConfig()
+                                .getFirstResult(firstResult), this.getConfig()
+                                                                  .getMaxResults(maxResults));
+    }
+
+    /**
+     * Finds and returns the corresponding entities for the given list of ids.
+     *
+     * @param ids the ids
+     * @return the stream of to
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/byIds/{ids}/asList")
+    public Multi<TO> getByIdsAsList(@PathParam("ids") final List<PK> ids) {
+        return this.getDataBinder()
+                   .listByIds(ids);
+    }
+
+    /**
+     * Finds and returns the corresponding entities for the given list of ids.
+     *
+     * @param ids the ids
+     * @return the stream of to
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/byIds/asList")
+    public Multi<TO> postByIdsAsList(final List<PK> ids) {
+        return this.getByIdsAsList(ids);
+    }
+
+    /**
+     * Finds all entities whose value in a specified field is equal the given value.
+     *
+     * @param stringField the field to use in filter, can only be a string value
+     * @param value       the string value to equal
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the stream of to
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/filter/{stringField}/equals/{value}/asList")
+    public Multi<TO> getFilterStringFieldEqualsValueAsList(@PathParam("stringField") final String stringField,
+                                                           @PathParam("value") final String value,
+                                                           @QueryParam("firstResult") final Integer firstResult,
+                                                           @QueryParam("maxResults") final Integer maxResults) {
+        return this.getDataBinder()
+                   .listByColumnEqualsValue(stringField, value, this.getConfig()
+                                                                    .getFirstResult(firstResult), this.getConfig()
+                                                                                                      .getMaxResults(maxResults));
+    }
+
+    /**
+     * Finds all entities whose value in a specified field is like the given value.
+     *
+     * @param stringField the field to use in filter, can only be a string value
+     * @param value       the string value to be like
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the stream of to
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/filter/{stringField}/like/{value}/asList")
+    public Multi<TO> getFilterStringFieldLikeValueAsList(@PathParam("stringField") final String stringField,
+                                                         @PathParam("value") final String value,
+                                                         @QueryParam("firstResult") final Integer firstResult,
+                                                         @QueryParam("maxResults") final Integer maxResults) {
+        return this.getDataBinder()
+                   .listByColumnLikeValue(stringField, value, this.getConfig()
+                                                                  .getFirstResult(firstResult), this.getConfig()
+                                                                                                    .getMaxResults(maxResults));
+    }
+
+    /**
+     * Finds all entities whose value in a specified field is in the given values list.
+     *
+     * @param stringField the field to use in filter, can only be a string value
+     * @param values      the values list
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the stream of to
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/filter/{stringField}/in/{values}/asList")
+    public Multi<TO> getFilterStringFieldInValuesAsList(@PathParam("stringField") final String stringField,
+                                                        @PathParam("values") final List<String> values,
+                                                        @QueryParam("firstResult") final Integer firstResult,
+                                                        @QueryParam("maxResults") final Integer maxResults) {
+        return this.getDataBinder()
+                   .listByColumnInValues(stringField, values, this.getConfig()
+                                                                  .getFirstResult(firstResult), this.getConfig()
+                                                                                                    .getMaxResults(maxResults));
+    }
+
+    /**
+     * Inserts a new entity in the database or updates an existing one.
+     *
+     * @param to the to
+     * @return the inserted to
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<TO> post(final TO to) {
+        return this.getDataBinder()
+                   .merge(to);
+    }
+
+    /**
+     * Inserts a list of new entities in the database or updates the existing ones.
+     *
+     * @param toList the list of new data
+     * @return the inserted to
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/list/asList")
+    public Multi<TO> postListAsList(final List<TO> toList) {
+        return Multi.createFrom()
+                    .iterable(toList)
+                    .onItem()
+                    .transformToUniAndConcatenate(this::post);
+    }
+
+    /**
+     * Updates an existing entity by id.
+     *
+     * @param to the to
+     * @return the updated to
+     */
+    @PUT
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<TO> put(final TO to) {
+        return this.getDataBinder()
+                   .updateById(to);
+    }
+
+    /**
+     * Updates existing entities by id.
+     *
+     * @param toList the list of to
+     * @return the updated to
+     */
+    @PUT
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/list/asList")
+    public Uni<List<TO>> putListAsList(final List<TO> toList) {
+        return this.getDataBinder()
+                   .updateByIds(toList);
+    }
+
+    /**
+     * Deletes the entity for the given id.
+     *
+     * @param id the id
+     * @return the completion
+     */
+    @DELETE
+    @Path("/{id}")
+    public Uni<Void> delete(@PathParam("id") final PK id) {
+        return this.getDataBinder()
+                   .removeById(id);
+    }
+
+    /**
+     * Deletes all the entities for the given ids in the request Body.
+     *
+     * @param ids the ids
+     * @return the completion
+     */
+    @DELETE
+    @Path("/byIds")
+    public Uni<Void> deleteByIds(final List<PK> ids) {
+        return this.getDataBinder()
+                   .removeByIds(ids);
+    }
+
+    /**
+     * Deletes all the entities for the given ids.
+     *
+     * @param ids the ids
+     * @return the completion
+     */
+    @DELETE
+    @Path("/byIds/{ids}")
+    public Uni<Void> deleteByIdsInPath(@PathParam("ids") final List<PK> ids) {
+        return this.getDataBinder()
+                   .removeByIds(ids);
+    }
+
+    /**
+     * Gets the default configuration object.
+     * The deriving classes can override this method by means of a simple getter.
+     *
+     * @return the config object
+     */
+    public ResourceServiceConfig getConfig() {
+        return new ResourceServiceConfig() {
+        };
+    }
+
+    /**
+     * Gets the data binder.
+     *
+     * @return the data binder
+     */
+    public ReactiveDataBinder<TO, ENTITY, PK> getDataBinder() {
+        return this.dataBinder;
+    }
+
+    /**
+     * <pre>
+     * Resolves the actual type arguments TO, ENTITY and PK from the class hierarchy.
+     * </pre>
+     *
+     * @return the type arguments
+     */
+    protected Type[] typeArguments() {
+        Class<?> current = this.getClass();
+        while (current != null && current.getSuperclass() != AbstractReactiveResourceServiceImpl.class) {
+            current = current.getSuperclass();
+        }
+        if (current == null || !(current.getGenericSuperclass() instanceof ParameterizedType parameterizedType)) {
+            throw new UnexpectedException(this.getClass()
+                                              .getSimpleName() + ": the types of the resource service can not be resolved.");
+        }
+        return parameterizedType.getActualTypeArguments();
+    }
+}
@@ -19,27 +19,51 @@ package io.github.agache41.rest.contract.resourceService;
 
 import io.github.agache41.rest.contract.dataAccess.DataAccess;
 import io.github.agache41.rest.contract.dataAccess.DataBinder;
+import io.github.agache41.rest.contract.dataAccessBase.Changes;
+import io.github.agache41.rest.contract.dataAccessBase.ChunkedImport;
 import io.github.agache41.rest.contract.dataAccessBase.IdGroup;
+import io.github.agache41.rest.contract.dataAccessBase.ImportChunk;
 import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.dataAccessBase.WriteBehind;
+import io.github.agache41.rest.contract.exceptions.PreconditionFailedException;
+import io.github.agache41.rest.contract.exceptions.VersionConflictException;
+import io.github.agache41.rest.contract.resourceServiceBase.ResourceServiceConfig;
 import io.github.agache41.rest.contract.update.TransferObject;
+import io.github.agache41.rest.contract.utils.CsvFormat;
+import io.github.agache41.rest.contract.writeBehind.WriteBehindFilter;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.ws.rs.*;
-import jakarta.ws.rs.core.Context;
-import jakarta.ws.rs.core.MediaType;
-import jakarta.ws.rs.core.UriInfo;
-
+import jakarta.ws.rs.core.*;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.Providers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 /**
  * <pre>
  * Base class for resource REST APIs.
  * The class implements methods for basic REST operations on the underlying Class
+ * On Java 21 with RESTEasy Reactive the endpoints of the deriving class can run on virtual threads
+ * instead of the worker pool, by annotating the deriving class :
+ *      &#064;Path("/modell")
+ *      &#064;RunOnVirtualThread
+ *      public class ModellResourceService extends AbstractResourceServiceImpl&#x3C;Modell, Modell, Long&#x3E; {
+ *      }
  * </pre>
  *
  * @param <TO>     the type parameter
@@ -63,6 +87,28 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
     @Named("DataBinder")
     protected DataBinder<TO, ENTITY, PK> dataBinder;
 
+    /**
+     * The headers of the current request, used for the conditional requests.
+     */
+    @Context
+    protected HttpHeaders httpHeaders;
+
+    /**
+     * The current request, used for evaluating the preconditions.
+     */
+    @Context
+    protected Request request;
+
+    /**
+     * The providers, used for reading the lines of the streamed imports.
+     */
+    @Context
+    protected Providers providers;
+
+    /**
+     * The buffer of the updates written behind, created on first use if enabled in the config.
+     */
+    private volatile WriteBehind<TO, PK> writeBehind;
 
     /**
      * Post construct is called to assure correct init
@@ -73,6 +119,16 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
             .setDataAccess(this.getDataAccess());
     }
 
+    /**
+     * Pre destroy flushes the updates written behind, if any.
+     */
+    @PreDestroy
+    public void preDestroy() {
+        if (this.writeBehind != null) {
+            this.writeBehind.close();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -81,8 +137,26 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/{id}")
     public TO get(@PathParam("id") final PK id) {
-        return this.getDataBinder()
-                   .findById(id);
+        if (this.httpHeaders == null || this.httpHeaders.getHeaderString(HttpHeaders.IF_NONE_MATCH) == null) {
+            return this.getDataBinder()
+                       .findById(id);
+        }
+        // the lightweight tag avoids loading and rendering an unchanged versioned entity,
+        // otherwise the transfer object rendered for the tag is the response.
+        final TO to = this.getDataBinder()
+                          .isVersionTagged() ? null : this.getDataBinder()
+                                                          .findById(id);
+        final String eTag = to == null ? this.getDataBinder()
+                                             .eTag(id) : this.getDataBinder()
+                                                             .eTag(to);
+        if (eTag != null) {
+            final Response.ResponseBuilder notModified = this.request.evaluatePreconditions(new EntityTag(eTag));
+            if (notModified != null) {
+                throw new WebApplicationException(notModified.build());
+            }
+        }
+        return to != null ? to : this.getDataBinder()
+                                     .findById(id);
     }
 
 
@@ -114,6 +188,74 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
                                                                   .getMaxResults(maxResults), uriInfo != null ? uriInfo.getQueryParameters() : null);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GET
+    @Produces(CsvFormat.TEXT_CSV)
+    @Path("/export/asCsv")
+    public StreamingOutput getExportAsCsv(@Context final UriInfo uriInfo) {
+        // the query runs here, so bad filters are answered with an error status before the first row is written
+        final Stream<TO> rows = this.getDataBinder()
+                                    .streamAll(uriInfo != null ? uriInfo.getQueryParameters() : null, this.getConfig()
+                                                                                                          .getExportFetchSize());
+        return output -> {
+            final Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+            this.getDataBinder()
+                .writeAsCsv(rows, writer);
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/aggregate")
+    public List<Map<String, Object>> getAggregate(@QueryParam("groupBy") final List<String> groupBy,
+                                                  @QueryParam("measure") final List<String> measures,
+                                                  @QueryParam("firstResult") final Integer firstResult,
+                                                  @QueryParam("maxResults") final Integer maxResults,
+                                                  @Context final UriInfo uriInfo) {
+        return this.getDataAccess()
+                   .readOnly(() -> this.getDataAccess()
+                                       .aggregate(groupBy, measures, this.getConfig()
+                                                                         .getFirstResult(firstResult), this.getConfig()
+                                                                                                           .getMaxResults(maxResults), uriInfo != null ? uriInfo.getQueryParameters() : null));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/facets")
+    public Map<String, Map<Object, Long>> getFacets(@QueryParam("fields") final List<String> fields,
+                                                    @QueryParam("maxResults") final Integer maxResults,
+                                                    @Context final UriInfo uriInfo) {
+        return this.getDataBinder()
+                   .facets(fields, this.getConfig()
+                                       .getMaxResults(maxResults), uriInfo != null ? uriInfo.getQueryParameters() : null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/changes")
+    public Changes<TO, PK> getChanges(@QueryParam("since") final String since,
+                                      @QueryParam("maxResults") final Integer maxResults) {
+        return this.getDataBinder()
+                   .changes(since, this.getConfig()
+                                       .getMaxResults(maxResults), this.getConfig()
+                                                                       .getChangesSettleTime());
+    }
+
 
     /**
      * {@inheritDoc}
@@ -124,7 +266,7 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
     @Path("/byIds/{ids}/asList")
     public List<TO> getByIdsAsList(@PathParam("ids") final List<PK> ids) {
         return this.getDataBinder()
-                   .listByIds(ids);
+                   .listByIdsInOrder(ids);
     }
 
     /**
@@ -173,6 +315,41 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
                                                                                                     .getMaxResults(maxResults));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/filter/{field}/between/{from}/{to}/asList")
+    public List<TO> getFilterFieldBetweenValuesAsList(@PathParam("field") final String field,
+                                                      @PathParam("from") final String from,
+                                                      @PathParam("to") final String to,
+                                                      @QueryParam("firstResult") final Integer firstResult,
+                                                      @QueryParam("maxResults") final Integer maxResults) {
+        return this.getDataBinder()
+                   .listByColumnBetweenValues(field, from, to, this.getConfig()
+                                                                   .getFirstResult(firstResult), this.getConfig()
+                                                                                                     .getMaxResults(maxResults));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/search/{stringField}/{terms}/asList")
+    public List<TO> getSearchStringFieldTermsAsList(@PathParam("stringField") final String stringField,
+                                                    @PathParam("terms") final String terms,
+                                                    @QueryParam("firstResult") final Integer firstResult,
+                                                    @QueryParam("maxResults") final Integer maxResults) {
+        return this.getDataBinder()
+                   .listByColumnSearchTerms(stringField, terms, this.getConfig()
+                                                                    .getFirstResult(firstResult), this.getConfig()
+                                                                                                      .getMaxResults(maxResults));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -207,8 +384,9 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
             return Collections.emptyList();
         }
         return this.getDataAccess()
-                   .autocompleteByColumnLikeValue(stringField, value, this.getConfig()
-                                                                          .getAutocompleteMaxResults(maxResults), uriInfo != null ? uriInfo.getQueryParameters() : null);
+                   .readOnly(() -> this.getDataAccess()
+                                       .autocompleteByColumnLikeValue(stringField, value, this.getConfig()
+                                                                                              .getAutocompleteMaxResults(maxResults), uriInfo != null ? uriInfo.getQueryParameters() : null));
     }
 
     /**
@@ -228,8 +406,9 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
             return Collections.emptyList();
         }
         return this.getDataAccess()
-                   .autocompleteIdsByColumnLikeValue(stringField, value, this.getConfig()
-                                                                             .getAutocompleteMaxResults(maxResults), uriInfo != null ? uriInfo.getQueryParameters() : null);
+                   .readOnly(() -> this.getDataAccess()
+                                       .autocompleteIdsByColumnLikeValue(stringField, value, this.getConfig()
+                                                                                                 .getAutocompleteMaxResults(maxResults), uriInfo != null ? uriInfo.getQueryParameters() : null));
     }
 
     /**
@@ -291,6 +470,32 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
         return this.doVerify(persisted);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @POST
+    @Consumes(ChunkedImport.APPLICATION_NDJSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/import/asStream")
+    public List<ImportChunk> postImportAsStream(final InputStream input,
+                                                @QueryParam("skip") final Long skip,
+                                                @QueryParam("chunkSize") final Integer chunkSize) {
+        final Class<TO> toClass = this.getDataBinder()
+                                      .getToClass();
+        final Annotation[] annotations = new Annotation[0];
+        final MessageBodyReader<TO> reader = this.providers.getMessageBodyReader(toClass, toClass, annotations, MediaType.APPLICATION_JSON_TYPE);
+        final ChunkedImport<TO> chunkedImport = new ChunkedImport<>((line, length) -> reader.readFrom(toClass, toClass, annotations, MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), new ByteArrayInputStream(line, 0, length)), this.getConfig()
+                                                                                                                                                                                                                                                 .getImportChunkSize(chunkSize));
+        try {
+            // every chunk goes through the binder proxy, so that it commits in its own transaction
+            return chunkedImport.run(input, skip == null ? 0 : skip, chunk -> this.getDataBinder()
+                                                                                  .importChunk(chunk));
+        } catch (final IOException exception) {
+            throw new WebApplicationException(exception, Response.Status.BAD_REQUEST);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -299,9 +504,48 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public TO put(final TO to) {
-        final TO updated = this.getDataBinder()
-                               .updateById(to);
-        return this.doVerify(updated);
+        final String ifMatch = this.httpHeaders == null ? null : this.httpHeaders.getHeaderString(HttpHeaders.IF_MATCH);
+        if (ifMatch == null && this.getConfig()
+                                   .isWriteBehind()) {
+            this.getWriteBehind()
+                .submit(to);
+            WriteBehindFilter.accepted();
+            return to;
+        }
+        try {
+            if (ifMatch == null) {
+                final TO updated = this.getDataBinder()
+                                       .updateById(to);
+                return this.doVerify(updated);
+            }
+            final TO updated = this.getDataBinder()
+                                   .updateById(to, ifMatch);
+            return this.doVerify(updated);
+        } catch (final PreconditionFailedException exception) {
+            final Response.ResponseBuilder preconditionFailed = Response.status(Response.Status.PRECONDITION_FAILED);
+            if (exception.getETag() != null) {
+                preconditionFailed.tag(new EntityTag(exception.getETag()));
+            }
+            throw new WebApplicationException(exception.getMessage(), exception, preconditionFailed.build());
+        } catch (final VersionConflictException exception) {
+            throw this.conflict(exception);
+        }
+    }
+
+    /**
+     * <pre>
+     * Translates a version conflict in a 409 Conflict response.
+     * The body maps the primary keys of the conflicting entities to their current versions.
+     * </pre>
+     *
+     * @param exception the version conflict
+     * @return the web application exception to throw
+     */
+    protected WebApplicationException conflict(final VersionConflictException exception) {
+        return new WebApplicationException(exception.getMessage(), exception, Response.status(Response.Status.CONFLICT)
+                                                                                      .type(MediaType.APPLICATION_JSON)
+                                                                                      .entity(exception.getConflicts())
+                                                                                      .build());
     }
 
     /**
@@ -313,9 +557,27 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/list/asList")
     public List<TO> putListAsList(final List<TO> toList) {
-        final List<TO> updated = this.getDataBinder()
-                                     .updateByIds(toList, true);
-        return this.doVerify(updated);
+        try {
+            final List<TO> updated = this.getDataBinder()
+                                         .updateByIds(toList, true);
+            return this.doVerify(updated);
+        } catch (final VersionConflictException exception) {
+            throw this.conflict(exception);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @PUT
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/upsert/asList")
+    public List<TO> putUpsertListAsList(final List<TO> toList) {
+        final List<TO> upserted = this.getDataBinder()
+                                      .upsert(toList);
+        return this.doVerify(upserted);
     }
 
     /**
@@ -367,7 +629,8 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
         if (id == null) {
             throw new RuntimeException(" Verify fail " + updated + " has null id! ");
         }
-        final TO actual = this.get(id);
+        final TO actual = this.getDataBinder()
+                              .findById(id);
         if (!updated.equals(actual)) {
             throw new RuntimeException(" Verify fail " + updated + " <> " + actual);
         }
@@ -386,6 +649,30 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
                       .collect(Collectors.toList());
     }
 
+    /**
+     * <pre>
+     * The buffer of the updates written behind, created on first use with the settings of the config.
+     * The buffer exposes the counters of the updates submitted, coalesced, written and failed.
+     * </pre>
+     *
+     * @return the write behind buffer
+     * @see ResourceServiceConfig#isWriteBehind()
+     */
+    public WriteBehind<TO, PK> getWriteBehind() {
+        WriteBehind<TO, PK> current = this.writeBehind;
+        if (current == null) {
+            synchronized (this) {
+                if (this.writeBehind == null) {
+                    final ResourceServiceConfig config = this.getConfig();
+                    final DataBinder<TO, ENTITY, PK> binder = this.getDataBinder();
+                    this.writeBehind = new WriteBehind<>(binder.getToClass(), binder, config.getWriteBehindCapacity(), config.getWriteBehindBatchSize(), config.getWriteBehindFlushInterval(), batch -> binder.updateByIds(batch, true));
+                }
+                current = this.writeBehind;
+            }
+        }
+        return current;
+    }
+
     /**
      * The data binder getter
      *
@@ -0,0 +1,53 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.responseCache;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <pre>
+ * Marks a resource service whose serialized responses for get and getByIdsAsList are to be cached.
+ * The json of every transfer object is kept per id in an off heap cache and written as it is on the next request.
+ * The ids written through any data binder of the entity are dropped, the other entries expire after the time to live.
+ * Example:
+ *      &#x40;Path("/modell2")
+ *      &#x40;CachedResponses(maxBytes = 16 * 1024 * 1024)
+ *      public class Modell2ResourceService extends AbstractResourceServiceImpl&#x3C;Modell2, Modell2, String&#x3E; {
+ *      }
+ * </pre>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CachedResponses {
+    /**
+     * The maximum number of bytes held in the cache of the resource service.
+     *
+     * @return the max bytes
+     */
+    long maxBytes() default 64 * 1024 * 1024;
+
+    /**
+     * The time to live in milliseconds of the cached responses.
+     *
+     * @return the time to live
+     */
+    long timeToLive() default 60 * 1000;
+}
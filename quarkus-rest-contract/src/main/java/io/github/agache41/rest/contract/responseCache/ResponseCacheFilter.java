@@ -0,0 +1,201 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.responseCache;
+
+import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.utils.ETags;
+import io.github.agache41.rest.contract.utils.OffHeapCache;
+import io.github.agache41.rest.contract.utils.ResponseCache;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.container.*;
+import jakarta.ws.rs.core.*;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.Providers;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <pre>
+ * Serves the get and getByIdsAsList methods of the resource services annotated with {@link CachedResponses}
+ * from an off heap cache holding the serialized json of every transfer object per id.
+ * On a hit the cached bytes are written to the output without serialization.
+ * On a miss the transfer objects are serialized one by one, cached and written.
+ * Lists are assembled by concatenating the cached fragments in the order of the ids,
+ * the order the resource service lists them in on a miss, so both carry the same body and ETag.
+ * The strong tag of every transfer object is cached next to its json, so cached responses carry the same ETag.
+ * The ids written through any data binder of the entity are dropped, the other entries expire after the time to live.
+ * Conditional requests holding an If-None-Match header are not served from the cache.
+ * </pre>
+ *
+ * @see ResponseCache
+ */
+@Provider
+public class ResponseCacheFilter implements ContainerRequestFilter, WriterInterceptor {
+
+    private static final String CACHE_PROPERTY = ResponseCacheFilter.class.getName() + ".cache";
+    private static final String GENERATION_PROPERTY = ResponseCacheFilter.class.getName() + ".generation";
+    private static final String GET = "get";
+    private static final String GET_BY_IDS_AS_LIST = "getByIdsAsList";
+    private static final String ID = "id";
+    private static final String IDS = "ids";
+    private static final String SEPARATOR = ",";
+
+    private final Map<Class<?>, ResponseCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * The resource info of the current request.
+     */
+    @Context
+    ResourceInfo resourceInfo;
+
+    /**
+     * The providers used for the serialization of the single transfer objects.
+     */
+    @Context
+    Providers providers;
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext) {
+        final ResponseCache cache = this.getCache();
+        if (cache == null || !HttpMethod.GET.equals(requestContext.getMethod())) {
+            return;
+        }
+        if (requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH) != null) {
+            // conditional requests are answered by the resource service with the lightweight tag
+            return;
+        }
+        // taken before the transfer objects are read, a write meanwhile prevents caching them
+        final long generation = cache.generation();
+        final String methodName = this.resourceInfo.getResourceMethod()
+                                                   .getName();
+        if (GET.equals(methodName)) {
+            final String id = requestContext.getUriInfo()
+                                            .getPathParameters()
+                                            .getFirst(ID);
+            final String eTag = cache.eTag(id);
+            final ByteBuffer slab = eTag == null ? null : cache.get(id);
+            if (slab != null) {
+                requestContext.abortWith(cached(output -> OffHeapCache.writeTo(slab, output), eTag));
+                return;
+            }
+        } else if (GET_BY_IDS_AS_LIST.equals(methodName)) {
+            final String ids = requestContext.getUriInfo()
+                                             .getPathParameters()
+                                             .getFirst(IDS);
+            final List<String> keys = ids == null ? Collections.emptyList() : Arrays.asList(ids.split(SEPARATOR));
+            final List<String> eTags = new ArrayList<>(keys.size());
+            for (final String key : keys) {
+                final String eTag = cache.eTag(key);
+                eTags.add(eTag == null ? null : ETags.ofElement(key, eTag));
+            }
+            final List<ByteBuffer> slabs = keys.isEmpty() || eTags.contains(null) ? null : cache.getArray(keys);
+            if (slabs != null) {
+                requestContext.abortWith(cached(output -> OffHeapCache.writeTo(slabs, output), ETags.combine(eTags)));
+                return;
+            }
+        } else {
+            return;
+        }
+        requestContext.setProperty(CACHE_PROPERTY, cache);
+        requestContext.setProperty(GENERATION_PROPERTY, generation);
+    }
+
+    @Override
+    public void aroundWriteTo(final WriterInterceptorContext context) throws IOException {
+        final ResponseCache cache = (ResponseCache) context.getProperty(CACHE_PROPERTY);
+        final Object entity = context.getEntity();
+        if (cache == null || entity == null) {
+            context.proceed();
+            return;
+        }
+        final long generation = (Long) context.getProperty(GENERATION_PROPERTY);
+        if (entity instanceof PrimaryKey) {
+            final byte[] bytes = this.serialize(entity, context);
+            cache.put(entity, bytes, generation);
+            context.getOutputStream()
+                   .write(bytes);
+        } else if (entity instanceof List && ((List<?>) entity).stream()
+                                                                .allMatch(PrimaryKey.class::isInstance)) {
+            final List<?> list = (List<?>) entity;
+            final List<ByteBuffer> fragments = new ArrayList<>(list.size());
+            for (final Object element : list) {
+                final byte[] bytes = this.serialize(element, context);
+                cache.put(element, bytes, generation);
+                fragments.add(ByteBuffer.wrap(bytes));
+            }
+            writeArray(fragments, context.getOutputStream());
+        } else {
+            context.proceed();
+        }
+    }
+
+    /**
+     * Gets the cache of the current resource service.
+     *
+     * @return the cache or null if the resource service is not annotated with {@link CachedResponses}
+     */
+    protected ResponseCache getCache() {
+        final Class<?> resourceClass = this.resourceInfo.getResourceClass();
+        if (resourceClass == null) {
+            return null;
+        }
+        final CachedResponses cachedResponses = resourceClass.getAnnotation(CachedResponses.class);
+        if (cachedResponses == null) {
+            return null;
+        }
+        return this.caches.computeIfAbsent(resourceClass, rc -> new ResponseCache(rc, cachedResponses.maxBytes(), cachedResponses.timeToLive()));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private byte[] serialize(final Object element,
+                             final WriterInterceptorContext context) throws IOException {
+        final Class type = element.getClass();
+        final MessageBodyWriter writer = this.providers.getMessageBodyWriter(type, type, context.getAnnotations(), context.getMediaType());
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeTo(element, type, type, context.getAnnotations(), context.getMediaType(), context.getHeaders(), output);
+        return output.toByteArray();
+    }
+
+    private static void writeArray(final List<ByteBuffer> fragments,
+                                   final OutputStream output) throws IOException {
+        output.write('[');
+        for (int index = 0; index < fragments.size(); index++) {
+            if (index > 0) {
+                output.write(',');
+            }
+            final ByteBuffer fragment = fragments.get(index);
+            output.write(fragment.array(), fragment.arrayOffset(), fragment.remaining());
+        }
+        output.write(']');
+    }
+
+    private static Response cached(final StreamingOutput streamingOutput,
+                                   final String eTag) {
+        return Response.ok(streamingOutput, MediaType.APPLICATION_JSON_TYPE)
+                       .tag(new EntityTag(eTag))
+                       .build();
+    }
+}
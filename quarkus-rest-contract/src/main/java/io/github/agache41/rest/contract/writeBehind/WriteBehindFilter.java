@@ -0,0 +1,63 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.writeBehind;
+
+import io.github.agache41.rest.contract.dataAccessBase.WriteBehind;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * <pre>
+ * Answers the updates queued in the {@link WriteBehind} buffer with 202 Accepted.
+ * The resource method marks the request with accepted() and returns the to as usual,
+ * the status of the successful response is then set here. The mark is removed with the response.
+ * </pre>
+ */
+@Provider
+public class WriteBehindFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final ThreadLocal<Boolean> accepted = new ThreadLocal<>();
+
+    /**
+     * <pre>
+     * Marks the current request as accepted for a later write.
+     * </pre>
+     */
+    public static void accepted() {
+        accepted.set(Boolean.TRUE);
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext) {
+        accepted.remove();
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext,
+                       final ContainerResponseContext responseContext) {
+        if (accepted.get() != null && responseContext.getStatus() == Response.Status.OK.getStatusCode()) {
+            responseContext.setStatus(Response.Status.ACCEPTED.getStatusCode());
+        }
+        accepted.remove();
+    }
+}
@@ -0,0 +1,171 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.RestContractCoreConstants;
+import io.smallrye.mutiny.Uni;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaQuery;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * <pre>
+ * A Mutiny.SessionFactory running the reactive data access on a blocking H2 Entity Manager.
+ * Hibernate Reactive does not support H2, so the reactive code is tested over this bridge :
+ * every Uni runs its blocking call when subscribed, in a session and a transaction of its own.
+ * Only the methods used by the reactive data access are supported.
+ * </pre>
+ */
+public class BlockingMutinySessionFactory {
+
+    private static EntityManagerFactory entityManagerFactory;
+
+    private BlockingMutinySessionFactory() {
+    }
+
+    /**
+     * Creates the session factory.
+     *
+     * @return the session factory
+     */
+    public static Mutiny.SessionFactory create() {
+        return proxy(Mutiny.SessionFactory.class, (proxy, method, args) -> switch (method.getName()) {
+            case "withSession" -> withSession(castWork(args[0]), false);
+            case "withTransaction" -> withSession(castWork(args[0]), true);
+            case "getCriteriaBuilder" -> getEntityManagerFactory().getCriteriaBuilder();
+            default -> unsupported(method);
+        });
+    }
+
+    private static EntityManagerFactory getEntityManagerFactory() {
+        if (entityManagerFactory == null)
+            entityManagerFactory = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:reactive;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"));
+        return entityManagerFactory;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Mutiny.Session, Uni<Object>> castWork(final Object work) {
+        return (Function<Mutiny.Session, Uni<Object>>) work;
+    }
+
+    private static Uni<Object> withSession(final Function<Mutiny.Session, Uni<Object>> work,
+                                           final boolean transactional) {
+        return Uni.createFrom()
+                  .deferred(() -> {
+                      final EntityManager em = getEntityManagerFactory().createEntityManager();
+                      if (transactional) {
+                          em.getTransaction()
+                            .begin();
+                      }
+                      return work.apply(session(em))
+                                 .onItem()
+                                 .invoke(() -> {
+                                     if (transactional) {
+                                         em.getTransaction()
+                                           .commit();
+                                     }
+                                 })
+                                 .onFailure()
+                                 .invoke(() -> {
+                                     if (em.getTransaction()
+                                           .isActive()) {
+                                         em.getTransaction()
+                                           .rollback();
+                                     }
+                                 })
+                                 .eventually(em::close);
+                  });
+    }
+
+    private static Mutiny.Session session(final EntityManager em) {
+        return proxy(Mutiny.Session.class, (proxy, method, args) -> switch (method.getName()) {
+            case "find" -> item(() -> em.find((Class<?>) args[0], args[1]));
+            case "persist" -> item(() -> {
+                em.persist(args[0]);
+                return null;
+            });
+            case "merge" -> item(() -> em.merge(args[0]));
+            case "remove" -> item(() -> {
+                em.remove(args[0]);
+                return null;
+            });
+            case "removeAll" -> item(() -> {
+                for (final Object entity : (Object[]) args[0]) {
+                    em.remove(entity);
+                }
+                return null;
+            });
+            case "flush" -> item(() -> {
+                em.flush();
+                return null;
+            });
+            case "setDefaultReadOnly" -> {
+                em.unwrap(Session.class)
+                  .setDefaultReadOnly((Boolean) args[0]);
+                yield proxy;
+            }
+            case "setFlushMode" -> {
+                em.unwrap(Session.class)
+                  .setHibernateFlushMode((FlushMode) args[0]);
+                yield proxy;
+            }
+            case "createQuery" -> args.length == 1 && args[0] instanceof CriteriaQuery<?> criteriaQuery ? query(em.createQuery(criteriaQuery)) : unsupported(method);
+            default -> unsupported(method);
+        });
+    }
+
+    private static Mutiny.SelectionQuery<?> query(final TypedQuery<?> typedQuery) {
+        return proxy(Mutiny.SelectionQuery.class, (proxy, method, args) -> switch (method.getName()) {
+            case "setFirstResult" -> {
+                typedQuery.setFirstResult((Integer) args[0]);
+                yield proxy;
+            }
+            case "setMaxResults" -> {
+                typedQuery.setMaxResults((Integer) args[0]);
+                yield proxy;
+            }
+            case "getResultList" -> item(typedQuery::getResultList);
+            default -> unsupported(method);
+        });
+    }
+
+    private static Uni<Object> item(final Supplier<Object> call) {
+        return Uni.createFrom()
+                  .item(call);
+    }
+
+    private static Object unsupported(final Method method) {
+        throw new UnsupportedOperationException(method.toString());
+    }
+
+    private static <T> T proxy(final Class<T> type,
+                               final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(BlockingMutinySessionFactory.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
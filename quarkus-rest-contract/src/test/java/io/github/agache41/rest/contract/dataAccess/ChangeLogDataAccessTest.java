@@ -0,0 +1,150 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.RestContractCoreConstants;
+import io.github.agache41.rest.contract.changeLog.ChangeLogEntry;
+import io.github.agache41.rest.contract.changeLog.ChangeLogPage;
+import io.github.agache41.rest.contract.entities.Modell;
+import io.github.agache41.rest.contract.entities.Modell2;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeLogDataAccessTest {
+
+    private static final EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:changeLog;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"));
+
+    private final ChangeLogDataAccess dataAccess = new ChangeLogDataAccess();
+
+    private final ChangeLogDataAccess lateDataAccess = new ChangeLogDataAccess();
+
+    private final OtherChangeLogDataAccess otherDataAccess = new OtherChangeLogDataAccess();
+
+    private static List<String> entityIds(final ChangeLogPage changes) {
+        return changes.getEntries()
+                      .stream()
+                      .map(ChangeLogEntry::getEntityId)
+                      .collect(Collectors.toList());
+    }
+
+    private void logChange(final ChangeLogDataAccess dataAccess,
+                           final String id) {
+        dataAccess.beginTransaction();
+        dataAccess.logChanges(ChangeLogEntry.Operation.UPSERT, List.of(id));
+        dataAccess.commitTransaction();
+    }
+
+    private long before(final String entityId) {
+        return this.dataAccess.listChanges(0, Long.MAX_VALUE, 100)
+                              .getEntries()
+                              .stream()
+                              .filter(change -> entityId.equals(change.getEntityId()))
+                              .findFirst()
+                              .orElseThrow()
+                              .getId() - 1;
+    }
+
+    @Test
+    void testPageStopsBeforeLateCommit() {
+        //given
+        this.logChange(this.dataAccess, "first");
+        final long since = this.before("first");
+        this.lateDataAccess.beginTransaction();
+        this.lateDataAccess.logChanges(ChangeLogEntry.Operation.UPSERT, List.of("late"));
+        this.logChange(this.dataAccess, "third");
+
+        //when the late change is still running, the page stops before the gap
+        assertEquals(List.of("first"), entityIds(this.dataAccess.listChanges(since, 0, 100)));
+
+        //then once committed, it is listed in the order of its id
+        this.lateDataAccess.commitTransaction();
+        assertEquals(List.of("first", "late", "third"), entityIds(this.dataAccess.listChanges(since, 0, 100)));
+    }
+
+    @Test
+    void testGapListedOnceSettled() {
+        //given a change rolled back
+        this.logChange(this.dataAccess, "before");
+        final long since = this.before("before");
+        this.lateDataAccess.beginTransaction();
+        this.lateDataAccess.logChanges(ChangeLogEntry.Operation.UPSERT, List.of("rolledBack"));
+        this.lateDataAccess.em.getTransaction()
+                              .rollback();
+        this.logChange(this.dataAccess, "after");
+
+        //then the change after the gap waits until it is settled
+        assertEquals(List.of("before"), entityIds(this.dataAccess.listChanges(since, 0, 100)));
+        assertEquals(List.of("before", "after"), entityIds(this.dataAccess.listChanges(since, Long.MAX_VALUE, 100)));
+    }
+
+    @Test
+    void testChangesOfOtherEntitiesSkipped() {
+        //given the settled changes of another entity after a change of the entity
+        this.logChange(this.dataAccess, "own");
+        final long since = this.before("own");
+        for (long index = 0; index < 3; index++) {
+            this.otherDataAccess.beginTransaction();
+            this.otherDataAccess.logChanges(ChangeLogEntry.Operation.UPSERT, List.of(index));
+            this.otherDataAccess.commitTransaction();
+        }
+        final List<ChangeLogEntry> others = this.otherDataAccess.listChanges(since, 0, 100)
+                                                                .getEntries();
+
+        //when
+        final ChangeLogPage page = this.dataAccess.listChanges(since, Long.MAX_VALUE, 2);
+
+        //then the page holds the changes of the entity only, and its token moves past the other changes
+        assertEquals(List.of("own"), entityIds(page));
+        assertEquals(3, others.size());
+        assertEquals(others.get(2)
+                           .getId(), page.getToken());
+        assertFalse(page.isMore());
+
+        //when
+        this.logChange(this.dataAccess, "ownAgain");
+        this.logChange(this.dataAccess, "ownLast");
+
+        //then a full page tells that more can be read
+        final ChangeLogPage full = this.dataAccess.listChanges(page.getToken(), Long.MAX_VALUE, 1);
+        assertEquals(List.of("ownAgain"), entityIds(full));
+        assertTrue(full.isMore());
+        assertEquals(List.of("ownLast"), entityIds(this.dataAccess.listChanges(full.getToken(), Long.MAX_VALUE, 1)));
+    }
+
+    private static class ChangeLogDataAccess extends DataAccess<Modell2, String> {
+
+        ChangeLogDataAccess() {
+            super(Modell2.class, String.class);
+            this.em = entityManagerFactory.createEntityManager();
+        }
+    }
+
+    private static class OtherChangeLogDataAccess extends DataAccess<Modell, Long> {
+
+        OtherChangeLogDataAccess() {
+            super(Modell.class, Long.class);
+            this.em = entityManagerFactory.createEntityManager();
+        }
+    }
+}
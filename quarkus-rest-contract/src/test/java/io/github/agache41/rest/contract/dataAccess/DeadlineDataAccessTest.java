@@ -0,0 +1,92 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.RestContractCoreConstants;
+import io.github.agache41.rest.contract.dataAccessBase.AbstractDataAccess;
+import io.github.agache41.rest.contract.dataAccessBase.Deadline;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.exceptions.DeadlineExceededException;
+import jakarta.persistence.Persistence;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeadlineDataAccessTest {
+
+    private final DeadlineDataAccess dataAccess = new DeadlineDataAccess();
+
+    @AfterEach
+    void afterEach() {
+        Deadline.clear();
+    }
+
+    @Test
+    void testQueryTimeout() {
+        // without deadline the queries run without timeout
+        assertNull(this.dataAccess.listAllQuery()
+                                  .getHints()
+                                  .get(AbstractDataAccess.HINT_QUERY_TIMEOUT));
+        // the remaining time is applied in whole seconds
+        final Object timeout = Deadline.within(60_000, () -> this.dataAccess.listAllQuery()
+                                                                            .getHints()
+                                                                            .get(AbstractDataAccess.HINT_QUERY_TIMEOUT));
+        assertEquals(60_000, timeout);
+        assertFalse(Deadline.isRunning());
+        assertNotNull(Deadline.within(60_000, () -> this.dataAccess.listAll(0, 10, Collections.emptyMap())));
+    }
+
+    @Test
+    void testDeadlineExceeded() throws InterruptedException {
+        Deadline.start(1);
+        Thread.sleep(10);
+        assertThrows(DeadlineExceededException.class, () -> this.dataAccess.listAll(0, 10, Collections.emptyMap()));
+        assertThrows(DeadlineExceededException.class, () -> this.dataAccess.findById("any", false));
+    }
+
+    @Test
+    void testTimeout() {
+        assertEquals(0, Deadline.timeout(null, 0));
+        assertEquals(500, Deadline.timeout(null, 500));
+        assertEquals(200, Deadline.timeout(200L, 0));
+        assertEquals(200, Deadline.timeout(200L, 500));
+        assertEquals(500, Deadline.timeout(2000L, 500));
+        assertNull(Deadline.parse("soon"));
+    }
+
+    private static class DeadlineDataAccess extends DataAccess<Modell2, String> {
+
+        DeadlineDataAccess() {
+            super(Modell2.class, String.class);
+            this.em = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:deadline;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"))
+                                 .createEntityManager();
+        }
+
+        TypedQuery<Modell2> listAllQuery() {
+            final CriteriaQuery<Modell2> query = this.query();
+            return this.createQuery(query.select(this.entity(query)));
+        }
+    }
+}
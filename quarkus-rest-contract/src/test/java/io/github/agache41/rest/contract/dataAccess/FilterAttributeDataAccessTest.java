@@ -0,0 +1,74 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.RestContractCoreConstants;
+import io.github.agache41.rest.contract.entities.Modell;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilterAttributeDataAccessTest {
+
+    private final FilterDataAccess dataAccess = new FilterDataAccess();
+
+    @Test
+    void testTypedFilterParams() {
+        final Map<String, List<Object>> params = this.dataAccess.filterQueryParams(Map.of("longVal", List.of("1", "2"),
+                                                                                         "intVal", List.of("3"),
+                                                                                         "booVal", List.of("true"),
+                                                                                         "bigIntegerVal", List.of("12345678901234567890"),
+                                                                                         "subModell.id", List.of("4"),
+                                                                                         "maxResults", List.of("10")));
+        assertEquals(List.of(1L, 2L), params.get("longVal"));
+        assertEquals(List.of(3), params.get("intVal"));
+        assertEquals(List.of(true), params.get("booVal"));
+        assertEquals(List.of(new BigInteger("12345678901234567890")), params.get("bigIntegerVal"));
+        assertEquals(List.of(4L), params.get("subModell.id"));
+        assertFalse(params.containsKey("maxResults"));
+        assertTrue(this.dataAccess.autocompleteByColumnLikeValue("stringVal", "none%", 10, Map.of("longVal", List.of("1"), "subModell.id", List.of("4")))
+                                  .isEmpty());
+    }
+
+    @Test
+    void testRejectedFilterParams() {
+        assertThrows(IllegalArgumentException.class, () -> this.dataAccess.filterQueryParams(Map.of("unknown", List.of("1"))));
+        assertThrows(IllegalArgumentException.class, () -> this.dataAccess.filterQueryParams(Map.of("longVal", List.of("one"))));
+        assertThrows(IllegalArgumentException.class, () -> this.dataAccess.autocompleteByColumnLikeValue("stringVal", "none%", 10, Map.of("collectionValues", List.of("1"))));
+    }
+
+    private static class FilterDataAccess extends DataAccess<Modell, Long> {
+
+        FilterDataAccess() {
+            super(Modell.class, Long.class);
+            this.em = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:filter;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"))
+                                 .createEntityManager();
+        }
+
+        @Override
+        protected Map<String, List<Object>> filterQueryParams(final Map<String, List<String>> requestParameters) {
+            return super.filterQueryParams(requestParameters);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.RestContractCoreConstants;
+import io.github.agache41.rest.contract.entities.Modell;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import io.github.agache41.rest.contract.producer.Producer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Persistence;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcDataAccessTest {
+
+    private final JpaDataAccess jpaDataAccess = new JpaDataAccess();
+
+    private final JdbcDataAccess<Modell2, String> dataAccess = new JdbcDataAccess<>(this.jpaDataAccess);
+
+    private final List<Modell2> insertedData = Producer.ofClass(Modell2.class)
+                                                      .produceList(3);
+
+    {
+        // the values selected by the filters, in the order of the ids
+        this.insertedData.sort(Comparator.comparing(Modell2::getId));
+        final List<String> names = List.of("alpha", "beta", "alphabet");
+        for (int index = 0; index < names.size(); index++) {
+            final Modell2 modell2 = this.insertedData.get(index);
+            modell2.setName(names.get(index));
+            modell2.setStreet("street " + (index + 1));
+            modell2.setNumber(Math.min(index + 1, 2));
+        }
+        this.jpaDataAccess.beginTransaction();
+        this.insertedData.forEach(this.jpaDataAccess::persist);
+        this.jpaDataAccess.commitTransaction();
+        this.jpaDataAccess.em()
+                          .clear();
+    }
+
+    @Test
+    void testRead() {
+        //given
+        final Modell2 first = this.insertedData.get(0);
+        final Modell2 third = this.insertedData.get(2);
+
+        //when
+        final Modell2 found = this.dataAccess.findById(first.getId());
+        final List<Modell2> number = this.dataAccess.listByColumnEqualsValue("number", 2, 0, 10, true);
+        final List<Modell2> like = this.dataAccess.listByColumnLikeValue("name", "alpha%", 0, 10, true);
+        final List<Modell2> in = this.dataAccess.listByColumnInValues("id", List.of(first.getId(), third.getId(), "missing"), 0, 10, true);
+        final List<Modell2> all = this.dataAccess.listAll(1, 10, Map.of("number.ge", List.of("2"), "orderBy", List.of("id")));
+        final List<String> autocomplete = this.dataAccess.autocompleteByColumnLikeValue("street", "street%", 2, Map.of());
+
+        //then
+        assertEquals(first, found);
+        assertNull(this.dataAccess.findById("missing", false));
+        assertEquals(2, number.size());
+        assertEquals(2, like.size());
+        assertEquals(2, in.size());
+        assertEquals(List.of(third.getId()), all.stream()
+                                                .map(Modell2::getId)
+                                                .toList());
+        assertEquals(List.of("street 1", "street 2"), autocomplete);
+        assertEquals(0, this.jpaDataAccess.em()
+                                          .unwrap(Session.class)
+                                          .getStatistics()
+                                          .getEntityCount());
+    }
+
+    @Test
+    void testRemove() {
+        //when
+        this.jpaDataAccess.beginTransaction();
+        this.dataAccess.removeByIds(this.insertedData.stream()
+                                                     .map(Modell2::getId)
+                                                     .toList());
+        this.jpaDataAccess.commitTransaction();
+
+        //then
+        assertTrue(this.dataAccess.listAll(0, 10, Map.of())
+                                  .isEmpty());
+    }
+
+    @Test
+    void testFlatEntitiesOnly() {
+        final EntityManager entityManager = this.jpaDataAccess.em();
+        final DataAccess<Modell, Long> modellDataAccess = new DataAccess<>(Modell.class, Long.class) {
+            {
+                this.em = entityManager;
+            }
+        };
+        assertThrows(UnexpectedException.class, () -> new JdbcDataAccess<>(modellDataAccess).listByColumnEqualsValue("id", 1L, 0, 10, true));
+    }
+
+    private static class JpaDataAccess extends DataAccess<Modell2, String> {
+
+        JpaDataAccess() {
+            super(Modell2.class, String.class);
+            this.em = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:jdbc;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"))
+                                 .createEntityManager();
+        }
+    }
+}
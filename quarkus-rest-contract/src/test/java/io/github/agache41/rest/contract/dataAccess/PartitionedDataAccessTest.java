@@ -0,0 +1,150 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.RestContractCoreConstants;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.entities.ValueEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PartitionedDataAccessTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    private final Modell2DataAccess dataAccess = new Modell2DataAccess();
+
+    private final List<String> ids = IntStream.range(0, 20)
+                                              .mapToObj(index -> String.format("id%02d", index))
+                                              .collect(Collectors.toList());
+
+    {
+        this.dataAccess.beginTransaction();
+        this.ids.forEach(id -> {
+            final Modell2 modell2 = new Modell2();
+            modell2.setId(id);
+            modell2.setNumber(id.endsWith("0") ? 0 : 1);
+            this.dataAccess.persist(modell2);
+        });
+        this.dataAccess.commitTransaction();
+    }
+
+    @AfterEach
+    void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void testOrdered() {
+        try (final Stream<String> stream = this.dataAccess.listAllPartitioned(7, 2, this.executor, true, Map.of(), Modell2::getId)) {
+            assertEquals(this.ids, stream.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testUnorderedFiltered() {
+        try (final Stream<String> stream = this.dataAccess.listAllPartitioned(4, 3, this.executor, false, Map.of("number", List.of("0")), Modell2::getId)) {
+            assertEquals(Set.of("id00", "id10"), stream.collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void testStreamAll() {
+        // the cursor runs in its own read only transaction, the connection is handed back on close
+        for (int run = 0; run < 2; run++) {
+            try (final Stream<String> stream = this.dataAccess.streamAll(Map.of(), 3, Modell2::getId)) {
+                assertEquals(Set.copyOf(this.ids), stream.collect(Collectors.toSet()));
+            }
+        }
+        try (final Stream<String> stream = this.dataAccess.streamAll(Map.of("number", List.of("0")), 3, Modell2::getId)) {
+            assertEquals(Set.of("id00", "id10"), stream.collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void testNumericKeys() {
+        final EntityManager entityManager = this.dataAccess.em();
+        final DataAccess<ValueEntity, Long> valueDataAccess = new DataAccess<>(ValueEntity.class, Long.class) {
+            {
+                this.em = entityManager;
+            }
+        };
+        valueDataAccess.beginTransaction();
+        for (int index = 0; index < 25; index++) {
+            final ValueEntity valueEntity = new ValueEntity();
+            valueEntity.setSubName("value " + index);
+            valueDataAccess.persist(valueEntity);
+        }
+        valueDataAccess.commitTransaction();
+        final List<Long> expected = valueDataAccess.listAll(0, Integer.MAX_VALUE, Map.of("orderBy", List.of("id")))
+                                                   .stream()
+                                                   .map(ValueEntity::getId)
+                                                   .collect(Collectors.toList());
+
+        try (final Stream<Long> stream = valueDataAccess.listAllPartitioned(6, 4, this.executor, true, Map.of(), ValueEntity::getId)) {
+            assertEquals(expected, stream.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testExtremeNumericKeys() {
+        //given keys spanning the whole long range
+        final EntityManager entityManager = this.dataAccess.em();
+        final DataAccess<ValueEntity, Long> valueDataAccess = new DataAccess<>(ValueEntity.class, Long.class) {
+            {
+                this.em = entityManager;
+            }
+        };
+        final List<Long> expected = List.of(Long.MIN_VALUE, -1L, 0L, Long.MAX_VALUE - 1, Long.MAX_VALUE);
+        valueDataAccess.beginTransaction();
+        expected.forEach(id -> entityManager.createNativeQuery("insert into ValueEntity (id, subName, subAge) values (?, 'extreme', 0)")
+                                            .setParameter(1, id)
+                                            .executeUpdate());
+        valueDataAccess.commitTransaction();
+
+        //when
+        try (final Stream<Long> stream = valueDataAccess.listAllPartitioned(4, 2, this.executor, true, Map.of("subName", List.of("extreme")), ValueEntity::getId)) {
+            //then
+            assertEquals(expected, stream.collect(Collectors.toList()));
+        }
+    }
+
+    private static class Modell2DataAccess extends DataAccess<Modell2, String> {
+
+        Modell2DataAccess() {
+            super(Modell2.class, String.class);
+            this.em = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:partitioned;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"))
+                                 .createEntityManager();
+        }
+    }
+}
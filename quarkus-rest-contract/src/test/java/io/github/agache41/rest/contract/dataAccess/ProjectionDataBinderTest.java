@@ -0,0 +1,108 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.RestContractCoreConstants;
+import io.github.agache41.rest.contract.dataAccessBase.Projection;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.entities.Modell2Projection;
+import io.github.agache41.rest.contract.producer.Producer;
+import jakarta.persistence.Persistence;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProjectionDataBinderTest {
+
+    private final ProjectionDataAccess dataAccess = new ProjectionDataAccess();
+
+    private final DataBinder<Modell2Projection, Modell2, String> dataBinder = new DataBinder<>(Modell2Projection.class, Modell2.class, String.class);
+
+    private final List<Modell2> insertedData = Producer.ofClass(Modell2.class)
+                                                      .produceList(3);
+
+    {
+        // in the order of the ids, the first and the third share the name
+        this.insertedData.sort(Comparator.comparing(Modell2::getId));
+        this.insertedData.get(2)
+                         .setName(this.insertedData.get(0)
+                                                   .getName());
+        this.dataBinder.setDataAccess(this.dataAccess);
+        this.dataAccess.beginTransaction();
+        this.insertedData.forEach(this.dataAccess::persist);
+        this.dataAccess.commitTransaction();
+        this.dataAccess.em()
+                       .clear();
+    }
+
+    @Test
+    void testProjection() {
+        assertEquals(Set.of("id", "name", "street"), Set.copyOf(Projection.of(Modell2Projection.class, Modell2.class)
+                                                                          .getAttributes()));
+        assertNull(Projection.of(Modell2.class, Modell2.class));
+    }
+
+    @Test
+    void testListProjected() {
+        //given
+        final Modell2 first = this.insertedData.get(0);
+        final Modell2 second = this.insertedData.get(1);
+        final Modell2 third = this.insertedData.get(2);
+
+        //when
+        final List<Modell2Projection> sameName = this.dataBinder.listByColumnEqualsValue("name", first.getName(), 0, 10);
+        final List<Modell2Projection> between = this.dataBinder.listByColumnBetweenValues("id", second.getId(), "*", 0, 10);
+        final List<Modell2Projection> byIds = this.dataBinder.listByIds(List.of(first.getId()));
+
+        //then
+        assertEquals(2, sameName.size());
+        assertTrue(sameName.contains(projection(first)));
+        assertTrue(sameName.contains(projection(third)));
+        assertEquals(List.of(projection(second), projection(third)), between);
+        assertEquals(List.of(projection(first)), byIds);
+        assertEquals(0, this.dataAccess.em()
+                                       .unwrap(Session.class)
+                                       .getStatistics()
+                                       .getEntityCount());
+    }
+
+    private static Modell2Projection projection(final Modell2 modell2) {
+        final Modell2Projection projection = new Modell2Projection();
+        projection.setId(modell2.getId());
+        projection.setName(modell2.getName());
+        projection.setAddress(modell2.getStreet());
+        return projection;
+    }
+
+    private static class ProjectionDataAccess extends DataAccess<Modell2, String> {
+
+        ProjectionDataAccess() {
+            super(Modell2.class, String.class);
+            this.em = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:projection;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"))
+                                 .createEntityManager();
+        }
+    }
+}
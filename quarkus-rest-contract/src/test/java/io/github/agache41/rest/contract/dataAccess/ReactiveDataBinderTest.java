@@ -0,0 +1,187 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.exceptions.ExpectedException;
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import io.github.agache41.rest.contract.producer.Producer;
+import io.smallrye.mutiny.Multi;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReactiveDataBinderTest {
+
+    private final ReactiveDataBinder<Modell2, Modell2, String> dataBinder = new ReactiveDataBinder<>(Modell2.class, new ReactiveDataAccess<>(Modell2.class, String.class, BlockingMutinySessionFactory.create()));
+
+    private final Producer<Modell2> producer = Producer.ofClass(Modell2.class);
+
+    private static List<String> ids(final Multi<Modell2> tos) {
+        return tos.collect()
+                  .asList()
+                  .await()
+                  .indefinitely()
+                  .stream()
+                  .map(Modell2::getId)
+                  .collect(Collectors.toList());
+    }
+
+    private void persist(final List<Modell2> tos) {
+        for (final Modell2 to : tos) {
+            this.dataBinder.persist(to)
+                           .await()
+                           .indefinitely();
+        }
+    }
+
+    private Modell2 change(final Modell2 source) {
+        final Modell2 change = this.producer.change(source);
+        change.setId(source.getId());
+        return change;
+    }
+
+    @Test
+    void testPersistAndFind() {
+        //given
+        final Modell2 modell2 = this.producer.produce();
+        this.persist(List.of(modell2));
+
+        //when
+        final Modell2 found = this.dataBinder.findById(modell2.getId())
+                                             .await()
+                                             .indefinitely();
+
+        //then
+        assertEquals(modell2, found);
+        assertThrows(ExpectedException.class, () -> this.dataBinder.findById(this.producer.produce()
+                                                                                          .getId())
+                                                                   .await()
+                                                                   .indefinitely());
+    }
+
+    @Test
+    void testMergeAndUpdate() {
+        //given
+        final Modell2 modell2 = this.producer.produce();
+        this.persist(List.of(modell2));
+        final Modell2 merged = this.change(modell2);
+        final Modell2 update = this.change(merged);
+        update.setStreet(null);
+
+        //when
+        this.dataBinder.merge(merged)
+                       .await()
+                       .indefinitely();
+        final Modell2 updated = this.dataBinder.updateById(update)
+                                               .await()
+                                               .indefinitely();
+
+        //then the dynamic fields left null are not updated
+        update.setStreet(merged.getStreet());
+        assertEquals(update, updated);
+        assertEquals(updated, this.dataBinder.findById(modell2.getId())
+                                             .await()
+                                             .indefinitely());
+    }
+
+    @Test
+    void testUpdateByIds() {
+        //given
+        final List<Modell2> insertedData = this.producer.produceList(2);
+        this.persist(insertedData);
+        final List<Modell2> changes = insertedData.stream()
+                                                  .map(this::change)
+                                                  .collect(Collectors.toList());
+
+        //when
+        final List<Modell2> updated = this.dataBinder.updateByIds(changes)
+                                                     .await()
+                                                     .indefinitely();
+
+        //then
+        assertEquals(changes, updated);
+        final Modell2 change = this.change(changes.get(0));
+        assertThrows(UnexpectedException.class, () -> this.dataBinder.updateByIds(List.of(change, this.producer.produce()))
+                                                                     .await()
+                                                                     .indefinitely());
+        // the failed update rolled back
+        assertEquals(changes.get(0), this.dataBinder.findById(change.getId())
+                                                    .await()
+                                                    .indefinitely());
+    }
+
+    @Test
+    void testLists() {
+        //given the values selected by the filters, in the order of the ids
+        final List<Modell2> insertedData = this.producer.produceList(3);
+        insertedData.sort(Comparator.comparing(Modell2::getId));
+        final Modell2 first = insertedData.get(0);
+        final Modell2 second = insertedData.get(1);
+        final Modell2 third = insertedData.get(2);
+        first.setName("alpha");
+        second.setName("beta");
+        second.setStreet("other");
+        third.setName("gamma");
+        this.persist(insertedData);
+
+        //then
+        assertEquals(List.of(first.getId(), third.getId()), ids(this.dataBinder.listByIds(List.of(third.getId(), first.getId(), this.producer.produce()
+                                                                                                                                          .getId()))));
+        assertEquals(List.of(second.getId()), ids(this.dataBinder.listByColumnEqualsValue("street", "other", 0, 10)));
+        assertEquals(List.of(first.getId()), ids(this.dataBinder.listByColumnLikeValue("name", "alph%", 0, 10)));
+        assertEquals(List.of(second.getId(), third.getId()), ids(this.dataBinder.listByColumnInValues("name", List.of("beta", "gamma"), 0, 10)).stream()
+                                                                                                                                             .sorted()
+                                                                                                                                             .collect(Collectors.toList()));
+        assertEquals(List.of(), ids(this.dataBinder.listByIds(List.of())));
+        // ordered by id
+        final List<String> all = ids(this.dataBinder.listAll(0, 1000));
+        assertEquals(all.stream()
+                        .sorted()
+                        .collect(Collectors.toList()), all);
+        assertEquals(all.subList(1, 3), ids(this.dataBinder.listAll(1, 2)));
+    }
+
+    @Test
+    void testRemove() {
+        //given
+        final List<Modell2> insertedData = this.producer.produceList(3);
+        this.persist(insertedData);
+        final List<String> ids = insertedData.stream()
+                                             .map(Modell2::getId)
+                                             .collect(Collectors.toList());
+
+        //when
+        this.dataBinder.removeById(ids.get(0))
+                       .await()
+                       .indefinitely();
+        this.dataBinder.removeByIds(ids.subList(1, 3))
+                       .await()
+                       .indefinitely();
+        // removing a missing id is not an error
+        this.dataBinder.removeById(ids.get(0))
+                       .await()
+                       .indefinitely();
+
+        //then
+        assertEquals(List.of(), ids(this.dataBinder.listByIds(ids)));
+    }
+}
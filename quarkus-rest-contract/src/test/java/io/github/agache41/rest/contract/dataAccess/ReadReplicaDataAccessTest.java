@@ -0,0 +1,153 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.RestContractCoreConstants;
+import io.github.agache41.rest.contract.dataAccessBase.ReadRouting;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.producer.Producer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReadReplicaDataAccessTest {
+
+    private static final EntityManagerFactory primaryFactory = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:primary;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"));
+    private static final EntityManagerFactory replicaFactory = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:replica;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"));
+
+    private final ReplicaDataAccess dataAccess = new ReplicaDataAccess();
+
+    private final Producer<Modell2> producer = Producer.ofClass(Modell2.class);
+
+    @AfterEach
+    void afterEach() {
+        this.dataAccess.getReadRouting()
+                       .release();
+    }
+
+    @Test
+    void testReadRouting() {
+        this.dataAccess.setReadRouting(new ReadRouting(60_000));
+        final Modell2 primary = this.producer.produce();
+        final Modell2 replica = this.producer.change(primary);
+        replica.setId(primary.getId());
+        final String id = primary.getId();
+        // the write goes to the primary only, the replica has not caught up yet
+        this.dataAccess.beginTransaction();
+        this.dataAccess.persist(primary);
+        this.dataAccess.commitTransaction();
+        this.insertInReplica(replica);
+
+        // read your writes : after the write the reads stick to the primary
+        assertEquals(primary.getName(), this.readName(id));
+
+        // once released the reads go to the replica
+        this.dataAccess.getReadRouting()
+                       .release();
+        assertEquals(replica.getName(), this.readName(id));
+        assertEquals(List.of(replica.getName()), this.dataAccess.readOnly(() -> this.dataAccess.listByIds(List.of(id)))
+                                                                .stream()
+                                                                .map(Modell2::getName)
+                                                                .toList());
+
+        // entities located for an update stay on the primary
+        assertEquals(primary.getName(), this.dataAccess.findPersisted(replica)
+                                                       .getName());
+        assertEquals(primary.getName(), this.readName(id));
+
+        // within a transaction the reads stay on the primary
+        this.dataAccess.getReadRouting()
+                       .release();
+        this.dataAccess.beginTransaction();
+        assertEquals(primary.getName(), this.readName(id));
+        this.dataAccess.commitTransaction();
+    }
+
+    @Test
+    void testReadYourWritesPerClient() {
+        this.dataAccess.setReadRouting(new ReadRouting(60_000));
+        final Modell2 replica = this.producer.produce();
+        final Modell2 primary = this.producer.change(replica);
+        primary.setId(replica.getId());
+        final String id = replica.getId();
+        this.insertInReplica(replica);
+
+        // the request writing returns the time of its write to the client
+        ReadRouting.start(null);
+        this.dataAccess.beginTransaction();
+        this.dataAccess.merge(primary);
+        this.dataAccess.commitTransaction();
+        final long written = ReadRouting.written();
+        assertTrue(written > 0);
+        ReadRouting.clear();
+
+        // another client on the same thread reads the replica
+        ReadRouting.start(null);
+        assertEquals(replica.getName(), this.readName(id));
+        ReadRouting.clear();
+
+        // the writing client, on any thread, reads the primary
+        ReadRouting.start(written);
+        assertEquals(primary.getName(), this.readName(id));
+        assertEquals(0, ReadRouting.written());
+        ReadRouting.clear();
+
+        // once the sticky period passed it reads the replica again
+        ReadRouting.start(written - 60_000);
+        assertEquals(replica.getName(), this.readName(id));
+    }
+
+    private String readName(final String id) {
+        return this.dataAccess.readOnly(() -> this.dataAccess.findById(id))
+                              .getName();
+    }
+
+    private void insertInReplica(final Modell2 modell2) {
+        final EntityManager replica = this.dataAccess.replicaEm();
+        replica.getTransaction()
+               .begin();
+        replica.persist(modell2);
+        replica.getTransaction()
+               .commit();
+        replica.clear();
+    }
+
+    private static class ReplicaDataAccess extends DataAccess<Modell2, String> {
+
+        private final EntityManager replica = replicaFactory.createEntityManager();
+
+        ReplicaDataAccess() {
+            super(Modell2.class, String.class);
+            this.em = primaryFactory.createEntityManager();
+        }
+
+        @Override
+        protected EntityManager replicaEm() {
+            return this.replica;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.RestContractCoreConstants;
+import io.github.agache41.rest.contract.changeLog.ChangeLogEntry;
+import io.github.agache41.rest.contract.dataAccessBase.IdGroup;
+import io.github.agache41.rest.contract.dataAccessBase.Projection;
+import io.github.agache41.rest.contract.dataAccessBase.ShardedDataAccess;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.entities.Modell2Projection;
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedDataAccessTest {
+
+    private final List<ShardDataAccess> shards = List.of(new ShardDataAccess(0), new ShardDataAccess(1), new ShardDataAccess(2));
+
+    private final ShardedDataAccess<Modell2, String> dataAccess = new ShardedDataAccess<>(this.shards);
+
+    private final List<String> ids = IntStream.range(0, 30)
+                                              .mapToObj(index -> String.format("id%02d", index))
+                                              .collect(Collectors.toList());
+
+    {
+        this.dataAccess.beginTransaction();
+        this.ids.forEach(id -> {
+            final Modell2 modell2 = new Modell2();
+            modell2.setId(id);
+            modell2.setName("name" + id.charAt(3) + id.charAt(2));
+            modell2.setStreet("street" + id.charAt(3));
+            modell2.setNumber(id.endsWith("0") ? 0 : 1);
+            this.dataAccess.persist(modell2);
+        });
+        this.dataAccess.commitTransaction();
+    }
+
+    @Test
+    void testRouting() {
+        for (final String id : this.ids) {
+            final int shard = this.dataAccess.shardOf(id);
+            for (int index = 0; index < this.shards.size(); index++) {
+                assertEquals(index == shard, this.shards.get(index)
+                                                        .findById(id, false) != null);
+            }
+            assertEquals(id, this.dataAccess.findById(id)
+                                            .getId());
+        }
+    }
+
+    @Test
+    void testListByIds() {
+        final List<String> requested = List.of("id01", "id02", "id03", "id17", "id29", "missing");
+        assertEquals(Set.of("id01", "id02", "id03", "id17", "id29"), this.dataAccess.listByIds(requested)
+                                                                                    .stream()
+                                                                                    .map(Modell2::getId)
+                                                                                    .collect(Collectors.toSet()));
+    }
+
+    @Test
+    void testListAllMergeSorted() {
+        final List<String> expected = this.ids.stream()
+                                              .map(id -> "name" + id.charAt(3) + id.charAt(2))
+                                              .sorted(Comparator.reverseOrder())
+                                              .skip(5)
+                                              .limit(10)
+                                              .collect(Collectors.toList());
+        assertEquals(expected, this.dataAccess.listAll(5, 10, Map.of("orderBy", List.of("name desc")))
+                                              .stream()
+                                              .map(Modell2::getName)
+                                              .collect(Collectors.toList()));
+    }
+
+    @Test
+    void testFilter() {
+        assertEquals(Set.of("id00", "id10", "id20"), this.dataAccess.listByColumnEqualsValue("number", 0, 0, 10)
+                                                                    .stream()
+                                                                    .map(Modell2::getId)
+                                                                    .collect(Collectors.toSet()));
+        assertEquals(2, this.dataAccess.listAll(1, 10, Map.of("number", List.of("0")))
+                                       .size());
+    }
+
+    @Test
+    void testRemoveByIds() {
+        this.dataAccess.beginTransaction();
+        this.dataAccess.removeByIds(List.of("id01", "id02", "id03", "id04"));
+        this.dataAccess.commitTransaction();
+
+        assertTrue(this.dataAccess.listByIds(List.of("id01", "id02", "id03", "id04"))
+                                  .isEmpty());
+        assertEquals(26, this.dataAccess.listAll(0, 100, Map.of())
+                                        .size());
+    }
+
+    @Test
+    void testAggregate() {
+        final List<Map<String, Object>> rows = this.dataAccess.aggregate(List.of("number"), List.of("count", "sum(number)", "min(name)", "max(name)"), 0, 10, Map.of());
+        assertEquals(2, rows.size());
+        assertEquals(Map.of("number", 0, "count", 3L, "sum(number)", 0L, "min(name)", "name00", "max(name)", "name02"), rows.get(0));
+        assertEquals(Map.of("number", 1, "count", 27L, "sum(number)", 27L, "min(name)", "name10", "max(name)", "name92"), rows.get(1));
+
+        final List<Map<String, Object>> streets = this.dataAccess.aggregate(List.of("street"), List.of("count"), 1, 3, Map.of("orderBy", List.of("street desc")));
+        assertEquals(List.of("street8", "street7", "street6"), streets.stream()
+                                                                      .map(row -> row.get("street"))
+                                                                      .collect(Collectors.toList()));
+        streets.forEach(row -> assertEquals(3L, row.get("count")));
+    }
+
+    @Test
+    void testFacets() {
+        final Map<String, Map<Object, Long>> facets = this.dataAccess.facets(List.of("number,street"), 3, Map.of());
+        assertEquals(List.of(1, 0), List.copyOf(facets.get("number")
+                                                      .keySet()));
+        assertEquals(Map.of(1, 27L, 0, 3L), facets.get("number"));
+        assertEquals(List.of("street0", "street1", "street2"), List.copyOf(facets.get("street")
+                                                                                 .keySet()));
+        facets.get("street")
+              .values()
+              .forEach(count -> assertEquals(3L, count));
+    }
+
+    @Test
+    void testAutocompleteIds() {
+        final List<IdGroup<String>> groups = this.dataAccess.autocompleteIdsByColumnLikeValue("street", "street%", 4, Map.of());
+        assertEquals(List.of("street0", "street1", "street2", "street3"), groups.stream()
+                                                                                .map(IdGroup::getValue)
+                                                                                .collect(Collectors.toList()));
+        groups.forEach(group -> {
+            assertEquals(3, group.getCount());
+            assertEquals(group.getValue(), this.dataAccess.findById(group.getId())
+                                                          .getStreet());
+        });
+    }
+
+    @Test
+    void testListProjected() {
+        final Projection<Modell2Projection> projection = Projection.of(Modell2Projection.class, Modell2.class);
+        final List<Modell2Projection> projected = this.dataAccess.listProjected(projection, entity -> null, null, 0, 100);
+        assertEquals(Set.copyOf(this.ids), projected.stream()
+                                                    .map(Modell2Projection::getId)
+                                                    .collect(Collectors.toSet()));
+        assertEquals(3, this.dataAccess.listProjected(projection, entity -> null, null, 27, 100)
+                                       .size());
+        assertNull(this.dataAccess.listProjected(projection, entity -> null, entity -> List.of(), 0, 100));
+    }
+
+    @Test
+    void testStreamAllMergeSorted() {
+        final List<String> expected = this.ids.stream()
+                                              .map(id -> "name" + id.charAt(3) + id.charAt(2))
+                                              .sorted(Comparator.reverseOrder())
+                                              .collect(Collectors.toList());
+        try (final Stream<String> names = this.dataAccess.streamAll(Map.of("orderBy", List.of("name desc")), 4, Modell2::getName)) {
+            assertEquals(expected, names.collect(Collectors.toList()));
+        }
+        try (final Stream<String> streamed = this.dataAccess.streamAll(Map.of(), 4, Modell2::getId)) {
+            assertEquals(Set.copyOf(this.ids), streamed.collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void testListAllPartitionedOrdered() {
+        try (final Stream<String> streamed = this.dataAccess.listAllPartitioned(4, 2, ForkJoinPool.commonPool(), true, Map.of(), Modell2::getId)) {
+            assertEquals(this.ids, streamed.collect(Collectors.toList()));
+        }
+        try (final Stream<String> streamed = this.dataAccess.listAllPartitioned(4, 2, ForkJoinPool.commonPool(), false, Map.of(), Modell2::getId)) {
+            assertEquals(Set.copyOf(this.ids), streamed.collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void testChangeLogRejected() {
+        assertThrows(UnexpectedException.class, () -> this.dataAccess.logChanges(ChangeLogEntry.Operation.UPSERT, List.of("id01")));
+        assertThrows(UnexpectedException.class, () -> this.dataAccess.listChanges(0, Long.MAX_VALUE, 10));
+    }
+
+    @Test
+    void testParallelReadsBounded() {
+        final ShardDataAccess shard = this.shards.get(0);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        CompletableFuture.allOf(IntStream.range(0, 3 * shard.parallelReadsLimit())
+                                         .mapToObj(index -> CompletableFuture.runAsync(() -> {
+                                             maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                                             try {
+                                                 Thread.sleep(50);
+                                             } catch (final InterruptedException exception) {
+                                                 Thread.currentThread()
+                                                       .interrupt();
+                                             }
+                                             running.decrementAndGet();
+                                         }, shard.parallelReads()))
+                                         .toArray(CompletableFuture[]::new))
+                         .join();
+        assertTrue(maxRunning.get() <= shard.parallelReadsLimit());
+    }
+
+    private static class ShardDataAccess extends DataAccess<Modell2, String> {
+
+        ShardDataAccess(final int shard) {
+            super(Modell2.class, String.class);
+            this.em = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:shard" + shard + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1"))
+                                 .createEntityManager();
+        }
+
+        Executor parallelReads() {
+            return this.getParallelReads();
+        }
+
+        int parallelReadsLimit() {
+            return PARALLEL_READS;
+        }
+    }
+}
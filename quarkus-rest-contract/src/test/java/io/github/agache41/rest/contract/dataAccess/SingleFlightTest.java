@@ -0,0 +1,218 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.dataAccessBase.Deadline;
+import io.github.agache41.rest.contract.dataAccessBase.ReadRouting;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.modell.dataaccess.Modell2DataAccess;
+import io.github.agache41.rest.contract.update.reflector.ClassReflector;
+import io.github.agache41.rest.contract.utils.SingleFlight;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final SingleFlight<String, Modell2> singleFlight = new SingleFlight<>();
+    private final AtomicInteger reads = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private Modell2 read() {
+        this.reads.incrementAndGet();
+        try {
+            this.release.await(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+        }
+        final Modell2 modell2 = new Modell2();
+        modell2.setId("id");
+        modell2.setName("name");
+        return modell2;
+    }
+
+    private List<Future<Modell2>> submit(final int count,
+                                         final long maxWait,
+                                         final Supplier<Modell2> call) throws InterruptedException {
+        final List<Future<Modell2>> futures = new ArrayList<>();
+        futures.add(this.executor.submit(() -> this.singleFlight.run("key", maxWait, call, ClassReflector::clone)));
+        while (this.singleFlight.getRunning() == 0) {
+            Thread.sleep(1);
+        }
+        for (int index = 1; index < count; index++) {
+            futures.add(this.executor.submit(() -> this.singleFlight.run("key", maxWait, call, ClassReflector::clone)));
+        }
+        return futures;
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void testCollapsedIntoOneRead() throws Exception {
+        final List<Future<Modell2>> futures = this.submit(8, 10000, this::read);
+        Thread.sleep(100);
+        this.release.countDown();
+
+        final List<Modell2> results = new ArrayList<>();
+        for (final Future<Modell2> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(8, this.singleFlight.getCalls() + this.singleFlight.getCollapsed());
+        assertEquals(this.reads.get(), this.singleFlight.getCalls());
+        assertTrue(this.singleFlight.getCollapsed() > 0);
+        assertEquals(0, this.singleFlight.getRunning());
+        // every caller receives its own copy
+        assertEquals(8, results.stream()
+                               .map(System::identityHashCode)
+                               .distinct()
+                               .count());
+        assertTrue(results.stream()
+                          .allMatch(modell2 -> "id".equals(modell2.getId()) && "name".equals(modell2.getName())));
+    }
+
+    @Test
+    void testFailureShared() throws Exception {
+        final List<Future<Modell2>> futures = this.submit(4, 10000, () -> {
+            this.read();
+            throw new IllegalStateException("failed read");
+        });
+        Thread.sleep(100);
+        this.release.countDown();
+
+        for (final Future<Modell2> future : futures) {
+            final Exception exception = assertThrows(Exception.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, exception.getCause());
+        }
+        assertEquals(0, this.singleFlight.getRunning());
+    }
+
+    @Test
+    void testMaxWait() throws Exception {
+        final List<Future<Modell2>> futures = this.submit(2, 50, this::read);
+        while (this.singleFlight.getTimedOut() == 0) {
+            Thread.sleep(1);
+        }
+        this.release.countDown();
+
+        for (final Future<Modell2> future : futures) {
+            assertNotNull(future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, this.singleFlight.getTimedOut());
+        assertEquals(2, this.reads.get());
+    }
+
+    @Test
+    void testInvalidateAndDisabled() throws Exception {
+        final List<Future<Modell2>> futures = this.submit(1, 10000, this::read);
+        this.singleFlight.invalidate();
+        futures.add(this.executor.submit(() -> this.singleFlight.run("key", 10000, this::read, ClassReflector::clone)));
+        while (this.reads.get() < 2) {
+            Thread.sleep(1);
+        }
+        this.release.countDown();
+        for (final Future<Modell2> future : futures) {
+            assertNotNull(future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(0, this.singleFlight.getCollapsed());
+
+        // a max wait of 0 never collapses
+        this.singleFlight.run("key", 0, this::read, ClassReflector::clone);
+        assertEquals(3, this.reads.get());
+        assertEquals(2, this.singleFlight.getCalls());
+    }
+
+    @Test
+    void testStickyReadsNotCollapsed() throws Exception {
+        final CollapsingDataBinder dataBinder = new CollapsingDataBinder();
+        final Future<Modell2> leader = this.executor.submit(() -> dataBinder.read(this::read));
+        while (dataBinder.getSingleFlight()
+                         .getRunning() == 0) {
+            Thread.sleep(1);
+        }
+        // the client wrote just now, its read stays on the primary and must not join a read started before the write
+        final Future<Modell2> sticky = this.executor.submit(() -> {
+            ReadRouting.start(System.currentTimeMillis());
+            try {
+                return dataBinder.read(this::read);
+            } finally {
+                ReadRouting.clear();
+            }
+        });
+        while (this.reads.get() < 2) {
+            Thread.sleep(1);
+        }
+        this.release.countDown();
+
+        assertNotNull(leader.get(10, TimeUnit.SECONDS));
+        assertNotNull(sticky.get(10, TimeUnit.SECONDS));
+        assertEquals(0, dataBinder.getSingleFlight()
+                                  .getCollapsed());
+    }
+
+    @Test
+    void testWaitCappedByDeadline() throws Exception {
+        final CollapsingDataBinder dataBinder = new CollapsingDataBinder();
+        final Future<Modell2> leader = this.executor.submit(() -> dataBinder.read(this::read));
+        while (dataBinder.getSingleFlight()
+                         .getRunning() == 0) {
+            Thread.sleep(1);
+        }
+        // the max wait of the binder is 10s, the deadline of the follower is shorter
+        final Future<Modell2> follower = this.executor.submit(() -> Deadline.within(50, () -> dataBinder.read(this::read)));
+        while (dataBinder.getSingleFlight()
+                         .getTimedOut() == 0) {
+            Thread.sleep(1);
+        }
+        this.release.countDown();
+
+        assertNotNull(leader.get(10, TimeUnit.SECONDS));
+        assertNotNull(follower.get(10, TimeUnit.SECONDS));
+        assertEquals(2, this.reads.get());
+    }
+
+    private static class CollapsingDataBinder extends DataBinder<Modell2, Modell2, String> {
+
+        CollapsingDataBinder() {
+            super(Modell2.class, Modell2.class, String.class);
+            this.setDataAccess(new Modell2DataAccess());
+            this.setSingleFlightMaxWait(10000);
+        }
+
+        Modell2 read(final Supplier<Modell2> read) {
+            return this.collapse(read, "read");
+        }
+    }
+}
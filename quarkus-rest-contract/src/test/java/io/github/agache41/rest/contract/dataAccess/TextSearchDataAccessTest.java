@@ -0,0 +1,161 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.RestContractCoreConstants;
+import io.github.agache41.rest.contract.dataAccessBase.Collation;
+import io.github.agache41.rest.contract.dataAccessBase.TextSearch;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.producer.Producer;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TextSearchDataAccessTest {
+
+    private final SearchDataAccess dataAccess = new SearchDataAccess();
+
+    private final List<Modell2> insertedData = Producer.ofClass(Modell2.class)
+                                                      .produceList(3);
+
+    @BeforeAll
+    void beforeAll() {
+        // the searched names, in the order of the ids
+        this.insertedData.sort(Comparator.comparing(Modell2::getId));
+        final List<String> names = List.of("Red Sports Car", "red bicycle", "blue car 100%");
+        for (int index = 0; index < names.size(); index++) {
+            this.insertedData.get(index)
+                             .setName(names.get(index));
+        }
+        this.dataAccess.beginTransaction();
+        this.insertedData.forEach(this.dataAccess::persist);
+        this.dataAccess.commitTransaction();
+    }
+
+    @Test
+    void testLike() {
+        this.dataAccess.strategy = new TextSearch.Like();
+        assertEquals(this.ids(1), this.search("red"));
+        assertEquals(this.ids(0), this.search("Sports Car"));
+        // the wildcards in the terms are matched literally
+        assertEquals(this.ids(2), this.search("100%"));
+        assertEquals(List.of(), this.search("_"));
+    }
+
+    @Test
+    void testTrigram() {
+        this.dataAccess.strategy = new TextSearch.Trigram();
+        assertEquals(this.ids(0, 1), this.search("RED"));
+        assertEquals(this.ids(0, 2), this.search("car"));
+        assertEquals(this.ids(0), this.search(" car  red "));
+    }
+
+    @Test
+    void testFullText() {
+        // rendered as a case insensitive substring search on H2
+        this.dataAccess.strategy = new TextSearch.FullText();
+        assertEquals(this.ids(0, 1), this.search("Red"));
+        assertEquals(this.ids(0), this.search("sports car"));
+    }
+
+    @Test
+    void testPrefixRange() {
+        assertEquals(this.ids(1), this.like("red%"));
+        assertEquals(this.ids(0), this.like("Red S%"));
+        assertEquals(this.ids(2), this.like("blue%100%"));
+        // H2 compares the characters
+        assertEquals(Collation.BINARY, this.dataAccess.getCollation());
+        this.dataAccess.setCollation(Collation.LINGUISTIC);
+        assertEquals(this.ids(1), this.like("red%"));
+        // without a known upper bound only the lower bound is added
+        this.dataAccess.setCollation(Collation.UNKNOWN);
+        assertEquals(this.ids(1), this.like("red%"));
+        assertEquals(this.ids(2), this.like("blue%100%"));
+        this.dataAccess.setCollation(null);
+        // case insensitive the pattern is lowered and compared with lower(name)
+        this.dataAccess.ignoreCase = true;
+        assertEquals(this.ids(0, 1), this.like("RED%"));
+        assertEquals(this.ids(0), this.like("red sports%"));
+        this.dataAccess.ignoreCase = false;
+    }
+
+    @Test
+    void testRejected() {
+        assertThrows(IllegalArgumentException.class, () -> this.dataAccess.listByColumnSearchTerms("age", "1", 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> this.dataAccess.listByColumnSearchTerms("unknown", "red", 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> this.dataAccess.listByColumnSearchTerms("name", " ", 0, 10));
+    }
+
+    private List<String> search(final String terms) {
+        return this.dataAccess.listByColumnSearchTerms("name", terms, 0, 10)
+                              .stream()
+                              .map(Modell2::getId)
+                              .sorted()
+                              .toList();
+    }
+
+    private List<String> like(final String pattern) {
+        return this.dataAccess.listByColumnLikeValue("name", pattern, 0, 10)
+                              .stream()
+                              .map(Modell2::getId)
+                              .sorted()
+                              .toList();
+    }
+
+    private List<String> ids(final int... indexes) {
+        return IntStream.of(indexes)
+                        .mapToObj(index -> this.insertedData.get(index)
+                                                            .getId())
+                        .toList();
+    }
+
+    private static class SearchDataAccess extends DataAccess<Modell2, String> {
+
+        private TextSearch.Strategy strategy;
+
+        private boolean ignoreCase;
+
+        SearchDataAccess() {
+            super(Modell2.class, String.class);
+            this.em = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:search;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"))
+                                 .createEntityManager();
+        }
+
+        @Override
+        protected TextSearch.Strategy textSearch(final String column) {
+            return this.strategy;
+        }
+
+        @Override
+        protected boolean likeIgnoreCase(final String column) {
+            return this.ignoreCase;
+        }
+    }
+}
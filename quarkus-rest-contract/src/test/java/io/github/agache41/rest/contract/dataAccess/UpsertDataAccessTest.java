@@ -0,0 +1,85 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.RestContractCoreConstants;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import io.github.agache41.rest.contract.producer.Producer;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpsertDataAccessTest {
+
+    private final UpsertDataAccess dataAccess = new UpsertDataAccess();
+
+    private final Producer<Modell2> producer = Producer.ofClass(Modell2.class);
+
+    @Test
+    void testUpsert() {
+        //given
+        final Modell2 existing = this.producer.produce();
+        this.dataAccess.beginTransaction();
+        this.dataAccess.persist(existing);
+        this.dataAccess.commitTransaction();
+        final Modell2 changed = this.producer.change(existing);
+        changed.setId(existing.getId());
+        changed.setStreet(null);
+        final Modell2 inserted = this.producer.produce();
+
+        //when
+        this.dataAccess.beginTransaction();
+        final int written = this.dataAccess.upsertAll(List.of(changed, inserted));
+        this.dataAccess.commitTransaction();
+
+        //then the null values keep the existing ones
+        assertEquals(2, written);
+        final Map<String, Modell2> persisted = this.dataAccess.mapPersisted(List.of(existing, inserted));
+        changed.setStreet(existing.getStreet());
+        assertEquals(changed, persisted.get(existing.getId()));
+        assertEquals(inserted, persisted.get(inserted.getId()));
+        assertTrue(Upsert.of(this.dataAccess.em(), Modell2.class)
+                         .getSql()
+                         .startsWith("merge into "));
+    }
+
+    @Test
+    void testUpsertWithoutId() {
+        final Modell2 withoutId = this.producer.produce();
+        withoutId.setId(null);
+        this.dataAccess.beginTransaction();
+        assertThrows(UnexpectedException.class, () -> this.dataAccess.upsertAll(List.of(withoutId)));
+        this.dataAccess.commitTransaction();
+    }
+
+    private static class UpsertDataAccess extends DataAccess<Modell2, String> {
+
+        UpsertDataAccess() {
+            super(Modell2.class, String.class);
+            this.em = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:upsert;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"))
+                                 .createEntityManager();
+        }
+    }
+}
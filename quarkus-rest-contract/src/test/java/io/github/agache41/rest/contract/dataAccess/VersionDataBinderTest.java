@@ -0,0 +1,215 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.RestContractCoreConstants;
+import io.github.agache41.rest.contract.entities.VersionedModell;
+import io.github.agache41.rest.contract.exceptions.PreconditionFailedException;
+import io.github.agache41.rest.contract.exceptions.VersionConflictException;
+import io.github.agache41.rest.contract.utils.ETags;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersionDataBinderTest {
+
+    private final VersionDataAccess dataAccess = new VersionDataAccess();
+
+    private final DataBinder<VersionedModell, VersionedModell, String> dataBinder = new DataBinder<>(VersionedModell.class, VersionedModell.class, String.class);
+
+    {
+        this.dataBinder.setDataAccess(this.dataAccess);
+    }
+
+    @Test
+    void testUpdateByIdWithVersion() {
+        //given
+        this.persist(versionedModell("current", "name", "street", null));
+
+        //when
+        this.dataAccess.beginTransaction();
+        final VersionedModell updated = this.dataBinder.updateById(versionedModell("current", "renamed", null, 0L));
+        this.dataAccess.commitTransaction();
+
+        //then
+        assertEquals(versionedModell("current", "renamed", "street", 1L), updated);
+        assertEquals(1L, this.dataAccess.findVersionById("current"));
+    }
+
+    @Test
+    void testUpdateByIdWithStaleVersion() {
+        //given
+        this.persist(versionedModell("stale", "name", "street", null));
+        this.dataAccess.beginTransaction();
+        this.dataBinder.updateById(versionedModell("stale", "first", null, 0L));
+        this.dataAccess.commitTransaction();
+
+        //when
+        this.dataAccess.beginTransaction();
+        final VersionConflictException conflict = assertThrows(VersionConflictException.class, () -> this.dataBinder.updateById(versionedModell("stale", "second", null, 0L)));
+        this.dataAccess.commitTransaction();
+
+        //then
+        assertEquals(Map.of("stale", 1L), conflict.getConflicts());
+        assertEquals("first", this.dataBinder.findById("stale")
+                                             .getName());
+    }
+
+    @Test
+    void testUpdateByIdWithoutVersion() {
+        //given
+        this.persist(versionedModell("unchecked", "name", "street", null));
+
+        //when
+        this.dataAccess.beginTransaction();
+        final VersionedModell updated = this.dataBinder.updateById(versionedModell("unchecked", "renamed", null, null));
+        this.dataAccess.commitTransaction();
+
+        //then
+        assertEquals("renamed", updated.getName());
+        assertEquals(1L, this.dataAccess.findVersionById("unchecked"));
+    }
+
+    @Test
+    void testUpdateByIdsReportsEveryConflict() {
+        //given
+        this.persist(versionedModell("listFresh", "name", "street", null));
+        this.persist(versionedModell("listStale", "name", "street", null));
+        this.dataAccess.beginTransaction();
+        this.dataBinder.updateById(versionedModell("listStale", "first", null, 0L));
+        this.dataAccess.commitTransaction();
+
+        //when
+        this.dataAccess.beginTransaction();
+        final VersionConflictException conflict = assertThrows(VersionConflictException.class, () -> this.dataBinder.updateByIds(List.of(versionedModell("listFresh", "second", null, 0L), versionedModell("listStale", "second", null, 0L)), true));
+        this.dataAccess.commitTransaction();
+
+        //then
+        assertEquals(Map.of("listStale", 1L), conflict.getConflicts());
+        assertEquals(0L, this.dataAccess.findVersionById("listFresh"));
+
+        //when
+        this.dataAccess.beginTransaction();
+        final List<VersionedModell> updated = this.dataBinder.updateByIds(List.of(versionedModell("listFresh", "second", null, 0L), versionedModell("listStale", "second", null, 1L)), true);
+        this.dataAccess.commitTransaction();
+
+        //then
+        assertEquals("second", updated.get(0)
+                                      .getName());
+        assertEquals("second", updated.get(1)
+                                      .getName());
+        assertEquals(1L, this.dataAccess.findVersionById("listFresh"));
+        assertEquals(2L, this.dataAccess.findVersionById("listStale"));
+    }
+
+    @Test
+    void testListETagsTellRowsApart() {
+        //given
+        final VersionedModell a = versionedModell("a", "name", "street", 0L);
+        final VersionedModell b = versionedModell("b", "name", "street", 0L);
+
+        //then
+        assertEquals(ETags.ofObject(a), ETags.ofObject(b));
+        assertNotEquals(ETags.of(List.of(a)), ETags.of(List.of(b)));
+        assertEquals(ETags.of(List.of(a, b)), ETags.of(List.of(versionedModell("a", "other", null, 0L), versionedModell("b", "other", null, 0L))));
+    }
+
+    @Test
+    void testContentETagsAndIfMatch() {
+        //then the contents are told apart even when their hash codes collide
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertNotEquals(ETags.ofObject(versionedModell("a", "Aa", "street", null)), ETags.ofObject(versionedModell("a", "BB", "street", null)));
+        assertEquals(ETags.ofObject(versionedModell("a", "Aa", "street", null)), ETags.ofObject(versionedModell("a", "Aa", "street", null)));
+        assertNotEquals(ETags.of(List.of(versionedModell("a", "Aa", null, null))), ETags.of(List.of(versionedModell("a", "BB", null, null))));
+
+        //given
+        this.persist(versionedModell("ifMatch", "name", "street", null));
+
+        //then If-None-Match compares weakly, If-Match strongly
+        assertTrue(ETags.matches("W/\"0\"", "0"));
+        assertFalse(ETags.matchesStrongly("W/\"0\"", "0"));
+        assertTrue(ETags.matchesStrongly("\"1\", \"0\"", "0"));
+        this.dataAccess.beginTransaction();
+        assertThrows(PreconditionFailedException.class, () -> this.dataBinder.updateById(versionedModell("ifMatch", "renamed", null, null), "W/\"0\""));
+        this.dataAccess.commitTransaction();
+
+        //when
+        this.dataAccess.beginTransaction();
+        final VersionedModell updated = this.dataBinder.updateById(versionedModell("ifMatch", "renamed", null, null), "\"0\"");
+        this.dataAccess.commitTransaction();
+
+        //then
+        assertEquals("renamed", updated.getName());
+    }
+
+    @Test
+    void testUpdateByIdWithOverriddenUpdate() {
+        //given
+        this.persist(versionedModell("overridden", "name", "street", null));
+        final VersionedModell to = new VersionedModell() {
+            @Override
+            public boolean update(final VersionedModell entity,
+                                  final Object context) {
+                entity.setName(this.getName()
+                                   .toUpperCase());
+                return true;
+            }
+        };
+        to.setId("overridden");
+        to.setName("renamed");
+        to.setVersion(0L);
+
+        //when
+        this.dataAccess.beginTransaction();
+        final VersionedModell updated = this.dataBinder.updateById(to);
+        this.dataAccess.commitTransaction();
+
+        //then the update of the to is applied, not the direct statement
+        assertEquals(versionedModell("overridden", "RENAMED", "street", 1L), updated);
+    }
+
+    private void persist(final VersionedModell versionedModell) {
+        this.dataAccess.beginTransaction();
+        this.dataAccess.persist(versionedModell);
+        this.dataAccess.commitTransaction();
+    }
+
+    private static VersionedModell versionedModell(final String id, final String name, final String street, final Long version) {
+        final VersionedModell versionedModell = new VersionedModell();
+        versionedModell.setId(id);
+        versionedModell.setName(name);
+        versionedModell.setStreet(street);
+        versionedModell.setVersion(version);
+        return versionedModell;
+    }
+
+    private static class VersionDataAccess extends DataAccess<VersionedModell, String> {
+
+        VersionDataAccess() {
+            super(VersionedModell.class, String.class);
+            this.em = Persistence.createEntityManagerFactory(RestContractCoreConstants.PERSISTENCE_UNIT, Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:version;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"))
+                                 .createEntityManager();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.dataAccessBase.WriteBehind;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.producer.Producer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindTest {
+
+    private final List<List<Modell2>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private final Producer<Modell2> producer = Producer.ofClass(Modell2.class);
+
+    // the batches holding it fail
+    private final Modell2 bad = this.producer.produce();
+
+    private void write(final List<Modell2> batch) {
+        if (batch.stream()
+                 .anyMatch(modell2 -> this.bad.getId()
+                                              .equals(modell2.getId()))) {
+            throw new IllegalStateException("bad batch");
+        }
+        this.batches.add(batch);
+    }
+
+    private Map<String, Modell2> written() {
+        synchronized (this.batches) {
+            return this.batches.stream()
+                               .flatMap(List::stream)
+                               .collect(Collectors.toMap(Modell2::getId, Function.identity()));
+        }
+    }
+
+    @Test
+    void testCoalescing() {
+        try (final WriteBehind<Modell2, String> writeBehind = new WriteBehind<>(Modell2.class, null, 100, 10, 60000, this::write)) {
+            // the null values do not override the pending ones
+            final Modell2 first = this.producer.produce();
+            final Modell2 street = this.producer.change(first);
+            street.setId(first.getId());
+            street.setName(null);
+            final Modell2 last = this.producer.change(first);
+            last.setId(first.getId());
+            last.setStreet(null);
+            writeBehind.submit(first);
+            writeBehind.submit(street);
+            writeBehind.submit(this.producer.produce());
+            writeBehind.submit(last);
+            assertEquals(2, writeBehind.getPending());
+
+            assertEquals(2, writeBehind.flush());
+
+            assertEquals(1, this.batches.size());
+            assertEquals(last.getName(), this.written()
+                                             .get(first.getId())
+                                             .getName());
+            assertEquals(street.getStreet(), this.written()
+                                                 .get(first.getId())
+                                                 .getStreet());
+            assertEquals(4, writeBehind.getSubmitted());
+            assertEquals(2, writeBehind.getCoalesced());
+            assertEquals(2, writeBehind.getWritten());
+            assertEquals(0, writeBehind.getPending());
+        }
+    }
+
+    @Test
+    void testCapacityAndClose() {
+        final WriteBehind<Modell2, String> writeBehind = new WriteBehind<>(Modell2.class, null, 3, 2, 60000, this::write);
+        for (final Modell2 modell2 : this.producer.produceList(10)) {
+            writeBehind.submit(modell2);
+            assertTrue(writeBehind.getPending() <= 3);
+        }
+        writeBehind.close();
+
+        assertEquals(10, this.written()
+                             .size());
+        assertEquals(10, writeBehind.getWritten());
+        assertEquals(0, writeBehind.getPending());
+        assertTrue(this.batches.stream()
+                               .allMatch(batch -> batch.size() <= 2));
+
+        // written directly once closed
+        final Modell2 late = this.producer.produce();
+        writeBehind.submit(late);
+        assertEquals(late, this.written()
+                               .get(late.getId()));
+    }
+
+    @Test
+    void testFailedUpdateDropped() {
+        try (final WriteBehind<Modell2, String> writeBehind = new WriteBehind<>(Modell2.class, null, 100, 10, 60000, this::write)) {
+            final Modell2 first = this.producer.produce();
+            final Modell2 last = this.producer.produce();
+            writeBehind.submit(first);
+            writeBehind.submit(this.bad);
+            writeBehind.submit(last);
+
+            assertEquals(2, writeBehind.flush());
+            assertEquals(1, writeBehind.getFailed());
+            assertEquals(Map.of(first.getId(), first, last.getId(), last), this.written());
+        }
+    }
+
+    @Test
+    void testTimedFlush() throws InterruptedException {
+        try (final WriteBehind<Modell2, String> writeBehind = new WriteBehind<>(Modell2.class, null, 100, 10, 20, this::write)) {
+            writeBehind.submit(this.producer.produce());
+            for (int wait = 0; wait < 100 && writeBehind.getWritten() == 0; wait++) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, writeBehind.getWritten());
+        }
+    }
+}
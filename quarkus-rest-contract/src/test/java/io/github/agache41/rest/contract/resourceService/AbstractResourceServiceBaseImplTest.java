@@ -18,6 +18,8 @@
 package io.github.agache41.rest.contract.resourceService;
 
 
+import io.github.agache41.rest.contract.changeLog.ChangeLogged;
+import io.github.agache41.rest.contract.dataAccessBase.Changes;
 import io.github.agache41.rest.contract.dataAccessBase.IdGroup;
 import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
 import io.github.agache41.rest.contract.producer.Producer;
@@ -29,7 +31,9 @@ import org.junit.jupiter.api.*;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
@@ -490,6 +494,21 @@ public abstract class AbstractResourceServiceBaseImplTest<T extends PrimaryKey<K
         assertThat(this.updateData).hasSameElementsAs(this.getAll());
     }
 
+    public void testPutUpsertListAsList() {
+        //given
+        final List<T> data = this.getAll();
+        assertFalse(data.isEmpty());
+
+        //when
+        final List<T> res = this.getClient()
+                                .putUpsertListAsList(data);
+
+        //then
+        assertNotNull(res);
+        assertEquals(data, res);
+        assertThat(data).hasSameElementsAs(this.getAll());
+    }
+
     public void testDeleteByIds() {
         //given
         final List<K> ids = this.getAll()
@@ -609,6 +628,76 @@ public abstract class AbstractResourceServiceBaseImplTest<T extends PrimaryKey<K
         this.deleteAll();
     }
 
+    public void testGetSearchStringFieldTermsAsList() {
+        if (this.stringField == null) {
+            return;
+        }
+        this.deleteAll();
+        //given
+        final List<T> insertedData = this.getClient()
+                                         .postListAsList(this.insertData);
+        assertEquals(this.insertData.size(), this.getAll()
+                                                 .size());
+
+        for (final T source : insertedData) {
+            final String value = this.fieldReflector.get(source);
+
+            //when
+            final List<T> res = this.getClient()
+                                    .getSearchStringFieldTermsAsList(this.stringField, value, this.config.getFirstResult(), this.config.getMaxResults());
+
+            //then
+            assertNotNull(res);
+            assertFalse(res.isEmpty());
+            for (final T rest : res) {
+                assertTrue(this.fieldReflector.get(rest)
+                                              .contains(value));
+            }
+        }
+        this.deleteAll();
+    }
+
+    public void testGetFilterFieldBetweenValuesAsList() {
+        if (this.stringField == null) {
+            return;
+        }
+        this.deleteAll();
+        //given
+        final List<T> insertedData = this.getClient()
+                                         .postListAsList(this.insertData);
+        assertEquals(this.insertData.size(), this.getAll()
+                                                 .size());
+
+        final List<String> values = insertedData.stream()
+                                                .map(this.fieldReflector::get)
+                                                .sorted()
+                                                .collect(Collectors.toList());
+        final String min = values.get(0);
+        final String max = values.get(values.size() - 1);
+        //when
+        final List<T> res = this.getClient()
+                                .getFilterFieldBetweenValuesAsList(this.stringField, min, max, this.config.getFirstResult(), this.config.getMaxResults());
+
+        //then
+        assertNotNull(res);
+        assertEquals(insertedData.size(), res.size());
+        assertEquals(values, res.stream()
+                                .map(this.fieldReflector::get)
+                                .collect(Collectors.toList()));
+
+        //when
+        final List<T> open = this.getClient()
+                                 .getFilterFieldBetweenValuesAsList(this.stringField, max, "*", this.config.getFirstResult(), this.config.getMaxResults());
+
+        //then
+        assertNotNull(open);
+        assertFalse(open.isEmpty());
+        for (final T rest : open) {
+            assertEquals(max, this.fieldReflector.get(rest));
+        }
+        this.deleteAll();
+    }
+
 
     public void testGetAutocompleteStringFieldLikeValueAsSortedSet() {
         if (this.stringField == null) {
@@ -735,6 +824,150 @@ public abstract class AbstractResourceServiceBaseImplTest<T extends PrimaryKey<K
         this.deleteAll();
     }
 
+    public void testGetAggregate() {
+        if (this.stringField == null) {
+            return;
+        }
+        this.deleteAll();
+        //given
+        final List<T> insertedData = this.getClient()
+                                         .postListAsList(this.insertData);
+        final String min = "min(" + this.stringField + ")";
+
+        //when
+        final List<Map<String, Object>> res = this.getClient()
+                                                  .getAggregate(List.of(this.stringField), List.of("count", min), null, insertedData.size(), null);
+        final List<Map<String, Object>> total = this.getClient()
+                                                    .getAggregate(null, List.of("count"), null, null, null);
+
+        //then
+        assertEquals(this.counts(insertedData), res.stream()
+                                                   .collect(Collectors.toMap(row -> String.valueOf(row.get(this.stringField)), row -> ((Number) row.get("count")).longValue())));
+        res.forEach(row -> assertEquals(row.get(this.stringField), row.get(min)));
+        assertEquals(1, total.size());
+        assertEquals(insertedData.size(), ((Number) total.get(0)
+                                                         .get("count")).intValue());
+        // a text field can not be summed
+        assertThrows(Throwable.class, () -> this.getClient()
+                                                .getAggregate(null, List.of("sum(" + this.stringField + ")"), null, null, null));
+    }
+
+    public void testGetFacets() {
+        if (this.stringField == null) {
+            return;
+        }
+        //given the data committed by testGetAggregate, the facets are read in their own transactions
+        final List<T> data = this.getAll();
+        assertFalse(data.isEmpty());
+
+        //when
+        final Map<String, Map<Object, Long>> res = this.getClient()
+                                                       .getFacets(List.of(this.stringField), data.size(), null);
+
+        //then
+        assertEquals(this.counts(data), this.facet(res));
+        assertThrows(Throwable.class, () -> this.getClient()
+                                                .getFacets(List.of("unknown"), null, null));
+        // the write drops the cached facets, checked by testGetFacetsAfterDelete
+        this.getClient()
+            .delete(data.get(0)
+                        .getId());
+    }
+
+    public void testGetFacetsAfterDelete() {
+        if (this.stringField == null) {
+            return;
+        }
+        //given
+        final List<T> data = this.getAll();
+
+        //when
+        final Map<String, Map<Object, Long>> res = this.getClient()
+                                                       .getFacets(List.of(this.stringField), this.insertData.size(), null);
+
+        //then
+        assertEquals(this.counts(data), this.facet(res));
+        this.deleteAll();
+    }
+
+    public void testGetChanges() {
+        if (!this.clazz.isAnnotationPresent(ChangeLogged.class)) {
+            return;
+        }
+        this.deleteAll();
+        //given
+        final String start = this.lastToken();
+        final List<T> insertedData = this.getClient()
+                                         .postListAsList(this.insertData);
+        final T change = this.getProducer()
+                             .change(insertedData.get(0));
+        change.setId(insertedData.get(0)
+                                 .getId());
+        final T updated = this.getClient()
+                              .put(change);
+        final T deleted = insertedData.get(1);
+        this.getClient()
+            .delete(deleted.getId());
+        final List<T> expected = new LinkedList<>(insertedData.subList(2, insertedData.size()));
+        expected.add(updated);
+
+        //when
+        final Changes<T, K> changes = this.getClient()
+                                          .getChanges(start, null);
+
+        //then the entities are ordered by their last change
+        assertEquals(expected, changes.getUpserted());
+        assertEquals(List.of(deleted.getId()), changes.getDeleted());
+        assertFalse(changes.isMore());
+
+        //when
+        final Changes<T, K> none = this.getClient()
+                                       .getChanges(changes.getToken(), null);
+
+        //then the token moves on
+        assertTrue(none.getUpserted()
+                       .isEmpty());
+        assertTrue(none.getDeleted()
+                       .isEmpty());
+        assertEquals(changes.getToken(), none.getToken());
+        assertThrows(Throwable.class, () -> this.getClient()
+                                                .getChanges("bad", null));
+
+        //when
+        this.deleteAll();
+
+        //then
+        assertThat(this.getClient()
+                       .getChanges(changes.getToken(), null)
+                       .getDeleted()).hasSameElementsAs(expected.stream()
+                                                                .map(PrimaryKey::getId)
+                                                                .collect(Collectors.toList()));
+    }
+
+    protected String lastToken() {
+        Changes<T, K> changes;
+        String token = "";
+        do {
+            changes = this.getClient()
+                          .getChanges(token, null);
+            token = changes.getToken();
+        } while (changes.isMore());
+        return token;
+    }
+
+    protected Map<String, Long> counts(final List<T> data) {
+        return data.stream()
+                   .collect(Collectors.groupingBy(this.fieldReflector::get, TreeMap::new, Collectors.counting()));
+    }
+
+    protected Map<String, Long> facet(final Map<String, Map<Object, Long>> facets) {
+        // the counts are read from json, as integers
+        final Map<?, ?> facet = facets.get(this.stringField);
+        return facet.entrySet()
+                    .stream()
+                    .collect(Collectors.toMap(entry -> String.valueOf(entry.getKey()), entry -> ((Number) entry.getValue()).longValue(), Long::sum, TreeMap::new));
+    }
+
     public void deleteAll() {
         final List<K> ids = this.getAll()
                                 .stream()
@@ -0,0 +1,161 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.github.agache41.rest.contract.resourceService;
+
+import io.github.agache41.rest.contract.dataAccess.BlockingMutinySessionFactory;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.exceptions.ExpectedException;
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import io.github.agache41.rest.contract.producer.Producer;
+import io.smallrye.mutiny.Multi;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReactiveResourceServiceTest {
+
+    private final Modell2ReactiveResourceService resourceService = new Modell2ReactiveResourceService();
+
+    private final Producer<Modell2> producer = Producer.ofClass(Modell2.class);
+
+    private static List<Modell2> list(final Multi<Modell2> tos) {
+        return tos.collect()
+                  .asList()
+                  .await()
+                  .indefinitely();
+    }
+
+    private Modell2 change(final Modell2 source) {
+        final Modell2 change = this.producer.change(source);
+        change.setId(source.getId());
+        return change;
+    }
+
+    @Test
+    void testPostAndGet() {
+        //given
+        final List<Modell2> insertedData = this.producer.produceList(3);
+        final Modell2 first = insertedData.get(0);
+        final Modell2 second = insertedData.get(1);
+        final Modell2 third = insertedData.get(2);
+
+        //when
+        this.resourceService.post(first)
+                            .await()
+                            .indefinitely();
+        assertEquals(List.of(second, third), list(this.resourceService.postListAsList(List.of(second, third))));
+
+        //then
+        assertEquals(first, this.resourceService.get(first.getId())
+                                                .await()
+                                                .indefinitely());
+        assertEquals(second, this.resourceService.postById(second.getId())
+                                                 .await()
+                                                 .indefinitely());
+        assertEquals(Set.of(first, third), Set.copyOf(list(this.resourceService.getByIdsAsList(List.of(first.getId(), third.getId())))));
+        assertEquals(List.of(second), list(this.resourceService.postByIdsAsList(List.of(second.getId()))));
+        assertThrows(ExpectedException.class, () -> this.resourceService.get(this.producer.produce()
+                                                                                          .getId())
+                                                                        .await()
+                                                                        .indefinitely());
+    }
+
+    @Test
+    void testFiltersAndPaging() {
+        //given the names selected by the filters, in the order of the ids
+        final List<Modell2> insertedData = this.producer.produceList(3);
+        insertedData.sort(Comparator.comparing(Modell2::getId));
+        insertedData.get(0)
+                    .setName("filter-a");
+        insertedData.get(1)
+                    .setName("filter-b");
+        insertedData.get(2)
+                    .setName("other");
+        list(this.resourceService.postListAsList(insertedData));
+
+        //then
+        assertEquals(insertedData.subList(0, 1), list(this.resourceService.getFilterStringFieldEqualsValueAsList("name", "filter-a", null, null)));
+        assertEquals(insertedData.subList(0, 2), list(this.resourceService.getFilterStringFieldLikeValueAsList("name", "filter-%", null, null)));
+        assertEquals(insertedData.subList(1, 2), list(this.resourceService.getFilterStringFieldLikeValueAsList("name", "filter-%", 1, 1)));
+        assertEquals(insertedData.subList(2, 3), list(this.resourceService.getFilterStringFieldInValuesAsList("name", List.of("other", "missing"), null, null)));
+        // paged by the config defaults, ordered by id
+        final List<Modell2> all = list(this.resourceService.getAllAsList(null, null));
+        assertTrue(all.size() <= this.resourceService.getConfig()
+                                                     .getMaxResults());
+        assertEquals(all.subList(1, 2), list(this.resourceService.getAllAsList(1, 1)));
+    }
+
+    @Test
+    void testPutAndDelete() {
+        //given
+        final List<Modell2> insertedData = this.producer.produceList(4);
+        list(this.resourceService.postListAsList(insertedData));
+        final List<String> ids = insertedData.stream()
+                                             .map(Modell2::getId)
+                                             .collect(Collectors.toList());
+        final Modell2 first = this.change(insertedData.get(0));
+        final List<Modell2> changes = List.of(this.change(insertedData.get(1)), this.change(insertedData.get(2)));
+
+        //when
+        this.resourceService.put(first)
+                            .await()
+                            .indefinitely();
+        final List<Modell2> updated = this.resourceService.putListAsList(changes)
+                                                          .await()
+                                                          .indefinitely();
+
+        //then
+        assertEquals(changes, updated);
+        assertEquals(Set.of(first, changes.get(0), changes.get(1), insertedData.get(3)), Set.copyOf(list(this.resourceService.getByIdsAsList(ids))));
+
+        //when
+        this.resourceService.delete(ids.get(0))
+                            .await()
+                            .indefinitely();
+        this.resourceService.deleteByIds(ids.subList(1, 2))
+                            .await()
+                            .indefinitely();
+        this.resourceService.deleteByIdsInPath(ids.subList(2, 4))
+                            .await()
+                            .indefinitely();
+
+        //then
+        assertEquals(List.of(), list(this.resourceService.getByIdsAsList(ids)));
+    }
+
+    @Test
+    void testUnresolvedTypes() {
+        assertThrows(UnexpectedException.class, () -> new RawReactiveResourceService().postConstruct());
+    }
+
+    private static class Modell2ReactiveResourceService extends AbstractReactiveResourceServiceImpl<Modell2, Modell2, String> {
+
+        Modell2ReactiveResourceService() {
+            this.sessionFactory = BlockingMutinySessionFactory.create();
+            this.postConstruct();
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static class RawReactiveResourceService extends AbstractReactiveResourceServiceImpl {
+    }
+}
@@ -17,11 +17,19 @@
 
 package io.github.agache41.rest.contract.resourceService;
 
+import io.github.agache41.rest.contract.dataAccessBase.Changes;
+import io.github.agache41.rest.contract.dataAccessBase.ChunkedImport;
 import io.github.agache41.rest.contract.dataAccessBase.IdGroup;
+import io.github.agache41.rest.contract.dataAccessBase.ImportChunk;
 import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.utils.CsvFormat;
 import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
+import io.restassured.specification.RequestSpecification;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -111,6 +119,98 @@ public class ResourceServiceTestClient<T extends PrimaryKey<K>, K> implements Re
                       .getList(".", this.clazz);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamingOutput getExportAsCsv(final UriInfo uriInfo) {
+        final byte[] csv = given().when()
+                                  .accept(CsvFormat.TEXT_CSV)
+                                  .get(this.path + "/export/asCsv")
+                                  .then()
+                                  .statusCode(200)
+                                  .extract()
+                                  .body()
+                                  .asByteArray();
+        return output -> output.write(csv);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Map<String, Object>> getAggregate(final List<String> groupBy,
+                                                  final List<String> measures,
+                                                  final Integer firstResult,
+                                                  final Integer maxResults,
+                                                  final UriInfo uriInfo) {
+        final RequestSpecification request = given().accept(ContentType.JSON);
+        if (groupBy != null) {
+            request.queryParam("groupBy", String.join(",", groupBy));
+        }
+        if (measures != null) {
+            request.queryParam("measure", String.join(",", measures));
+        }
+        if (firstResult != null) {
+            request.queryParam("firstResult", firstResult);
+        }
+        if (maxResults != null) {
+            request.queryParam("maxResults", maxResults);
+        }
+        return request.when()
+                      .get(this.path + "/aggregate")
+                      .then()
+                      .statusCode(200)
+                      .extract()
+                      .jsonPath()
+                      .getList(".");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Map<Object, Long>> getFacets(final List<String> fields,
+                                                    final Integer maxResults,
+                                                    final UriInfo uriInfo) {
+        final RequestSpecification request = given().accept(ContentType.JSON);
+        if (fields != null) {
+            request.queryParam("fields", String.join(",", fields));
+        }
+        if (maxResults != null) {
+            request.queryParam("maxResults", maxResults);
+        }
+        return request.when()
+                      .get(this.path + "/facets")
+                      .then()
+                      .statusCode(200)
+                      .extract()
+                      .jsonPath()
+                      .getMap(".");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Changes<T, K> getChanges(final String since,
+                                    final Integer maxResults) {
+        final RequestSpecification request = given().accept(ContentType.JSON);
+        if (since != null) {
+            request.queryParam("since", since);
+        }
+        if (maxResults != null) {
+            request.queryParam("maxResults", maxResults);
+        }
+        final JsonPath changes = request.when()
+                                        .get(this.path + "/changes")
+                                        .then()
+                                        .statusCode(200)
+                                        .extract()
+                                        .jsonPath();
+        return new Changes<>(changes.getList("upserted", this.clazz), changes.getList("deleted"), changes.getString("token"), changes.getBoolean("more"));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -166,6 +266,47 @@ public class ResourceServiceTestClient<T extends PrimaryKey<K>, K> implements Re
                       .getList(".", this.clazz);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<T> getFilterFieldBetweenValuesAsList(final String field,
+                                                     final String from,
+                                                     final String to,
+                                                     final Integer firstResult,
+                                                     final Integer maxResults) {
+        return given().contentType(ContentType.JSON)
+                      .when()
+                      .accept(ContentType.JSON)
+                      .get(this.path + "/filter/{field}/between/{from}/{to}/asList", field, from, to)
+                      .then()
+                      .statusCode(200)
+                      .extract()
+                      .body()
+                      .jsonPath()
+                      .getList(".", this.clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<T> getSearchStringFieldTermsAsList(final String stringField,
+                                                   final String terms,
+                                                   final Integer firstResult,
+                                                   final Integer maxResults) {
+        return given().contentType(ContentType.JSON)
+                      .when()
+                      .accept(ContentType.JSON)
+                      .get(this.path + "/search/{stringField}/{terms}/asList", stringField, terms)
+                      .then()
+                      .statusCode(200)
+                      .extract()
+                      .body()
+                      .jsonPath()
+                      .getList(".", this.clazz);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -322,6 +463,34 @@ public class ResourceServiceTestClient<T extends PrimaryKey<K>, K> implements Re
                       .getList(".", this.clazz);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ImportChunk> postImportAsStream(final InputStream input,
+                                                final Long skip,
+                                                final Integer chunkSize) {
+        final RequestSpecification request = given().contentType(ChunkedImport.APPLICATION_NDJSON)
+                                                    .body(input)
+                                                    .accept(ContentType.JSON);
+        if (skip != null) {
+            request.queryParam("skip", skip);
+        }
+        if (chunkSize != null) {
+            request.queryParam("chunkSize", chunkSize);
+        }
+        return request.when()
+                      .post(this.path + "/import/asStream")
+                      .then()
+                      .statusCode(200)
+                      .extract()
+                      .jsonPath()
+                      .<Map<String, Object>>getList(".")
+                      .stream()
+                      .map(chunk -> new ImportChunk(((Number) chunk.get("firstLine")).longValue(), ((Number) chunk.get("lines")).intValue(), ((Number) chunk.get("written")).intValue(), (String) chunk.get("error")))
+                      .collect(Collectors.toList());
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -356,6 +525,23 @@ public class ResourceServiceTestClient<T extends PrimaryKey<K>, K> implements Re
                       .getList(".", this.clazz);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<T> putUpsertListAsList(final List<T> sources) {
+        return given().contentType(ContentType.JSON)
+                      .body(sources)
+                      .when()
+                      .accept(ContentType.JSON)
+                      .put(this.path + "/upsert/asList")
+                      .then()
+                      .statusCode(200)
+                      .extract()
+                      .jsonPath()
+                      .getList(".", this.clazz);
+    }
+
     /**
      * {@inheritDoc}
      */
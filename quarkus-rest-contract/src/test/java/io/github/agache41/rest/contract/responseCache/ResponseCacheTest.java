@@ -0,0 +1,89 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+
+package io.github.agache41.rest.contract.responseCache;
+
+import io.github.agache41.rest.contract.dataAccessBase.WriteListeners;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.producer.Producer;
+import io.github.agache41.rest.contract.resourceService.AbstractResourceServiceImpl;
+import io.github.agache41.rest.contract.utils.ETags;
+import io.github.agache41.rest.contract.utils.ResponseCache;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+
+    private final Producer<Modell2> producer = Producer.ofClass(Modell2.class);
+
+    private static byte[] json(final Modell2 modell2) {
+        return ("{\"id\":\"" + modell2.getId() + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testInvalidatedByWritesOfTheEntity() {
+        final ResponseCache cache = new ResponseCache(CachedResource.class, 1024 * 1024, 60000);
+        final Modell2 first = this.producer.produce();
+        final Modell2 second = this.producer.produce();
+        cache.put(first, json(first), cache.generation());
+        cache.put(second, json(second), cache.generation());
+        assertEquals(ETags.ofObject(first), cache.eTag(first.getId()));
+        assertNotNull(cache.get(first.getId()));
+
+        // a write through any binder of Modell2 drops the written id only
+        WriteListeners.written(Modell2.class, List.of(first.getId()));
+
+        assertNull(cache.eTag(first.getId()));
+        assertNull(cache.get(first.getId()));
+        assertNotNull(cache.eTag(second.getId()));
+    }
+
+    @Test
+    void testNotCachedWhenReadBeforeAWrite() {
+        final ResponseCache cache = new ResponseCache(CachedResource.class, 1024 * 1024, 60000);
+        final Modell2 stale = this.producer.produce();
+        final long generation = cache.generation();
+
+        // the write commits while the response is being rendered
+        WriteListeners.written(Modell2.class, List.of(stale.getId()));
+        cache.put(stale, json(stale), generation);
+
+        assertNull(cache.eTag(stale.getId()));
+        assertNull(cache.get(stale.getId()));
+    }
+
+    @Test
+    void testTimeToLive() throws InterruptedException {
+        final ResponseCache cache = new ResponseCache(CachedResource.class, 1024 * 1024, 10);
+        final Modell2 expiring = this.producer.produce();
+        cache.put(expiring, json(expiring), cache.generation());
+
+        Thread.sleep(50);
+
+        assertNull(cache.eTag(expiring.getId()));
+        assertNull(cache.get(expiring.getId()));
+    }
+
+    private abstract static class CachedResource extends AbstractResourceServiceImpl<Modell2, Modell2, String> {
+    }
+}
@@ -0,0 +1,153 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.changeLog;
+
+import jakarta.persistence.*;
+
+/**
+ * <pre>
+ * One write of a {@link ChangeLogged} entity, recorded by the data binder in the transaction of the write.
+ * The id is increasing and orders the changes, it is the token handed to the clients for the next synchronization.
+ * The log is shared by all the entities, so the ids of the changes of one entity are not contiguous.
+ * A delete is recorded as well, as the tombstone of the entity.
+ * </pre>
+ */
+@Entity
+@Table(name = "rest_contract_change_log", indexes = {@Index(name = "rest_contract_change_log_entity", columnList = "entityName, id"),
+                                                     @Index(name = "rest_contract_change_log_changed_at", columnList = "changedAt")})
+public class ChangeLogEntry {
+
+    /**
+     * The kinds of writes.
+     */
+    public enum Operation {
+        /**
+         * The entity was inserted or updated.
+         */
+        UPSERT,
+        /**
+         * The entity was deleted.
+         */
+        DELETE
+    }
+
+    /**
+     * <pre>
+     * The increasing id of the change, taken from a sequence so that the rows of one write are inserted in a JDBC batch.
+     * The ids are allocated one by one, so that they follow the order of the writes across all the instances of the application.
+     * </pre>
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rest_contract_change_log_seq")
+    @SequenceGenerator(name = "rest_contract_change_log_seq", sequenceName = "rest_contract_change_log_seq", allocationSize = 1)
+    protected Long id;
+
+    /**
+     * The class name of the entity.
+     */
+    @Column(nullable = false)
+    protected String entityName;
+
+    /**
+     * The Primary Key of the entity, as a string.
+     */
+    @Column(nullable = false)
+    protected String entityId;
+
+    /**
+     * The operation.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 6)
+    protected Operation operation;
+
+    /**
+     * The time of the write, in milliseconds since the epoch.
+     */
+    @Column(nullable = false)
+    protected long changedAt;
+
+    /**
+     * Instantiates a new Change log entry, for JPA.
+     */
+    protected ChangeLogEntry() {
+    }
+
+    /**
+     * Instantiates a new Change log entry.
+     *
+     * @param entityName the class name of the entity
+     * @param entityId   the Primary Key of the entity, as a string
+     * @param operation  the operation
+     * @param changedAt  the time of the write
+     */
+    public ChangeLogEntry(final String entityName,
+                          final String entityId,
+                          final Operation operation,
+                          final long changedAt) {
+        this.entityName = entityName;
+        this.entityId = entityId;
+        this.operation = operation;
+        this.changedAt = changedAt;
+    }
+
+    /**
+     * Gets the increasing id of the change.
+     *
+     * @return the id
+     */
+    public Long getId() {
+        return this.id;
+    }
+
+    /**
+     * Gets the class name of the entity.
+     *
+     * @return the entity name
+     */
+    public String getEntityName() {
+        return this.entityName;
+    }
+
+    /**
+     * Gets the Primary Key of the entity, as a string.
+     *
+     * @return the entity id
+     */
+    public String getEntityId() {
+        return this.entityId;
+    }
+
+    /**
+     * Gets the operation.
+     *
+     * @return the operation
+     */
+    public Operation getOperation() {
+        return this.operation;
+    }
+
+    /**
+     * Gets the time of the write, in milliseconds since the epoch.
+     *
+     * @return the changed at
+     */
+    public long getChangedAt() {
+        return this.changedAt;
+    }
+}
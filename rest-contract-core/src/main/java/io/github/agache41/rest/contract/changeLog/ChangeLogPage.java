@@ -0,0 +1,83 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.github.agache41.rest.contract.changeLog;
+
+import java.util.List;
+
+/**
+ * <pre>
+ * One page of the change log of an entity, read after a token.
+ * The token is the id of the last change covered by the page, including the changes of the other entities,
+ * so that the next page does not read them again.
+ * </pre>
+ */
+public class ChangeLogPage {
+    /**
+     * The changes of the entity, in the order of their ids.
+     */
+    protected final List<ChangeLogEntry> entries;
+    /**
+     * The id of the last change covered by the page.
+     */
+    protected final long token;
+    /**
+     * If more changes can be read right away.
+     */
+    protected final boolean more;
+
+    /**
+     * Instantiates a new Change log page.
+     *
+     * @param entries the changes of the entity
+     * @param token   the id of the last change covered by the page
+     * @param more    if more changes can be read right away
+     */
+    public ChangeLogPage(final List<ChangeLogEntry> entries,
+                         final long token,
+                         final boolean more) {
+        this.entries = entries;
+        this.token = token;
+        this.more = more;
+    }
+
+    /**
+     * Gets the changes of the entity, in the order of their ids.
+     *
+     * @return the entries
+     */
+    public List<ChangeLogEntry> getEntries() {
+        return this.entries;
+    }
+
+    /**
+     * Gets the id of the last change covered by the page.
+     *
+     * @return the token
+     */
+    public long getToken() {
+        return this.token;
+    }
+
+    /**
+     * Tells if more changes can be read right away.
+     *
+     * @return the more
+     */
+    public boolean isMore() {
+        return this.more;
+    }
+}
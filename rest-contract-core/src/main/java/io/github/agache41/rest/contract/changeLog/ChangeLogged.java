@@ -0,0 +1,39 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.changeLog;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <pre>
+ * Marks an entity whose writes through the data binder are recorded in the change log,
+ * so that the clients can read the changes since their last synchronization, including the deletes.
+ * The entity must have a simple Primary Key, e.g. String, Long or UUID, and the {@link ChangeLogEntry} must be part of the persistence unit.
+ * Example:
+ *      &#x40;Entity
+ *      &#x40;ChangeLogged
+ *      public class Modell { ... }
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ChangeLogged {
+}
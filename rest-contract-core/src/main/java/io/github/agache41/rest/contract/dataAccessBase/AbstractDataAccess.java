@@ -17,21 +17,38 @@
 
 package io.github.agache41.rest.contract.dataAccessBase;
 
+import io.github.agache41.rest.contract.changeLog.ChangeLogEntry;
+import io.github.agache41.rest.contract.changeLog.ChangeLogPage;
+import io.github.agache41.rest.contract.changeLog.ChangeLogged;
+import io.github.agache41.rest.contract.exceptions.DeadlineExceededException;
 import io.github.agache41.rest.contract.exceptions.ExpectedException;
 import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import io.github.agache41.rest.contract.exceptions.VersionConflictException;
 import io.github.agache41.rest.contract.utils.ReflectionUtils;
 import jakarta.persistence.*;
 import jakarta.persistence.criteria.*;
 import jakarta.transaction.Transactional;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static io.github.agache41.rest.contract.dataAccessBase.PrimaryKey.ID;
 import static java.util.stream.Collectors.collectingAndThen;
@@ -44,7 +61,10 @@ import static java.util.stream.Collectors.toList;
  * The class is meant to be used standalone and also as a base class.
  * In standalone use it can be injected directly in the code:
  *
- *
+ * Reads wrapped in readOnly outside a transaction load the entities read only and without flushing,
+ * so no snapshots are kept for dirty checking.
+ * If a replica Entity Manager is provided, these reads are routed to it according to the ReadRouting policy.
+ * Every query gets the remaining time of the request Deadline as query timeout.
  * </pre>
  *
  * @param <ENTITY> the type parameter
@@ -68,12 +88,101 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
     /**
      * The Set of reserved names to be excepted from URL Parameters.
      */
-    protected static final Set<String> reserved = Stream.of("cut", "maxResults", "firstResult", "orderBy")
+    protected static final Set<String> reserved = Stream.of("cut", "maxResults", "firstResult", "orderBy", "pageSize", "groupBy", "measure", "fields")
                                                         .collect(Collectors.toSet());
     /**
      * The Regex matching orderBy URL Parameter content.
      */
     protected static final Pattern orderByColumn = Pattern.compile("(?i)([a-zA-Z_$.0-9]+)(\\s(asc|desc))?");
+    /**
+     * The suffix of the request parameters filtering for values greater than the given one. Example longVal.gt=5
+     */
+    public static final String GT = "gt";
+    /**
+     * The suffix of the request parameters filtering for values greater or equal to the given one.
+     */
+    public static final String GE = "ge";
+    /**
+     * The suffix of the request parameters filtering for values less than the given one.
+     */
+    public static final String LT = "lt";
+    /**
+     * The suffix of the request parameters filtering for values less or equal to the given one.
+     */
+    public static final String LE = "le";
+    /**
+     * The value standing for an open bound of a range.
+     */
+    public static final String OPEN = "*";
+    /**
+     * The range operators usable as suffix of the request parameters.
+     */
+    protected static final Set<String> rangeOperators = Set.of(GT, GE, LT, LE);
+    /**
+     * The hint loading the entities read only. Supported by Hibernate, ignored by other providers.
+     */
+    public static final String HINT_READ_ONLY = "org.hibernate.readOnly";
+    /**
+     * The hint disabling the flush before the query. Supported by Hibernate, ignored by other providers.
+     */
+    public static final String HINT_FLUSH_MODE = "org.hibernate.flushMode";
+    /**
+     * The hint setting the query timeout in milliseconds, applied from the Deadline of the current request.
+     */
+    public static final String HINT_QUERY_TIMEOUT = "jakarta.persistence.query.timeout";
+    /**
+     * The hint setting the number of rows fetched per round trip by the JDBC driver. Supported by Hibernate, ignored by other providers.
+     */
+    public static final String HINT_FETCH_SIZE = "org.hibernate.fetchSize";
+    /**
+     * The hints applied on the queries of the read methods within readOnly.
+     */
+    protected static final Map<String, Object> readOnlyHints = Map.of(HINT_READ_ONLY, Boolean.TRUE, HINT_FLUSH_MODE, "MANUAL");
+    /**
+     * The state of the readOnly calls on the current thread : the depth, the read only hints are applied while positive,
+     * and the routing to the replica, decided on the outermost call.
+     */
+    protected static final ThreadLocal<int[]> readOnlyDepth = ThreadLocal.withInitial(() -> new int[2]);
+    /**
+     * The filterable attributes of every entity type, built once from the metamodel.
+     */
+    protected static final Map<Class<?>, Map<String, FilterAttribute>> filterAttributesCache = new ConcurrentHashMap<>();
+    /**
+     * The {@link TextSearch} annotations on the fields of every entity type.
+     */
+    protected static final Map<Class<?>, Map<String, TextSearch>> textSearchCache = new ConcurrentHashMap<>();
+    /**
+     * The text search strategy instances, shared by all the fields using them.
+     */
+    protected static final Map<Class<? extends TextSearch.Strategy>, TextSearch.Strategy> textSearchStrategies = new ConcurrentHashMap<>();
+    /**
+     * The text search strategy of the fields that are not annotated.
+     */
+    protected static final TextSearch.Strategy defaultTextSearch = new TextSearch.Like();
+    /**
+     * The number of threads running parallel reads, kept below the default size of the connection pools (10 for Hikari, 20 for Agroal).
+     */
+    protected static final int PARALLEL_READS = 4;
+    /**
+     * The number of parallel reads waiting for a thread, beyond it the reads run on the calling thread.
+     */
+    protected static final int PARALLEL_READS_QUEUE = 64;
+    /**
+     * <pre>
+     * The executor running the independent queries of one request in parallel, e.g. the facets or the shards, on daemon threads.
+     * Every query holds a connection, so the threads are bounded by {@link #PARALLEL_READS}.
+     * When the queue is full the query runs on the calling thread, so a burst of requests is slowed down instead of draining the pool.
+     * </pre>
+     */
+    protected static final ExecutorService parallelReads = new ThreadPoolExecutor(PARALLEL_READS, PARALLEL_READS,
+                                                                                  60, TimeUnit.SECONDS,
+                                                                                  new ArrayBlockingQueue<>(PARALLEL_READS_QUEUE),
+                                                                                  runnable -> {
+                                                                                      final Thread thread = new Thread(runnable, "rest-contract-parallel-read");
+                                                                                      thread.setDaemon(true);
+                                                                                      return thread;
+                                                                                  },
+                                                                                  new ThreadPoolExecutor.CallerRunsPolicy());
     /**
      * <pre>
      * The type of the persisted Object
@@ -120,6 +229,18 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
      * The List all named query.
      */
     protected final String listAllNamedQuery;
+    /**
+     * The name of the attribute annotated with @Version or null if the entity is not versioned.
+     */
+    protected final String versionName;
+    /**
+     * The routing policy between the primary and the replica Entity Manager.
+     */
+    protected ReadRouting readRouting = new ReadRouting();
+    /**
+     * The collation of the String columns, detected on first use if not set.
+     */
+    protected Collation collation;
     /**
      * <pre>
      * Root constructor.
@@ -138,6 +259,12 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
         this.findByIdNamedQuery = this.type.getSimpleName() + "." + findById;
         this.deleteByIdNamedQuery = this.type.getSimpleName() + "." + deleteById;
         this.listAllNamedQuery = this.type.getSimpleName() + "." + listAll;
+        this.versionName = ReflectionUtils.getDeclaredFields(type)
+                                          .stream()
+                                          .filter(field -> field.isAnnotationPresent(Version.class))
+                                          .map(Field::getName)
+                                          .findFirst()
+                                          .orElse(null);
     }
 
     /**
@@ -165,14 +292,39 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
      */
     public ENTITY findById(final PK id, final boolean expected) {
         if (this.namedQueries.contains(this.findByIdNamedQuery)) {
-            return this.em()
-                       .createNamedQuery(this.findByIdNamedQuery, this.type)
+            return this.deadline(this.readOnly(this.reader()
+                                                   .createNamedQuery(this.findByIdNamedQuery, this.type)))
                        .setParameter(ID, id)
                        .getSingleResult();
         } else {
-            return this.assertNotNull(this.em()
-                                          .find(this.type, this.assertNotNull(id)), expected);
+            return this.assertNotNull(this.reader()
+                                          .find(this.type, this.assertNotNull(id), this.findHints()), expected);
+        }
+    }
+
+    /**
+     * <pre>
+     * Finds the value of the @Version attribute for the entity with the given Primary Key.
+     * Only the version column is selected, the entity is not loaded.
+     * </pre>
+     *
+     * @param id the primary key to use, must be not null
+     * @return the version or null if no entity is found
+     * @throws UnexpectedException if the entity has no @Version attribute
+     */
+    public Object findVersionById(final PK id) {
+        if (this.versionName == null) {
+            throw new UnexpectedException(this.name + ": Entity has no @Version attribute.");
         }
+        final CriteriaBuilder cb = this.cb();
+        final CriteriaQuery<Object> query = cb.createQuery(Object.class);
+        final Root<ENTITY> entity = query.from(this.type);
+        query.select(entity.get(this.versionName))
+             .where(cb.equal(entity.get(ID), this.assertNotNull(id)));
+        return this.createQuery(query)
+                   .getResultStream()
+                   .findFirst()
+                   .orElse(null);
     }
 
     /**
@@ -185,9 +337,88 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
      * @return the persisted entity, if any or ExpectedException if no entity is found
      */
     public ENTITY findPersisted(final PrimaryKey<PK> source) {
+        this.readRouting.write();
         return this.findById(this.assertNotNull(source.getId()));
     }
 
+    /**
+     * <pre>
+     * Updates the given attributes of the entity with the given Primary Key, only if its @Version attribute still has the given value.
+     * A single UPDATE ... WHERE id = ? AND version = ? statement is sent, also incrementing the version, so the entity is not loaded before.
+     * The version must be numeric. Only simple value attributes can be updated this way.
+     * The updated entity is then read back in one select.
+     * </pre>
+     *
+     * @param id      the primary key to use, must be not null
+     * @param version the expected current version, must be not null
+     * @param values  the values of the attributes to update, mapped by the attribute names
+     * @return the updated entity
+     * @throws VersionConflictException if the entity has another version
+     * @throws UnexpectedException      if the entity is not versioned or is not found
+     */
+    public ENTITY updateByIdAndVersion(final PK id,
+                                       final Object version,
+                                       final Map<String, Object> values) {
+        if (this.versionName == null) {
+            throw new UnexpectedException(this.name + ": Entity has no @Version attribute.");
+        }
+        this.readRouting.write();
+        final CriteriaBuilder cb = this.cb();
+        final CriteriaUpdate<ENTITY> update = cb.createCriteriaUpdate(this.type);
+        final Root<ENTITY> entity = update.from(this.type);
+        values.forEach((attribute, value) -> update.<Object, Object>set(entity.get(attribute), value));
+        final Path<Number> versionPath = entity.get(this.versionName);
+        update.set(versionPath, cb.sum(versionPath, this.versionIncrement((Number) this.assertNotNull(version))))
+              .where(cb.equal(entity.get(ID), this.assertNotNull(id)), cb.equal(versionPath, version));
+        final int updated = this.deadline(this.em()
+                                              .createQuery(update))
+                                .executeUpdate();
+        this.em()
+            .getEntityManagerFactory()
+            .getCache()
+            .evict(this.type, id);
+        if (updated == 0) {
+            final Object current = this.findVersionById(id);
+            if (current == null) {
+                throw new UnexpectedException(this.name + ": Missing Entity in Update for PK=" + id);
+            }
+            throw new VersionConflictException(this.name + ": Entity with PK=" + id + " has version " + current + ".", Map.of(id, current));
+        }
+        // an already managed instance is refreshed, otherwise the entity is loaded
+        final ENTITY reference = this.em()
+                                     .getReference(this.type, id);
+        if (this.em()
+                .getEntityManagerFactory()
+                .getPersistenceUnitUtil()
+                .isLoaded(reference)) {
+            this.em()
+                .refresh(reference);
+            return reference;
+        }
+        this.em()
+            .detach(reference);
+        return this.em()
+                   .find(this.type, id);
+    }
+
+    /**
+     * <pre>
+     * The increment of a numeric version, in the type of the version.
+     * </pre>
+     *
+     * @param version the version
+     * @return the increment
+     */
+    private Number versionIncrement(final Number version) {
+        if (version instanceof Long) {
+            return 1L;
+        }
+        if (version instanceof Short) {
+            return (short) 1;
+        }
+        return 1;
+    }
+
     /**
      * <pre>
      * Finds in Database one entity that equals a specific value in a specified column.
@@ -218,8 +449,7 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
         try {
             final CriteriaQuery<ENTITY> query = this.query();
             final Root<ENTITY> entity = this.entity(query);
-            return this.em()
-                       .createQuery(query.select(entity)
+            return this.createQuery(query.select(entity)
                                          .where(this.equals(column, value, notNull, entity)))
                        .getSingleResult();
         } catch (final NoResultException exception) {
@@ -244,8 +474,7 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
         try {
             final CriteriaQuery<ENTITY> query = this.query();
             final Root<ENTITY> entity = this.entity(query);
-            return this.em()
-                       .createQuery(query.select(entity)
+            return this.createQuery(query.select(entity)
                                          .where(this.like(column, value, notNull, entity)))
                        .getSingleResult();
         } catch (final NoResultException exception) {
@@ -269,11 +498,129 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
      * @return all the entities in a Stream&#x3C;ENTITY&#x3E;
      */
     public List<ENTITY> listAll(final int firstResult, final int maxResults, final Map<String, List<String>> requestParameters) {
+        return this.listAllQuery(this.reader(), requestParameters)
+                   .setFirstResult(firstResult)
+                   .setMaxResults(maxResults)
+                   .getResultList();
+    }
+
+    /**
+     * <pre>
+     * Streams all entities matching the request filters from a server side cursor, meant for exports of large tables.
+     * The query is the one of listAll, it runs on a new Entity Manager, read only, fetching fetchSize rows per round trip.
+     * Every entity is rendered while the Entity Manager is open and the persistence context is cleared every fetchSize entities,
+     * so the memory used stays constant regardless of the size of the table.
+     * The Entity Manager is not bound to the current request or transaction, so the stream can be consumed after the request method returned.
+     * It is opened, begun and closed with the stream hooks, which the data access of the persistence provider overrides
+     * to hold the connection in a read only transaction : drivers like PostgreSQL honour the fetch size only outside of autocommit
+     * and would otherwise buffer the whole result.
+     * The query is built when the method is called, so bad filters are reported before the first row is consumed.
+     * Example:
+     *      try (final Stream&#x3C;TO&#x3E; rows = dataAccess.streamAll(requestParameters, 1000, TO::new)) {
+     *          rows.forEach(writer::write);
+     *      }
+     * </pre>
+     *
+     * @param <R>               the type of the rendered entities
+     * @param requestParameters the uri info
+     * @param fetchSize         the number of rows fetched per round trip and kept in the persistence context
+     * @param render            renders an entity
+     * @return the rendered entities, the stream must be closed to release the cursor and the Entity Manager
+     * @see #listAll(int, int, Map)
+     * @see #openStream()
+     */
+    public <R> Stream<R> streamAll(final Map<String, List<String>> requestParameters,
+                                   final int fetchSize,
+                                   final Function<? super ENTITY, ? extends R> render) {
+        final EntityManager streamEm = this.openStream();
+        final boolean[] began = new boolean[1];
+        try {
+            final TypedQuery<ENTITY> typedQuery = this.listAllQuery(streamEm, requestParameters);
+            readOnlyHints.forEach(typedQuery::setHint);
+            typedQuery.setHint(HINT_FETCH_SIZE, fetchSize);
+            final int[] count = new int[1];
+            // the connection is taken when the first row is pulled, after the transaction of the request ended
+            return StreamSupport.stream(() -> {
+                                            began[0] = this.beginStream(streamEm);
+                                            return typedQuery.getResultStream()
+                                                             .spliterator();
+                                        }, Spliterator.ORDERED, false)
+                                .<R>map(entity -> {
+                                    final R rendered = render.apply(entity);
+                                    if (++count[0] % fetchSize == 0) {
+                                        streamEm.clear();
+                                    }
+                                    return rendered;
+                                })
+                                .onClose(() -> this.closeStream(streamEm, began[0]));
+        } catch (final RuntimeException exception) {
+            this.closeStream(streamEm, began[0]);
+            throw exception;
+        }
+    }
+
+    /**
+     * <pre>
+     * Opens the Entity Manager of {@link #streamAll(Map, int, Function)}, not bound to the current request or transaction.
+     * The data access of the persistence provider overrides it to take the connection only when the first row is pulled.
+     * The stream hooks run outside of any transaction, the connection of the stream must not be enlisted in the one of the request.
+     * </pre>
+     *
+     * @return the new Entity Manager
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    protected EntityManager openStream() {
+        return this.reader()
+                   .getEntityManagerFactory()
+                   .createEntityManager();
+    }
+
+    /**
+     * <pre>
+     * Begins the stream when its first row is pulled, before the query runs.
+     * The data access of the persistence provider overrides it to start a read only transaction on the connection,
+     * as the cursors of some drivers fetch in rounds only within a transaction.
+     * </pre>
+     *
+     * @param streamEm the Entity Manager of the stream
+     * @return true if a transaction was begun, to be ended by {@link #closeStream(EntityManager, boolean)}
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    protected boolean beginStream(final EntityManager streamEm) {
+        return false;
+    }
+
+    /**
+     * <pre>
+     * Closes the stream, ending the transaction begun by {@link #beginStream(EntityManager)} if any.
+     * </pre>
+     *
+     * @param streamEm the Entity Manager of the stream
+     * @param began    if a transaction was begun
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    protected void closeStream(final EntityManager streamEm,
+                               final boolean began) {
+        streamEm.close();
+    }
+
+    /**
+     * <pre>
+     * Creates the query of listAll on the given Entity Manager, filtered and ordered by the request parameters.
+     * If a named query is provided in the entity (named ClassName.listAll), then this query will be used
+     * and the request parameters will be set as its parameters.
+     * </pre>
+     *
+     * @param entityManager     the Entity Manager
+     * @param requestParameters the uri info
+     * @return the typed query
+     */
+    protected TypedQuery<ENTITY> listAllQuery(final EntityManager entityManager,
+                                              final Map<String, List<String>> requestParameters) {
         final TypedQuery<ENTITY> typedQuery;
         if (this.namedQueries.contains(this.listAllNamedQuery)) {
-            typedQuery = this.em()
-                             .createNamedQuery(this.listAllNamedQuery, this.type);
-            final Map<String, List<Object>> filterQueryParams = this.filterQueryParams(requestParameters);
+            typedQuery = this.deadline(this.readOnly(entityManager.createNamedQuery(this.listAllNamedQuery, this.type)));
+            final Map<String, List<Object>> filterQueryParams = this.filterQueryParams(requestParameters, false);
             if (!filterQueryParams.isEmpty()) {
                 filterQueryParams.entrySet()
                                  .stream()
@@ -287,25 +634,363 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
             if (!filterQueryParams.isEmpty()) {
                 select = select.where(this.in(filterQueryParams, entity));
             }
-            final LinkedHashMap<String, Boolean> orderBy = this.orderByQueryParams(requestParameters);
-            select.orderBy(orderBy.entrySet()
-                                  .stream()
-                                  .map(entry -> {
-                                      if (entry.getValue()) {
-                                          return this.cb()
-                                                     .asc(this.attr(entity, entry.getKey()));
-                                      } else {
-                                          return this.cb()
-                                                     .desc(this.attr(entity, entry.getKey()));
-                                      }
-                                  })
-                                  .collect(toList()));
-            typedQuery = this.em()
-                             .createQuery(select);
+            select.orderBy(this.orderBy(this.orderByQueryParams(requestParameters), entity));
+            typedQuery = this.deadline(this.readOnly(entityManager.createQuery(select)));
+        }
+        return typedQuery;
+    }
+
+    /**
+     * <pre>
+     * Lists all entities matching the request filters as a parallel scan, meant for full exports of large tables.
+     * The Primary Key space is split in ranges, from min and max for numeric keys, otherwise from boundaries sampled on the key index.
+     * Each range is read with its own Entity Manager, on the given executor, and rendered before the Entity Manager is closed.
+     * At most parallelism ranges are running or waiting to be consumed, so choose more partitions than parallelism for large tables
+     * to keep the memory bounded, e.g. 500 partitions and 8 in parallel for 50M rows.
+     * Within a range the entities are ordered by the Primary Key, so an ordered scan returns them in Primary Key order.
+     * The order by request parameters are ignored and a running Deadline applies to every range query.
+     * If a named query is provided for listAll, the named query is used in one sequential read.
+     * Example:
+     *      dataAccess.listAllPartitioned(500, 8, executor, true, requestParameters, TO::new)
+     *                .forEach(writer::write);
+     * </pre>
+     *
+     * @param <R>               the type of the rendered entities
+     * @param partitions        the number of Primary Key ranges
+     * @param parallelism       the max number of ranges read at once
+     * @param executor          the executor running the range reads, bounded by the number of connections available
+     * @param ordered           if the results are returned in Primary Key order, otherwise as the ranges complete
+     * @param requestParameters the uri info
+     * @param render            renders an entity, called on the executor while its Entity Manager is open
+     * @return the rendered entities, the stream must be closed to cancel the remaining ranges if not fully consumed
+     * @see PartitionedScan
+     */
+    public <R> Stream<R> listAllPartitioned(final int partitions,
+                                            final int parallelism,
+                                            final Executor executor,
+                                            final boolean ordered,
+                                            final Map<String, List<String>> requestParameters,
+                                            final Function<? super ENTITY, ? extends R> render) {
+        if (this.namedQueries.contains(this.listAllNamedQuery)) {
+            return this.listAll(0, Integer.MAX_VALUE, requestParameters)
+                       .stream()
+                       .map(render);
+        }
+        final Map<String, List<Object>> filterQueryParams = this.filterQueryParams(requestParameters);
+        final List<Object> boundaries = this.partitionBoundaries(Math.max(1, partitions), filterQueryParams);
+        final EntityManagerFactory factory = this.reader()
+                                                 .getEntityManagerFactory();
+        final long deadline = Deadline.isRunning() ? System.currentTimeMillis() + Deadline.remainingMillis() : 0;
+        final List<Supplier<List<R>>> ranges = new ArrayList<>();
+        for (int index = 1; index < boundaries.size(); index++) {
+            final CriteriaQuery<ENTITY> query = this.partitionQuery(boundaries.get(index - 1), boundaries.get(index), filterQueryParams);
+            ranges.add(() -> this.listPartition(factory, query, deadline, render));
+        }
+        return new PartitionedScan<>(ranges, parallelism, executor, ordered).stream();
+    }
+
+    /**
+     * <pre>
+     * Splits the Primary Key space of the entities matching the filters in ranges.
+     * The boundaries are ascending, the first and the last one are null for the open ends, range i is [boundary i, boundary i+1).
+     * Numeric keys are split in equal ranges between min and max, other keys at equal offsets in the ordered keys.
+     * </pre>
+     *
+     * @param partitions        the number of ranges
+     * @param filterQueryParams the filters
+     * @return the boundaries
+     */
+    protected List<Object> partitionBoundaries(final int partitions,
+                                               final Map<String, List<Object>> filterQueryParams) {
+        final List<Object> boundaries = new ArrayList<>();
+        boundaries.add(null);
+        if (partitions > 1 && (Long.class.equals(this.keyType) || Integer.class.equals(this.keyType) || Short.class.equals(this.keyType))) {
+            final CriteriaQuery<Tuple> query = this.cb()
+                                                   .createTupleQuery();
+            final Root<ENTITY> entity = query.from(this.type);
+            final Path<Number> id = this.attr(entity, ID);
+            query.multiselect(this.cb()
+                                  .min(id), this.cb()
+                                                .max(id));
+            if (!filterQueryParams.isEmpty()) {
+                query.where(this.in(filterQueryParams, entity));
+            }
+            final Tuple minMax = this.createQuery(query)
+                                     .getSingleResult();
+            if (minMax.get(0) != null) {
+                // BigInteger, the span of the whole long range does not fit in a long
+                final BigInteger min = BigInteger.valueOf(((Number) minMax.get(0)).longValue());
+                final BigInteger max = BigInteger.valueOf(((Number) minMax.get(1)).longValue());
+                final BigInteger step = max.subtract(min)
+                                           .divide(BigInteger.valueOf(partitions))
+                                           .add(BigInteger.ONE);
+                for (BigInteger boundary = min.add(step); boundary.compareTo(max) <= 0; boundary = boundary.add(step)) {
+                    boundaries.add(this.partitionKey(boundary.longValue()));
+                }
+            }
+        } else if (partitions > 1) {
+            final CriteriaQuery<Long> count = this.cb()
+                                                  .createQuery(Long.class);
+            final Root<ENTITY> counted = count.from(this.type);
+            count.select(this.cb()
+                             .count(counted));
+            if (!filterQueryParams.isEmpty()) {
+                count.where(this.in(filterQueryParams, counted));
+            }
+            final long total = this.createQuery(count)
+                                   .getSingleResult();
+            final CriteriaQuery<Object> ids = this.cb()
+                                                  .createQuery(Object.class);
+            final Root<ENTITY> entity = ids.from(this.type);
+            ids.select(this.attr(entity, ID))
+               .orderBy(this.cb()
+                            .asc(this.attr(entity, ID)));
+            if (!filterQueryParams.isEmpty()) {
+                ids.where(this.in(filterQueryParams, entity));
+            }
+            long previous = 0;
+            for (int index = 1; index < partitions; index++) {
+                final long offset = total * index / partitions;
+                if (offset > previous) {
+                    this.createQuery(ids)
+                        .setFirstResult((int) Math.min(offset, Integer.MAX_VALUE))
+                        .setMaxResults(1)
+                        .getResultStream()
+                        .findFirst()
+                        .ifPresent(boundaries::add);
+                    previous = offset;
+                }
+            }
+        }
+        boundaries.add(null);
+        return boundaries;
+    }
+
+    /**
+     * <pre>
+     * The query reading one Primary Key range of the entities matching the filters, ordered by the Primary Key.
+     * </pre>
+     *
+     * @param from              the lower bound, inclusive, null if open
+     * @param to                the upper bound, exclusive, null if open
+     * @param filterQueryParams the filters
+     * @return the criteria query
+     */
+    protected CriteriaQuery<ENTITY> partitionQuery(final Object from,
+                                                   final Object to,
+                                                   final Map<String, List<Object>> filterQueryParams) {
+        final CriteriaQuery<ENTITY> query = this.query();
+        final Root<ENTITY> entity = this.entity(query);
+        final Path<Object> id = this.attr(entity, ID);
+        Expression<Boolean> where = this.cb()
+                                        .conjunction();
+        if (!filterQueryParams.isEmpty()) {
+            where = this.cb()
+                        .and(where, this.in(filterQueryParams, entity));
+        }
+        if (from != null) {
+            where = this.cb()
+                        .and(where, this.compare(id, GE, from));
+        }
+        if (to != null) {
+            where = this.cb()
+                        .and(where, this.compare(id, LT, to));
+        }
+        return query.select(entity)
+                    .where(where)
+                    .orderBy(this.cb()
+                                 .asc(id));
+    }
+
+    /**
+     * <pre>
+     * Reads and renders one Primary Key range with a new Entity Manager, read only and closed afterwards.
+     * </pre>
+     *
+     * @param <R>      the type of the rendered entities
+     * @param factory  the Entity Manager Factory
+     * @param query    the range query
+     * @param deadline the deadline in milliseconds since the epoch, 0 if none
+     * @param render   renders an entity
+     * @return the rendered entities
+     * @throws DeadlineExceededException if the deadline expired
+     */
+    protected <R> List<R> listPartition(final EntityManagerFactory factory,
+                                        final CriteriaQuery<ENTITY> query,
+                                        final long deadline,
+                                        final Function<? super ENTITY, ? extends R> render) {
+        return this.readIsolated(factory, deadline, partitionEm -> {
+            final TypedQuery<ENTITY> typedQuery = this.deadline(partitionEm.createQuery(query));
+            readOnlyHints.forEach(typedQuery::setHint);
+            return typedQuery.getResultStream()
+                             .map(render)
+                             .collect(Collectors.<R>toList());
+        });
+    }
+
+    /**
+     * <pre>
+     * Runs a read with a new Entity Manager, closed afterwards, within the remaining time of the given deadline.
+     * Used for the reads running on other threads than the one of the request.
+     * </pre>
+     *
+     * @param <R>      the type of the result
+     * @param factory  the Entity Manager Factory
+     * @param deadline the deadline in milliseconds since the epoch, 0 if none
+     * @param read     the read
+     * @return the result of the read
+     * @throws DeadlineExceededException if the deadline expired
+     */
+    protected <R> R readIsolated(final EntityManagerFactory factory,
+                                 final long deadline,
+                                 final Function<EntityManager, R> read) {
+        final long remaining = deadline - System.currentTimeMillis();
+        if (deadline > 0 && remaining <= 0) {
+            throw new DeadlineExceededException(" Request deadline exceeded by " + -remaining + "ms");
+        }
+        final EntityManager isolatedEm = factory.createEntityManager();
+        try {
+            return Deadline.within(deadline > 0 ? remaining : 0, () -> read.apply(isolatedEm));
+        } finally {
+            isolatedEm.close();
+        }
+    }
+
+    private Object partitionKey(final long value) {
+        if (Integer.class.equals(this.keyType)) {
+            return (int) value;
+        }
+        if (Short.class.equals(this.keyType)) {
+            return (short) value;
+        }
+        return value;
+    }
+
+    /**
+     * <pre>
+     * Records writes of entities in the change log, in the current transaction.
+     * </pre>
+     *
+     * @param operation the operation
+     * @param ids       the ids of the written entities
+     * @see ChangeLogged
+     */
+    public void logChanges(final ChangeLogEntry.Operation operation,
+                           final Collection<?> ids) {
+        final long changedAt = System.currentTimeMillis();
+        for (final Object id : ids) {
+            this.em()
+                .persist(new ChangeLogEntry(this.type.getName(), String.valueOf(id), operation, changedAt));
+        }
+    }
+
+    /**
+     * <pre>
+     * Lists the changes of the entity recorded after the given change, in the order of their ids.
+     * The changes are filtered by entity in the query, the ids of the log are shared by all the entities.
+     * The ids are allocated before the transactions commit, so a gap in the ids may be a change of a transaction still running.
+     * The page stops before the first change following a gap, until that change is older than settledBefore :
+     * by then the transaction holding the missing ids is expected to have committed, or to have rolled back.
+     * The gaps are checked on the ids of all the entities, among the changes not yet settled, in a separate bounded query.
+     * This way the changes committed late are never skipped by the token, and the contiguous changes are listed at once.
+     * Unless the page is full or stops at a gap, its token moves past the changes of the other entities,
+     * so they are not read again by the next page.
+     * </pre>
+     *
+     * @param since         the id of the last change known by the client, 0 for all
+     * @param settledBefore the time before which a change following a gap is listed, in milliseconds since the epoch
+     * @param maxResults    the max results
+     * @return the page of changes
+     * @see ChangeLogged
+     */
+    public ChangeLogPage listChanges(final long since,
+                                     final long settledBefore,
+                                     final int maxResults) {
+        final CriteriaBuilder cb = this.cb();
+        // taken first, the changes committed later with lower ids are gaps below it
+        final CriteriaQuery<Long> lastQuery = cb.createQuery(Long.class);
+        final Root<ChangeLogEntry> last = lastQuery.from(ChangeLogEntry.class);
+        lastQuery.select(cb.max(last.get("id")));
+        final Long lastId = this.createQuery(lastQuery)
+                                .getSingleResult();
+        if (lastId == null || lastId <= since) {
+            return new ChangeLogPage(new ArrayList<>(), since, false);
+        }
+        long upTo = lastId;
+        final CriteriaQuery<ChangeLogEntry> query = cb.createQuery(ChangeLogEntry.class);
+        final Root<ChangeLogEntry> entry = query.from(ChangeLogEntry.class);
+        final Path<Long> id = entry.get("id");
+        query.select(entry)
+             .where(cb.equal(entry.get("entityName"), this.type.getName()), cb.greaterThan(id, since), cb.lessThanOrEqualTo(id, upTo))
+             .orderBy(cb.asc(id));
+        List<ChangeLogEntry> entries = this.createQuery(query)
+                                           .setMaxResults(maxResults)
+                                           .getResultList();
+        boolean more = false;
+        if (entries.size() == maxResults) {
+            upTo = entries.get(entries.size() - 1)
+                          .getId();
+            more = true;
+        }
+        // the changes not settled yet, of all the entities, are listed only when their previous id is there
+        final CriteriaQuery<Long> unsettledQuery = cb.createQuery(Long.class);
+        final Root<ChangeLogEntry> unsettled = unsettledQuery.from(ChangeLogEntry.class);
+        final Path<Long> unsettledId = unsettled.get("id");
+        unsettledQuery.select(unsettledId)
+                      .where(cb.greaterThan(unsettledId, since), cb.lessThanOrEqualTo(unsettledId, upTo), cb.greaterThanOrEqualTo(unsettled.get("changedAt"), settledBefore))
+                      .orderBy(cb.asc(unsettledId));
+        final List<Long> unsettledIds = this.createQuery(unsettledQuery)
+                                            .setMaxResults(maxResults)
+                                            .getResultList();
+        if (unsettledIds.size() == maxResults) {
+            // the unsettled changes after the last one read are not checked, they wait for the next page
+            upTo = unsettledIds.get(unsettledIds.size() - 1);
+            more = true;
+        }
+        final Set<Long> present = this.presentChangeIds(unsettledIds.stream()
+                                                                    .map(next -> next - 1)
+                                                                    .filter(previous -> previous > since)
+                                                                    .collect(Collectors.toList()));
+        for (final Long next : unsettledIds) {
+            if (next - 1 > since && !present.contains(next - 1)) {
+                // the token stays before the gap, the missing change is read once committed
+                upTo = this.lastChangeIdBefore(since, next);
+                more = false;
+                break;
+            }
+        }
+        final long token = upTo;
+        entries = entries.stream()
+                         .filter(change -> change.getId() <= token)
+                         .collect(Collectors.toList());
+        return new ChangeLogPage(entries, token, more);
+    }
+
+    private Set<Long> presentChangeIds(final List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptySet();
         }
-        return typedQuery.setFirstResult(firstResult)
-                         .setMaxResults(maxResults)
-                         .getResultList();
+        final CriteriaQuery<Long> query = this.cb()
+                                              .createQuery(Long.class);
+        final Root<ChangeLogEntry> entry = query.from(ChangeLogEntry.class);
+        query.select(entry.get("id"))
+             .where(entry.get("id")
+                         .in(ids));
+        return new HashSet<>(this.createQuery(query)
+                                 .getResultList());
+    }
+
+    private long lastChangeIdBefore(final long since,
+                                    final long next) {
+        final CriteriaBuilder cb = this.cb();
+        final CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        final Root<ChangeLogEntry> entry = query.from(ChangeLogEntry.class);
+        final Path<Long> id = entry.get("id");
+        query.select(cb.max(id))
+             .where(cb.greaterThan(id, since), cb.lessThan(id, next));
+        final Long last = this.createQuery(query)
+                              .getSingleResult();
+        return last == null ? since : last;
     }
 
     /**
@@ -330,6 +1015,7 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
      * @return entities in a Stream&#x3C;ENTITY&#x3E;
      */
     public Map<PK, ENTITY> mapPersisted(final Collection<? extends PrimaryKey<PK>> filter) {
+        this.readRouting.write();
         return this.listByIds(filter.stream()
                                     .map(PrimaryKey::getId)
                                     .collect(toList()))
@@ -367,8 +1053,7 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
     public List<ENTITY> listByColumnEqualsValue(final String column, final Object value, final int firstResult, final int maxResults, final boolean notNull) {
         final CriteriaQuery<ENTITY> query = this.query();
         final Root<ENTITY> entity = this.entity(query);
-        return this.em()
-                   .createQuery(query.select(entity)
+        return this.createQuery(query.select(entity)
                                      .where(this.equals(column, value, notNull, entity)))
                    .setFirstResult(firstResult)
                    .setMaxResults(maxResults)
@@ -395,8 +1080,7 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
     public List<ENTITY> listByContentEquals(final Map<String, Object> mapValues, final int firstResult, final int maxResults) {
         final CriteriaQuery<ENTITY> query = this.query();
         final Root<ENTITY> entity = this.entity(query);
-        return this.em()
-                   .createQuery(query.select(entity)
+        return this.createQuery(query.select(entity)
                                      .where(this.equals(mapValues, entity)))
                    .setFirstResult(firstResult)
                    .setMaxResults(maxResults)
@@ -437,8 +1121,7 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
                                                 .createQuery(String.class);
         final Root<ENTITY> entity = query.from(this.type);
         final Path<String> attr = this.attr(entity, column);
-        return this.em()
-                   .createQuery(query.select(attr)
+        return this.createQuery(query.select(attr)
                                      .distinct(true)
                                      .where(this.filterQueryParamsAnd(this.like(column, value, true, entity), requestParameters, entity))
                                      .orderBy(this.cb()
@@ -460,7 +1143,10 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
             return entity.get(name);
         }
         Path<Y> result = null;
-        for (final String path : name.split("\\.")) {
+        final FilterAttribute attribute = this.filterAttributes()
+                                              .get(name);
+        // the paths of the known attributes are split once, in the descriptor
+        for (final String path : attribute != null ? attribute.getPath() : name.split("\\.")) {
             if (result == null) {
                 result = entity.get(path);
             } else {
@@ -493,8 +1179,7 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
         final Path<PK> id = entity.get(ID);
         final Path<String> attr = this.attr(entity, column);
         final CriteriaQuery<Tuple> multiselect = query.multiselect(id, attr);
-        return this.em()
-                   .createQuery(multiselect.where(this.filterQueryParamsAnd(this.like(column, value, true, entity), requestParameters, entity))
+        return this.createQuery(multiselect.where(this.filterQueryParamsAnd(this.like(column, value, true, entity), requestParameters, entity))
                                            .orderBy(this.cb()
                                                         .asc(attr), this.cb()
                                                                         .asc(id)))
@@ -527,22 +1212,110 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
     }
 
     /**
+     * <pre>
      * Generates a filter expression from the query params.
+     * The values are converted in the Java type of the filtered attribute, unknown attributes are rejected.
+     * Besides the attribute names, the names suffixed with a range operator are accepted. Example longVal.ge=5
+     * </pre>
      *
      * @param requestParameters the uri info
      * @return the map
+     * @throws IllegalArgumentException if an attribute is unknown or a value can not be converted
      */
     protected Map<String, List<Object>> filterQueryParams(final Map<String, List<String>> requestParameters) {
+        return this.filterQueryParams(requestParameters, true);
+    }
+
+    /**
+     * <pre>
+     * Generates a filter expression from the query params.
+     * The values of known attributes are converted in the Java type of the attribute.
+     * Unknown names are rejected if strict, otherwise passed as strings, e.g. as parameters of a named query.
+     * </pre>
+     *
+     * @param requestParameters the uri info
+     * @param strict            if unknown names are rejected
+     * @return the map
+     * @throws IllegalArgumentException if an attribute is unknown and strict or a value can not be converted
+     */
+    protected Map<String, List<Object>> filterQueryParams(final Map<String, List<String>> requestParameters, final boolean strict) {
         if (requestParameters == null || requestParameters.isEmpty()) {
             return Collections.emptyMap();
         }
+        final Map<String, FilterAttribute> filterAttributes = this.filterAttributes();
         return requestParameters.entrySet()
                                 .stream()
                                 .filter(this.notReservedNames)
-                                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue()
-                                                                                           .stream()
-                                                                                           .map(string -> (Object) string)
-                                                                                           .collect(toList())));
+                                .collect(Collectors.toMap(Map.Entry::getKey, entry -> {
+                                    final String[] rangeFilter = this.rangeFilter(entry.getKey());
+                                    final FilterAttribute attribute = filterAttributes.get(rangeFilter == null ? entry.getKey() : rangeFilter[0]);
+                                    if (attribute == null && strict) {
+                                        throw new IllegalArgumentException(" Bad Filter Content " + entry.getKey() + " is not a filterable field of " + this.type.getSimpleName() + " !");
+                                    }
+                                    return entry.getValue()
+                                                .stream()
+                                                .map(string -> attribute == null ? string : attribute.parse(string))
+                                                .collect(toList());
+                                }));
+    }
+
+    /**
+     * <pre>
+     * Converts a bound given in the request in the type of the column.
+     * </pre>
+     *
+     * @param column the column
+     * @param value  the value, null or * for an open bound
+     * @return the converted value or null for an open bound
+     * @throws IllegalArgumentException if the column is unknown or the value can not be converted
+     */
+    protected Object filterValue(final String column, final String value) {
+        final FilterAttribute attribute = this.filterAttributes()
+                                              .get(column);
+        if (attribute == null) {
+            throw new IllegalArgumentException(" Bad Filter Content " + column + " is not a filterable field of " + this.type.getSimpleName() + " !");
+        }
+        if (value == null || OPEN.equals(value)) {
+            return null;
+        }
+        return attribute.parse(value);
+    }
+
+    /**
+     * <pre>
+     * Splits a request parameter name like longVal.gt in the filterable attribute and the range operator.
+     * </pre>
+     *
+     * @param name the request parameter name
+     * @return the attribute and the operator, or null if the name is not a range filter
+     */
+    protected String[] rangeFilter(final String name) {
+        final int index = name.lastIndexOf('.');
+        if (index < 0 || this.filterAttributes()
+                             .containsKey(name)) {
+            return null;
+        }
+        final String column = name.substring(0, index);
+        final String operator = name.substring(index + 1);
+        if (!rangeOperators.contains(operator) || !this.filterAttributes()
+                                                       .containsKey(column)) {
+            return null;
+        }
+        return new String[]{column, operator};
+    }
+
+    /**
+     * <pre>
+     * The filterable attributes of the entity by name, built on first use from the metamodel
+     * and shared by all data access instances of the entity type.
+     * </pre>
+     *
+     * @return the filterable attributes
+     */
+    protected Map<String, FilterAttribute> filterAttributes() {
+        return filterAttributesCache.computeIfAbsent(this.type, type -> FilterAttribute.of(this.em()
+                                                                                                .getMetamodel()
+                                                                                                .managedType(type)));
     }
 
     /**
@@ -586,8 +1359,7 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
     public List<ENTITY> listByColumnLikeValue(final String column, final String value, final int firstResult, final int maxResults, final boolean notNull) {
         final CriteriaQuery<ENTITY> query = this.query();
         final Root<ENTITY> entity = this.entity(query);
-        return this.em()
-                   .createQuery(query.select(entity)
+        return this.createQuery(query.select(entity)
                                      .where(this.like(column, value, notNull, entity)))
                    .setFirstResult(firstResult)
                    .setMaxResults(maxResults)
@@ -624,8 +1396,7 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
     public List<ENTITY> listByColumnInValues(final String column, final Collection<? extends Object> values, final int firstResult, final int maxResults, final boolean notNull) {
         final CriteriaQuery<ENTITY> query = this.query();
         final Root<ENTITY> entity = this.entity(query);
-        return this.em()
-                   .createQuery(query.select(entity)
+        return this.createQuery(query.select(entity)
                                      .where(this.in(column, values, notNull, entity)))
                    .setFirstResult(firstResult)
                    .setMaxResults(maxResults)
@@ -634,31 +1405,430 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
 
     /**
      * <pre>
-     * Finds in Database the entities that are in a given content list of given values.
-     * The content object must contain non null values just in the fields that are taking part in the filtering.
-     * The other null fields are to be ignored.
-     * No nulls can be used in the filtering.
+     * Finds all entities whose value in a specified column is between the given values, bounds included.
+     * The values are converted in the type of the column, a null or * bound leaves the range open on that side.
+     * The result is ordered by the column, so the database can walk an index on it.
      * Example :
-     * content = [name =["abcd","bcde","1234"], no=[2,3], street=null]
-     * result is where name in ("abcd","bcde","1234") and no in (2,3)
+     *      listByColumnBetweenValues("date", "2024-01-01", "*", 0, 256)
+     *      result is where date &#x3E;= 2024-01-01 order by date
      * </pre>
      *
-     * @param mapValues   the map values
+     * @param column      the column to filter for
+     * @param from        the lower bound
+     * @param to          the upper bound
      * @param firstResult the first result
      * @param maxResults  the max results
-     * @return the persisted entity
+     * @return entities in a Stream&#x3C;ENTITY&#x3E;
      */
-    public List<ENTITY> listByContentInValues(final Map<String, List<Object>> mapValues, final int firstResult, final int maxResults) {
+    public List<ENTITY> listByColumnBetweenValues(final String column, final String from, final String to, final int firstResult, final int maxResults) {
         final CriteriaQuery<ENTITY> query = this.query();
         final Root<ENTITY> entity = this.entity(query);
-        return this.em()
-                   .createQuery(query.select(entity)
-                                     .where(this.in(mapValues, entity)))
+        return this.createQuery(query.select(entity)
+                                     .where(this.between(column, this.filterValue(column, from), this.filterValue(column, to), entity))
+                                     .orderBy(this.cb()
+                                                  .asc(this.attr(entity, column))))
+                   .setFirstResult(firstResult)
+                   .setMaxResults(maxResults)
+                   .getResultList();
+    }
+
+    /**
+     * <pre>
+     * Finds all entities whose value in a specified String column matches the given search terms.
+     * The terms are searched with the {@link TextSearch} strategy of the column.
+     * Example :
+     *      listByColumnSearchTerms("description", "red car", 0, 256)
+     * </pre>
+     *
+     * @param column      the String column to search
+     * @param terms       the search terms
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return entities in a Stream&#x3C;ENTITY&#x3E;
+     */
+    public List<ENTITY> listByColumnSearchTerms(final String column, final String terms, final int firstResult, final int maxResults) {
+        final CriteriaQuery<ENTITY> query = this.query();
+        final Root<ENTITY> entity = this.entity(query);
+        return this.createQuery(query.select(entity)
+                                     .where(this.search(column, terms, entity)))
+                   .setFirstResult(firstResult)
+                   .setMaxResults(maxResults)
+                   .getResultList();
+    }
+
+    /**
+     * <pre>
+     * Finds in Database the entities that are in a given content list of given values.
+     * The content object must contain non null values just in the fields that are taking part in the filtering.
+     * The other null fields are to be ignored.
+     * No nulls can be used in the filtering.
+     * Example :
+     * content = [name =["abcd","bcde","1234"], no=[2,3], street=null]
+     * result is where name in ("abcd","bcde","1234") and no in (2,3)
+     * </pre>
+     *
+     * @param mapValues   the map values
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the persisted entity
+     */
+    public List<ENTITY> listByContentInValues(final Map<String, List<Object>> mapValues, final int firstResult, final int maxResults) {
+        final CriteriaQuery<ENTITY> query = this.query();
+        final Root<ENTITY> entity = this.entity(query);
+        return this.createQuery(query.select(entity)
+                                     .where(this.in(mapValues, entity)))
                    .setFirstResult(firstResult)
                    .setMaxResults(maxResults)
                    .getResultList();
     }
 
+    /**
+     * <pre>
+     * Reads transfer objects directly from the selected columns of the entities matching the given filter.
+     * A Tuple query is used, so no entity is hydrated and nothing is registered in the persistence context.
+     * </pre>
+     *
+     * @param <T>         the type of the transfer object
+     * @param projection  the projection of the transfer object
+     * @param where       builds the filter on the entity root, can return null for no filter
+     * @param orderBy     builds the order on the entity root, can be null for no order
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the transfer objects
+     * @see Projection
+     */
+    public <T> List<T> listProjected(final Projection<T> projection,
+                                     final Function<Root<ENTITY>, Expression<Boolean>> where,
+                                     final Function<Root<ENTITY>, List<Order>> orderBy,
+                                     final int firstResult,
+                                     final int maxResults) {
+        final CriteriaQuery<Tuple> query = this.cb()
+                                               .createTupleQuery();
+        final Root<ENTITY> entity = query.from(this.type);
+        query.multiselect(projection.selections(entity));
+        final Expression<Boolean> filter = where.apply(entity);
+        if (filter != null) {
+            query.where(filter);
+        }
+        if (orderBy != null) {
+            query.orderBy(orderBy.apply(entity));
+        }
+        return this.createQuery(query)
+                   .setFirstResult(firstResult)
+                   .setMaxResults(maxResults)
+                   .getResultStream()
+                   .map(projection::create)
+                   .collect(toList());
+    }
+
+    /**
+     * <pre>
+     * Reads transfer objects directly from the selected columns of the entities, filtered and ordered by the request parameters.
+     * Falls back to null if a named query is provided for listAll, as the named query must then be used.
+     * </pre>
+     *
+     * @param <T>               the type of the transfer object
+     * @param projection        the projection of the transfer object
+     * @param firstResult       the first result
+     * @param maxResults        the max results
+     * @param requestParameters the uri info
+     * @return the transfer objects, or null if a named listAll query is provided
+     * @see #listAll(int, int, Map)
+     */
+    public <T> List<T> listAllProjected(final Projection<T> projection,
+                                        final int firstResult,
+                                        final int maxResults,
+                                        final Map<String, List<String>> requestParameters) {
+        if (this.namedQueries.contains(this.listAllNamedQuery)) {
+            return null;
+        }
+        final Map<String, List<Object>> filterQueryParams = this.filterQueryParams(requestParameters);
+        final LinkedHashMap<String, Boolean> orderBy = this.orderByQueryParams(requestParameters);
+        return this.listProjected(projection, entity -> filterQueryParams.isEmpty() ? null : this.in(filterQueryParams, entity), entity -> this.orderBy(orderBy, entity), firstResult, maxResults);
+    }
+
+    /**
+     * <pre>
+     * Aggregates the entities matching the request filters in the database, grouped by the given columns.
+     * Only the aggregated rows are read, one per group, each as a map from the group columns and the measure labels to their values.
+     * The filters are the typed request parameters accepted by listAll, the named listAll query is not used.
+     * The rows are ordered by the orderBy request parameters, which can name the group columns, otherwise by the group columns.
+     * Example:
+     *      aggregate(List.of("street"), List.of("count", "sum(age)"), 0, 100, Map.of("age.ge", List.of("18")))
+     *      returns
+     *      [{"street": "Main", "count": 3, "sum(age)": 102}, {"street": "Park", "count": 1, "sum(age)": 40}]
+     * </pre>
+     *
+     * @param groupBy           the columns to group by, also comma separated, can be empty for one aggregated row
+     * @param measures          the measures, also comma separated, e.g. count, sum(age), min(name), max(age)
+     * @param firstResult       the first result
+     * @param maxResults        the max results
+     * @param requestParameters the uri info
+     * @return the aggregated rows
+     * @throws IllegalArgumentException if a column is unknown, a measure is malformed or no measure is given
+     * @see Measure
+     */
+    public List<Map<String, Object>> aggregate(final List<String> groupBy,
+                                               final List<String> measures,
+                                               final int firstResult,
+                                               final int maxResults,
+                                               final Map<String, List<String>> requestParameters) {
+        final List<String> groupColumns = this.splitColumns(groupBy);
+        final List<Measure> aggregates = this.splitColumns(measures)
+                                             .stream()
+                                             .map(Measure::of)
+                                             .collect(toList());
+        if (aggregates.isEmpty()) {
+            throw new IllegalArgumentException(" Bad Aggregation for " + this.type.getSimpleName() + " please provide at least one measure, e.g. count !");
+        }
+        final Map<String, FilterAttribute> filterAttributes = this.filterAttributes();
+        groupColumns.forEach(column -> this.aggregatedAttribute(column, filterAttributes));
+        final CriteriaQuery<Tuple> query = this.cb()
+                                               .createTupleQuery();
+        final Root<ENTITY> entity = query.from(this.type);
+        final List<Expression<?>> groups = groupColumns.stream()
+                                                       .<Expression<?>>map(column -> this.attr(entity, column))
+                                                       .collect(toList());
+        final List<Selection<?>> selections = new ArrayList<>(groups);
+        aggregates.forEach(measure -> selections.add(this.measure(measure, filterAttributes, entity)));
+        query.multiselect(selections)
+             .groupBy(groups);
+        final Map<String, List<Object>> filterQueryParams = this.filterQueryParams(requestParameters);
+        if (!filterQueryParams.isEmpty()) {
+            query.where(this.in(filterQueryParams, entity));
+        }
+        final LinkedHashMap<String, Boolean> orderBy = this.orderByQueryParams(requestParameters);
+        if (orderBy.isEmpty()) {
+            query.orderBy(groups.stream()
+                                .map(this.cb()::asc)
+                                .collect(toList()));
+        } else {
+            query.orderBy(this.orderBy(orderBy, entity));
+        }
+        return this.createQuery(query)
+                   .setFirstResult(firstResult)
+                   .setMaxResults(maxResults)
+                   .getResultStream()
+                   .map(tuple -> {
+                       final Map<String, Object> row = new LinkedHashMap<>();
+                       int index = 0;
+                       for (final String column : groupColumns) {
+                           row.put(column, tuple.get(index++));
+                       }
+                       for (final Measure measure : aggregates) {
+                           row.put(measure.getLabel(), tuple.get(index++));
+                       }
+                       return row;
+                   })
+                   .collect(toList());
+    }
+
+    /**
+     * <pre>
+     * Builds the selection of a measure.
+     * Min and max are computed with least and greatest, so they apply to any comparable column, e.g. dates or strings.
+     * </pre>
+     *
+     * @param measure          the measure
+     * @param filterAttributes the filterable attributes
+     * @param entity           the entity root
+     * @return the aggregate expression
+     * @throws IllegalArgumentException if the column is unknown or sum is asked for a column that is not numeric
+     */
+    protected Expression<?> measure(final Measure measure,
+                                    final Map<String, FilterAttribute> filterAttributes,
+                                    final Root<ENTITY> entity) {
+        if (measure.getColumn() == null) {
+            return this.cb()
+                       .count(entity);
+        }
+        final FilterAttribute attribute = this.aggregatedAttribute(measure.getColumn(), filterAttributes);
+        switch (measure.getFunction()) {
+            case COUNT:
+                return this.cb()
+                           .count(this.attr(entity, measure.getColumn()));
+            case SUM:
+                final Class<?> javaType = attribute.getJavaType();
+                if (!Number.class.isAssignableFrom(javaType) && !(javaType.isPrimitive() && javaType != boolean.class && javaType != char.class)) {
+                    throw new IllegalArgumentException(" Bad Measure " + measure.getLabel() + " " + measure.getColumn() + " is not a numeric field of " + this.type.getSimpleName() + " !");
+                }
+                return this.cb()
+                           .sum(this.<Number>attr(entity, measure.getColumn()));
+            case MIN:
+                return this.cb()
+                           .least(this.<Comparable<Object>>attr(entity, measure.getColumn()));
+            default:
+                return this.cb()
+                           .greatest(this.<Comparable<Object>>attr(entity, measure.getColumn()));
+        }
+    }
+
+    /**
+     * <pre>
+     * Counts the distinct values of the given columns among the entities matching the request filters, e.g. for the filter sidebars.
+     * Each column is counted with one grouped query, the queries run in parallel, each with its own Entity Manager.
+     * The filters are the typed request parameters accepted by listAll and apply to all the columns.
+     * The values of a column are ordered by descending count, then by value, null values are not counted.
+     * Example:
+     *      facets(List.of("street", "age"), 10, Map.of("name", List.of("Doe")))
+     *      returns
+     *      {"street": {"Main": 3, "Park": 1}, "age": {"40": 2, "38": 1, "41": 1}}
+     * </pre>
+     *
+     * @param fields            the columns, also comma separated
+     * @param maxValues         the max number of values per column
+     * @param requestParameters the uri info
+     * @return the value counts by column, in the order of the given columns
+     * @throws IllegalArgumentException if a column or a filter is unknown
+     */
+    public Map<String, Map<Object, Long>> facets(final List<String> fields,
+                                                 final int maxValues,
+                                                 final Map<String, List<String>> requestParameters) {
+        final List<String> columns = this.splitColumns(fields);
+        final Map<String, FilterAttribute> filterAttributes = this.filterAttributes();
+        columns.forEach(column -> this.aggregatedAttribute(column, filterAttributes));
+        final Map<String, List<Object>> filterQueryParams = this.filterQueryParams(requestParameters);
+        final EntityManagerFactory factory = this.reader()
+                                                 .getEntityManagerFactory();
+        final long deadline = Deadline.isRunning() ? System.currentTimeMillis() + Deadline.remainingMillis() : 0;
+        final Map<String, CompletableFuture<Map<Object, Long>>> counts = new LinkedHashMap<>();
+        for (final String column : columns) {
+            // the queries are built here, only their execution runs on the executor
+            final CriteriaQuery<Tuple> query = this.facetQuery(column, filterQueryParams);
+            counts.computeIfAbsent(column, key -> CompletableFuture.supplyAsync(() -> this.readIsolated(factory, deadline, facetEm -> this.facet(facetEm, query, maxValues)), this.getParallelReads()));
+        }
+        final Map<String, Map<Object, Long>> facets = new LinkedHashMap<>();
+        try {
+            counts.forEach((column, count) -> facets.put(column, count.join()));
+        } catch (final CompletionException exception) {
+            counts.values()
+                  .forEach(count -> count.cancel(true));
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+        return facets;
+    }
+
+    /**
+     * <pre>
+     * Builds the grouped query counting the distinct values of one column, by descending count.
+     * </pre>
+     *
+     * @param column            the column
+     * @param filterQueryParams the filters
+     * @return the query selecting the value and its count
+     */
+    protected CriteriaQuery<Tuple> facetQuery(final String column,
+                                              final Map<String, List<Object>> filterQueryParams) {
+        final CriteriaQuery<Tuple> query = this.cb()
+                                               .createTupleQuery();
+        final Root<ENTITY> entity = query.from(this.type);
+        final Path<Object> attr = this.attr(entity, column);
+        final Expression<Long> count = this.cb()
+                                           .count(entity);
+        Expression<Boolean> where = this.cb()
+                                        .isNotNull(attr);
+        if (!filterQueryParams.isEmpty()) {
+            where = this.cb()
+                        .and(where, this.in(filterQueryParams, entity));
+        }
+        return query.multiselect(attr, count)
+                    .where(where)
+                    .groupBy(attr)
+                    .orderBy(this.cb()
+                                 .desc(count), this.cb()
+                                                   .asc(attr));
+    }
+
+    /**
+     * <pre>
+     * Reads the value counts of a facet query.
+     * </pre>
+     *
+     * @param entityManager the Entity Manager
+     * @param query         the facet query
+     * @param maxValues     the max number of values
+     * @return the value counts, by descending count
+     */
+    protected Map<Object, Long> facet(final EntityManager entityManager,
+                                      final CriteriaQuery<Tuple> query,
+                                      final int maxValues) {
+        final TypedQuery<Tuple> typedQuery = this.deadline(entityManager.createQuery(query));
+        readOnlyHints.forEach(typedQuery::setHint);
+        final Map<Object, Long> values = new LinkedHashMap<>();
+        typedQuery.setMaxResults(maxValues)
+                  .getResultStream()
+                  .forEach(tuple -> values.put(tuple.get(0), tuple.get(1, Long.class)));
+        return values;
+    }
+
+    /**
+     * <pre>
+     * The executor running the independent queries of one request in parallel.
+     * The queries hold a connection each, the default executor is bounded by {@link #PARALLEL_READS} threads.
+     * </pre>
+     *
+     * @return the executor
+     */
+    protected Executor getParallelReads() {
+        return parallelReads;
+    }
+
+    /**
+     * <pre>
+     * Splits the comma separated columns of the given values.
+     * </pre>
+     *
+     * @param values the values, can be null
+     * @return the columns, trimmed and not empty
+     */
+    protected List<String> splitColumns(final List<String> values) {
+        if (values == null) {
+            return Collections.emptyList();
+        }
+        return values.stream()
+                     .flatMap(value -> Stream.of(value.split(",")))
+                     .map(String::trim)
+                     .filter(value -> !value.isEmpty())
+                     .collect(toList());
+    }
+
+    private FilterAttribute aggregatedAttribute(final String column,
+                                                final Map<String, FilterAttribute> filterAttributes) {
+        final FilterAttribute attribute = filterAttributes.get(column);
+        if (attribute == null) {
+            throw new IllegalArgumentException(" Bad Aggregation " + column + " is not a filterable field of " + this.type.getSimpleName() + " !");
+        }
+        return attribute;
+    }
+
+    /**
+     * <pre>
+     * Builds the order of a query from the given columns, mapped to true for ascending and false for descending.
+     * </pre>
+     *
+     * @param orderBy the columns
+     * @param entity  the entity root
+     * @return the order list
+     */
+    protected List<Order> orderBy(final LinkedHashMap<String, Boolean> orderBy,
+                                  final Root<ENTITY> entity) {
+        return orderBy.entrySet()
+                      .stream()
+                      .map(entry -> {
+                          if (entry.getValue()) {
+                              return this.cb()
+                                         .asc(this.attr(entity, entry.getKey()));
+                          } else {
+                              return this.cb()
+                                         .desc(this.attr(entity, entry.getKey()));
+                          }
+                      })
+                      .collect(toList());
+    }
+
     /**
      * <pre>
      * Deletes the given entity
@@ -668,9 +1838,10 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
      * @see EntityManager#remove(Object) jakarta.persistence.EntityManager#remove(Object)jakarta.persistence.EntityManager#remove(Object)jakarta.persistence.EntityManager#remove(Object)jakarta.persistence.EntityManager#remove(Object)jakarta.persistence.EntityManager#remove(Object)jakarta.persistence.EntityManager#remove(Object)jakarta.persistence.EntityManager#remove(Object)jakarta.persistence.EntityManager#remove(Object)jakarta.persistence.EntityManager#remove(Object)
      */
     public void remove(final ENTITY entity) {
+        this.readRouting.write();
         if (this.namedQueries.contains(this.deleteByIdNamedQuery)) {
-            this.em()
-                .createNamedQuery(this.deleteByIdNamedQuery)
+            this.deadline(this.em()
+                              .createNamedQuery(this.deleteByIdNamedQuery))
                 .setParameter(ID, entity.getId())
                 .executeUpdate();
         } else {
@@ -739,6 +1910,7 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
      * @see EntityManager#merge(Object) jakarta.persistence.EntityManager#merge(Object)jakarta.persistence.EntityManager#merge(Object)jakarta.persistence.EntityManager#merge(Object)jakarta.persistence.EntityManager#merge(Object)jakarta.persistence.EntityManager#merge(Object)jakarta.persistence.EntityManager#merge(Object)jakarta.persistence.EntityManager#merge(Object)jakarta.persistence.EntityManager#merge(Object)jakarta.persistence.EntityManager#merge(Object)
      */
     public ENTITY merge(final ENTITY entity) {
+        this.readRouting.write();
         return this.em()
                    .merge(this.assertNotNull(entity));
     }
@@ -758,6 +1930,62 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
                       .collect(toList());
     }
 
+    /**
+     * <pre>
+     * Inserts the new entities and updates the existing ones, without loading them.
+     * One native insert or update statement per entity is sent in JDBC batches of {@link #upsertBatchSize()}.
+     * The entities must carry their ids, collections are not written.
+     * </pre>
+     *
+     * @param sources the entities
+     * @return the number of entities written
+     * @throws UnexpectedException if upsert is not supported
+     * @see #isUpsertSupported()
+     */
+    public int upsertAll(final Collection<ENTITY> sources) {
+        if (sources.isEmpty()) {
+            return 0;
+        }
+        this.readRouting.write();
+        return this.upsert(sources);
+    }
+
+    /**
+     * <pre>
+     * Writes the entities with native statements, the statements are generated by the data access of the persistence provider.
+     * </pre>
+     *
+     * @param sources the entities, not empty
+     * @return the number of entities written
+     * @throws UnexpectedException if upsert is not supported
+     */
+    protected int upsert(final Collection<ENTITY> sources) {
+        throw new UnexpectedException(this.name + ": Upsert is not supported by this data access.");
+    }
+
+    /**
+     * <pre>
+     * Tells if the entities can be written with {@link #upsertAll(Collection)}.
+     * The data access of the persistence provider overrides it, e.g. for entities mapped in a single table.
+     * </pre>
+     *
+     * @return true if upsert is supported
+     */
+    public boolean isUpsertSupported() {
+        return false;
+    }
+
+    /**
+     * <pre>
+     * The number of upsert statements sent in one JDBC batch.
+     * </pre>
+     *
+     * @return the batch size
+     */
+    protected int upsertBatchSize() {
+        return 256;
+    }
+
     /**
      * <pre>
      * Persists an entity
@@ -768,6 +1996,7 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
      * @see EntityManager#persist(Object) jakarta.persistence.EntityManager#persist(Object)jakarta.persistence.EntityManager#persist(Object)jakarta.persistence.EntityManager#persist(Object)jakarta.persistence.EntityManager#persist(Object)jakarta.persistence.EntityManager#persist(Object)jakarta.persistence.EntityManager#persist(Object)jakarta.persistence.EntityManager#persist(Object)jakarta.persistence.EntityManager#persist(Object)jakarta.persistence.EntityManager#persist(Object)
      */
     public ENTITY persist(final ENTITY newEntity) {
+        this.readRouting.write();
         this.em()
             .persist(newEntity);
         return newEntity;
@@ -790,7 +2019,7 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
      * @return the Criteria Builder
      */
     protected CriteriaBuilder cb() {
-        return this.em()
+        return this.reader()
                    .getCriteriaBuilder();
     }
 
@@ -804,6 +2033,178 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
                    .createQuery(this.type);
     }
 
+    /**
+     * <pre>
+     * Creates the typed query for a criteria query used in a read method.
+     * The read only hints are applied if called within readOnly, the query timeout if a Deadline is running.
+     * </pre>
+     *
+     * @param <T>   the type parameter
+     * @param query the criteria query
+     * @return the typed query
+     */
+    protected <T> TypedQuery<T> createQuery(final CriteriaQuery<T> query) {
+        return this.deadline(this.readOnly(this.reader()
+                                               .createQuery(query)));
+    }
+
+    /**
+     * <pre>
+     * Applies the remaining time of the Deadline of the current request as query timeout.
+     * </pre>
+     *
+     * @param <Q>   the type parameter
+     * @param query the query
+     * @return the query
+     * @throws io.github.agache41.rest.contract.exceptions.DeadlineExceededException if the deadline already expired
+     */
+    protected <Q extends Query> Q deadline(final Q query) {
+        final int timeout = Deadline.queryTimeoutMillis();
+        if (timeout > 0) {
+            query.setHint(HINT_QUERY_TIMEOUT, timeout);
+        }
+        return query;
+    }
+
+    /**
+     * <pre>
+     * The hints to be used when finding an entity by its primary key : the read only hints and the query timeout.
+     * </pre>
+     *
+     * @return the hints
+     */
+    protected Map<String, Object> findHints() {
+        final int timeout = Deadline.queryTimeoutMillis();
+        if (timeout == 0) {
+            return this.readOnlyHints();
+        }
+        final Map<String, Object> hints = new HashMap<>(this.readOnlyHints());
+        hints.put(HINT_QUERY_TIMEOUT, timeout);
+        return hints;
+    }
+
+    /**
+     * <pre>
+     * Applies the read only hints on the given query if called within readOnly.
+     * Otherwise the loaded entities may be updated by the caller, so the query is left untouched.
+     * </pre>
+     *
+     * @param <T>   the type parameter
+     * @param query the query
+     * @return the query
+     */
+    protected <T> TypedQuery<T> readOnly(final TypedQuery<T> query) {
+        this.readOnlyHints()
+            .forEach(query::setHint);
+        return query;
+    }
+
+    /**
+     * <pre>
+     * The hints to be used for reading, empty outside readOnly.
+     * </pre>
+     *
+     * @return the hints
+     */
+    protected Map<String, Object> readOnlyHints() {
+        if (readOnlyDepth.get()[0] > 0) {
+            return readOnlyHints;
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * <pre>
+     * Runs the given read on the fast path for reads, meant for the GET endpoints.
+     * If no transaction is active, the read methods called within load the entities read only and skip the flush,
+     * so the persistence context keeps no snapshots for dirty checking.
+     * If a transaction is already active, the caller might update the entities, so the read runs unchanged.
+     * If a replica is provided, the reads are routed to it according to the ReadRouting policy.
+     * The returned entities are not to be modified.
+     * Example:
+     *      dataAccess.readOnly(() -&#x3E; dataAccess.listByIds(ids));
+     * </pre>
+     *
+     * @param <R>  the type parameter
+     * @param read the read
+     * @return the result of the read
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public <R> R readOnly(final Supplier<R> read) {
+        final int[] depth = readOnlyDepth.get();
+        if (depth[0] == 0 && this.isInTransaction()) {
+            return read.get();
+        }
+        if (depth[0] == 0) {
+            depth[1] = this.readRouting.toReplica() ? 1 : 0;
+        }
+        depth[0]++;
+        try {
+            return read.get();
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    /**
+     * <pre>
+     * Returns the Entity Manager for the read methods.
+     * This is the replica within a readOnly call routed to it, the primary otherwise.
+     * </pre>
+     *
+     * @return the Entity Manager to read from
+     */
+    protected EntityManager reader() {
+        final int[] depth = readOnlyDepth.get();
+        if (depth[0] > 0 && depth[1] == 1) {
+            final EntityManager replica = this.replicaEm();
+            if (replica != null) {
+                return replica;
+            }
+        }
+        return this.em();
+    }
+
+    /**
+     * <pre>
+     * Tells if a transaction is active on the current thread.
+     * The deriving classes can override this method to ask the transaction manager in use.
+     * </pre>
+     *
+     * @return true if a transaction is active
+     */
+    protected boolean isInTransaction() {
+        return this.em()
+                   .isJoinedToTransaction();
+    }
+
+    /**
+     * <pre>
+     * Runs the action when the current transaction completes, committed or rolled back.
+     * The deriving classes override this method to register the action with the transaction manager in use,
+     * by default the action runs at once.
+     * </pre>
+     *
+     * @param action the action
+     */
+    public void afterTransaction(final Runnable action) {
+        action.run();
+    }
+
+    /**
+     * <pre>
+     * Gives the entity behind a lazy loading proxy of the persistence provider, e.g. to read its fields.
+     * The deriving classes override this method for the persistence provider in use, by default the value is returned as is.
+     * </pre>
+     *
+     * @param value the entity or its proxy, can be null
+     * @return the entity
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    protected Object unproxy(final Object value) {
+        return value;
+    }
+
     /**
      * <pre>
      * Builder for the equals expression.
@@ -847,6 +2248,77 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
                      .orElseThrow(() -> new IllegalArgumentException(" Bad Filter Content " + values + " please specify at least one valid field for the field = value (equals) clause! "));
     }
 
+    /**
+     * <pre>
+     * Builder for the text search expression.
+     * </pre>
+     *
+     * @param column the String column to search
+     * @param terms  the search terms
+     * @param entity the entity root
+     * @return the criteria builder expression
+     * @throws IllegalArgumentException if the column is not a filterable String field or the terms are empty
+     */
+    protected Expression<Boolean> search(final String column, final String terms, final Root<ENTITY> entity) {
+        final FilterAttribute attribute = this.filterAttributes()
+                                              .get(column);
+        if (attribute == null || !String.class.equals(attribute.getJavaType())) {
+            throw new IllegalArgumentException(" Bad Filter Content " + column + " is not a searchable String field of " + this.type.getSimpleName() + " !");
+        }
+        if (terms == null || terms.isBlank()) {
+            throw new IllegalArgumentException(" Bad Filter Content, please specify the terms to search for in " + column + " !");
+        }
+        return this.textSearch(column)
+                   .search(this.cb(), this.attr(entity, column), terms);
+    }
+
+    /**
+     * <pre>
+     * The text search strategy of a column, as given by the {@link TextSearch} annotation on the field.
+     * Not annotated fields and fields of the associations are searched with {@link TextSearch.Like}.
+     * </pre>
+     *
+     * @param column the column
+     * @return the strategy
+     */
+    protected TextSearch.Strategy textSearch(final String column) {
+        final TextSearch textSearch = this.textSearchAnnotation(column);
+        if (textSearch == null) {
+            return defaultTextSearch;
+        }
+        return textSearchStrategies.computeIfAbsent(textSearch.value(), strategy -> ReflectionUtils.supplierOf(strategy)
+                                                                                                  .get());
+    }
+
+    /**
+     * <pre>
+     * If the like filters on a column are case insensitive, as given by {@link TextSearch#ignoreCase()}.
+     * </pre>
+     *
+     * @param column the column
+     * @return the boolean
+     */
+    protected boolean likeIgnoreCase(final String column) {
+        final TextSearch textSearch = this.textSearchAnnotation(column);
+        return textSearch != null && textSearch.ignoreCase();
+    }
+
+    private TextSearch textSearchAnnotation(final String column) {
+        return textSearchCache.computeIfAbsent(this.type, AbstractDataAccess::textSearchAnnotations)
+                              .get(column);
+    }
+
+    private static Map<String, TextSearch> textSearchAnnotations(final Class<?> type) {
+        final Map<String, TextSearch> annotations = new HashMap<>();
+        for (final Field field : ReflectionUtils.getDeclaredFields(type)) {
+            final TextSearch textSearch = field.getAnnotation(TextSearch.class);
+            if (textSearch != null) {
+                annotations.putIfAbsent(field.getName(), textSearch);
+            }
+        }
+        return annotations;
+    }
+
     /**
      * <pre>
      * Builder for the like expression.
@@ -860,14 +2332,80 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
      */
     protected Expression<Boolean> like(final String column, final String value, final boolean notNull, final Root<ENTITY> entity) {
         if (this.applyFilter(value, notNull)) {
+            final boolean ignoreCase = this.likeIgnoreCase(column);
+            final Path<String> attr = this.attr(entity, column);
+            final Expression<String> expression = ignoreCase ? this.cb()
+                                                                   .lower(attr) : attr;
+            final String pattern = ignoreCase ? value.toLowerCase(Locale.ROOT) : value;
+            final Expression<Boolean> like = this.cb()
+                                                 .like(expression, pattern);
+            final String prefix = prefix(pattern);
+            if (prefix == null) {
+                return like;
+            }
+            final Expression<Boolean> lower = this.cb()
+                                                  .greaterThanOrEqualTo(expression, prefix);
+            final String upperBound = this.upperBound(prefix);
+            if (upperBound == null) {
+                return this.cb()
+                           .and(lower, like);
+            }
             return this.cb()
-                       .like(this.attr(entity, column), value);
+                       .and(this.cb()
+                                .and(lower, this.cb()
+                                                .lessThan(expression, upperBound)), like);
         } else {
             return this.attr(entity, column)
                        .isNull();
         }
     }
 
+    /**
+     * <pre>
+     * The exclusive upper bound of the strings starting with a prefix, according to the {@link #getCollation()}.
+     * For a binary collation the last character of the prefix is incremented : abc gives abd.
+     * For a linguistic collation the prefix is followed by U+FFFF.
+     * For other collations there is none.
+     * </pre>
+     *
+     * @param prefix the prefix
+     * @return the upper bound or null if the prefix has none
+     */
+    protected String upperBound(final String prefix) {
+        final Collation current = this.getCollation();
+        if (current == Collation.LINGUISTIC) {
+            return prefix + Character.MAX_VALUE;
+        }
+        if (current != Collation.BINARY) {
+            return null;
+        }
+        final char last = prefix.charAt(prefix.length() - 1);
+        if (last == Character.MAX_VALUE || Character.isSurrogate(last)) {
+            return null;
+        }
+        return prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+    }
+
+    /**
+     * The prefix of a pure prefix like pattern, abc% gives abc.
+     *
+     * @param pattern the like pattern
+     * @return the prefix or null if the pattern is not a pure prefix
+     */
+    protected static String prefix(final String pattern) {
+        final int last = pattern.length() - 1;
+        if (last < 1 || pattern.charAt(last) != '%') {
+            return null;
+        }
+        for (int index = 0; index < last; index++) {
+            final char c = pattern.charAt(index);
+            if (c == '%' || c == '_' || c == '\\') {
+                return null;
+            }
+        }
+        return pattern.substring(0, last);
+    }
+
     /**
      * <pre>
      * Builder for the in expression
@@ -889,6 +2427,69 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
         }
     }
 
+    /**
+     * <pre>
+     * Builder for the range expression, bounds included.
+     * A null bound leaves the range open on that side.
+     * </pre>
+     *
+     * @param column the column to filter for
+     * @param from   the lower bound
+     * @param to     the upper bound
+     * @param entity the entity root
+     * @return the criteria builder expression
+     */
+    protected Expression<Boolean> between(final String column, final Object from, final Object to, final Root<ENTITY> entity) {
+        final Path<Object> attr = this.attr(entity, column);
+        if (from == null && to == null) {
+            return this.cb()
+                       .conjunction();
+        }
+        if (from == null) {
+            return this.compare(attr, LE, to);
+        }
+        if (to == null) {
+            return this.compare(attr, GE, from);
+        }
+        return this.cb()
+                   .and(this.compare(attr, GE, from), this.compare(attr, LE, to));
+    }
+
+    /**
+     * <pre>
+     * Builder for the comparison expression for one of the range operators gt, ge, lt and le.
+     * </pre>
+     *
+     * @param attr     the attribute
+     * @param operator the operator
+     * @param value    the value, must be comparable
+     * @return the criteria builder expression
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected Expression<Boolean> compare(final Path<?> attr, final String operator, final Object value) {
+        if (!(value instanceof Comparable)) {
+            throw new IllegalArgumentException(" Bad Filter Content " + value + " can not be used in a range filter !");
+        }
+        final Expression<Comparable> expression = (Expression<Comparable>) attr;
+        final Comparable comparable = (Comparable) value;
+        switch (operator) {
+            case GT:
+                return this.cb()
+                           .greaterThan(expression, comparable);
+            case GE:
+                return this.cb()
+                           .greaterThanOrEqualTo(expression, comparable);
+            case LT:
+                return this.cb()
+                           .lessThan(expression, comparable);
+            case LE:
+                return this.cb()
+                           .lessThanOrEqualTo(expression, comparable);
+            default:
+                throw new IllegalArgumentException(" Bad Filter Content " + operator + " is not a range operator !");
+        }
+    }
+
     /**
      * <pre>
      * Builder for the in expression extracting the matching values from a given map.
@@ -906,8 +2507,18 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
         return values.entrySet()
                      .stream()
                      .filter(this.notReservedNames)
-                     .map(entry -> this.attr(entity, entry.getKey())
-                                       .in(entry.getValue()))
+                     .map(entry -> {
+                         final String[] rangeFilter = this.rangeFilter(entry.getKey());
+                         if (rangeFilter == null) {
+                             return this.attr(entity, entry.getKey())
+                                        .in(entry.getValue());
+                         }
+                         return entry.getValue()
+                                     .stream()
+                                     .map(value -> this.compare(this.attr(entity, rangeFilter[0]), rangeFilter[1], value))
+                                     .collect(Collectors.reducing(this.cb()::and))
+                                     .orElseGet(this.cb()::conjunction);
+                     })
                      .collect(Collectors.reducing(this.cb()::and))
                      .orElseThrow(() -> new IllegalArgumentException(" Bad Filter Content " + values + " please provide at least one field for the field in (..values) clause!"));
     }
@@ -991,6 +2602,73 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
      */
     protected abstract EntityManager em();
 
+    /**
+     * <pre>
+     * Returns the Entity Manager of the read replica, if any.
+     * Derived classes can override this method to offload the reads on the read only fast path to a replica.
+     * </pre>
+     *
+     * @return the replica Entity Manager or null if no replica is available
+     */
+    protected EntityManager replicaEm() {
+        return null;
+    }
+
+    /**
+     * Gets the routing policy between the primary and the replica.
+     *
+     * @return the read routing
+     */
+    public ReadRouting getReadRouting() {
+        return this.readRouting;
+    }
+
+    /**
+     * Sets the routing policy between the primary and the replica.
+     *
+     * @param readRouting the read routing
+     */
+    public void setReadRouting(final ReadRouting readRouting) {
+        this.readRouting = readRouting;
+    }
+
+    /**
+     * <pre>
+     * Gets the collation of the String columns, used for the bounds of the prefix ranges.
+     * If not set, it is detected on first use with {@link #detectCollation()} : H2 and the PostgreSQL databases created
+     * with the C or POSIX collation are binary, all the others are unknown and their prefix ranges have no upper bound.
+     * </pre>
+     *
+     * @return the collation
+     */
+    public Collation getCollation() {
+        if (this.collation == null) {
+            this.collation = this.detectCollation();
+        }
+        return this.collation;
+    }
+
+    /**
+     * Sets the collation of the String columns, used for the bounds of the prefix ranges, null to detect it again.
+     *
+     * @param collation the collation
+     */
+    public void setCollation(final Collation collation) {
+        this.collation = collation;
+    }
+
+    /**
+     * <pre>
+     * Detects the collation from the database in use.
+     * The data access of the persistence provider overrides it to ask the database, by default the collation is unknown.
+     * </pre>
+     *
+     * @return the collation
+     */
+    protected Collation detectCollation() {
+        return Collation.UNKNOWN;
+    }
+
     /**
      * <pre>
      * Type of the persisted Object
@@ -1024,6 +2702,28 @@ public abstract class AbstractDataAccess<ENTITY extends PrimaryKey<PK>, PK> {
         return this.name;
     }
 
+    /**
+     * <pre>
+     * Tells if the persisted Object has an attribute annotated with @Version
+     * </pre>
+     *
+     * @return the boolean
+     */
+    public boolean isVersioned() {
+        return this.versionName != null;
+    }
+
+    /**
+     * <pre>
+     * Name of the attribute annotated with @Version
+     * </pre>
+     *
+     * @return the name of the version attribute or null if the persisted Object is not versioned
+     */
+    public String getVersionName() {
+        return this.versionName;
+    }
+
     /**
      * <pre>
      * Collects the input stream of entities in a Map with keys from the primary key.
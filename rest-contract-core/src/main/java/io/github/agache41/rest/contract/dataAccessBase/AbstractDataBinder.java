@@ -17,15 +17,43 @@
 
 package io.github.agache41.rest.contract.dataAccessBase;
 
+import io.github.agache41.rest.contract.changeLog.ChangeLogEntry;
+import io.github.agache41.rest.contract.changeLog.ChangeLogPage;
+import io.github.agache41.rest.contract.changeLog.ChangeLogged;
+import io.github.agache41.rest.contract.exceptions.PreconditionFailedException;
 import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import io.github.agache41.rest.contract.exceptions.VersionConflictException;
 import io.github.agache41.rest.contract.update.TransferObject;
 import io.github.agache41.rest.contract.update.Update;
+import io.github.agache41.rest.contract.update.reflector.ClassReflector;
+import io.github.agache41.rest.contract.update.reflector.FieldReflector;
+import io.github.agache41.rest.contract.utils.CsvFormat;
+import io.github.agache41.rest.contract.utils.ETags;
+import io.github.agache41.rest.contract.utils.SingleFlight;
+import io.github.agache41.rest.contract.utils.TtlCache;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Root;
 import jakarta.transaction.Transactional;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
 
@@ -83,6 +111,41 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
      */
     protected AbstractDataAccess<ENTITY, PK> dataAccess;
 
+    /**
+     * <pre>
+     * The cached facets by entity type, shared by all the binders of an entity so that any write through them invalidates it.
+     * </pre>
+     */
+    protected static final Map<Class<?>, TtlCache<String, Map<String, Map<Object, Long>>>> facetsCaches = new ConcurrentHashMap<>();
+
+    /**
+     * <pre>
+     * The time to live of the cached facets in milliseconds, 0 to disable the cache.
+     * </pre>
+     */
+    protected long facetsTimeToLive = 5000;
+
+    /**
+     * <pre>
+     * The reads running now, so that the concurrent identical reads wait for them instead of reading again.
+     * </pre>
+     */
+    protected final SingleFlight<List<Object>, Object> singleFlight = new SingleFlight<>();
+
+    /**
+     * <pre>
+     * The max time in milliseconds a read waits for an identical read running, 0 to disable the collapsing.
+     * </pre>
+     */
+    protected long singleFlightMaxWait = 1000;
+
+    /**
+     * <pre>
+     * If the writes are recorded in the change log, when the entity is annotated with {@link ChangeLogged}.
+     * </pre>
+     */
+    protected final boolean changeLogged;
+
 
     /**
      * Instantiates a new Data binder.
@@ -99,9 +162,19 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
         this.entityClass = entityClass;
         this.entityCreator = new Creator<>(entityClass);
         this.pkClass = pkClass;
+        this.changeLogged = entityClass.isAnnotationPresent(ChangeLogged.class);
         this.name = AbstractDataBinder.class.getSimpleName() + "<" + this.toCLass.getSimpleName() + "," + this.entityClass.getSimpleName() + "," + this.pkClass.getSimpleName() + ">";
     }
 
+    /**
+     * Gets the type of the transfer object.
+     *
+     * @return the to class
+     */
+    public Class<TO> getToClass() {
+        return this.toCLass;
+    }
+
     /**
      * Find by id to.
      *
@@ -109,9 +182,8 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
      * @return the to
      */
     public TO findById(final PK id) {
-        final ENTITY entity = this.getDataAccess()
-                                  .findById(id);
-        return this.render(entity);
+        return this.collapse(() -> this.render(this.readOnly(() -> this.getDataAccess()
+                                                                       .findById(id))), "findById", id);
     }
 
     /**
@@ -125,8 +197,199 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
     public List<TO> listAll(final Integer firstResult,
                             final Integer maxResults,
                             final Map<String, List<String>> requestParameters) {
-        return this.render(this.getDataAccess()
-                               .listAll(firstResult, maxResults, requestParameters));
+        return this.collapse(() -> {
+            final Projection<TO> projection = this.projection();
+            if (projection != null) {
+                final List<TO> projected = this.readOnly(() -> this.getDataAccess()
+                                                                   .listAllProjected(projection, firstResult, maxResults, requestParameters));
+                if (projected != null) {
+                    return projected;
+                }
+            }
+            return this.render(this.readOnly(() -> this.getDataAccess()
+                                                       .listAll(firstResult, maxResults, requestParameters)));
+        }, "listAll", firstResult, maxResults, requestParameters == null ? null : new TreeMap<>(requestParameters));
+    }
+
+    /**
+     * <pre>
+     * Lists all as a parallel scan over Primary Key ranges, meant for full exports.
+     * Every range is read and rendered on the executor, the results are streamed while the next ranges are read.
+     * </pre>
+     *
+     * @param partitions        the number of Primary Key ranges
+     * @param parallelism       the max number of ranges read at once
+     * @param executor          the executor running the range reads
+     * @param ordered           if the results are returned in Primary Key order
+     * @param requestParameters the uri info
+     * @return the stream, to be closed if not fully consumed
+     * @see AbstractDataAccess#listAllPartitioned(int, int, Executor, boolean, Map, Function)
+     */
+    public Stream<TO> listAllPartitioned(final int partitions,
+                                         final int parallelism,
+                                         final Executor executor,
+                                         final boolean ordered,
+                                         final Map<String, List<String>> requestParameters) {
+        return this.readOnly(() -> this.getDataAccess()
+                                       .listAllPartitioned(partitions, parallelism, executor, ordered, requestParameters, this::render));
+    }
+
+    /**
+     * <pre>
+     * Streams all from a server side cursor, filtered and ordered by the request parameters, meant for exports.
+     * </pre>
+     *
+     * @param requestParameters the uri info
+     * @param fetchSize         the number of rows fetched per round trip and kept in the persistence context
+     * @return the stream, to be closed to release the cursor
+     * @see AbstractDataAccess#streamAll(Map, int, Function)
+     */
+    public Stream<TO> streamAll(final Map<String, List<String>> requestParameters,
+                                final int fetchSize) {
+        return this.readOnly(() -> this.getDataAccess()
+                                       .streamAll(requestParameters, fetchSize, this::render));
+    }
+
+    /**
+     * <pre>
+     * Counts the distinct values of the given columns among the entities matching the request filters.
+     * The results are cached for facetsTimeToLive milliseconds and dropped on every write through a binder of the entity.
+     * Writes made around the binders, e.g. directly in the database, are seen when the cached results expire.
+     * </pre>
+     *
+     * @param fields            the columns
+     * @param maxValues         the max number of values per column
+     * @param requestParameters the uri info
+     * @return the value counts by column
+     * @see AbstractDataAccess#facets(List, int, Map)
+     */
+    public Map<String, Map<Object, Long>> facets(final List<String> fields,
+                                                 final int maxValues,
+                                                 final Map<String, List<String>> requestParameters) {
+        final String key = fields + "|" + maxValues + "|" + (requestParameters == null ? "" : new TreeMap<>(requestParameters));
+        return facetsCaches.computeIfAbsent(this.entityClass, type -> new TtlCache<>(1024))
+                           .get(key, this.facetsTimeToLive, () -> this.readOnly(() -> this.getDataAccess()
+                                                                                          .facets(fields, maxValues, requestParameters)));
+    }
+
+    /**
+     * <pre>
+     * Reads the changes of the entities since the given token, from the change log, one page at a time.
+     * The changes in the page are collapsed by entity, the last one wins : the upserted entities are read in their current state,
+     * ordered by their last change, and the deleted ones are given by their ids.
+     * The changes following a gap in the change log are listed once they are older than settleTime,
+     * so that a change committed late is not skipped by the token.
+     * </pre>
+     *
+     * @param since      the token returned by the previous call, null or empty for all the changes
+     * @param maxResults the max number of changes read in the page
+     * @param settleTime the time in milliseconds after which a change following a gap is listed
+     * @return the changes and the token for the next call
+     * @throws UnexpectedException      if the entity is not {@link ChangeLogged} or its Primary Key is not simple
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public Changes<TO, PK> changes(final String since,
+                                   final int maxResults,
+                                   final long settleTime) {
+        if (!this.changeLogged || this.pkClass.isAnnotationPresent(Embeddable.class)) {
+            throw new UnexpectedException(this.name + ": " + this.entityClass.getSimpleName() + " is not change logged.");
+        }
+        final long token;
+        try {
+            token = since == null || since.isEmpty() ? 0 : Long.parseLong(since);
+        } catch (final NumberFormatException exception) {
+            throw new IllegalArgumentException(" Bad Token " + since + " please use the token returned by the previous call !", exception);
+        }
+        final ChangeLogPage page = this.readOnly(() -> this.getDataAccess()
+                                                           .listChanges(token, System.currentTimeMillis() - settleTime, maxResults));
+        final Function<String, Object> parser = FilterAttribute.parser(this.pkClass);
+        final Map<PK, ChangeLogEntry.Operation> last = new LinkedHashMap<>();
+        for (final ChangeLogEntry entry : page.getEntries()) {
+            final PK id = this.pkClass.cast(parser.apply(entry.getEntityId()));
+            // re inserted, so that the entities are ordered by their last change
+            last.remove(id);
+            last.put(id, entry.getOperation());
+        }
+        final List<PK> upsertedIds = new ArrayList<>();
+        final List<PK> deleted = new ArrayList<>();
+        last.forEach((id, operation) -> (operation == ChangeLogEntry.Operation.DELETE ? deleted : upsertedIds).add(id));
+        final List<TO> upserted = upsertedIds.isEmpty() ? new ArrayList<>() : new ArrayList<>(this.listByIds(upsertedIds));
+        final Map<PK, Integer> order = new HashMap<>();
+        upsertedIds.forEach(id -> order.put(id, order.size()));
+        upserted.sort(Comparator.comparing(to -> order.get(to.getId())));
+        return new Changes<>(upserted, deleted, String.valueOf(page.getToken()), page.isMore());
+    }
+
+    /**
+     * <pre>
+     * Called after every write : records the write in the change log if the entity is {@link ChangeLogged},
+     * in the transaction of the write, and invalidates what was read before the write.
+     * The invalidation is repeated when the transaction completes, the reads started meanwhile do not see the write either.
+     * </pre>
+     *
+     * @param operation the operation
+     * @param ids       the ids of the written entities
+     */
+    protected void afterWrite(final ChangeLogEntry.Operation operation,
+                              final Collection<?> ids) {
+        if (this.changeLogged && !ids.isEmpty()) {
+            this.getDataAccess()
+                .logChanges(operation, ids);
+        }
+        this.invalidate(ids);
+        this.getDataAccess()
+            .afterTransaction(() -> this.invalidate(ids));
+    }
+
+    /**
+     * <pre>
+     * Drops the cached facets of the entity, forgets the reads running now
+     * and notifies the {@link WriteListeners} of the entity, e.g. the response caches.
+     * </pre>
+     *
+     * @param ids the ids of the written entities
+     */
+    protected void invalidate(final Collection<?> ids) {
+        this.invalidateFacets();
+        this.singleFlight.invalidate();
+        WriteListeners.written(this.entityClass, ids);
+    }
+
+    private List<PK> ids(final List<ENTITY> entities) {
+        return entities.stream()
+                       .map(ENTITY::getId)
+                       .collect(toList());
+    }
+
+    /**
+     * <pre>
+     * Drops the cached facets of the entity.
+     * </pre>
+     */
+    protected void invalidateFacets() {
+        final TtlCache<String, Map<String, Map<Object, Long>>> cache = facetsCaches.get(this.entityClass);
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * <pre>
+     * Writes the given stream as CSV and closes it.
+     * The columns are the scalar fields of the transfer object marked for update, in their update order.
+     * </pre>
+     *
+     * @param rows   the transfer objects
+     * @param writer the writer, flushed but not closed
+     * @return the number of rows written
+     * @throws IOException if the writer fails
+     */
+    public long writeAsCsv(final Stream<TO> rows,
+                           final Writer writer) throws IOException {
+        try (rows) {
+            return CsvFormat.of(ClassReflector.ofClass(this.toCLass, this.entityClass), this.toCLass)
+                            .write(rows, writer);
+        }
     }
 
     /**
@@ -136,8 +399,38 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
      * @return the list
      */
     public List<TO> listByIds(final List<PK> ids) {
-        return this.render(this.getDataAccess()
-                               .listByIds(ids));
+        return this.collapse(() -> {
+            if (this.projection() != null) {
+                return this.project(entity -> this.getDataAccess()
+                                                  .in(PrimaryKey.ID, ids, true, entity), null, 0, ids.size());
+            }
+            return this.render(this.readOnly(() -> this.getDataAccess()
+                                                       .listByIds(ids)));
+        }, "listByIds", ids);
+    }
+
+    /**
+     * <pre>
+     * Lists the transfer objects of the ids in the order of the ids.
+     * An id given more than once is listed every time, the ids not found are skipped.
+     * </pre>
+     *
+     * @param ids the ids
+     * @return the list
+     */
+    public List<TO> listByIdsInOrder(final List<PK> ids) {
+        final Map<PK, TO> byId = new HashMap<>();
+        for (final TO to : this.listByIds(ids)) {
+            byId.putIfAbsent(to.getId(), to);
+        }
+        final List<TO> result = new ArrayList<>(ids.size());
+        for (final PK id : ids) {
+            final TO to = byId.get(id);
+            if (to != null) {
+                result.add(to);
+            }
+        }
+        return result;
     }
 
     /**
@@ -153,8 +446,14 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
                                             final String value,
                                             final Integer firstResult,
                                             final Integer maxResults) {
-        return this.render(this.getDataAccess()
-                               .listByColumnEqualsValue(stringField, value, firstResult, maxResults));
+        return this.collapse(() -> {
+            if (this.projection() != null) {
+                return this.project(entity -> this.getDataAccess()
+                                                  .equals(stringField, value, true, entity), null, firstResult, maxResults);
+            }
+            return this.render(this.readOnly(() -> this.getDataAccess()
+                                                       .listByColumnEqualsValue(stringField, value, firstResult, maxResults)));
+        }, "listByColumnEqualsValue", stringField, value, firstResult, maxResults);
     }
 
     /**
@@ -170,8 +469,14 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
                                           final String value,
                                           final Integer firstResult,
                                           final Integer maxResults) {
-        return this.render(this.getDataAccess()
-                               .listByColumnLikeValue(stringField, value, firstResult, maxResults));
+        return this.collapse(() -> {
+            if (this.projection() != null) {
+                return this.project(entity -> this.getDataAccess()
+                                                  .like(stringField, value, true, entity), null, firstResult, maxResults);
+            }
+            return this.render(this.readOnly(() -> this.getDataAccess()
+                                                       .listByColumnLikeValue(stringField, value, firstResult, maxResults)));
+        }, "listByColumnLikeValue", stringField, value, firstResult, maxResults);
     }
 
     /**
@@ -187,8 +492,67 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
                                          final List<String> values,
                                          final Integer firstResult,
                                          final Integer maxResults) {
-        return this.render(this.getDataAccess()
-                               .listByColumnInValues(stringField, values, firstResult, maxResults));
+        return this.collapse(() -> {
+            if (this.projection() != null) {
+                return this.project(entity -> this.getDataAccess()
+                                                  .in(stringField, values, true, entity), null, firstResult, maxResults);
+            }
+            return this.render(this.readOnly(() -> this.getDataAccess()
+                                                       .listByColumnInValues(stringField, values, firstResult, maxResults)));
+        }, "listByColumnInValues", stringField, values, firstResult, maxResults);
+    }
+
+    /**
+     * List by column between values list.
+     *
+     * @param column      the column
+     * @param from        the lower bound, * for open
+     * @param to          the upper bound, * for open
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the list
+     */
+    public List<TO> listByColumnBetweenValues(final String column,
+                                              final String from,
+                                              final String to,
+                                              final Integer firstResult,
+                                              final Integer maxResults) {
+        return this.collapse(() -> {
+            if (this.projection() != null) {
+                final AbstractDataAccess<ENTITY, PK> dataAccess = this.getDataAccess();
+                final List<TO> projected = this.project(entity -> dataAccess.between(column, dataAccess.filterValue(column, from), dataAccess.filterValue(column, to), entity),
+                                                        entity -> List.of(dataAccess.cb()
+                                                                                    .asc(dataAccess.attr(entity, column))), firstResult, maxResults);
+                if (projected != null) {
+                    return projected;
+                }
+            }
+            return this.render(this.readOnly(() -> this.getDataAccess()
+                                                       .listByColumnBetweenValues(column, from, to, firstResult, maxResults)));
+        }, "listByColumnBetweenValues", column, from, to, firstResult, maxResults);
+    }
+
+    /**
+     * List by column search terms list.
+     *
+     * @param stringField the string field
+     * @param terms       the search terms
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the list
+     */
+    public List<TO> listByColumnSearchTerms(final String stringField,
+                                            final String terms,
+                                            final Integer firstResult,
+                                            final Integer maxResults) {
+        return this.collapse(() -> {
+            if (this.projection() != null) {
+                return this.project(entity -> this.getDataAccess()
+                                                  .search(stringField, terms, entity), null, firstResult, maxResults);
+            }
+            return this.render(this.readOnly(() -> this.getDataAccess()
+                                                       .listByColumnSearchTerms(stringField, terms, firstResult, maxResults)));
+        }, "listByColumnSearchTerms", stringField, terms, firstResult, maxResults);
     }
 
     /**
@@ -202,8 +566,14 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
     public List<TO> listByContentEquals(final Map<String, Object> value,
                                         final Integer firstResult,
                                         final Integer maxResults) {
-        return this.render(this.getDataAccess()
-                               .listByContentEquals(value, firstResult, maxResults));
+        return this.collapse(() -> {
+            if (this.projection() != null) {
+                return this.project(entity -> this.getDataAccess()
+                                                  .equals(value, entity), null, firstResult, maxResults);
+            }
+            return this.render(this.readOnly(() -> this.getDataAccess()
+                                                       .listByContentEquals(value, firstResult, maxResults)));
+        }, "listByContentEquals", value, firstResult, maxResults);
     }
 
     /**
@@ -217,8 +587,98 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
     public List<TO> listByContentInValues(final Map<String, List<Object>> values,
                                           final Integer firstResult,
                                           final Integer maxResults) {
-        return this.render(this.getDataAccess()
-                               .listByContentInValues(values, firstResult, maxResults));
+        return this.collapse(() -> {
+            if (this.projection() != null) {
+                return this.project(entity -> this.getDataAccess()
+                                                  .in(values, entity), null, firstResult, maxResults);
+            }
+            return this.render(this.readOnly(() -> this.getDataAccess()
+                                                       .listByContentInValues(values, firstResult, maxResults)));
+        }, "listByContentInValues", values, firstResult, maxResults);
+    }
+
+    /**
+     * <pre>
+     * The projection used to read the tos directly from the entity columns, without loading the entities.
+     * </pre>
+     *
+     * @return the projection, or null if the to can not be projected and the entities must be loaded and rendered
+     * @see Projection
+     */
+    protected Projection<TO> projection() {
+        return Projection.of(this.toCLass, this.entityClass);
+    }
+
+    /**
+     * <pre>
+     * Reads the tos with the projection, on the read only fast path of the data access.
+     * </pre>
+     *
+     * @param where       builds the filter on the entity root
+     * @param orderBy     builds the order on the entity root, can be null
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the list, null if the data access can not project with the order, e.g. when sharded
+     * @see AbstractDataAccess#listProjected(Projection, Function, Function, int, int)
+     */
+    protected List<TO> project(final Function<Root<ENTITY>, Expression<Boolean>> where,
+                               final Function<Root<ENTITY>, List<Order>> orderBy,
+                               final int firstResult,
+                               final int maxResults) {
+        return this.readOnly(() -> this.getDataAccess()
+                                       .listProjected(this.projection(), where, orderBy, firstResult, maxResults));
+    }
+
+    /**
+     * <pre>
+     * Runs the given read, or waits up to singleFlightMaxWait for the identical read running and returns a copy of its result.
+     * The reads inside a transaction are never collapsed, they may see changes not yet committed.
+     * The reads sticking to the primary after a write of their client are never collapsed either,
+     * an identical read running may have started before the write.
+     * The wait is capped by the remaining time of the request {@link Deadline}.
+     * </pre>
+     *
+     * @param <R>  the type parameter
+     * @param read the read, returning a to or a list of tos
+     * @param key  the method name and the arguments identifying the read
+     * @return the result of the read
+     * @see SingleFlight
+     */
+    @SuppressWarnings("unchecked")
+    protected <R> R collapse(final Supplier<R> read,
+                             final Object... key) {
+        if (this.singleFlightMaxWait <= 0 || this.getDataAccess()
+                                                 .isInTransaction() || !this.getDataAccess()
+                                                                            .getReadRouting()
+                                                                            .toReplica()) {
+            return read.get();
+        }
+        final long maxWait = Math.min(this.singleFlightMaxWait, Deadline.remainingMillis());
+        return (R) this.singleFlight.run(Arrays.asList(key), maxWait, (Supplier<Object>) read, this::copy);
+    }
+
+    private Object copy(final Object value) {
+        if (value instanceof List) {
+            return ((List<?>) value).stream()
+                                    .map(ClassReflector::clone)
+                                    .collect(toList());
+        }
+        return ClassReflector.clone(value);
+    }
+
+    /**
+     * <pre>
+     * Runs the given read on the read only fast path of the data access.
+     * </pre>
+     *
+     * @param <R>  the type parameter
+     * @param read the read
+     * @return the result of the read
+     * @see AbstractDataAccess#readOnly(Supplier)
+     */
+    protected <R> R readOnly(final Supplier<R> read) {
+        return this.getDataAccess()
+                   .readOnly(read);
     }
 
     /**
@@ -227,19 +687,26 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
      * @param to the to
      * @return the to
      */
+    @Transactional
     public TO persist(final TO to) {
         final ENTITY entity = to.create(this.entityCreator.create(), this);
         final ENTITY inserted = this.getDataAccess()
                                     .persist(entity);
+        this.afterWrite(ChangeLogEntry.Operation.UPSERT, List.of(inserted.getId()));
         return this.render(inserted);
     }
 
     /**
-     * Persist list.
+     * <pre>
+     * Persist list, in one transaction.
+     * The calls to the single persist are internal and not seen by a transaction proxy,
+     * so the list method carries the transaction of all the writes and their change log rows.
+     * </pre>
      *
      * @param toList the to list
      * @return the list
      */
+    @Transactional
     public List<TO> persist(final List<TO> toList) {
         return toList.stream()
                      .map(this::persist)
@@ -252,75 +719,347 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
      * @param to the to
      * @return the to
      */
+    @Transactional
     public TO merge(final TO to) {
         final ENTITY entity = to.create(this.entityCreator.create(), this);
         final ENTITY merged = this.getDataAccess()
                                   .merge(entity);
+        this.afterWrite(ChangeLogEntry.Operation.UPSERT, List.of(merged.getId()));
         return this.render(merged);
     }
 
     /**
-     * Merge list.
+     * <pre>
+     * Writes one chunk of a streamed import in its own transaction.
+     * The entities are created from the transfer objects with TransferObject.create and written in JDBC batches :
+     *      with ids, on entities supported by the native upsert : inserted or updated with {@link AbstractDataAccess#upsertAll(Collection)}
+     *      with ids, on other entities : merged
+     *      without ids : persisted, batched if hibernate.jdbc.batch_size is configured
+     * Writing the same chunk again updates the entities, so an import with ids can be safely resumed.
+     * </pre>
+     *
+     * @param chunk the transfer objects
+     * @return the number of entities written
+     * @see ChunkedImport
+     */
+    @Transactional
+    public int importChunk(final List<TO> chunk) {
+        final List<ENTITY> entities = chunk.stream()
+                                           .map(to -> to.create(this.entityCreator.create(), this))
+                                           .collect(toList());
+        if (entities.stream()
+                    .anyMatch(entity -> entity.getId() == null)) {
+            entities.forEach(this.getDataAccess()::persist);
+        } else if (this.getDataAccess()
+                       .isUpsertSupported()) {
+            this.getDataAccess()
+                .upsertAll(entities);
+        } else {
+            entities.forEach(this.getDataAccess()::merge);
+        }
+        this.afterWrite(ChangeLogEntry.Operation.UPSERT, this.ids(entities));
+        return entities.size();
+    }
+
+    /**
+     * <pre>
+     * Merge list, in one transaction.
+     * The calls to the single merge are internal and not seen by a transaction proxy,
+     * so the list method carries the transaction of all the writes and their change log rows.
+     * </pre>
      *
      * @param toList the to list
      * @return the list
      */
+    @Transactional
     public List<TO> merge(final List<TO> toList) {
         return toList.stream()
                      .map(this::merge)
                      .collect(Collectors.toList());
     }
 
+    /**
+     * <pre>
+     * Inserts the new and updates the existing entities in native batches, without loading them first.
+     * The entities are then read back in one query.
+     * </pre>
+     *
+     * @param toList the to list, every to must carry its id
+     * @return the to list for the persisted entities, in the given order
+     * @see AbstractDataAccess#upsertAll(Collection)
+     */
+    @Transactional
+    public List<TO> upsert(final List<TO> toList) {
+        final List<ENTITY> entities = toList.stream()
+                                            .map(to -> to.create(this.entityCreator.create(), this))
+                                            .collect(toList());
+        this.getDataAccess()
+            .upsertAll(entities);
+        this.afterWrite(ChangeLogEntry.Operation.UPSERT, this.ids(entities));
+        final Map<PK, ENTITY> persistedMap = this.getDataAccess()
+                                                 .mapPersisted(entities);
+        return entities.stream()
+                       .map(entity -> this.render(persistedMap.get(entity.getId())))
+                       .collect(toList());
+    }
+
     /**
      * <pre>
      * Updates an entity.
      * The code locates the corresponding persisted entity based on the provided primary key.
      * The Entity with the given id must exist in the Database or a UnexpectedException is thrown.
      * The persisted entity is then updated from the source to using only the fields marked with @ {@link Update } annotation
+     * If the to carries a @Version value, it must match the current version of the entity.
+     * When the to has only simple values to update and does not override TransferObject.update,
+     * the check and the update are done in one statement, without loading the entity.
      * </pre>
      *
      * @param to the object that contains the id and is the source for update
      * @return the to for the persisted entity.
+     * @throws VersionConflictException if the version of the to does not match
      */
     @Transactional
     public TO updateById(final TO to) {
+        final Object version = this.version(to);
+        if (version != null && this.isDirectUpdate() && !overridesUpdate(to.getClass())) {
+            final ENTITY updated = this.getDataAccess()
+                                       .updateByIdAndVersion(to.getId(), version, this.directValues(to));
+            this.afterWrite(ChangeLogEntry.Operation.UPSERT, List.of(updated.getId()));
+            return this.render(updated);
+        }
+        final ENTITY persisted = this.getDataAccess()
+                                     .findPersisted(to);
+        this.checkVersion(to.getId(), version, persisted);
+        to.update(persisted, this);
+        this.afterWrite(ChangeLogEntry.Operation.UPSERT, List.of(persisted.getId()));
+        return this.render(persisted);
+    }
+
+    /**
+     * <pre>
+     * Updates an entity only if its current tag matches the given If-Match header value.
+     * The check and the update run in the same transaction.
+     * </pre>
+     *
+     * @param to      the object that contains the id and is the source for update
+     * @param ifMatch the value of the If-Match header
+     * @return the to for the persisted entity.
+     * @throws PreconditionFailedException if the current tag of the entity does not match
+     */
+    @Transactional
+    public TO updateById(final TO to,
+                         final String ifMatch) {
         final ENTITY persisted = this.getDataAccess()
                                      .findPersisted(to);
+        final String eTag = this.eTag(this.render(persisted));
+        if (!ETags.matchesStrongly(ifMatch, eTag)) {
+            throw new PreconditionFailedException(this.name + ": Entity with PK=" + to.getId() + " has changed.", eTag);
+        }
+        this.checkVersion(to.getId(), this.version(to), persisted);
         to.update(persisted, this);
+        this.afterWrite(ChangeLogEntry.Operation.UPSERT, List.of(persisted.getId()));
         return this.render(persisted);
     }
 
+    /**
+     * <pre>
+     * Computes the strong tag of a transfer object.
+     * </pre>
+     *
+     * @param to the transfer object
+     * @return the tag
+     * @see ETags#ofObject(Object)
+     */
+    public String eTag(final TO to) {
+        return ETags.ofObject(to);
+    }
+
+    /**
+     * <pre>
+     * Tells if both the entity and the transfer object are versioned,
+     * so that the tag of an id is read from the version column without loading the entity.
+     * Otherwise the tag is the content hash of the rendered transfer object.
+     * </pre>
+     *
+     * @return the boolean
+     */
+    public boolean isVersionTagged() {
+        return this.getDataAccess()
+                   .isVersioned() && ClassReflector.ofClass(this.toCLass)
+                                                   .getVersionReflector() != null;
+    }
+
+    /**
+     * <pre>
+     * Computes the strong tag of the entity with the given id.
+     * When both the entity and the transfer object are versioned,
+     * only the version column is queried and the entity is neither loaded nor rendered.
+     * </pre>
+     *
+     * @param id the id
+     * @return the tag, or null if a versioned entity is not found
+     */
+    public String eTag(final PK id) {
+        if (this.isVersionTagged()) {
+            final Object version = this.getDataAccess()
+                                       .findVersionById(id);
+            return version == null ? null : String.valueOf(version);
+        }
+        return this.eTag(this.findById(id));
+    }
+
     /**
      * <pre>
      * Updates multiple entities.
      * The code locates the corresponding persisted entities based on the provided primary keys.
      * The persisted entities are then updated from the source entities using only the fields marked with @ {@link Update } annotation
+     * The @Version values carried by the tos are all checked against the loaded entities before any update,
+     * and all the conflicting items are reported together.
+     * The versions are checked again in the WHERE clause of the update statements sent at flush.
      * </pre>
      *
      * @param toCollection the Collection of TO objects that contains the ids and is the source for update
      * @param allExpected  is set to true, all the Entities with the given id must exist in the Database or a UnexpectedException is thrown.
      * @return the persisted entities in a Stream&#x3C;ENTITY&#x3E;
+     * @throws VersionConflictException if the version of any to does not match
      */
     @Transactional
     public List<TO> updateByIds(final Collection<TO> toCollection,
                                 final boolean allExpected) {
         final Map<PK, ENTITY> persistedMap = this.getDataAccess()
                                                  .mapPersisted(toCollection);
-        return toCollection.stream()
-                           .map(to -> {
-                               final PK id = to.getId();
-                               if (persistedMap.containsKey(id)) {
-                                   final ENTITY entity = persistedMap.get(id);
-                                   to.update(entity, this);
-                                   return this.render(entity);
-                               } else if (allExpected) {
-                                   throw new UnexpectedException(this.name + ": Missing Entity in Update for PK=" + id.toString());
-                               } else {
-                                   //todo: log warning
-                                   return to;
-                               }
-                           })
-                           .collect(toList());
+        final Map<PK, Object> conflicts = new LinkedHashMap<>();
+        for (final TO to : toCollection) {
+            final Object current = this.conflict(this.version(to), persistedMap.get(to.getId()));
+            if (current != null) {
+                conflicts.put(to.getId(), current);
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            throw new VersionConflictException(this.name + ": Entities with PK=" + conflicts.keySet() + " have changed.", conflicts);
+        }
+        final List<TO> updated = toCollection.stream()
+                                             .map(to -> {
+                                                 final PK id = to.getId();
+                                                 if (persistedMap.containsKey(id)) {
+                                                     final ENTITY entity = persistedMap.get(id);
+                                                     to.update(entity, this);
+                                                     return this.render(entity);
+                                                 } else if (allExpected) {
+                                                     throw new UnexpectedException(this.name + ": Missing Entity in Update for PK=" + id.toString());
+                                                 } else {
+                                                     //todo: log warning
+                                                     return to;
+                                                 }
+                                             })
+                                             .collect(toList());
+        this.afterWrite(ChangeLogEntry.Operation.UPSERT, persistedMap.keySet());
+        return updated;
+    }
+
+    /**
+     * <pre>
+     * The @Version value carried by the to.
+     * </pre>
+     *
+     * @param to the to
+     * @return the version, or null if the to or the entity is not versioned or the to carries no version
+     */
+    protected Object version(final TO to) {
+        final FieldReflector<TO, ?, ?, ?> versionReflector = ClassReflector.ofClass(this.toCLass)
+                                                                           .getVersionReflector();
+        if (versionReflector == null || !this.getDataAccess()
+                                             .isVersioned()) {
+            return null;
+        }
+        return versionReflector.get(to);
+    }
+
+    /**
+     * <pre>
+     * Checks the version carried by a to against the persisted entity.
+     * </pre>
+     *
+     * @param id        the id
+     * @param version   the version carried by the to, null skips the check
+     * @param persisted the persisted entity
+     * @throws VersionConflictException if the version does not match
+     */
+    protected void checkVersion(final PK id,
+                                final Object version,
+                                final ENTITY persisted) {
+        final Object current = this.conflict(version, persisted);
+        if (current != null) {
+            throw new VersionConflictException(this.name + ": Entity with PK=" + id + " has version " + current + ".", Map.of(id, current));
+        }
+    }
+
+    private Object conflict(final Object version,
+                            final ENTITY persisted) {
+        if (version == null || persisted == null) {
+            return null;
+        }
+        final Object current = ClassReflector.ofClass(this.entityClass)
+                                             .getVersionReflector()
+                                             .get(persisted);
+        return version.equals(current) ? null : current;
+    }
+
+    /**
+     * <pre>
+     * Tells if the tos can be written with a direct versioned update statement :
+     * the version is numeric and all the fields marked for update are simple values.
+     * </pre>
+     *
+     * @return the boolean
+     */
+    protected boolean isDirectUpdate() {
+        final ClassReflector<TO, ENTITY> classReflector = ClassReflector.ofClass(this.toCLass, this.entityClass);
+        final Class<?> versionType = classReflector.getVersionReflector()
+                                                   .getType();
+        return (Number.class.isAssignableFrom(versionType) || (versionType.isPrimitive() && versionType != boolean.class && versionType != char.class))
+               && classReflector.getUpdateReflectorsArray().length == classReflector.getValueReflectorsArray().length;
+    }
+
+    /**
+     * <pre>
+     * Tells if the class of a to overrides TransferObject.update, the direct update would skip its logic.
+     * </pre>
+     *
+     * @param toClass the class of the to
+     * @return the boolean
+     */
+    private static boolean overridesUpdate(final Class<?> toClass) {
+        try {
+            return toClass.getMethod("update", Object.class, Object.class)
+                          .getDeclaringClass() != TransferObject.class;
+        } catch (final NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    /**
+     * <pre>
+     * The values to be set by a direct versioned update, mapped by the entity attribute names.
+     * Nulls are skipped for dynamic fields, the id and the version are left out.
+     * </pre>
+     *
+     * @param to the to
+     * @return the values
+     */
+    protected Map<String, Object> directValues(final TO to) {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        for (final FieldReflector<TO, ENTITY, Object, Object> reflector : ClassReflector.ofClass(this.toCLass, this.entityClass)
+                                                                                        .getValueReflectorsArray()) {
+            if (reflector.isId() || reflector.isVersion()) {
+                continue;
+            }
+            final Object value = reflector.get(to);
+            if (value != null || !reflector.isDynamic()) {
+                values.put(reflector.getAssociatedName(), value);
+            }
+        }
+        return values;
     }
 
     /**
@@ -328,9 +1067,11 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
      *
      * @param id the id
      */
+    @Transactional
     public void removeById(final PK id) {
         this.getDataAccess()
             .removeById(id);
+        this.afterWrite(ChangeLogEntry.Operation.DELETE, List.of(id));
     }
 
     /**
@@ -338,9 +1079,11 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
      *
      * @param ids the ids
      */
+    @Transactional
     public void removeByIds(final List<PK> ids) {
         this.getDataAccess()
             .removeByIds(ids);
+        this.afterWrite(ChangeLogEntry.Operation.DELETE, ids);
     }
 
     /**
@@ -379,4 +1122,49 @@ public abstract class AbstractDataBinder<TO extends PrimaryKey<PK> & TransferObj
     public void setDataAccess(final AbstractDataAccess<ENTITY, PK> dataAccess) {
         this.dataAccess = dataAccess;
     }
+
+    /**
+     * Gets the time to live of the cached facets in milliseconds.
+     *
+     * @return the time to live
+     */
+    public long getFacetsTimeToLive() {
+        return this.facetsTimeToLive;
+    }
+
+    /**
+     * Sets the time to live of the cached facets in milliseconds, 0 to disable the cache.
+     *
+     * @param facetsTimeToLive the time to live
+     */
+    public void setFacetsTimeToLive(final long facetsTimeToLive) {
+        this.facetsTimeToLive = facetsTimeToLive;
+    }
+
+    /**
+     * Gets the max time in milliseconds a read waits for an identical read running.
+     *
+     * @return the max wait
+     */
+    public long getSingleFlightMaxWait() {
+        return this.singleFlightMaxWait;
+    }
+
+    /**
+     * Sets the max time in milliseconds a read waits for an identical read running, 0 to disable the collapsing.
+     *
+     * @param singleFlightMaxWait the max wait
+     */
+    public void setSingleFlightMaxWait(final long singleFlightMaxWait) {
+        this.singleFlightMaxWait = singleFlightMaxWait;
+    }
+
+    /**
+     * Gets the collapsed reads, with the number of reads run, answered by an identical read and timed out.
+     *
+     * @return the single flight
+     */
+    public SingleFlight<List<Object>, Object> getSingleFlight() {
+        return this.singleFlight;
+    }
 }
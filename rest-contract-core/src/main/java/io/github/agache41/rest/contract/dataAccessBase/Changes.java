@@ -0,0 +1,103 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+import java.util.List;
+
+/**
+ * <pre>
+ * The changes of the entities since a synchronization token, one page of them.
+ * The upserted entities are given in their current state, the deleted ones by their ids, each entity at most once.
+ * The token is passed as since parameter in the next call, more tells if the next page can be read right away.
+ * </pre>
+ *
+ * @param <TO> the type of the transfer objects
+ * @param <PK> the type of the Primary Key
+ */
+public class Changes<TO, PK> {
+    /**
+     * The inserted or updated entities.
+     */
+    protected final List<TO> upserted;
+    /**
+     * The ids of the deleted entities.
+     */
+    protected final List<PK> deleted;
+    /**
+     * The token of the next call.
+     */
+    protected final String token;
+    /**
+     * If more changes are waiting.
+     */
+    protected final boolean more;
+
+    /**
+     * Instantiates a new Changes.
+     *
+     * @param upserted the inserted or updated entities
+     * @param deleted  the ids of the deleted entities
+     * @param token    the token of the next call
+     * @param more     if more changes are waiting
+     */
+    public Changes(final List<TO> upserted,
+                   final List<PK> deleted,
+                   final String token,
+                   final boolean more) {
+        this.upserted = upserted;
+        this.deleted = deleted;
+        this.token = token;
+        this.more = more;
+    }
+
+    /**
+     * Gets the inserted or updated entities.
+     *
+     * @return the upserted
+     */
+    public List<TO> getUpserted() {
+        return this.upserted;
+    }
+
+    /**
+     * Gets the ids of the deleted entities.
+     *
+     * @return the deleted
+     */
+    public List<PK> getDeleted() {
+        return this.deleted;
+    }
+
+    /**
+     * Gets the token of the next call.
+     *
+     * @return the token
+     */
+    public String getToken() {
+        return this.token;
+    }
+
+    /**
+     * Tells if more changes are waiting.
+     *
+     * @return the more
+     */
+    public boolean isMore() {
+        return this.more;
+    }
+}
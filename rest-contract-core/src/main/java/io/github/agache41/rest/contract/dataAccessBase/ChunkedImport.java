@@ -0,0 +1,179 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * <pre>
+ * Imports newline delimited JSON (NDJSON) in chunks : one object per line, parsed as the input is read.
+ * Every chunkSize objects are handed to the chunk writer, expected to commit them in their own transaction.
+ * The input is not read while a chunk is written, so a database falling behind slows down the client
+ * through the flow control of the connection, and at most one chunk is held in memory.
+ * The import stops on the first chunk that can not be parsed or written and reports it,
+ * the chunks before it stay committed and the import can be resumed by skipping their lines.
+ * Example:
+ *      new ChunkedImport&#x3C;&#x3E;(parser, 500).run(input, 0, chunk -&#x3E; dataBinder.importChunk(chunk));
+ * </pre>
+ *
+ * @param <T> the type parameter
+ */
+public class ChunkedImport<T> {
+
+    /**
+     * The media type of newline delimited JSON.
+     */
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    /**
+     * The max length of a line in bytes.
+     */
+    public static final int MAX_LINE_LENGTH = 16 * 1024 * 1024;
+
+    private final LineParser<T> parser;
+    private final int chunkSize;
+    private byte[] line = new byte[1024];
+
+    /**
+     * Instantiates a new Chunked import.
+     *
+     * @param parser    the parser of one line
+     * @param chunkSize the number of objects committed together
+     */
+    public ChunkedImport(final LineParser<T> parser,
+                         final int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException(" Bad chunk size " + chunkSize + " please specify at least 1 !");
+        }
+        this.parser = parser;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * <pre>
+     * Reads the input and writes it in chunks.
+     * </pre>
+     *
+     * @param input  the input
+     * @param skip   the number of lines to skip, e.g. the lines committed by a previous import
+     * @param writer writes a chunk in its own transaction and returns the number of objects written
+     * @return the summary of every chunk, the last one carries the error if the import stopped
+     * @throws IOException if the input can not be read
+     */
+    public List<ImportChunk> run(final InputStream input,
+                                 final long skip,
+                                 final ToIntFunction<List<T>> writer) throws IOException {
+        final InputStream buffered = input instanceof BufferedInputStream ? input : new BufferedInputStream(input, 64 * 1024);
+        final List<ImportChunk> summary = new ArrayList<>();
+        final List<T> chunk = new ArrayList<>(this.chunkSize);
+        long index = 0;
+        long firstLine = skip;
+        int length;
+        while ((length = this.readLine(buffered)) >= 0) {
+            index++;
+            if (index <= skip) {
+                continue;
+            }
+            if (!this.isBlank(length)) {
+                try {
+                    chunk.add(this.parser.parse(this.line, length));
+                } catch (final IOException | RuntimeException exception) {
+                    summary.add(new ImportChunk(firstLine, (int) (index - firstLine), 0, " Line " + (index - 1) + ": " + exception.getMessage()));
+                    return summary;
+                }
+            }
+            if (chunk.size() == this.chunkSize) {
+                if (!this.write(chunk, firstLine, (int) (index - firstLine), writer, summary)) {
+                    return summary;
+                }
+                firstLine = index;
+            }
+        }
+        if (index > firstLine) {
+            this.write(chunk, firstLine, (int) (index - firstLine), writer, summary);
+        }
+        return summary;
+    }
+
+    private boolean write(final List<T> chunk,
+                          final long firstLine,
+                          final int lines,
+                          final ToIntFunction<List<T>> writer,
+                          final List<ImportChunk> summary) {
+        try {
+            summary.add(new ImportChunk(firstLine, lines, chunk.isEmpty() ? 0 : writer.applyAsInt(chunk), null));
+            chunk.clear();
+            return true;
+        } catch (final RuntimeException exception) {
+            summary.add(new ImportChunk(firstLine, lines, 0, exception.getMessage()));
+            return false;
+        }
+    }
+
+    private int readLine(final InputStream input) throws IOException {
+        int length = 0;
+        int read;
+        while ((read = input.read()) >= 0 && read != '\n') {
+            if (length == this.line.length) {
+                if (length == MAX_LINE_LENGTH) {
+                    throw new IOException(" Line longer than " + MAX_LINE_LENGTH + " bytes");
+                }
+                this.line = Arrays.copyOf(this.line, Math.min(MAX_LINE_LENGTH, length * 2));
+            }
+            this.line[length++] = (byte) read;
+        }
+        if (read < 0 && length == 0) {
+            return -1;
+        }
+        return length;
+    }
+
+    private boolean isBlank(final int length) {
+        for (int index = 0; index < length; index++) {
+            if (!Character.isWhitespace(this.line[index])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The parser of one line.
+     *
+     * @param <T> the type parameter
+     */
+    @FunctionalInterface
+    public interface LineParser<T> {
+        /**
+         * Parses one line.
+         *
+         * @param line   the buffer holding the line, reused for the next lines
+         * @param length the length of the line in bytes
+         * @return the parsed object
+         * @throws IOException if the line can not be parsed
+         */
+        T parse(byte[] line,
+                int length) throws IOException;
+    }
+}
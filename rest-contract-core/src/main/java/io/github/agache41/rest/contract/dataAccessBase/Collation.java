@@ -0,0 +1,40 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.github.agache41.rest.contract.dataAccessBase;
+
+/**
+ * <pre>
+ * The kind of collation of the String columns, it decides how the prefix of a like pattern is turned into a range on the index.
+ * The lower bound is the prefix itself, the upper bound depends on the sort order of the collation.
+ * </pre>
+ */
+public enum Collation {
+    /**
+     * The strings are compared by their characters, as with the C collation of PostgreSQL or with H2 :
+     * the upper bound is the prefix with its last character incremented, abc gives abd.
+     */
+    BINARY,
+    /**
+     * A Unicode (CLDR) collation, as the ICU collations : the upper bound is the prefix followed by U+FFFF,
+     * which these collations sort after every character for exactly this use.
+     */
+    LINGUISTIC,
+    /**
+     * Any other collation, e.g. the glibc locales of PostgreSQL, where no upper bound is known to be safe : only the lower bound is used.
+     */
+    UNKNOWN
+}
@@ -0,0 +1,176 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+import io.github.agache41.rest.contract.exceptions.DeadlineExceededException;
+
+import java.util.function.Supplier;
+
+/**
+ * <pre>
+ * Deadline of the request executed on the current thread.
+ * The web layers start it from the request header or from the configured timeout of the endpoint,
+ * the data access applies the remaining time as query timeout on every query,
+ * so the total time of the request is bounded and not only the time of a single statement.
+ * Once the deadline expired no further query is sent to the database.
+ * Typical usage :
+ *      Deadline.within(2000, () -&#x3E; dataAccess.listAll(0, 256, parameters));
+ * </pre>
+ */
+public class Deadline {
+
+    /**
+     * The request header carrying the timeout of the client in milliseconds.
+     */
+    public static final String HEADER = "X-Request-Timeout";
+
+    /**
+     * <pre>
+     * The deadline of the current thread in milliseconds since the epoch, 0 if none.
+     * </pre>
+     */
+    protected static final ThreadLocal<long[]> deadline = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * <pre>
+     * Starts the deadline of the current thread.
+     * A timeout of 0 or less removes the deadline.
+     * </pre>
+     *
+     * @param timeoutMillis the timeout in milliseconds
+     */
+    public static void start(final long timeoutMillis) {
+        deadline.get()[0] = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : 0;
+    }
+
+    /**
+     * <pre>
+     * Removes the deadline of the current thread, e.g. at the end of a request.
+     * </pre>
+     */
+    public static void clear() {
+        deadline.remove();
+    }
+
+    /**
+     * <pre>
+     * Runs the given call within the given timeout and restores the previous deadline afterwards.
+     * An already running deadline that expires earlier is kept.
+     * </pre>
+     *
+     * @param <R>           the type parameter
+     * @param timeoutMillis the timeout in milliseconds
+     * @param call          the call
+     * @return the result of the call
+     */
+    public static <R> R within(final long timeoutMillis, final Supplier<R> call) {
+        final long[] current = deadline.get();
+        final long previous = current[0];
+        if (timeoutMillis > 0) {
+            final long next = System.currentTimeMillis() + timeoutMillis;
+            current[0] = previous == 0 ? next : Math.min(previous, next);
+        }
+        try {
+            return call.get();
+        } finally {
+            current[0] = previous;
+        }
+    }
+
+    /**
+     * Tells if a deadline is running on the current thread.
+     *
+     * @return true if a deadline is running
+     */
+    public static boolean isRunning() {
+        return deadline.get()[0] > 0;
+    }
+
+    /**
+     * <pre>
+     * The remaining time of the current deadline, Long.MAX_VALUE if none is running.
+     * </pre>
+     *
+     * @return the remaining milliseconds
+     */
+    public static long remainingMillis() {
+        final long current = deadline.get()[0];
+        if (current == 0) {
+            return Long.MAX_VALUE;
+        }
+        return current - System.currentTimeMillis();
+    }
+
+    /**
+     * <pre>
+     * The query timeout for the next query, 0 if no deadline is running.
+     * JDBC drivers handle timeouts in seconds, so the remaining time is rounded up to whole seconds.
+     * </pre>
+     *
+     * @return the query timeout in milliseconds
+     * @throws DeadlineExceededException if the deadline already expired
+     */
+    public static int queryTimeoutMillis() {
+        final long remaining = remainingMillis();
+        if (remaining == Long.MAX_VALUE) {
+            return 0;
+        }
+        if (remaining <= 0) {
+            throw new DeadlineExceededException(" Request deadline exceeded by " + -remaining + "ms");
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000 * 1000);
+    }
+
+    /**
+     * <pre>
+     * The effective timeout of a request : the shorter one of the timeout requested by the client and the configured one.
+     * Values of 0 or less stand for no timeout.
+     * </pre>
+     *
+     * @param requested  the timeout requested by the client, may be null
+     * @param configured the configured timeout
+     * @return the effective timeout, 0 for none
+     */
+    public static long timeout(final Long requested, final long configured) {
+        if (requested == null || requested <= 0) {
+            return Math.max(configured, 0);
+        }
+        if (configured <= 0) {
+            return requested;
+        }
+        return Math.min(requested, configured);
+    }
+
+    /**
+     * Parses the value of the timeout header.
+     *
+     * @param header the header value
+     * @return the timeout in milliseconds or null if missing or invalid
+     */
+    public static Long parse(final String header) {
+        if (header == null || header.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(header.trim());
+        } catch (final NumberFormatException exception) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.Collection;
+
+/**
+ * <pre>
+ * Data access working over the Entity Managers and the transactions of another data access, e.g. a different backend for the reads.
+ * The Entity Managers, the read routing and the hooks of the persistence provider in use are the ones of the delegate,
+ * the deriving classes override the methods they implement differently.
+ * </pre>
+ *
+ * @param <ENTITY> the type parameter
+ * @param <PK>     the type parameter
+ */
+public class DelegatingDataAccess<ENTITY extends PrimaryKey<PK>, PK> extends AbstractDataAccess<ENTITY, PK> {
+
+    /**
+     * <pre>
+     * The data access providing the Entity Managers.
+     * </pre>
+     */
+    protected final AbstractDataAccess<ENTITY, PK> delegate;
+
+    /**
+     * <pre>
+     * Creates the data access over the given one, sharing its Entity Managers and its read routing.
+     * </pre>
+     *
+     * @param delegate the data access providing the Entity Managers
+     */
+    public DelegatingDataAccess(final AbstractDataAccess<ENTITY, PK> delegate) {
+        super(delegate.getType(), delegate.getKeyType());
+        this.delegate = delegate;
+        this.readRouting = delegate.getReadRouting();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected EntityManager em() {
+        return this.delegate.em();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected EntityManager replicaEm() {
+        return this.delegate.replicaEm();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean isInTransaction() {
+        return this.delegate.isInTransaction();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterTransaction(final Runnable action) {
+        this.delegate.afterTransaction(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Collation detectCollation() {
+        return this.delegate.getCollation();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected EntityManager openStream() {
+        return this.delegate.openStream();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean beginStream(final EntityManager streamEm) {
+        return this.delegate.beginStream(streamEm);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void closeStream(final EntityManager streamEm,
+                               final boolean began) {
+        this.delegate.closeStream(streamEm, began);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int upsert(final Collection<ENTITY> sources) {
+        return this.delegate.upsert(sources);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isUpsertSupported() {
+        return this.delegate.isUpsertSupported();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object unproxy(final Object value) {
+        return this.delegate.unproxy(value);
+    }
+
+    /**
+     * Gets the data access providing the Entity Managers.
+     *
+     * @return the delegate
+     */
+    public AbstractDataAccess<ENTITY, PK> getDelegate() {
+        return this.delegate;
+    }
+}
@@ -0,0 +1,196 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.SingularAttribute;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.*;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ * Descriptor of an attribute that can be used in the filters of the request parameters.
+ * It holds the already split path of the attribute, its Java type and the parser converting
+ * the request parameter in a value of the Java type, so the database receives correctly typed parameters.
+ * The descriptors of an entity are built once from the JPA metamodel :
+ *      Map&#x3C;String, FilterAttribute&#x3E; attributes = FilterAttribute.of(em.getMetamodel().entity(Modell.class));
+ *      Object value = attributes.get("id.name").parse("abc");
+ * </pre>
+ */
+public class FilterAttribute {
+
+    private static final Map<Class<?>, Function<String, Object>> parsers = Map.ofEntries(Map.entry(String.class, value -> value),
+                                                                                         Map.entry(Integer.class, Integer::valueOf),
+                                                                                         Map.entry(int.class, Integer::valueOf),
+                                                                                         Map.entry(Long.class, Long::valueOf),
+                                                                                         Map.entry(long.class, Long::valueOf),
+                                                                                         Map.entry(Short.class, Short::valueOf),
+                                                                                         Map.entry(short.class, Short::valueOf),
+                                                                                         Map.entry(Byte.class, Byte::valueOf),
+                                                                                         Map.entry(byte.class, Byte::valueOf),
+                                                                                         Map.entry(Double.class, Double::valueOf),
+                                                                                         Map.entry(double.class, Double::valueOf),
+                                                                                         Map.entry(Float.class, Float::valueOf),
+                                                                                         Map.entry(float.class, Float::valueOf),
+                                                                                         Map.entry(Boolean.class, Boolean::valueOf),
+                                                                                         Map.entry(boolean.class, Boolean::valueOf),
+                                                                                         Map.entry(BigDecimal.class, BigDecimal::new),
+                                                                                         Map.entry(BigInteger.class, BigInteger::new),
+                                                                                         Map.entry(LocalDate.class, LocalDate::parse),
+                                                                                         Map.entry(LocalDateTime.class, LocalDateTime::parse),
+                                                                                         Map.entry(LocalTime.class, LocalTime::parse),
+                                                                                         Map.entry(OffsetDateTime.class, OffsetDateTime::parse),
+                                                                                         Map.entry(ZonedDateTime.class, ZonedDateTime::parse),
+                                                                                         Map.entry(Instant.class, Instant::parse),
+                                                                                         Map.entry(UUID.class, UUID::fromString));
+
+    /**
+     * The name of the attribute, a dotted path for attributes of embeddables and associations. Example id.name
+     */
+    protected final String name;
+
+    /**
+     * The path of the attribute, split at the dots.
+     */
+    protected final String[] path;
+
+    /**
+     * The Java type of the attribute.
+     */
+    protected final Class<?> javaType;
+
+    /**
+     * The parser converting a request parameter in a value of the Java type.
+     */
+    protected final Function<String, Object> parser;
+
+    /**
+     * Instantiates a new Filter attribute.
+     *
+     * @param name     the name
+     * @param javaType the java type
+     */
+    public FilterAttribute(final String name,
+                           final Class<?> javaType) {
+        this.name = name;
+        this.path = name.split("\\.");
+        this.javaType = javaType;
+        this.parser = parser(javaType);
+    }
+
+    /**
+     * <pre>
+     * Builds the descriptors of all the filterable attributes of the given type.
+     * These are the basic attributes, the attributes of the embeddables and the basic or embedded attributes
+     * of the single valued associations, one level deep.
+     * </pre>
+     *
+     * @param type the managed type
+     * @return the descriptors by name
+     */
+    public static Map<String, FilterAttribute> of(final ManagedType<?> type) {
+        final Map<String, FilterAttribute> result = new LinkedHashMap<>();
+        collect(type, "", true, result);
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static void collect(final ManagedType<?> type,
+                                final String prefix,
+                                final boolean associations,
+                                final Map<String, FilterAttribute> result) {
+        for (final SingularAttribute<?, ?> attribute : type.getSingularAttributes()) {
+            final String name = prefix + attribute.getName();
+            final Attribute.PersistentAttributeType attributeType = attribute.getPersistentAttributeType();
+            if (attributeType == Attribute.PersistentAttributeType.BASIC) {
+                result.put(name, new FilterAttribute(name, attribute.getJavaType()));
+            } else if (attributeType == Attribute.PersistentAttributeType.EMBEDDED) {
+                collect((ManagedType<?>) attribute.getType(), name + ".", associations, result);
+            } else if (associations && attribute.getType() instanceof ManagedType<?> target) {
+                collect(target, name + ".", false, result);
+            }
+        }
+    }
+
+    /**
+     * <pre>
+     * Gets the parser for the given Java type.
+     * Enums are parsed by name, types without a known parser are passed as they are.
+     * </pre>
+     *
+     * @param javaType the java type
+     * @return the parser
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Function<String, Object> parser(final Class<?> javaType) {
+        if (javaType.isEnum()) {
+            return value -> Enum.valueOf((Class<? extends Enum>) javaType, value);
+        }
+        return parsers.getOrDefault(javaType, value -> value);
+    }
+
+    /**
+     * Converts the request parameter in a value of the Java type of the attribute.
+     *
+     * @param value the request parameter
+     * @return the value
+     * @throws IllegalArgumentException if the value can not be converted
+     */
+    public Object parse(final String value) {
+        try {
+            return this.parser.apply(value);
+        } catch (final RuntimeException exception) {
+            throw new IllegalArgumentException(" Bad Filter Content " + value + " is not a valid " + this.javaType.getSimpleName() + " for the field " + this.name + " !", exception);
+        }
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Gets the path split at the dots.
+     *
+     * @return the path
+     */
+    public String[] getPath() {
+        return this.path;
+    }
+
+    /**
+     * Gets the java type.
+     *
+     * @return the java type
+     */
+    public Class<?> getJavaType() {
+        return this.javaType;
+    }
+}
@@ -62,6 +62,21 @@ public class IdGroup<PK> implements PrimaryKey<PK> {
         this.key = this.id.toString();
     }
 
+    /**
+     * Instantiates a new Id group with the value and the id of the given group and the given count,
+     * used when merging the groups of the same value.
+     *
+     * @param idGroup the id group
+     * @param count   the count
+     */
+    public IdGroup(final IdGroup<PK> idGroup,
+                   final int count) {
+        this.count = count;
+        this.value = idGroup.getValue();
+        this.id = idGroup.getId();
+        this.key = idGroup.getKey();
+    }
+
     /**
      * Gets key.
      *
@@ -0,0 +1,107 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+/**
+ * <pre>
+ * The summary of one chunk of a streamed import.
+ * The lines are counted from 0 in the whole input, including the skipped and the blank lines,
+ * so an import that failed can be resumed by sending the same input again and skipping the lines before the failed chunk.
+ * </pre>
+ */
+public class ImportChunk {
+    /**
+     * The index of the first line of the chunk.
+     */
+    protected final long firstLine;
+    /**
+     * The number of lines in the chunk.
+     */
+    protected final int lines;
+    /**
+     * The number of entities written.
+     */
+    protected final int written;
+    /**
+     * The error, null if the chunk was committed.
+     */
+    protected final String error;
+
+    /**
+     * Instantiates a new Import chunk.
+     *
+     * @param firstLine the index of the first line of the chunk
+     * @param lines     the number of lines in the chunk
+     * @param written   the number of entities written
+     * @param error     the error, null if the chunk was committed
+     */
+    public ImportChunk(final long firstLine,
+                       final int lines,
+                       final int written,
+                       final String error) {
+        this.firstLine = firstLine;
+        this.lines = lines;
+        this.written = written;
+        this.error = error;
+    }
+
+    /**
+     * Gets the index of the first line of the chunk.
+     *
+     * @return the first line
+     */
+    public long getFirstLine() {
+        return this.firstLine;
+    }
+
+    /**
+     * Gets the number of lines in the chunk.
+     *
+     * @return the lines
+     */
+    public int getLines() {
+        return this.lines;
+    }
+
+    /**
+     * Gets the number of entities written.
+     *
+     * @return the written
+     */
+    public int getWritten() {
+        return this.written;
+    }
+
+    /**
+     * Gets the error, null if the chunk was committed.
+     *
+     * @return the error
+     */
+    public String getError() {
+        return this.error;
+    }
+
+    /**
+     * Gets the number of lines to skip for resuming the import after this chunk.
+     *
+     * @return the next line
+     */
+    public long getNextLine() {
+        return this.error == null ? this.firstLine + this.lines : this.firstLine;
+    }
+}
@@ -0,0 +1,136 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <pre>
+ * A measure of an aggregation, given in the request as function(column).
+ * Example count, count(street), sum(age), min(name), max(age)
+ * The measure is labeled in the result rows by its normalized form, e.g. sum(age).
+ * </pre>
+ */
+public class Measure {
+
+    /**
+     * The Regex matching a measure.
+     */
+    protected static final Pattern measurePattern = Pattern.compile("(?i)\\s*(count|sum|min|max)\\s*(\\(\\s*([a-zA-Z_$.0-9]+|\\*)\\s*\\))?\\s*");
+
+    /**
+     * The aggregate functions.
+     */
+    public enum Function {
+        /**
+         * Counts the rows, or the not null values of the column.
+         */
+        COUNT,
+        /**
+         * Sums the values of a numeric column.
+         */
+        SUM,
+        /**
+         * The least value of the column.
+         */
+        MIN,
+        /**
+         * The greatest value of the column.
+         */
+        MAX
+    }
+
+    /**
+     * The function.
+     */
+    protected final Function function;
+    /**
+     * The column, null for counting the rows.
+     */
+    protected final String column;
+    /**
+     * The label.
+     */
+    protected final String label;
+
+    /**
+     * Instantiates a new Measure.
+     *
+     * @param function the function
+     * @param column   the column, null for counting the rows
+     */
+    public Measure(final Function function,
+                   final String column) {
+        final String name = function.name()
+                                    .toLowerCase(Locale.ROOT);
+        if (column == null && function != Function.COUNT) {
+            throw new IllegalArgumentException(" Bad Measure " + name + " needs a column, e.g. " + name + "(column) !");
+        }
+        this.function = function;
+        this.column = column;
+        this.label = column == null ? name : name + "(" + column + ")";
+    }
+
+    /**
+     * <pre>
+     * Parses a measure given in the request.
+     * </pre>
+     *
+     * @param measure the measure, e.g. sum(age)
+     * @return the measure
+     * @throws IllegalArgumentException if the measure does not match the pattern
+     */
+    public static Measure of(final String measure) {
+        final Matcher matcher = measurePattern.matcher(measure);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Measure [" + measure + "] does not match pattern [" + measurePattern.pattern() + "]");
+        }
+        final String column = matcher.group(3);
+        return new Measure(Function.valueOf(matcher.group(1)
+                                                   .toUpperCase(Locale.ROOT)), "*".equals(column) ? null : column);
+    }
+
+    /**
+     * Gets the function.
+     *
+     * @return the function
+     */
+    public Function getFunction() {
+        return this.function;
+    }
+
+    /**
+     * Gets the column, null for counting the rows.
+     *
+     * @return the column
+     */
+    public String getColumn() {
+        return this.column;
+    }
+
+    /**
+     * Gets the label of the measure in the result rows.
+     *
+     * @return the label
+     */
+    public String getLabel() {
+        return this.label;
+    }
+}
@@ -0,0 +1,164 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <pre>
+ * Runs the partitions of a scan concurrently on the given executor and merges their results in one stream.
+ * At most parallelism partitions are running or waiting to be consumed at any time,
+ * so the memory used is bounded by the size of the partitions and not by the size of the scan.
+ * The partitions are submitted as the stream is consumed :
+ *      ordered   : the results are returned in the order of the partitions
+ *      unordered : the results are returned in the order the partitions complete
+ * Closing the stream cancels the partitions not yet started.
+ * </pre>
+ *
+ * @param <R> the type parameter
+ */
+public class PartitionedScan<R> implements Iterator<R> {
+
+    private final Iterator<Supplier<List<R>>> partitions;
+    private final int parallelism;
+    private final Executor executor;
+    private final boolean ordered;
+    private final Deque<CompletableFuture<List<R>>> running = new ArrayDeque<>();
+    private final BlockingQueue<CompletableFuture<List<R>>> completed = new LinkedBlockingQueue<>();
+    private Iterator<R> current = Collections.emptyIterator();
+
+    /**
+     * <pre>
+     * Creates the scan, no partition is started before the first result is requested.
+     * </pre>
+     *
+     * @param partitions  the partitions, each one returning its results
+     * @param parallelism the max number of partitions running at once
+     * @param executor    the executor running the partitions
+     * @param ordered     if the results are returned in the order of the partitions
+     */
+    public PartitionedScan(final List<Supplier<List<R>>> partitions,
+                           final int parallelism,
+                           final Executor executor,
+                           final boolean ordered) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(" Bad parallelism " + parallelism + " please specify at least 1 !");
+        }
+        this.partitions = partitions.iterator();
+        this.parallelism = parallelism;
+        this.executor = executor;
+        this.ordered = ordered;
+    }
+
+    /**
+     * <pre>
+     * The results of the scan as a sequential stream.
+     * </pre>
+     *
+     * @return the stream
+     */
+    public Stream<R> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, this.ordered ? Spliterator.ORDERED : 0), false)
+                            .onClose(this::cancel);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        while (!this.current.hasNext()) {
+            final List<R> next = this.nextPartition();
+            if (next == null) {
+                return false;
+            }
+            this.current = next.iterator();
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public R next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.current.next();
+    }
+
+    /**
+     * <pre>
+     * Cancels the partitions not yet started.
+     * </pre>
+     */
+    public void cancel() {
+        this.running.forEach(future -> future.cancel(false));
+        this.running.clear();
+    }
+
+    private List<R> nextPartition() {
+        this.submit();
+        final CompletableFuture<List<R>> future;
+        if (this.ordered) {
+            future = this.running.poll();
+        } else if (this.running.isEmpty()) {
+            future = null;
+        } else {
+            try {
+                future = this.completed.take();
+            } catch (final InterruptedException exception) {
+                Thread.currentThread()
+                      .interrupt();
+                this.cancel();
+                throw new UnexpectedException(" Partitioned scan interrupted", exception);
+            }
+            this.running.remove(future);
+        }
+        if (future == null) {
+            return null;
+        }
+        this.submit();
+        try {
+            return future.join();
+        } catch (final CompletionException exception) {
+            this.cancel();
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+
+    private void submit() {
+        while (this.running.size() < this.parallelism && this.partitions.hasNext()) {
+            final CompletableFuture<List<R>> future = CompletableFuture.supplyAsync(this.partitions.next(), this.executor);
+            this.running.add(future);
+            if (!this.ordered) {
+                future.whenComplete((result, exception) -> this.completed.add(future));
+            }
+        }
+    }
+}
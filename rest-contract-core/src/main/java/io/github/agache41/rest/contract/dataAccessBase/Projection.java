@@ -0,0 +1,163 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+import io.github.agache41.rest.contract.update.TransferObject;
+import io.github.agache41.rest.contract.update.reflector.ClassReflector;
+import io.github.agache41.rest.contract.update.reflector.FieldReflector;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * <pre>
+ * Reads a transfer object directly from the selected columns of its entity, as a Tuple query.
+ * Only the attributes mapped by the fields marked with @Update in the transfer object are selected,
+ * no entity is hydrated and nothing is registered in the persistence context.
+ * A projection exists only for true transfer objects (not the entity itself) whose fields marked for update are all simple values
+ * and which do not override render. For the other transfer objects the entities are loaded and rendered.
+ * Example :
+ *      select e.id, e.name, e.street from Modell2 e where ...
+ *      to.id = id, to.name = name, to.address = street
+ * </pre>
+ *
+ * @param <TO> the type of the transfer object
+ */
+public class Projection<TO> {
+
+    /**
+     * <pre>
+     * The projections, cached by transfer object class, empty if the transfer object can not be projected.
+     * </pre>
+     */
+    private static final Map<Class<?>, Optional<Projection<?>>> projections = new ConcurrentHashMap<>();
+
+    /**
+     * <pre>
+     * Creates the transfer objects.
+     * </pre>
+     */
+    private final Creator<TO> creator;
+
+    /**
+     * <pre>
+     * The reflectors of the projected fields, in the order of the selections.
+     * </pre>
+     */
+    private final FieldReflector<TO, ?, Object, ?>[] reflectors;
+
+    /**
+     * <pre>
+     * The names of the selected entity attributes, in the order of the selections.
+     * </pre>
+     */
+    private final String[] attributes;
+
+    private Projection(final Class<TO> toClass,
+                       final FieldReflector<TO, ?, Object, ?>[] reflectors) {
+        this.creator = new Creator<>(toClass);
+        this.reflectors = reflectors;
+        this.attributes = Arrays.stream(reflectors)
+                                .map(FieldReflector::getAssociatedName)
+                                .toArray(String[]::new);
+    }
+
+    /**
+     * <pre>
+     * Gets the projection of a transfer object on its entity.
+     * </pre>
+     *
+     * @param <TO>        the type of the transfer object
+     * @param toClass     the transfer object class
+     * @param entityClass the entity class
+     * @return the projection, or null if the transfer object can not be projected
+     */
+    public static <TO> Projection<TO> of(final Class<TO> toClass,
+                                         final Class<?> entityClass) {
+        return (Projection<TO>) projections.computeIfAbsent(toClass, type -> Optional.ofNullable(create(toClass, entityClass)))
+                                           .orElse(null);
+    }
+
+    private static <TO> Projection<TO> create(final Class<TO> toClass,
+                                              final Class<?> entityClass) {
+        if (toClass.equals(entityClass) || !TransferObject.class.isAssignableFrom(toClass) || overridesRender(toClass)) {
+            return null;
+        }
+        final ClassReflector<TO, ?> classReflector = ClassReflector.ofClass(toClass, entityClass);
+        final FieldReflector[] reflectors = classReflector.getUpdateReflectorsArray();
+        if (reflectors.length == 0 || reflectors.length != classReflector.getValueReflectorsArray().length) {
+            return null;
+        }
+        return new Projection<>(toClass, reflectors);
+    }
+
+    private static boolean overridesRender(final Class<?> toClass) {
+        return Arrays.stream(toClass.getMethods())
+                     .filter(method -> "render".equals(method.getName()) && method.getParameterCount() == 2)
+                     .anyMatch(method -> !TransferObject.class.equals(method.getDeclaringClass()));
+    }
+
+    /**
+     * <pre>
+     * The selections of the projected attributes on the given entity path.
+     * </pre>
+     *
+     * @param entity the entity path
+     * @return the selections
+     */
+    public List<Selection<?>> selections(final Path<?> entity) {
+        return Arrays.stream(this.attributes)
+                     .map(entity::get)
+                     .collect(toList());
+    }
+
+    /**
+     * <pre>
+     * Creates a transfer object from a row selected with {@link #selections(Path)}.
+     * </pre>
+     *
+     * @param tuple the row
+     * @return the transfer object
+     */
+    public TO create(final Tuple tuple) {
+        final TO to = this.creator.create();
+        for (int index = 0; index < this.reflectors.length; index++) {
+            this.reflectors[index].set(to, tuple.get(index));
+        }
+        return to;
+    }
+
+    /**
+     * <pre>
+     * The names of the selected entity attributes.
+     * </pre>
+     *
+     * @return the attributes
+     */
+    public List<String> getAttributes() {
+        return List.of(this.attributes);
+    }
+}
@@ -0,0 +1,177 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+/**
+ * <pre>
+ * Routing policy between the primary and the replica Entity Manager of a data access.
+ * The reads on the read only fast path go to the replica, unless the client of the current request wrote
+ * within the sticky period. This keeps the reads of a client following its write on the primary
+ * until the replica is expected to have caught up (read your writes).
+ * The time of the last write of the client travels with the client, in the X-Last-Write header or the last-write cookie:
+ * the filters of the web modules start the request with it, return it when the request wrote and clear it at the end.
+ * Writes and entities located for an update are always handled on the primary.
+ * Typical usage :
+ *      dataAccess.setReadRouting(new ReadRouting(2000));
+ * </pre>
+ */
+public class ReadRouting {
+
+    /**
+     * The default sticky period in milliseconds.
+     */
+    public static final long DEFAULT_STICKY_MILLIS = 5000;
+
+    /**
+     * The header carrying the time of the last write of the client, in milliseconds since the epoch.
+     */
+    public static final String HEADER = "X-Last-Write";
+
+    /**
+     * The cookie carrying the time of the last write of the client, in milliseconds since the epoch.
+     */
+    public static final String COOKIE = "last-write";
+
+    /**
+     * <pre>
+     * The time of the last write of the client of the current request, 0 if none,
+     * and the time of the last write in the current request, 0 if none.
+     * </pre>
+     */
+    protected static final ThreadLocal<long[]> lastWrite = ThreadLocal.withInitial(() -> new long[2]);
+
+    /**
+     * <pre>
+     * The period after a write in which the reads stay on the primary.
+     * </pre>
+     */
+    protected final long stickyMillis;
+
+    /**
+     * Instantiates a new Read routing with the default sticky period.
+     */
+    public ReadRouting() {
+        this(DEFAULT_STICKY_MILLIS);
+    }
+
+    /**
+     * Instantiates a new Read routing.
+     *
+     * @param stickyMillis the period after a write in which the reads stay on the primary
+     */
+    public ReadRouting(final long stickyMillis) {
+        if (stickyMillis < 0) {
+            throw new IllegalArgumentException(" ReadRouting needs a positive sticky period, received " + stickyMillis);
+        }
+        this.stickyMillis = stickyMillis;
+    }
+
+    /**
+     * <pre>
+     * Starts a request with the time of the last write of its client.
+     * </pre>
+     *
+     * @param clientLastWrite the time of the last write of the client, null or 0 if none
+     */
+    public static void start(final Long clientLastWrite) {
+        final long[] current = lastWrite.get();
+        // a time in the future can not be trusted further than now
+        current[0] = clientLastWrite == null ? 0 : Math.min(clientLastWrite, System.currentTimeMillis());
+        current[1] = 0;
+    }
+
+    /**
+     * <pre>
+     * Gets the time of the last write in the current request, to be returned to the client.
+     * </pre>
+     *
+     * @return the time of the last write, 0 if the request did not write
+     */
+    public static long written() {
+        return lastWrite.get()[1];
+    }
+
+    /**
+     * <pre>
+     * Clears the state of the current request.
+     * </pre>
+     */
+    public static void clear() {
+        lastWrite.remove();
+    }
+
+    /**
+     * <pre>
+     * Parses the value of the header or the cookie.
+     * </pre>
+     *
+     * @param value the value
+     * @return the time of the last write, or null if missing or invalid
+     */
+    public static Long parse(final String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * <pre>
+     * Tells if the current read can go to the replica.
+     * </pre>
+     *
+     * @return true if the read can go to the replica, false if it must stay on the primary
+     */
+    public boolean toReplica() {
+        final long last = lastWrite.get()[0];
+        return last == 0 || System.currentTimeMillis() - last >= this.stickyMillis;
+    }
+
+    /**
+     * <pre>
+     * Notifies a write in the current request, the following reads of the client stick to the primary.
+     * </pre>
+     */
+    public void write() {
+        final long[] current = lastWrite.get();
+        current[0] = current[1] = System.currentTimeMillis();
+    }
+
+    /**
+     * <pre>
+     * Releases the stickiness of the current thread.
+     * </pre>
+     */
+    public void release() {
+        clear();
+    }
+
+    /**
+     * Gets the sticky period in milliseconds.
+     *
+     * @return the sticky millis
+     */
+    public long getStickyMillis() {
+        return this.stickyMillis;
+    }
+}
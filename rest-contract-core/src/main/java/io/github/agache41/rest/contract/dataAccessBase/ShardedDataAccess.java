@@ -0,0 +1,1108 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+import io.github.agache41.rest.contract.changeLog.ChangeLogEntry;
+import io.github.agache41.rest.contract.changeLog.ChangeLogPage;
+import io.github.agache41.rest.contract.exceptions.ExpectedException;
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.Metamodel;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * <pre>
+ * Data access over an entity split horizontally across several databases, one data access (and Entity Manager) per shard.
+ * It keeps the contract of the data access, so a resource switches to it without API changes :
+ *
+ *      dataBinder.setDataAccess(new ShardedDataAccess&#x3C;&#x3E;(List.of(shard0, shard1, shard2)));
+ *
+ * The shard of an entity is given by a shard function on its Primary Key, by default the hash of the key modulo the number of shards.
+ * The finders by id, the locators for updates, the writes and the removes by id are routed to the shard of the key,
+ * the methods taking several ids group them per shard and query only the shards concerned.
+ * The filter and list queries are scattered on all the shards and gathered : every shard reads its first firstResult + maxResults rows,
+ * the rows are merge sorted on the orderBy columns and the global firstResult and maxResults are applied on the merged rows.
+ * The values are compared in their Java natural order, nulls first, which must match the ordering of the databases.
+ * Without an order the rows come shard after shard.
+ *
+ * Outside a transaction the shards are read in parallel on the parallel reads executor, each with a new Entity Manager.
+ * Within a transaction, e.g. when locating the entities to update, the shards are read one after the other with their own Entity Manager,
+ * so the entities are managed in the transaction.
+ * Writes to several shards in one request are atomic only if the transactions of the shards are, e.g. with an XA transaction manager.
+ *
+ * As the shard is chosen from the Primary Key, the ids must be assigned before persisting, generated ids are not supported.
+ * The aggregations, facets, streamed and partitioned reads are scattered on all the shards as well and their results merged.
+ * The change log is not supported : the writes of an entity annotated with ChangeLogged are rejected, its changes can not be listed.
+ * </pre>
+ *
+ * @param <ENTITY> the type parameter
+ * @param <PK>     the type parameter
+ */
+public class ShardedDataAccess<ENTITY extends PrimaryKey<PK>, PK> extends AbstractDataAccess<ENTITY, PK> {
+
+    /**
+     * <pre>
+     * The data access of every shard, providing its Entity Manager.
+     * </pre>
+     */
+    protected final List<AbstractDataAccess<ENTITY, PK>> shards;
+
+    /**
+     * <pre>
+     * The shard function, giving the index of the shard for a Primary Key.
+     * </pre>
+     */
+    protected final ToIntFunction<? super PK> shardFunction;
+
+    /**
+     * <pre>
+     * The indexes of all the shards.
+     * </pre>
+     */
+    protected final List<Integer> allShards;
+
+    /**
+     * <pre>
+     * The Entity Manager of the shard the current thread is working on, if any.
+     * </pre>
+     */
+    private final ThreadLocal<EntityManager> shardEm = new ThreadLocal<>();
+
+    /**
+     * <pre>
+     * Creates the sharded data access, placing the entities by the hash of their Primary Key.
+     * The hash of the key must be stable across restarts, as it is for String, Number and UUID keys.
+     * </pre>
+     *
+     * @param shards the data access of every shard, in a fixed order
+     */
+    public ShardedDataAccess(final List<? extends AbstractDataAccess<ENTITY, PK>> shards) {
+        this(shards, new HashShardFunction(shards.size()));
+    }
+
+    /**
+     * <pre>
+     * Creates the sharded data access, placing the entities with the given shard function.
+     * </pre>
+     *
+     * @param shards        the data access of every shard, in a fixed order
+     * @param shardFunction the shard function, giving the index of the shard for a Primary Key
+     */
+    public ShardedDataAccess(final List<? extends AbstractDataAccess<ENTITY, PK>> shards,
+                             final ToIntFunction<? super PK> shardFunction) {
+        super(first(shards).getType(), first(shards).getKeyType());
+        this.shards = List.copyOf(shards);
+        this.shardFunction = shardFunction;
+        this.allShards = IntStream.range(0, shards.size())
+                                  .boxed()
+                                  .collect(toList());
+        this.readRouting = this.shards.get(0)
+                                      .getReadRouting();
+    }
+
+    private static <D> D first(final List<? extends D> shards) {
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException(" At least one shard is required !");
+        }
+        return shards.get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ENTITY findById(final PK id, final boolean expected) {
+        if (this.isBound()) {
+            return super.findById(id, expected);
+        }
+        return this.routed(id, () -> super.findById(id, expected));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object findVersionById(final PK id) {
+        if (this.isBound()) {
+            return super.findVersionById(id);
+        }
+        return this.routed(id, () -> super.findVersionById(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ENTITY findPersisted(final PrimaryKey<PK> source) {
+        if (this.isBound()) {
+            return super.findPersisted(source);
+        }
+        return this.routed(source.getId(), () -> super.findPersisted(source));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ENTITY updateByIdAndVersion(final PK id,
+                                       final Object version,
+                                       final Map<String, Object> values) {
+        if (this.isBound()) {
+            return super.updateByIdAndVersion(id, version, values);
+        }
+        return this.routed(id, () -> super.updateByIdAndVersion(id, version, values));
+    }
+
+    /**
+     * {@inheritDoc}
+     * The shards are searched all, the entity must be unique over all of them.
+     */
+    @Override
+    public ENTITY findByColumnEqualsValue(final String column, final Object value, final boolean notNull, final boolean expected) {
+        if (this.isBound()) {
+            return super.findByColumnEqualsValue(column, value, notNull, expected);
+        }
+        return this.unique(this.scatter(this.allShards, index -> super.findByColumnEqualsValue(column, value, notNull, false)), expected);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The shards are searched all, the entity must be unique over all of them.
+     */
+    @Override
+    public ENTITY findByColumnLikeValue(final String column, final String value, final boolean notNull, final boolean expected) {
+        if (this.isBound()) {
+            return super.findByColumnLikeValue(column, value, notNull, expected);
+        }
+        return this.unique(this.scatter(this.allShards, index -> super.findByColumnLikeValue(column, value, notNull, false)), expected);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The rows of the shards are merge sorted on the orderBy request parameters.
+     */
+    @Override
+    public List<ENTITY> listAll(final int firstResult, final int maxResults, final Map<String, List<String>> requestParameters) {
+        if (this.isBound()) {
+            return super.listAll(firstResult, maxResults, requestParameters);
+        }
+        final Comparator<ENTITY> order = this.namedQueries.contains(this.listAllNamedQuery) ? null : this.comparator(this.orderByQueryParams(requestParameters));
+        return this.gather(this.scatter(this.allShards, index -> super.listAll(0, this.window(firstResult, maxResults), requestParameters)), order, firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only the shards of the given ids are queried, each for its ids.
+     */
+    @Override
+    public List<ENTITY> listByIds(final Collection<? extends PK> ids) {
+        if (this.isBound()) {
+            return super.listByIds(ids);
+        }
+        final Map<Integer, List<PK>> idsByShard = this.groupByShard(ids);
+        return this.gather(this.scatter(idsByShard.keySet(), index -> super.listByIds(idsByShard.get(index))), null, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ENTITY> listByColumnEqualsValue(final String column, final Object value, final int firstResult, final int maxResults, final boolean notNull) {
+        if (this.isBound()) {
+            return super.listByColumnEqualsValue(column, value, firstResult, maxResults, notNull);
+        }
+        return this.gather(this.scatter(this.allShards, index -> super.listByColumnEqualsValue(column, value, 0, this.window(firstResult, maxResults), notNull)), null, firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ENTITY> listByContentEquals(final Map<String, Object> mapValues, final int firstResult, final int maxResults) {
+        if (this.isBound()) {
+            return super.listByContentEquals(mapValues, firstResult, maxResults);
+        }
+        return this.gather(this.scatter(this.allShards, index -> super.listByContentEquals(mapValues, 0, this.window(firstResult, maxResults))), null, firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ENTITY> listByColumnLikeValue(final String column, final String value, final int firstResult, final int maxResults, final boolean notNull) {
+        if (this.isBound()) {
+            return super.listByColumnLikeValue(column, value, firstResult, maxResults, notNull);
+        }
+        return this.gather(this.scatter(this.allShards, index -> super.listByColumnLikeValue(column, value, 0, this.window(firstResult, maxResults), notNull)), null, firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The distinct values of the shards are merged in their natural order.
+     */
+    @Override
+    public List<String> autocompleteByColumnLikeValue(final String column, final String value, final int maxResults, final Map<String, List<String>> requestParameters) {
+        if (this.isBound()) {
+            return super.autocompleteByColumnLikeValue(column, value, maxResults, requestParameters);
+        }
+        return this.scatter(this.allShards, index -> super.autocompleteByColumnLikeValue(column, value, maxResults, requestParameters))
+                   .stream()
+                   .flatMap(List::stream)
+                   .collect(Collectors.toCollection(TreeSet::new))
+                   .stream()
+                   .limit(maxResults)
+                   .collect(toList());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ENTITY> listByColumnInValues(final String column, final Collection<? extends Object> values, final int firstResult, final int maxResults, final boolean notNull) {
+        if (this.isBound()) {
+            return super.listByColumnInValues(column, values, firstResult, maxResults, notNull);
+        }
+        return this.gather(this.scatter(this.allShards, index -> super.listByColumnInValues(column, values, 0, this.window(firstResult, maxResults), notNull)), null, firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The rows of the shards are merge sorted on the column.
+     */
+    @Override
+    public List<ENTITY> listByColumnBetweenValues(final String column, final String from, final String to, final int firstResult, final int maxResults) {
+        if (this.isBound()) {
+            return super.listByColumnBetweenValues(column, from, to, firstResult, maxResults);
+        }
+        final LinkedHashMap<String, Boolean> orderBy = new LinkedHashMap<>();
+        orderBy.put(column, Boolean.TRUE);
+        return this.gather(this.scatter(this.allShards, index -> super.listByColumnBetweenValues(column, from, to, 0, this.window(firstResult, maxResults))), this.comparator(orderBy), firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ENTITY> listByColumnSearchTerms(final String column, final String terms, final int firstResult, final int maxResults) {
+        if (this.isBound()) {
+            return super.listByColumnSearchTerms(column, terms, firstResult, maxResults);
+        }
+        return this.gather(this.scatter(this.allShards, index -> super.listByColumnSearchTerms(column, terms, 0, this.window(firstResult, maxResults))), null, firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ENTITY> listByContentInValues(final Map<String, List<Object>> mapValues, final int firstResult, final int maxResults) {
+        if (this.isBound()) {
+            return super.listByContentInValues(mapValues, firstResult, maxResults);
+        }
+        return this.gather(this.scatter(this.allShards, index -> super.listByContentInValues(mapValues, 0, this.window(firstResult, maxResults))), null, firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The projected rows of the shards come shard after shard. They can not be merge sorted,
+     * so with an order null is returned and the entities are listed instead.
+     */
+    @Override
+    public <T> List<T> listProjected(final Projection<T> projection,
+                                     final Function<Root<ENTITY>, Expression<Boolean>> where,
+                                     final Function<Root<ENTITY>, List<Order>> orderBy,
+                                     final int firstResult,
+                                     final int maxResults) {
+        if (this.isBound()) {
+            return super.listProjected(projection, where, orderBy, firstResult, maxResults);
+        }
+        if (orderBy != null) {
+            return null;
+        }
+        return this.scatter(this.allShards, index -> super.listProjected(projection, where, null, 0, this.window(firstResult, maxResults)))
+                   .stream()
+                   .flatMap(List::stream)
+                   .skip(firstResult)
+                   .limit(maxResults)
+                   .collect(toList());
+    }
+
+    /**
+     * {@inheritDoc}
+     * Returns always null on sharded entities, so the entities are listed with listAll.
+     */
+    @Override
+    public <T> List<T> listAllProjected(final Projection<T> projection,
+                                        final int firstResult,
+                                        final int maxResults,
+                                        final Map<String, List<String>> requestParameters) {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The groups of the shards with the same value are merged, their counts added, and ordered by value.
+     */
+    @Override
+    public List<IdGroup<PK>> autocompleteIdsByColumnLikeValue(final String column, final String value, final int maxResults, final Map<String, List<String>> requestParameters) {
+        if (this.isBound()) {
+            return super.autocompleteIdsByColumnLikeValue(column, value, maxResults, requestParameters);
+        }
+        // every shard returns all its groups, so the counts are complete
+        final Map<String, IdGroup<PK>> groups = new HashMap<>();
+        this.scatter(this.allShards, index -> super.autocompleteIdsByColumnLikeValue(column, value, Integer.MAX_VALUE, requestParameters))
+            .forEach(part -> part.forEach(group -> groups.merge(group.getValue(), group, (first, next) -> new IdGroup<>(first, first.getCount() + next.getCount()))));
+        return groups.values()
+                     .stream()
+                     .sorted(Comparator.comparing(IdGroup::getValue))
+                     .limit(maxResults)
+                     .collect(toList());
+    }
+
+    /**
+     * {@inheritDoc}
+     * Every shard aggregates all its groups, the rows of the same group are merged : counts and sums are added, min and max compared.
+     * The merged rows are ordered on the orderBy request parameters, by default on the group columns, nulls first.
+     */
+    @Override
+    public List<Map<String, Object>> aggregate(final List<String> groupBy,
+                                               final List<String> measures,
+                                               final int firstResult,
+                                               final int maxResults,
+                                               final Map<String, List<String>> requestParameters) {
+        if (this.isBound()) {
+            return super.aggregate(groupBy, measures, firstResult, maxResults, requestParameters);
+        }
+        final List<String> groupColumns = this.splitColumns(groupBy);
+        final List<Measure> aggregates = this.splitColumns(measures)
+                                             .stream()
+                                             .map(Measure::of)
+                                             .collect(toList());
+        final Map<List<Object>, Map<String, Object>> rows = new LinkedHashMap<>();
+        for (final List<Map<String, Object>> part : this.scatter(this.allShards, index -> super.aggregate(groupBy, measures, 0, Integer.MAX_VALUE, requestParameters))) {
+            for (final Map<String, Object> row : part) {
+                final List<Object> group = groupColumns.stream()
+                                                       .map(row::get)
+                                                       .collect(toList());
+                final Map<String, Object> merged = rows.putIfAbsent(group, row);
+                if (merged != null) {
+                    aggregates.forEach(measure -> merged.put(measure.getLabel(), combine(measure.getFunction(), merged.get(measure.getLabel()), row.get(measure.getLabel()))));
+                }
+            }
+        }
+        LinkedHashMap<String, Boolean> orderBy = this.orderByQueryParams(requestParameters);
+        if (orderBy.isEmpty()) {
+            orderBy = new LinkedHashMap<>();
+            for (final String column : groupColumns) {
+                orderBy.put(column, Boolean.TRUE);
+            }
+        }
+        Comparator<Map<String, Object>> order = (first, second) -> 0;
+        for (final Map.Entry<String, Boolean> entry : orderBy.entrySet()) {
+            Comparator<Map<String, Object>> column = Comparator.comparing(row -> (Comparable<Object>) row.get(entry.getKey()), Comparator.nullsFirst(Comparator.naturalOrder()));
+            if (!entry.getValue()) {
+                column = column.reversed();
+            }
+            order = order.thenComparing(column);
+        }
+        return rows.values()
+                   .stream()
+                   .sorted(order)
+                   .skip(firstResult)
+                   .limit(maxResults)
+                   .collect(toList());
+    }
+
+    /**
+     * {@inheritDoc}
+     * The shards are counted one after the other, each with its columns in parallel, and the counts of the same value are added.
+     */
+    @Override
+    public Map<String, Map<Object, Long>> facets(final List<String> fields,
+                                                 final int maxValues,
+                                                 final Map<String, List<String>> requestParameters) {
+        if (this.isBound()) {
+            return super.facets(fields, maxValues, requestParameters);
+        }
+        final Map<String, Map<Object, Long>> counts = new LinkedHashMap<>();
+        // not scattered, the columns of a shard already run on the parallel reads executor
+        for (final AbstractDataAccess<ENTITY, PK> shard : this.shards) {
+            this.onShard(shard.em(), () -> super.facets(fields, Integer.MAX_VALUE, requestParameters))
+                .forEach((column, values) -> {
+                    final Map<Object, Long> columnCounts = counts.computeIfAbsent(column, key -> new HashMap<>());
+                    values.forEach((facet, count) -> columnCounts.merge(facet, count, Long::sum));
+                });
+        }
+        final Map<String, Map<Object, Long>> facets = new LinkedHashMap<>();
+        counts.forEach((column, values) -> facets.put(column, values.entrySet()
+                                                                    .stream()
+                                                                    .sorted(Map.Entry.<Object, Long>comparingByValue()
+                                                                                     .reversed()
+                                                                                     .thenComparing(entry -> (Comparable<Object>) entry.getKey(), Comparator.naturalOrder()))
+                                                                    .limit(maxValues)
+                                                                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (first, second) -> first, LinkedHashMap::new))));
+        return facets;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Every shard streams from its own cursor, the rows are merge sorted on the orderBy request parameters,
+     * without an order they come shard after shard. The cursors of all the shards are open until the stream is closed.
+     */
+    @Override
+    public <R> Stream<R> streamAll(final Map<String, List<String>> requestParameters,
+                                   final int fetchSize,
+                                   final Function<? super ENTITY, ? extends R> render) {
+        if (this.isBound()) {
+            return super.streamAll(requestParameters, fetchSize, render);
+        }
+        final Comparator<ENTITY> order = this.namedQueries.contains(this.listAllNamedQuery) ? null : this.comparator(this.orderByQueryParams(requestParameters));
+        // the entity is kept next to its rendering for the merge, it is rendered while the persistence context of its shard is open
+        return this.merge(index -> this.shards.get(index)
+                                          .<Map.Entry<ENTITY, R>>streamAll(requestParameters, fetchSize, entity -> new AbstractMap.SimpleImmutableEntry<>(entity, render.apply(entity))), order);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Every shard is scanned in partitions, an ordered scan merge sorts the shards on the Primary Key,
+     * otherwise they come shard after shard.
+     */
+    @Override
+    public <R> Stream<R> listAllPartitioned(final int partitions,
+                                            final int parallelism,
+                                            final Executor executor,
+                                            final boolean ordered,
+                                            final Map<String, List<String>> requestParameters,
+                                            final Function<? super ENTITY, ? extends R> render) {
+        if (this.isBound()) {
+            return super.listAllPartitioned(partitions, parallelism, executor, ordered, requestParameters, render);
+        }
+        final Comparator<PK> order = ordered ? Comparator.comparing(id -> (Comparable<Object>) id) : null;
+        return this.merge(index -> this.onShard(this.shards.get(index)
+                                                           .em(), () -> super.<Map.Entry<PK, R>>listAllPartitioned(partitions, parallelism, executor, ordered, requestParameters, entity -> new AbstractMap.SimpleImmutableEntry<>(entity.getId(), render.apply(entity)))), order);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(final ENTITY entity) {
+        if (this.isBound()) {
+            super.remove(entity);
+            return;
+        }
+        this.routed(this.assertNotNull(entity)
+                        .getId(), () -> {
+            super.remove(entity);
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeById(final PK id) {
+        if (this.isBound()) {
+            super.removeById(id);
+            return;
+        }
+        this.routed(id, () -> {
+            super.removeById(id);
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only the shards of the given ids are concerned, each for its ids.
+     */
+    @Override
+    public void removeByIds(final Collection<PK> ids) {
+        if (this.isBound()) {
+            super.removeByIds(ids);
+            return;
+        }
+        this.groupByShard(ids)
+            .forEach((index, shardIds) -> this.onShard(this.shards.get(index)
+                                                                  .em(), () -> {
+                super.removeByIds(shardIds);
+                return null;
+            }));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ENTITY merge(final ENTITY entity) {
+        if (this.isBound()) {
+            return super.merge(entity);
+        }
+        return this.routed(this.assertNotNull(entity)
+                               .getId(), () -> super.merge(entity));
+    }
+
+    /**
+     * {@inheritDoc}
+     * The entities are written in the shards of their ids, with the data access of the shard.
+     */
+    @Override
+    public int upsertAll(final Collection<ENTITY> sources) {
+        final Map<Integer, List<ENTITY>> sourcesByShard = new TreeMap<>();
+        sources.forEach(source -> sourcesByShard.computeIfAbsent(this.shardOf(source.getId()), index -> new ArrayList<>())
+                                                .add(source));
+        int written = 0;
+        for (final Map.Entry<Integer, List<ENTITY>> entry : sourcesByShard.entrySet()) {
+            written += this.shards.get(entry.getKey())
+                                  .upsertAll(entry.getValue());
+        }
+        return written;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Upsert is supported if it is on the shards.
+     */
+    @Override
+    public boolean isUpsertSupported() {
+        return this.shards.get(0)
+                          .isUpsertSupported();
+    }
+
+    /**
+     * {@inheritDoc}
+     * The id of the entity must be assigned, as it gives the shard.
+     */
+    @Override
+    public ENTITY persist(final ENTITY newEntity) {
+        if (this.isBound()) {
+            return super.persist(newEntity);
+        }
+        return this.routed(this.assertNotNull(newEntity)
+                               .getId(), () -> super.persist(newEntity));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Not supported on sharded entities, the ids of the change logs of the shards do not give one order of the changes.
+     * The write is rejected and its transaction rolled back.
+     */
+    @Override
+    public void logChanges(final ChangeLogEntry.Operation operation,
+                           final Collection<?> ids) {
+        throw this.unsupported("logChanges");
+    }
+
+    /**
+     * {@inheritDoc}
+     * Not supported on sharded entities.
+     */
+    @Override
+    public ChangeLogPage listChanges(final long since,
+                                     final long settledBefore,
+                                     final int maxResults) {
+        throw this.unsupported("listChanges");
+    }
+
+    /**
+     * <pre>
+     * Gives the index of the shard holding the entity with the given Primary Key.
+     * </pre>
+     *
+     * @param id the primary key, must be not null
+     * @return the index of the shard
+     * @throws UnexpectedException if the shard function returns no valid index
+     */
+    public int shardOf(final PK id) {
+        final int index = this.shardFunction.applyAsInt(this.assertNotNull(id));
+        if (index < 0 || index >= this.shards.size()) {
+            throw new UnexpectedException(this.name + ": Shard function returned " + index + " for PK=" + id + ", " + this.shards.size() + " shards are available.");
+        }
+        return index;
+    }
+
+    /**
+     * <pre>
+     * Runs the given call on the shard of the given Primary Key, in the transaction of the shard.
+     * </pre>
+     *
+     * @param <R>  the type of the result
+     * @param id   the primary key
+     * @param call the call
+     * @return the result of the call
+     */
+    protected <R> R routed(final PK id,
+                           final Supplier<R> call) {
+        return this.onShard(this.shards.get(this.shardOf(id))
+                                       .em(), call);
+    }
+
+    /**
+     * <pre>
+     * Runs the given read on every given shard and returns the results in the order of the shards.
+     * Outside a transaction the shards are read in parallel, each with a new Entity Manager, within the running Deadline.
+     * Within a transaction they are read one after the other with their own Entity Manager.
+     * </pre>
+     *
+     * @param <R>     the type of the result
+     * @param indexes the indexes of the shards
+     * @param read    the read, called with the index of the shard while the shard is bound
+     * @return the results, one per shard
+     */
+    protected <R> List<R> scatter(final Collection<Integer> indexes,
+                                  final IntFunction<R> read) {
+        if (indexes.size() <= 1 || this.isInTransaction()) {
+            return indexes.stream()
+                          .map(index -> this.onShard(this.shards.get(index)
+                                                                .em(), () -> read.apply(index)))
+                          .collect(toList());
+        }
+        final long deadline = Deadline.isRunning() ? System.currentTimeMillis() + Deadline.remainingMillis() : 0;
+        final List<CompletableFuture<R>> results = new ArrayList<>(indexes.size());
+        for (final Integer index : indexes) {
+            final EntityManagerFactory factory = this.shards.get(index)
+                                                            .em()
+                                                            .getEntityManagerFactory();
+            results.add(CompletableFuture.supplyAsync(() -> this.readIsolated(factory, deadline, isolatedEm -> this.onShard(isolatedEm, () -> read.apply(index))), this.getParallelReads()));
+        }
+        try {
+            return results.stream()
+                          .map(CompletableFuture::join)
+                          .collect(toList());
+        } catch (final CompletionException exception) {
+            results.forEach(result -> result.cancel(true));
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * <pre>
+     * Gathers the rows read from the shards, merge sorted with the given order if any, and applies the global window.
+     * </pre>
+     *
+     * @param parts       the rows of every shard, each sorted with the given order
+     * @param order       the order, null to keep the rows shard after shard
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the rows
+     */
+    protected List<ENTITY> gather(final List<List<ENTITY>> parts,
+                                  final Comparator<ENTITY> order,
+                                  final int firstResult,
+                                  final int maxResults) {
+        Stream<ENTITY> rows = parts.stream()
+                                   .flatMap(List::stream);
+        if (order != null) {
+            // the stable merge sort finds the sorted runs of the shards and merges them
+            rows = rows.sorted(order);
+        }
+        return rows.skip(firstResult)
+                   .limit(maxResults)
+                   .collect(toList());
+    }
+
+    /**
+     * <pre>
+     * Merges the streams of all the shards, merge sorted on the keys with the given order if any, otherwise shard after shard.
+     * Closing the merged stream closes the streams of all the shards.
+     * </pre>
+     *
+     * @param <K>    the type of the key the rows are ordered on
+     * @param <R>    the type of the rows
+     * @param stream opens the stream of a shard, called with the index of the shard, each stream sorted with the given order
+     * @param order  the order, null to keep the rows shard after shard
+     * @return the merged rows
+     */
+    protected <K, R> Stream<R> merge(final IntFunction<Stream<Map.Entry<K, R>>> stream,
+                                     final Comparator<? super K> order) {
+        final List<Stream<Map.Entry<K, R>>> parts = new ArrayList<>(this.shards.size());
+        try {
+            for (final Integer index : this.allShards) {
+                parts.add(stream.apply(index));
+            }
+        } catch (final RuntimeException exception) {
+            closeAll(parts);
+            throw exception;
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new MergedIterator<>(parts, order), Spliterator.ORDERED), false)
+                            .onClose(() -> closeAll(parts));
+    }
+
+    private static void closeAll(final List<? extends Stream<?>> parts) {
+        RuntimeException failure = null;
+        for (final Stream<?> part : parts) {
+            try {
+                part.close();
+            } catch (final RuntimeException exception) {
+                if (failure == null) {
+                    failure = exception;
+                } else {
+                    failure.addSuppressed(exception);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static Object combine(final Measure.Function function,
+                                  final Object merged,
+                                  final Object value) {
+        if (merged == null) {
+            return value;
+        }
+        if (value == null) {
+            return merged;
+        }
+        switch (function) {
+            case MIN:
+                return ((Comparable<Object>) merged).compareTo(value) <= 0 ? merged : value;
+            case MAX:
+                return ((Comparable<Object>) merged).compareTo(value) >= 0 ? merged : value;
+            default:
+                return add((Number) merged, (Number) value);
+        }
+    }
+
+    private static Number add(final Number merged,
+                              final Number value) {
+        if (merged instanceof BigDecimal || value instanceof BigDecimal) {
+            return new BigDecimal(merged.toString()).add(new BigDecimal(value.toString()));
+        }
+        if (merged instanceof BigInteger || value instanceof BigInteger) {
+            return new BigInteger(merged.toString()).add(new BigInteger(value.toString()));
+        }
+        if (merged instanceof Double || merged instanceof Float || value instanceof Double || value instanceof Float) {
+            return merged.doubleValue() + value.doubleValue();
+        }
+        return merged.longValue() + value.longValue();
+    }
+
+    /**
+     * <pre>
+     * Builds the comparator of the entities from the given columns, mapped to true for ascending and false for descending.
+     * </pre>
+     *
+     * @param orderBy the columns
+     * @return the comparator, null if no column is given
+     */
+    protected Comparator<ENTITY> comparator(final LinkedHashMap<String, Boolean> orderBy) {
+        Comparator<ENTITY> comparator = null;
+        for (final Map.Entry<String, Boolean> entry : orderBy.entrySet()) {
+            final Function<Object, Object> value = this.attributeValue(entry.getKey());
+            Comparator<ENTITY> column = Comparator.comparing(entity -> (Comparable<Object>) value.apply(entity), Comparator.nullsFirst(Comparator.naturalOrder()));
+            if (!entry.getValue()) {
+                column = column.reversed();
+            }
+            comparator = comparator == null ? column : comparator.thenComparing(column);
+        }
+        return comparator;
+    }
+
+    /**
+     * {@inheritDoc}
+     * This is the Entity Manager of the shard the current thread is working on, otherwise the one of the first shard.
+     */
+    @Override
+    protected EntityManager em() {
+        final EntityManager bound = this.shardEm.get();
+        if (bound != null) {
+            return bound;
+        }
+        return this.shards.get(0)
+                          .em();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Outside a shard, a transaction is active if it is active on any shard.
+     */
+    @Override
+    protected boolean isInTransaction() {
+        if (this.isBound()) {
+            return super.isInTransaction();
+        }
+        return this.shards.stream()
+                          .anyMatch(AbstractDataAccess::isInTransaction);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The action is registered with the transaction manager of the first shard.
+     */
+    @Override
+    public void afterTransaction(final Runnable action) {
+        this.shards.get(0)
+                   .afterTransaction(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The shards run on the same database product, the collation is the one of the first shard.
+     */
+    @Override
+    protected Collation detectCollation() {
+        return this.shards.get(0)
+                          .getCollation();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object unproxy(final Object value) {
+        return this.shards.get(0)
+                          .unproxy(value);
+    }
+
+    /**
+     * Begins a transaction on every shard. To be used only in non server mode!
+     */
+    @Override
+    public void beginTransaction() {
+        this.shards.forEach(AbstractDataAccess::beginTransaction);
+    }
+
+    /**
+     * Commits the transaction of every shard. To be used only in non server mode!
+     */
+    @Override
+    public void commitTransaction() {
+        this.shards.forEach(AbstractDataAccess::commitTransaction);
+    }
+
+    /**
+     * Gets the data access of every shard.
+     *
+     * @return the shards
+     */
+    public List<AbstractDataAccess<ENTITY, PK>> getShards() {
+        return this.shards;
+    }
+
+    private <R> R onShard(final EntityManager entityManager,
+                          final Supplier<R> call) {
+        final EntityManager previous = this.shardEm.get();
+        this.shardEm.set(entityManager);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                this.shardEm.remove();
+            } else {
+                this.shardEm.set(previous);
+            }
+        }
+    }
+
+    private boolean isBound() {
+        return this.shardEm.get() != null;
+    }
+
+    private <K extends PK> Map<Integer, List<PK>> groupByShard(final Collection<K> ids) {
+        final Map<Integer, List<PK>> idsByShard = new TreeMap<>();
+        ids.forEach(id -> idsByShard.computeIfAbsent(this.shardOf(id), index -> new ArrayList<>())
+                                    .add(id));
+        return idsByShard;
+    }
+
+    private int window(final int firstResult, final int maxResults) {
+        return (int) Math.min((long) firstResult + maxResults, Integer.MAX_VALUE);
+    }
+
+    private ENTITY unique(final List<ENTITY> found, final boolean expected) {
+        final List<ENTITY> entities = found.stream()
+                                           .filter(Objects::nonNull)
+                                           .collect(toList());
+        if (entities.size() > 1) {
+            throw new ExpectedException(this.name + ": Filtered Entity is not unique.");
+        }
+        return this.assertNotNull(entities.isEmpty() ? null : entities.get(0), expected);
+    }
+
+    private UnexpectedException unsupported(final String method) {
+        return new UnexpectedException(this.name + ": " + method + " is not supported on sharded entities.");
+    }
+
+    private Function<Object, Object> attributeValue(final String name) {
+        final Metamodel metamodel = this.em()
+                                        .getMetamodel();
+        final FilterAttribute filterAttribute = this.filterAttributes()
+                                                    .get(name);
+        final String[] path = filterAttribute != null ? filterAttribute.getPath() : name.split("\\.");
+        final Member[] members = new Member[path.length];
+        ManagedType<?> managedType = metamodel.managedType(this.type);
+        for (int index = 0; index < path.length; index++) {
+            final Attribute<?, ?> attribute = managedType.getAttribute(path[index]);
+            members[index] = attribute.getJavaMember();
+            ((AccessibleObject) members[index]).trySetAccessible();
+            if (index < path.length - 1) {
+                managedType = metamodel.managedType(attribute.getJavaType());
+            }
+        }
+        return entity -> {
+            Object value = entity;
+            for (final Member member : members) {
+                if (value == null) {
+                    return null;
+                }
+                value = read(member, this.unproxy(value));
+            }
+            return value;
+        };
+    }
+
+    private static Object read(final Member member,
+                               final Object source) {
+        try {
+            if (member instanceof Field) {
+                return ((Field) member).get(source);
+            }
+            return ((Method) member).invoke(source);
+        } catch (final ReflectiveOperationException exception) {
+            throw new UnexpectedException(exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * <pre>
+     * Iterates over the rows of the shards, taking the lowest head of all the shards with an order, otherwise shard after shard.
+     * The first rows of the shards are read when the first row is asked for.
+     * </pre>
+     */
+    private static class MergedIterator<K, R> implements Iterator<R> {
+
+        private final List<Iterator<Map.Entry<K, R>>> parts;
+
+        private final PriorityQueue<Head<K, R>> heads;
+
+        private int current = -1;
+
+        private MergedIterator(final List<Stream<Map.Entry<K, R>>> parts,
+                               final Comparator<? super K> order) {
+            this.parts = parts.stream()
+                              .map(Stream::iterator)
+                              .collect(toList());
+            this.heads = order == null ? null : new PriorityQueue<>(Comparator.<Head<K, R>, K>comparing(head -> head.row.getKey(), order)
+                                                                              .thenComparingInt(head -> head.index));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.heads == null) {
+                this.current = Math.max(this.current, 0);
+                while (this.current < this.parts.size() && !this.parts.get(this.current)
+                                                                      .hasNext()) {
+                    this.current++;
+                }
+                return this.current < this.parts.size();
+            }
+            if (this.current < 0) {
+                this.current = 0;
+                for (int index = 0; index < this.parts.size(); index++) {
+                    this.advance(index);
+                }
+            }
+            return !this.heads.isEmpty();
+        }
+
+        @Override
+        public R next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (this.heads == null) {
+                return this.parts.get(this.current)
+                                 .next()
+                                 .getValue();
+            }
+            final Head<K, R> head = this.heads.poll();
+            this.advance(head.index);
+            return head.row.getValue();
+        }
+
+        private void advance(final int index) {
+            final Iterator<Map.Entry<K, R>> part = this.parts.get(index);
+            if (part.hasNext()) {
+                this.heads.add(new Head<>(index, part.next()));
+            }
+        }
+    }
+
+    private static class Head<K, R> {
+
+        private final int index;
+
+        private final Map.Entry<K, R> row;
+
+        private Head(final int index,
+                     final Map.Entry<K, R> row) {
+            this.index = index;
+            this.row = row;
+        }
+    }
+
+    /**
+     * <pre>
+     * The default shard function, the hash of the Primary Key modulo the number of shards.
+     * </pre>
+     */
+    private static class HashShardFunction implements ToIntFunction<Object> {
+
+        private final int shards;
+
+        private HashShardFunction(final int shards) {
+            this.shards = shards;
+        }
+
+        @Override
+        public int applyAsInt(final Object id) {
+            return Math.floorMod(id.hashCode(), this.shards);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+
+import java.lang.annotation.*;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * <pre>
+ * Selects the text search strategy of a String field, used by the search endpoints.
+ * Fields that are not annotated are searched with {@link Like}, a plain substring search.
+ *
+ * A leading wildcard like forces a sequential scan of the table, so the fields searched on large tables
+ * should use one of the index friendly strategies :
+ *      {@link Trigram}  : every term is matched as a case insensitive substring,
+ *                         served on PostgreSQL by a pg_trgm index
+ *                         create index ... on table using gin (lower(column) gin_trgm_ops)
+ *      {@link FullText} : the terms are matched as words with the full text search of the database,
+ *                         see TextSearchFunctions in the Quarkus and Spring modules for the supported dialects and the needed indexes
+ *
+ * Example :
+ *      &#x40;TextSearch(TextSearch.FullText.class)
+ *      private String description;
+ *
+ * A custom strategy is a {@link Strategy} implementation with a public no args constructor.
+ *
+ * With {@link #ignoreCase()} the like filters and the autocomplete of the field compare lower(column),
+ * so they can be served by a functional index :
+ *      create index ... on table (lower(column))
+ * </pre>
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TextSearch {
+
+    /**
+     * The strategy used to search the field.
+     *
+     * @return the strategy class
+     */
+    Class<? extends Strategy> value() default Like.class;
+
+    /**
+     * <pre>
+     * If the like filters and the autocomplete of the field are case insensitive.
+     * The column is compared as lower(column) with the lower case pattern.
+     * Default is false.
+     * </pre>
+     *
+     * @return the boolean
+     */
+    boolean ignoreCase() default false;
+
+    /**
+     * <pre>
+     * Builds the predicate matching a column against the search terms given in the request.
+     * </pre>
+     */
+    interface Strategy {
+        /**
+         * Builds the search predicate.
+         *
+         * @param cb     the criteria builder
+         * @param column the String column to search
+         * @param terms  the search terms, as given in the request
+         * @return the predicate expression
+         */
+        Expression<Boolean> search(CriteriaBuilder cb, Expression<String> column, String terms);
+
+        /**
+         * Escapes the like wildcards in a search term and wraps it in %, to be used with the \ escape character.
+         *
+         * @param term the term
+         * @return the like pattern
+         */
+        default String contains(final String term) {
+            return "%" + term.replace("\\", "\\\\")
+                             .replace("%", "\\%")
+                             .replace("_", "\\_") + "%";
+        }
+    }
+
+    /**
+     * <pre>
+     * The whole terms string is searched as a substring, case sensitive.
+     * Can not use an index.
+     * </pre>
+     */
+    class Like implements Strategy {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Expression<Boolean> search(final CriteriaBuilder cb, final Expression<String> column, final String terms) {
+            return cb.like(column, this.contains(terms), '\\');
+        }
+    }
+
+    /**
+     * <pre>
+     * Every term separated by whitespace is searched as a case insensitive substring, all terms must match.
+     * PostgreSQL serves the search from a trigram index on lower(column), for the terms of at least 3 characters.
+     * </pre>
+     */
+    class Trigram implements Strategy {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Expression<Boolean> search(final CriteriaBuilder cb, final Expression<String> column, final String terms) {
+            final Expression<String> lower = cb.lower(column);
+            return Arrays.stream(terms.trim()
+                                      .split("\\s+"))
+                         .filter(term -> !term.isEmpty())
+                         .map(term -> (Expression<Boolean>) cb.like(lower, this.contains(term.toLowerCase(Locale.ROOT)), '\\'))
+                         .reduce(cb::and)
+                         .orElseGet(cb::conjunction);
+        }
+    }
+
+    /**
+     * <pre>
+     * The terms are searched as words with the full text search of the database, all terms must match.
+     * Rendered through the {@link #MATCH} function, registered in Hibernate by the TextSearchFunctions of the Quarkus and Spring modules.
+     * </pre>
+     */
+    class FullText implements Strategy {
+        /**
+         * The name of the full text match function.
+         */
+        public static final String MATCH = "rest_contract_text_match";
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Expression<Boolean> search(final CriteriaBuilder cb, final Expression<String> column, final String terms) {
+            return cb.isTrue(cb.function(MATCH, Boolean.class, column, cb.literal(terms.trim())));
+        }
+    }
+}
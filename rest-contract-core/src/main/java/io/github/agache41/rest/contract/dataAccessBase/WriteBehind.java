@@ -0,0 +1,290 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+import io.github.agache41.rest.contract.update.reflector.ClassReflector;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * <pre>
+ * Buffers updates in memory and writes them later in batches, for resources receiving many updates per second on the same few ids.
+ * The pending updates are kept by Primary Key : an update of an id already pending is merged in the pending one with the ClassReflector,
+ * following the @ {@link io.github.agache41.rest.contract.update.Update} rules, so the last value sent for every field wins.
+ * The buffer is flushed in batches of batchSize updates, each written by the writer in its own transaction,
+ * when it holds batchSize ids and every flushInterval milliseconds, on a shared daemon thread.
+ * When the buffer holds capacity ids, the caller adding a new id flushes it first,
+ * so the writers slow down to the pace of the database instead of losing updates.
+ * A batch that fails is written again one update after the other, the updates failing alone are dropped, logged and counted.
+ * On close the timer is stopped and the buffer is flushed synchronously, the later updates are written directly.
+ * Example:
+ *      new WriteBehind&#x3C;&#x3E;(Modell.class, dataBinder, 10000, 500, 1000, batch -&#x3E; dataBinder.updateByIds(batch, true));
+ * </pre>
+ *
+ * @param <T>  the type parameter
+ * @param <PK> the type parameter
+ */
+public class WriteBehind<T extends PrimaryKey<PK>, PK> implements AutoCloseable {
+
+    /**
+     * The scheduler running the flushes of all the buffers, on one daemon thread.
+     */
+    protected static final ScheduledExecutorService flushes = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "rest-contract-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Logger log = Logger.getLogger(WriteBehind.class);
+
+    private final ClassReflector<T, T> reflector;
+    private final Object context;
+    private final int capacity;
+    private final int batchSize;
+    private final Consumer<List<T>> writer;
+    private final LinkedHashMap<PK, T> pending = new LinkedHashMap<>();
+    private final ReentrantLock flushing = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledFuture<?> timer;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Instantiates a new Write behind buffer and starts its timer.
+     *
+     * @param type          the type of the updates
+     * @param context       the context of the merges, e.g. the data binder
+     * @param capacity      the max number of ids pending
+     * @param batchSize     the max number of updates written in one transaction
+     * @param flushInterval the time between two flushes, in milliseconds
+     * @param writer        writes a batch of updates in its own transaction
+     */
+    public WriteBehind(final Class<T> type,
+                       final Object context,
+                       final int capacity,
+                       final int batchSize,
+                       final long flushInterval,
+                       final Consumer<List<T>> writer) {
+        if (batchSize < 1 || capacity < batchSize) {
+            throw new IllegalArgumentException(" Bad write behind capacity " + capacity + " and batch size " + batchSize + " please specify 1 <= batch size <= capacity !");
+        }
+        if (flushInterval < 1) {
+            throw new IllegalArgumentException(" Bad write behind flush interval " + flushInterval + " please specify at least 1 ms !");
+        }
+        this.reflector = ClassReflector.ofClass(type);
+        this.context = context;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.writer = writer;
+        this.timer = flushes.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <pre>
+     * Adds an update to the buffer, merging it in the pending update of the same id if any.
+     * The update is owned by the buffer afterwards and must not be modified by the caller.
+     * </pre>
+     *
+     * @param update the update, carrying the id
+     * @throws IllegalArgumentException if the update has no id
+     */
+    public void submit(final T update) {
+        if (update.getId() == null) {
+            throw new IllegalArgumentException(" Bad update, the id is missing !");
+        }
+        this.submitted.increment();
+        if (this.closed) {
+            this.write(List.of(update));
+            return;
+        }
+        int size;
+        while ((size = this.offer(update)) < 0) {
+            this.flush();
+        }
+        if (size >= this.batchSize && this.flushScheduled.compareAndSet(false, true)) {
+            flushes.execute(() -> {
+                this.flushScheduled.set(false);
+                this.flushQuietly();
+            });
+        }
+    }
+
+    /**
+     * <pre>
+     * Writes all the pending updates, in batches, on the calling thread.
+     * </pre>
+     *
+     * @return the number of updates written
+     */
+    public int flush() {
+        this.flushing.lock();
+        try {
+            int count = 0;
+            List<T> batch;
+            while (!(batch = this.drain()).isEmpty()) {
+                count += this.write(batch);
+            }
+            return count;
+        } finally {
+            this.flushing.unlock();
+        }
+    }
+
+    /**
+     * <pre>
+     * Stops the timer and flushes the buffer, meant for the shutdown.
+     * The updates submitted afterwards are written directly.
+     * </pre>
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.timer.cancel(false);
+        this.flush();
+    }
+
+    /**
+     * Gets the number of updates submitted.
+     *
+     * @return the number of updates submitted
+     */
+    public long getSubmitted() {
+        return this.submitted.sum();
+    }
+
+    /**
+     * Gets the number of updates merged in an update already pending.
+     *
+     * @return the number of updates coalesced
+     */
+    public long getCoalesced() {
+        return this.coalesced.sum();
+    }
+
+    /**
+     * Gets the number of updates written to the database, after coalescing.
+     *
+     * @return the number of updates written
+     */
+    public long getWritten() {
+        return this.written.sum();
+    }
+
+    /**
+     * Gets the number of updates dropped because they could not be written.
+     *
+     * @return the number of updates failed
+     */
+    public long getFailed() {
+        return this.failed.sum();
+    }
+
+    /**
+     * Gets the number of transactions run by the flushes.
+     *
+     * @return the number of batches
+     */
+    public long getBatches() {
+        return this.batches.sum();
+    }
+
+    /**
+     * Gets the number of ids pending.
+     *
+     * @return the number of updates pending
+     */
+    public int getPending() {
+        synchronized (this.pending) {
+            return this.pending.size();
+        }
+    }
+
+    private int offer(final T update) {
+        synchronized (this.pending) {
+            final T pendingUpdate = this.pending.get(update.getId());
+            if (pendingUpdate != null) {
+                this.reflector.update(update, pendingUpdate, this.context);
+                this.coalesced.increment();
+            } else if (this.pending.size() >= this.capacity) {
+                return -1;
+            } else {
+                this.pending.put(update.getId(), update);
+            }
+            return this.pending.size();
+        }
+    }
+
+    private List<T> drain() {
+        synchronized (this.pending) {
+            final List<T> batch = new ArrayList<>(Math.min(this.batchSize, this.pending.size()));
+            final Iterator<T> iterator = this.pending.values()
+                                                     .iterator();
+            while (iterator.hasNext() && batch.size() < this.batchSize) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            return batch;
+        }
+    }
+
+    private int write(final List<T> batch) {
+        this.batches.increment();
+        try {
+            this.writer.accept(batch);
+            this.written.add(batch.size());
+            return batch.size();
+        } catch (final RuntimeException exception) {
+            if (batch.size() == 1) {
+                this.failed.increment();
+                log.warnf("Write behind update for PK=%s dropped: %s", batch.get(0)
+                                                                          .getId(), exception.getMessage());
+                return 0;
+            }
+            // the failing update rolled back the whole batch, so the updates are written again one after the other
+            int count = 0;
+            for (final T update : batch) {
+                count += this.write(List.of(update));
+            }
+            return count;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            this.flush();
+        } catch (final RuntimeException exception) {
+            log.warnf("Write behind flush failed: %s", exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.dataAccessBase;
+
+import io.github.agache41.rest.contract.update.SelfTransferObject;
+import io.github.agache41.rest.contract.update.TransferObject;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * <pre>
+ * Notifies the listeners of an entity type about the ids written through any data binder of that entity,
+ * e.g. the caches holding rendered transfer objects.
+ * The binders notify once when the write is done and again when its transaction completes.
+ * </pre>
+ */
+public final class WriteListeners {
+
+    private static final Map<Class<?>, List<Consumer<Collection<?>>>> listeners = new ConcurrentHashMap<>();
+
+    private WriteListeners() {
+    }
+
+    /**
+     * <pre>
+     * Registers a listener for the writes of an entity type.
+     * </pre>
+     *
+     * @param entityClass the entity class, Object.class for the writes of all entity types
+     * @param listener    receives the written ids
+     */
+    public static void register(final Class<?> entityClass,
+                                final Consumer<Collection<?>> listener) {
+        listeners.computeIfAbsent(entityClass, type -> new CopyOnWriteArrayList<>())
+                 .add(listener);
+    }
+
+    /**
+     * <pre>
+     * Notifies the listeners of the entity type and the listeners of all entity types.
+     * </pre>
+     *
+     * @param entityClass the entity class
+     * @param ids         the written ids
+     */
+    public static void written(final Class<?> entityClass,
+                               final Collection<?> ids) {
+        notify(listeners.get(entityClass), ids);
+        notify(listeners.get(Object.class), ids);
+    }
+
+    private static void notify(final List<Consumer<Collection<?>>> entityListeners,
+                               final Collection<?> ids) {
+        if (entityListeners != null) {
+            for (final Consumer<Collection<?>> listener : entityListeners) {
+                listener.accept(ids);
+            }
+        }
+    }
+
+    /**
+     * <pre>
+     * Resolves the entity class of a transfer object class from its TransferObject or SelfTransferObject type arguments.
+     * </pre>
+     *
+     * @param transferObjectClass the transfer object class
+     * @return the entity class, or Object.class if it can not be resolved
+     */
+    public static Class<?> entityClassOf(final Class<?> transferObjectClass) {
+        for (Class<?> type = transferObjectClass; type != null && !Object.class.equals(type); type = type.getSuperclass()) {
+            for (final Type genericInterface : type.getGenericInterfaces()) {
+                if (!(genericInterface instanceof ParameterizedType)) {
+                    continue;
+                }
+                final ParameterizedType parameterizedType = (ParameterizedType) genericInterface;
+                final Type[] arguments = parameterizedType.getActualTypeArguments();
+                if (SelfTransferObject.class.equals(parameterizedType.getRawType())) {
+                    return transferObjectClass;
+                }
+                if (TransferObject.class.equals(parameterizedType.getRawType()) && arguments[1] instanceof Class) {
+                    return (Class<?>) arguments[1];
+                }
+            }
+        }
+        return Object.class;
+    }
+}
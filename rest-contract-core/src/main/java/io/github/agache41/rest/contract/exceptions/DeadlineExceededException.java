@@ -0,0 +1,37 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.exceptions;
+
+/**
+ * <pre>
+ * Thrown when the deadline of the current request expired before a query could be executed.
+ * The web layers translate it in a 503 Service Unavailable response.
+ * </pre>
+ */
+public class DeadlineExceededException extends ExpectedException {
+
+    /**
+     * Instantiates a new Deadline exceeded exception.
+     *
+     * @param message the message
+     */
+    public DeadlineExceededException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,53 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.exceptions;
+
+/**
+ * <pre>
+ * Thrown when a conditional write is requested with a tag that does not match the current state of the entity.
+ * The web layers translate it in a 412 Precondition Failed response.
+ * </pre>
+ */
+public class PreconditionFailedException extends ExpectedException {
+
+    /**
+     * The current tag of the entity.
+     */
+    private final String eTag;
+
+    /**
+     * Instantiates a new Precondition failed exception.
+     *
+     * @param message the message
+     * @param eTag    the current tag of the entity
+     */
+    public PreconditionFailedException(final String message,
+                                       final String eTag) {
+        super(message);
+        this.eTag = eTag;
+    }
+
+    /**
+     * Gets the current tag of the entity.
+     *
+     * @return the tag
+     */
+    public String getETag() {
+        return this.eTag;
+    }
+}
@@ -0,0 +1,58 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.exceptions;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <pre>
+ * Thrown when an update carries a @Version value that does not match the current version of the entity.
+ * For list updates all the conflicting items are reported together, none of the items is updated.
+ * The web layers translate it in a 409 Conflict response.
+ * </pre>
+ */
+public class VersionConflictException extends ExpectedException {
+
+    /**
+     * The current versions of the conflicting entities, mapped by their primary keys.
+     */
+    private final Map<Object, Object> conflicts;
+
+    /**
+     * Instantiates a new Version conflict exception.
+     *
+     * @param message   the message
+     * @param conflicts the current versions of the conflicting entities, mapped by their primary keys
+     */
+    public VersionConflictException(final String message,
+                                    final Map<?, ?> conflicts) {
+        super(message);
+        this.conflicts = Collections.unmodifiableMap(new LinkedHashMap<>(conflicts));
+    }
+
+    /**
+     * Gets the current versions of the conflicting entities, mapped by their primary keys.
+     *
+     * @return the conflicts
+     */
+    public Map<Object, Object> getConflicts() {
+        return this.conflicts;
+    }
+}
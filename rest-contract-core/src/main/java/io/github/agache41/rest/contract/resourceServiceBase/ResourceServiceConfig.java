@@ -119,6 +119,93 @@ public interface ResourceServiceConfig {
         return autocompleteMaxResults;
     }
 
+    /**
+     * The number of rows fetched per round trip in the exports, also the number of entities kept in the persistence context.
+     * Default value is 1000.
+     *
+     * @return the export fetch size
+     */
+    default int getExportFetchSize() {
+        return 1000;
+    }
+
+    /**
+     * The number of entities committed together in the streamed imports.
+     * Default value is 500.
+     * Can be overwritten in the request using the query parameter chunkSize.
+     *
+     * @return the import chunk size
+     */
+    default int getImportChunkSize() {
+        return 500;
+    }
+
+    /**
+     * Gets import chunk size or configured value
+     *
+     * @param chunkSize the input
+     * @return the import chunk size
+     */
+    default int getImportChunkSize(final Integer chunkSize) {
+        if (chunkSize == null) {
+            return this.getImportChunkSize();
+        }
+        return chunkSize;
+    }
+
+    /**
+     * The time in milliseconds after which a change following a gap in the change log is listed by the changes since queries.
+     * It must exceed the duration of the write transactions, so that a change committed late is not skipped by the clients.
+     * Default value is 1000.
+     *
+     * @return the changes settle time
+     */
+    default long getChangesSettleTime() {
+        return 1000;
+    }
+
+    /**
+     * If the updates by id (PUT) are acknowledged with 202 Accepted and written later, in batches.
+     * The updates carrying an If-Match header are still written directly.
+     * Default value is false.
+     *
+     * @return the write behind
+     * @see io.github.agache41.rest.contract.dataAccessBase.WriteBehind
+     */
+    default boolean isWriteBehind() {
+        return false;
+    }
+
+    /**
+     * The max number of ids with an update pending in the write behind buffer.
+     * Default value is 10000.
+     *
+     * @return the write behind capacity
+     */
+    default int getWriteBehindCapacity() {
+        return 10000;
+    }
+
+    /**
+     * The max number of pending updates written in one transaction, also the size that triggers a flush.
+     * Default value is 500.
+     *
+     * @return the write behind batch size
+     */
+    default int getWriteBehindBatchSize() {
+        return 500;
+    }
+
+    /**
+     * The time in milliseconds between two flushes of the write behind buffer.
+     * Default value is 1000.
+     *
+     * @return the write behind flush interval
+     */
+    default long getWriteBehindFlushInterval() {
+        return 1000;
+    }
+
     /**
      * Gets verify.
      *
@@ -127,4 +214,54 @@ public interface ResourceServiceConfig {
     default boolean getVerify() {
         return false;
     }
+
+    /**
+     * The timeout in milliseconds for the requests reading by id or ids and reading all, 0 for none.
+     * Default value is 0.
+     * The client can shorten it with the X-Request-Timeout header.
+     *
+     * @return the read timeout
+     */
+    default long getReadTimeout() {
+        return 0;
+    }
+
+    /**
+     * The timeout in milliseconds for the filter and autocomplete requests, 0 for none.
+     * Defaults to the read timeout.
+     *
+     * @return the filter timeout
+     */
+    default long getFilterTimeout() {
+        return this.getReadTimeout();
+    }
+
+    /**
+     * The timeout in milliseconds for the inserts, updates and deletes, 0 for none.
+     * Default value is 0.
+     *
+     * @return the write timeout
+     */
+    default long getWriteTimeout() {
+        return 0;
+    }
+
+    /**
+     * Gets the configured timeout for the endpoint implemented by the given resource service method.
+     *
+     * @param methodName the name of the resource service method
+     * @param httpMethod the http method
+     * @return the timeout in milliseconds, 0 for none
+     */
+    default long getTimeout(final String methodName,
+                            final String httpMethod) {
+        final String name = methodName.toLowerCase();
+        if (name.contains("filter") || name.contains("autocomplete")) {
+            return this.getFilterTimeout();
+        }
+        if ("GET".equalsIgnoreCase(httpMethod) || name.startsWith("postby")) {
+            return this.getReadTimeout();
+        }
+        return this.getWriteTimeout();
+    }
 }
@@ -23,9 +23,18 @@ import io.github.agache41.rest.contract.update.Update;
 import io.github.agache41.rest.contract.utils.ReflectionUtils;
 import org.jboss.logging.Logger;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
@@ -56,6 +65,17 @@ public final class ClassReflector<T, S> {
      */
     private static final Map<Class<?>, Map<Class<?>, ClassReflector<?, ?>>> concurrentClassReflectorCache = new ConcurrentHashMap<>();
 
+    /**
+     * <pre>
+     * The fields serialized for the digest per class, STRING_VALUE for the classes serialized by their string representation.
+     * </pre>
+     */
+    private static final Map<Class<?>, List<Field>> serializedFields = new ConcurrentHashMap<>();
+
+    private static final List<Field> STRING_VALUE = Collections.unmodifiableList(new ArrayList<>());
+
+    private static final int DIGEST_LENGTH = 16;
+
     /**
      * <pre>
      * The main type of ClassReflector (the type of the transfer Object)
@@ -103,6 +123,13 @@ public final class ClassReflector<T, S> {
      * </pre>
      */
     private final FieldReflector[] valueReflectorsArray;
+
+    /**
+     * <pre>
+     * The reflector for the field annotated with @Version, if any.
+     * </pre>
+     */
+    private final FieldReflector<T, S, ?, ?> versionReflector;
     /**
      * <pre>
      * The description of this ClassReflector, saved to be reused by toString  Method.
@@ -167,6 +194,12 @@ public final class ClassReflector<T, S> {
                                                                                       .collect(Collectors.toList());
         this.valueReflectorsArray = valueReflectors.toArray(new FieldReflector[valueReflectors.size()]);
 
+        this.versionReflector = this.reflectors.values()
+                                               .stream()
+                                               .filter(FieldReflector::isVersion)
+                                               .findFirst()
+                                               .orElse(null);
+
         this.description = this.description();
 
         log.debugf("ClassReflector is parsing :\r\n %s \r\n", this.toString());
@@ -201,7 +234,7 @@ public final class ClassReflector<T, S> {
     public static <R, U> ClassReflector<R, U> ofClass(final Class<R> clazz,
                                                       final Class<U> associatedClass) {
         return (ClassReflector<R, U>) concurrentClassReflectorCache.computeIfAbsent(clazz, cls -> new ConcurrentHashMap<>())
-                                                                   .computeIfAbsent(associatedClass, cls -> new ClassReflector(cls, associatedClass));
+                                                                   .computeIfAbsent(associatedClass, cls -> new ClassReflector(clazz, associatedClass));
     }
 
     /**
@@ -315,6 +348,172 @@ public final class ClassReflector<T, S> {
         return transferObject;
     }
 
+    /**
+     * <pre>
+     * Computes a SHA-256 digest over all the fields annotated with the @ {@link Update} annotation, in their order,
+     * truncated to 128 bits.
+     * The values are fed to the digest in a canonical serialized form, every value prefixed with its kind and length.
+     * Nested transfer objects, collections and maps are serialized by content, sets and maps independent of their order,
+     * so the digest is stable between different instances and different JVMs holding the same values.
+     * The values of the java types are serialized by their string representation, other objects field by field.
+     * </pre>
+     *
+     * @param source the source
+     * @return the digest
+     */
+    public byte[] digest(final T source) {
+        final MessageDigest messageDigest = sha256();
+        try (final DataOutputStream output = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), messageDigest))) {
+            this.serialize(source, output);
+        } catch (final IOException e) {
+            throw new UnexpectedException(e);
+        }
+        return Arrays.copyOf(messageDigest.digest(), DIGEST_LENGTH);
+    }
+
+    /**
+     * <pre>
+     * Gets a SHA-256 message digest.
+     * </pre>
+     *
+     * @return the message digest
+     */
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new UnexpectedException(e);
+        }
+    }
+
+    private void serialize(final T source,
+                           final DataOutputStream output) throws IOException {
+        if (source == null) {
+            output.writeByte('N');
+            return;
+        }
+        output.writeByte('T');
+        output.writeInt(this.updateReflectorsArray.length);
+        for (final FieldReflector reflector : this.updateReflectorsArray) {
+            serializeValue(reflector.get(source), output);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void serializeValue(final Object value,
+                                       final DataOutputStream output) throws IOException {
+        if (value == null) {
+            output.writeByte('N');
+            return;
+        }
+        if (value instanceof List) {
+            output.writeByte('L');
+            output.writeInt(((List<?>) value).size());
+            for (final Object element : (List<?>) value) {
+                serializeValue(element, output);
+            }
+            return;
+        }
+        if (value instanceof Collection) {
+            // order independent, the iteration order of a set is not stable
+            output.writeByte('C');
+            writeSorted(((Collection<?>) value).stream()
+                                               .map(ClassReflector::digestOfValue)
+                                               .collect(Collectors.toList()), output);
+            return;
+        }
+        if (value instanceof Map) {
+            output.writeByte('M');
+            writeSorted(((Map<?, ?>) value).entrySet()
+                                           .stream()
+                                           .map(entry -> digestOfValue(Arrays.asList(entry.getKey(), entry.getValue())))
+                                           .collect(Collectors.toList()), output);
+            return;
+        }
+        if (value instanceof Enum) {
+            output.writeByte('E');
+            writeString(((Enum<?>) value).name(), output);
+            return;
+        }
+        if (value.getClass()
+                 .isArray()) {
+            final int length = Array.getLength(value);
+            output.writeByte('A');
+            output.writeInt(length);
+            for (int index = 0; index < length; index++) {
+                serializeValue(Array.get(value, index), output);
+            }
+            return;
+        }
+        if (value.getClass()
+                 .isAnnotationPresent(Update.class)) {
+            ((ClassReflector<Object, ?>) ClassReflector.ofObject(value)).serialize(value, output);
+            return;
+        }
+        final List<Field> fields = serializedFields.computeIfAbsent(value.getClass(), ClassReflector::serializedFields);
+        writeString(value.getClass()
+                         .getName(), output);
+        if (fields == STRING_VALUE) {
+            output.writeByte('S');
+            writeString(value.toString(), output);
+            return;
+        }
+        output.writeByte('O');
+        output.writeInt(fields.size());
+        for (final Field field : fields) {
+            try {
+                serializeValue(field.get(value), output);
+            } catch (final IllegalAccessException e) {
+                throw new UnexpectedException(e);
+            }
+        }
+    }
+
+    private static byte[] digestOfValue(final Object value) {
+        final MessageDigest messageDigest = sha256();
+        try (final DataOutputStream output = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), messageDigest))) {
+            serializeValue(value, output);
+        } catch (final IOException e) {
+            throw new UnexpectedException(e);
+        }
+        return messageDigest.digest();
+    }
+
+    private static void writeSorted(final List<byte[]> digests,
+                                    final DataOutputStream output) throws IOException {
+        digests.sort(Arrays::compare);
+        output.writeInt(digests.size());
+        for (final byte[] digest : digests) {
+            output.write(digest);
+        }
+    }
+
+    private static void writeString(final String value,
+                                    final DataOutputStream output) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static List<Field> serializedFields(final Class<?> type) {
+        if (type.getName()
+                .startsWith("java.")) {
+            return STRING_VALUE;
+        }
+        final List<Field> fields = new ArrayList<>();
+        for (final Field field : ReflectionUtils.getDeclaredFields(type)) {
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                continue;
+            }
+            if (!field.trySetAccessible()) {
+                // not open to reflection, the string representation is the only one available
+                return STRING_VALUE;
+            }
+            fields.add(field);
+        }
+        return fields;
+    }
+
     /**
      * Tells if the two objects are equal from the Update perspective.
      *
@@ -533,6 +732,15 @@ public final class ClassReflector<T, S> {
         return this.valueReflectorsArray;
     }
 
+    /**
+     * Gets the reflector for the field annotated with @Version.
+     *
+     * @return the version reflector or null if the class has no version field
+     */
+    public FieldReflector<T, S, ?, ?> getVersionReflector() {
+        return this.versionReflector;
+    }
+
     /**
      * Tells if the class is final
      *
@@ -75,6 +75,7 @@ public final class FieldReflector<T, S, TV, SV> {
     private final String description;
     private final int length;
     private final boolean id;
+    private final boolean version;
     private final boolean nullable;
     private final boolean insertable;
     private final int order;
@@ -125,6 +126,7 @@ public final class FieldReflector<T, S, TV, SV> {
             this.updateAnnotation = null;
         }
         this.id = field.isAnnotationPresent(Id.class) || field.isAnnotationPresent(EmbeddedId.class);
+        this.version = field.isAnnotationPresent(Version.class);
         this.order = this.order(this.field);
         if (field.isAnnotationPresent(OneToMany.class)) {
             this.isEager = field.getAnnotation(OneToMany.class)
@@ -209,6 +211,7 @@ public final class FieldReflector<T, S, TV, SV> {
         }
         this.order = this.order(method);
         this.id = false;
+        this.version = false;
         this.isEager = false;
 
         if (this.valid && !this.isFinal && !this.isHibernateIntern && this.updateAnnotation != null) {
@@ -389,6 +392,17 @@ public final class FieldReflector<T, S, TV, SV> {
         return this.name;
     }
 
+    /**
+     * <pre>
+     * The Name of the associated field in the associated class.
+     * </pre>
+     *
+     * @return the associated name, or null if the field is not marked for update
+     */
+    public String getAssociatedName() {
+        return this.associatedName;
+    }
+
     /**
      * <pre>
      * The enclosing class.
@@ -607,6 +621,15 @@ public final class FieldReflector<T, S, TV, SV> {
         return this.id;
     }
 
+    /**
+     * Tells if the field is annotated with @Version.
+     *
+     * @return the boolean
+     */
+    public boolean isVersion() {
+        return this.version;
+    }
+
     /**
      * Gets order value.
      *
@@ -0,0 +1,249 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.utils;
+
+import io.github.agache41.rest.contract.update.reflector.ClassReflector;
+import io.github.agache41.rest.contract.update.reflector.FieldReflector;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * <pre>
+ * Writes transfer objects as CSV (RFC 4180), one line per object, preceded by a header line with the field names.
+ * The columns are the scalar fields marked for update (numbers, booleans, characters, strings, enums, dates and UUIDs),
+ * in the order given by @ {@link io.github.agache41.rest.contract.update.Update} propertiesOrder and order, then in declaration order.
+ * Collections, maps and nested objects are not written.
+ * The columns and their encoders are resolved once per {@link ClassReflector}.
+ * The lines are written through a char buffer reused for all the lines, so no String is built per line.
+ * Example:
+ *      CsvFormat.of(ClassReflector.ofClass(Modell.class))
+ *               .write(modells, writer);
+ * </pre>
+ *
+ * @param <T> the type parameter
+ */
+public final class CsvFormat<T> {
+
+    /**
+     * The media type of the CSV content.
+     */
+    public static final String TEXT_CSV = "text/csv";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final Map<ClassReflector<?, ?>, CsvFormat<?>> cache = new ConcurrentHashMap<>();
+
+    private final String[] header;
+    private final FieldReflector<T, ?, ?, ?>[] reflectors;
+    private final Encoder[] encoders;
+
+    private CsvFormat(final ClassReflector<T, ?> classReflector, final Class<T> clazz) {
+        final Map<String, FieldReflector<T, ?, ?, ?>> updateReflectors = new HashMap<>(classReflector.getUpdateReflectors());
+        final List<FieldReflector<T, ?, ?, ?>> columns = new ArrayList<>();
+        for (final java.lang.reflect.Field field : ReflectionUtils.getDeclaredFields(clazz)) {
+            final FieldReflector<T, ?, ?, ?> reflector = updateReflectors.remove(field.getName());
+            if (reflector != null && reflector.isValue() && encoder(reflector.getType()) != null) {
+                columns.add(reflector);
+            }
+        }
+        // the stable sort keeps the declaration order for equal orders
+        columns.sort(Comparator.comparing(FieldReflector::getOrder));
+        this.header = columns.stream()
+                             .map(FieldReflector::getName)
+                             .toArray(String[]::new);
+        this.reflectors = columns.toArray(new FieldReflector[0]);
+        this.encoders = columns.stream()
+                               .map(reflector -> encoder(reflector.getType()))
+                               .toArray(Encoder[]::new);
+    }
+
+    /**
+     * <pre>
+     * The CSV format of the type described by the given class reflector.
+     * </pre>
+     *
+     * @param <T>            the type parameter
+     * @param classReflector the class reflector
+     * @param clazz          the described type
+     * @return the CSV format
+     */
+    public static <T> CsvFormat<T> of(final ClassReflector<T, ?> classReflector, final Class<T> clazz) {
+        return (CsvFormat<T>) cache.computeIfAbsent(classReflector, reflector -> new CsvFormat<>(classReflector, clazz));
+    }
+
+    /**
+     * <pre>
+     * The CSV format of the given type.
+     * </pre>
+     *
+     * @param <T>   the type parameter
+     * @param clazz the type
+     * @return the CSV format
+     */
+    public static <T> CsvFormat<T> of(final Class<T> clazz) {
+        return of(ClassReflector.ofClass(clazz), clazz);
+    }
+
+    /**
+     * Gets the names of the columns.
+     *
+     * @return the header
+     */
+    public List<String> getHeader() {
+        return List.of(this.header);
+    }
+
+    /**
+     * <pre>
+     * Writes the header line and one line for every object.
+     * The writer is flushed but not closed.
+     * </pre>
+     *
+     * @param rows the objects
+     * @param out  the writer
+     * @return the number of lines written, without the header
+     * @throws IOException if the writer fails
+     */
+    public long write(final Stream<? extends T> rows,
+                      final Writer out) throws IOException {
+        final Buffer buffer = new Buffer(out);
+        for (int index = 0; index < this.header.length; index++) {
+            if (index > 0) {
+                buffer.append(',');
+            }
+            TEXT.encode(this.header[index], buffer);
+        }
+        buffer.newLine();
+        long count = 0;
+        final Iterator<? extends T> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            final T row = iterator.next();
+            for (int index = 0; index < this.reflectors.length; index++) {
+                if (index > 0) {
+                    buffer.append(',');
+                }
+                final Object value = this.reflectors[index].get(row);
+                if (value != null) {
+                    this.encoders[index].encode(value, buffer);
+                }
+            }
+            buffer.newLine();
+            count++;
+        }
+        buffer.flush();
+        out.flush();
+        return count;
+    }
+
+    private static Encoder encoder(final Class<?> type) {
+        if (type.isPrimitive() && !char.class.equals(type) || Number.class.isAssignableFrom(type) || Boolean.class.equals(type)) {
+            return PLAIN;
+        }
+        if (char.class.equals(type) || Character.class.equals(type) || CharSequence.class.isAssignableFrom(type) || UUID.class.equals(type)) {
+            return TEXT;
+        }
+        if (type.isEnum()) {
+            return (value, buffer) -> TEXT.encode(((Enum<?>) value).name(), buffer);
+        }
+        if (TemporalAccessor.class.isAssignableFrom(type)) {
+            return PLAIN;
+        }
+        if (Date.class.isAssignableFrom(type)) {
+            // the java.sql types do not support toInstant, their toString is ISO already
+            return (value, buffer) -> buffer.append(value.getClass()
+                                                         .getName()
+                                                         .startsWith("java.sql.") ? value.toString() : ((Date) value).toInstant()
+                                                                                                                  .toString());
+        }
+        return null;
+    }
+
+    private static final Encoder PLAIN = (value, buffer) -> buffer.append(value.toString());
+
+    private static final Encoder TEXT = (value, buffer) -> {
+        final String text = value.toString();
+        boolean quote = false;
+        for (int index = 0; index < text.length() && !quote; index++) {
+            final char c = text.charAt(index);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            buffer.append(text);
+            return;
+        }
+        buffer.append('"');
+        for (int index = 0; index < text.length(); index++) {
+            final char c = text.charAt(index);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        buffer.append('"');
+    };
+
+    private interface Encoder {
+        void encode(Object value,
+                    Buffer buffer) throws IOException;
+    }
+
+    private static final class Buffer {
+        private final Writer out;
+        private final char[] chars = new char[BUFFER_SIZE];
+        private int length;
+
+        private Buffer(final Writer out) {
+            this.out = out;
+        }
+
+        private void append(final char c) throws IOException {
+            if (this.length == this.chars.length) {
+                this.flush();
+            }
+            this.chars[this.length++] = c;
+        }
+
+        private void append(final String text) throws IOException {
+            int start = 0;
+            while (start < text.length()) {
+                if (this.length == this.chars.length) {
+                    this.flush();
+                }
+                final int end = Math.min(text.length(), start + this.chars.length - this.length);
+                text.getChars(start, end, this.chars, this.length);
+                this.length += end - start;
+                start = end;
+            }
+        }
+
+        private void newLine() throws IOException {
+            this.append('\r');
+            this.append('\n');
+        }
+
+        private void flush() throws IOException {
+            this.out.write(this.chars, 0, this.length);
+            this.length = 0;
+        }
+    }
+}
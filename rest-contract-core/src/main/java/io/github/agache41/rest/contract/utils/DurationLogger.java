@@ -2,17 +2,21 @@ package io.github.agache41.rest.contract.utils;
 
 import org.jboss.logging.Logger;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
+ * <pre>
  * The type Duration logger.
+ * The start times are shared between all request threads, so the map is concurrent and lock free
+ * and does not pin virtual threads to their carrier.
+ * </pre>
  */
 public class DurationLogger {
     private static final Boolean ENABLED = true;
     private static final Logger logger = Logger.getLogger(DurationLogger.class);
-    private static final Map<String, Long> START_TIMES = new HashMap<>();
+    private static final Map<String, Long> START_TIMES = new ConcurrentHashMap<>();
 
     /**
      * Start.
@@ -35,11 +39,10 @@ public class DurationLogger {
     public void finish(String context) {
         if (ENABLED) {
             Long finishTime = System.currentTimeMillis();
-            Long startTime = START_TIMES.get(context);
+            Long startTime = START_TIMES.remove(context);
             if (startTime == null) {
                 logger.info("Finished " + context + ": without start timestamp.");
             } else {
-                START_TIMES.remove(context);
                 Long duration = finishTime - startTime;
                 logger.info("Finished " + context + ":took " + duration + "ms.");
             }
@@ -0,0 +1,196 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.utils;
+
+import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.update.TransferObject;
+import io.github.agache41.rest.contract.update.reflector.ClassReflector;
+import io.github.agache41.rest.contract.update.reflector.FieldReflector;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * <pre>
+ * Computes the strong entity tags for transfer objects.
+ * If the transfer object has a field annotated with @Version, its value is the tag.
+ * Otherwise the tag is the content digest computed by the {@link ClassReflector}.
+ * The tag of a list is a digest over the tags of its elements, each prefixed with the id of the element,
+ * so that lists holding other rows with the same versions do not share a tag.
+ * The digests are SHA-256 truncated to 128 bits, so that different contents do not share a tag in practice.
+ * The tags are returned without quotes, the quoting is done by the web framework.
+ * </pre>
+ */
+public final class ETags {
+
+    private static final String ANY = "*";
+    private static final String WEAK = "W/";
+    private static final int DIGEST_LENGTH = 16;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private ETags() {
+    }
+
+    /**
+     * <pre>
+     * Computes the tag for a transfer object or for a list of transfer objects.
+     * </pre>
+     *
+     * @param body the response body
+     * @return the tag or null if the body is not a transfer object or a list of transfer objects
+     */
+    public static String of(final Object body) {
+        if (isTransferObject(body)) {
+            return ofObject(body);
+        }
+        if (body instanceof List) {
+            final List<String> eTags = new ArrayList<>(((List<?>) body).size());
+            for (final Object element : (List<?>) body) {
+                if (!isTransferObject(element)) {
+                    return null;
+                }
+                eTags.add(ofElement(((PrimaryKey<?>) element).getId(), ofObject(element)));
+            }
+            return combine(eTags);
+        }
+        return null;
+    }
+
+    private static boolean isTransferObject(final Object value) {
+        return value instanceof PrimaryKey && value instanceof TransferObject;
+    }
+
+    /**
+     * <pre>
+     * Computes the tag of a list element from its id and its tag.
+     * </pre>
+     *
+     * @param id   the id of the element
+     * @param eTag the tag of the element
+     * @return the tag of the element in a list
+     */
+    public static String ofElement(final Object id,
+                                   final String eTag) {
+        return id + ":" + eTag;
+    }
+
+    /**
+     * <pre>
+     * Combines the tags of the elements of a list in the tag of the list.
+     * </pre>
+     *
+     * @param eTags the tags of the elements built by {@link #ofElement(Object, String)}, in the order of the list
+     * @return the tag of the list
+     */
+    public static String combine(final Collection<String> eTags) {
+        final MessageDigest messageDigest = ClassReflector.sha256();
+        for (final String eTag : eTags) {
+            final byte[] bytes = eTag.getBytes(StandardCharsets.UTF_8);
+            // the length keeps the boundaries between the tags
+            messageDigest.update(ByteBuffer.allocate(Integer.BYTES)
+                                           .putInt(bytes.length)
+                                           .array());
+            messageDigest.update(bytes);
+        }
+        return HEX.formatHex(messageDigest.digest(), 0, DIGEST_LENGTH);
+    }
+
+    /**
+     * <pre>
+     * Computes the tag for a transfer object.
+     * </pre>
+     *
+     * @param <T>            the type parameter
+     * @param transferObject the transfer object
+     * @return the tag
+     */
+    public static <T> String ofObject(final T transferObject) {
+        final ClassReflector<T, T> classReflector = ClassReflector.ofObject(transferObject);
+        final FieldReflector<T, T, ?, ?> versionReflector = classReflector.getVersionReflector();
+        if (versionReflector != null) {
+            final Object version = versionReflector.get(transferObject);
+            if (version != null) {
+                return String.valueOf(version);
+            }
+        }
+        return HEX.formatHex(classReflector.digest(transferObject));
+    }
+
+    /**
+     * <pre>
+     * Tells if the given tag is matched by the value of an If-None-Match header, using the weak comparison.
+     * The header can contain a list of quoted tags or *.
+     * </pre>
+     *
+     * @param header the header value
+     * @param eTag   the current tag, null if the resource does not exist
+     * @return the boolean
+     */
+    public static boolean matches(final String header,
+                                  final String eTag) {
+        return matches(header, eTag, true);
+    }
+
+    /**
+     * <pre>
+     * Tells if the given tag is matched by the value of an If-Match header, using the strong comparison.
+     * Weak tags in the header never match, as required by RFC 9110 for If-Match.
+     * The header can contain a list of quoted tags or *.
+     * </pre>
+     *
+     * @param header the header value
+     * @param eTag   the current tag, null if the resource does not exist
+     * @return the boolean
+     */
+    public static boolean matchesStrongly(final String header,
+                                          final String eTag) {
+        return matches(header, eTag, false);
+    }
+
+    private static boolean matches(final String header,
+                                   final String eTag,
+                                   final boolean weak) {
+        if (header == null || eTag == null) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (ANY.equals(candidate)) {
+                return true;
+            }
+            if (candidate.startsWith(WEAK)) {
+                if (!weak) {
+                    continue;
+                }
+                candidate = candidate.substring(WEAK.length());
+            }
+            if (candidate.length() > 1 && candidate.startsWith("\"") && candidate.endsWith("\"")) {
+                candidate = candidate.substring(1, candidate.length() - 1);
+            }
+            if (eTag.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
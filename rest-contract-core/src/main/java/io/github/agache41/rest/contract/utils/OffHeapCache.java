@@ -0,0 +1,328 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * <pre>
+ * Byte cache holding serialized responses outside the Java heap.
+ * Every entry is stored in its own direct ByteBuffer slab, the slabs are evicted in LRU order
+ * as soon as the sum of the cached bytes exceeds the configured memory cap.
+ * Cached slabs are written to the output as they are, without any re-encoding.
+ * Typical usage :
+ *      OffHeapCache&#x3C;String&#x3E; cache = new OffHeapCache&#x3C;&#x3E;(64 * 1024 * 1024);
+ *      cache.put(key, jsonBytes);
+ *      cache.writeTo(key, outputStream);
+ * </pre>
+ *
+ * @param <K> the type of the key
+ */
+public class OffHeapCache<K> {
+
+    private static final byte[] ARRAY_START = {'['};
+    private static final byte[] ARRAY_SEPARATOR = {','};
+    private static final byte[] ARRAY_END = {']'};
+
+    /**
+     * <pre>
+     * The maximum number of bytes held by the cache.
+     * </pre>
+     */
+    protected final long maxBytes;
+
+    /**
+     * <pre>
+     * The slabs in access order, the eldest is the first to be evicted.
+     * </pre>
+     */
+    protected final LinkedHashMap<K, ByteBuffer> slabs = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * <pre>
+     * The number of bytes currently held by the cache.
+     * </pre>
+     */
+    protected long usedBytes;
+
+    /**
+     * The number of hits.
+     */
+    protected long hits;
+
+    /**
+     * The number of misses.
+     */
+    protected long misses;
+
+    /**
+     * The number of evictions.
+     */
+    protected long evictions;
+
+    /**
+     * Instantiates a new Off heap cache.
+     *
+     * @param maxBytes the maximum number of bytes held by the cache
+     */
+    public OffHeapCache(final long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException(" OffHeapCache needs a positive memory cap, received " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * <pre>
+     * Returns a read only view on the cached slab.
+     * </pre>
+     *
+     * @param key the key
+     * @return the cached bytes or null if the key is not cached
+     */
+    public synchronized ByteBuffer get(final K key) {
+        final ByteBuffer slab = this.slabs.get(key);
+        if (slab == null) {
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        return slab.asReadOnlyBuffer();
+    }
+
+    /**
+     * <pre>
+     * Copies the given bytes in a new direct slab and caches it.
+     * Entries larger than the memory cap are not cached.
+     * </pre>
+     *
+     * @param key   the key
+     * @param bytes the serialized content
+     */
+    public void put(final K key, final byte[] bytes) {
+        if (bytes == null || bytes.length > this.maxBytes) {
+            return;
+        }
+        // the copy in the off heap memory happens outside the lock
+        final ByteBuffer slab = ByteBuffer.allocateDirect(bytes.length);
+        slab.put(bytes)
+            .flip();
+        synchronized (this) {
+            final ByteBuffer previous = this.slabs.put(key, slab);
+            if (previous != null) {
+                this.usedBytes -= previous.capacity();
+            }
+            this.usedBytes += slab.capacity();
+            this.evict();
+        }
+    }
+
+    /**
+     * Removes the entry for the given key.
+     *
+     * @param key the key
+     */
+    public synchronized void remove(final K key) {
+        final ByteBuffer previous = this.slabs.remove(key);
+        if (previous != null) {
+            this.usedBytes -= previous.capacity();
+        }
+    }
+
+    /**
+     * Removes all entries whose key matches the given filter.
+     *
+     * @param filter the filter
+     */
+    public synchronized void removeIf(final Predicate<K> filter) {
+        final Iterator<Map.Entry<K, ByteBuffer>> iterator = this.slabs.entrySet()
+                                                                      .iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<K, ByteBuffer> entry = iterator.next();
+            if (filter.test(entry.getKey())) {
+                this.usedBytes -= entry.getValue()
+                                       .capacity();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear() {
+        this.slabs.clear();
+        this.usedBytes = 0;
+    }
+
+    /**
+     * <pre>
+     * Writes the cached slab for the given key in the output stream.
+     * </pre>
+     *
+     * @param key          the key
+     * @param outputStream the output stream
+     * @return true if the key was cached and written, false otherwise
+     * @throws IOException the io exception
+     */
+    public boolean writeTo(final K key, final OutputStream outputStream) throws IOException {
+        final ByteBuffer slab = this.get(key);
+        if (slab == null) {
+            return false;
+        }
+        writeTo(slab, outputStream);
+        return true;
+    }
+
+    /**
+     * <pre>
+     * Assembles a json array from the cached slabs of the given keys.
+     * The result is only provided if all the keys are cached, otherwise null is returned.
+     * </pre>
+     *
+     * @param keys the keys in the order of the array
+     * @return the slabs building the array, or null if any key is missing
+     */
+    public List<ByteBuffer> getArray(final Collection<K> keys) {
+        final List<ByteBuffer> result = new ArrayList<>(keys.size() * 2 + 1);
+        result.add(ByteBuffer.wrap(ARRAY_START));
+        boolean first = true;
+        for (final K key : keys) {
+            final ByteBuffer slab = this.get(key);
+            if (slab == null) {
+                return null;
+            }
+            if (!first) {
+                result.add(ByteBuffer.wrap(ARRAY_SEPARATOR));
+            }
+            result.add(slab);
+            first = false;
+        }
+        result.add(ByteBuffer.wrap(ARRAY_END));
+        return result;
+    }
+
+    /**
+     * <pre>
+     * Writes the given buffers in the output stream.
+     * The buffers are handed to the channel as they are, so direct buffers are not copied on the heap.
+     * </pre>
+     *
+     * @param buffers      the buffers
+     * @param outputStream the output stream
+     * @throws IOException the io exception
+     */
+    public static void writeTo(final Collection<ByteBuffer> buffers, final OutputStream outputStream) throws IOException {
+        final WritableByteChannel channel = Channels.newChannel(outputStream);
+        for (final ByteBuffer buffer : buffers) {
+            write(buffer, channel);
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * Writes the given buffer in the output stream.
+     *
+     * @param buffer       the buffer
+     * @param outputStream the output stream
+     * @throws IOException the io exception
+     */
+    public static void writeTo(final ByteBuffer buffer, final OutputStream outputStream) throws IOException {
+        write(buffer, Channels.newChannel(outputStream));
+        outputStream.flush();
+    }
+
+    private static void write(final ByteBuffer buffer, final WritableByteChannel channel) throws IOException {
+        final ByteBuffer view = buffer.duplicate();
+        while (view.hasRemaining()) {
+            channel.write(view);
+        }
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<K, ByteBuffer>> iterator = this.slabs.entrySet()
+                                                                      .iterator();
+        while (this.usedBytes > this.maxBytes && iterator.hasNext()) {
+            this.usedBytes -= iterator.next()
+                                      .getValue()
+                                      .capacity();
+            iterator.remove();
+            this.evictions++;
+        }
+    }
+
+    /**
+     * Gets the maximum number of bytes held by the cache.
+     *
+     * @return the max bytes
+     */
+    public long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    /**
+     * Gets the number of bytes currently held by the cache.
+     *
+     * @return the used bytes
+     */
+    public synchronized long getUsedBytes() {
+        return this.usedBytes;
+    }
+
+    /**
+     * Gets the number of cached entries.
+     *
+     * @return the size
+     */
+    public synchronized int size() {
+        return this.slabs.size();
+    }
+
+    /**
+     * Gets the number of hits.
+     *
+     * @return the hits
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Gets the number of misses.
+     *
+     * @return the misses
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Gets the number of evictions.
+     *
+     * @return the evictions
+     */
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+}
@@ -0,0 +1,186 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.utils;
+
+import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.dataAccessBase.WriteListeners;
+import io.github.agache41.rest.contract.update.TransferObject;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * The cache of the serialized transfer objects of a resource service, per id, held in an {@link OffHeapCache}.
+ * The strong tag of every transfer object is cached next to its json, together with the time it expires.
+ * The ids written through any data binder of the entity are dropped, once when written and again when committed.
+ * A response read before a write completed is not cached after it, the generation taken before the read tells.
+ * </pre>
+ */
+public class ResponseCache {
+
+    // the tags are cached next to the json, under a prefix that can not occur in a path parameter
+    private static final String TAG = "#";
+    private static final String EXPIRES = " ";
+
+    private final OffHeapCache<String> cache;
+    private final long timeToLive;
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Instantiates a new Response cache, invalidated by the writes of the entity served by the resource service.
+     *
+     * @param resourceClass the resource service class
+     * @param maxBytes      the maximum number of bytes held by the cache
+     * @param timeToLive    the time to live of the cached responses in milliseconds
+     */
+    public ResponseCache(final Class<?> resourceClass,
+                         final long maxBytes,
+                         final long timeToLive) {
+        this.cache = new OffHeapCache<>(maxBytes);
+        this.timeToLive = timeToLive;
+        final Class<?> transferObjectClass = transferObjectClassOf(resourceClass);
+        // when the transfer object can not be resolved, any write invalidates
+        WriteListeners.register(transferObjectClass == null ? Object.class : WriteListeners.entityClassOf(transferObjectClass), this::invalidate);
+    }
+
+    private static Class<?> transferObjectClassOf(final Class<?> resourceClass) {
+        for (Class<?> type = resourceClass; type != null && !Object.class.equals(type); type = type.getSuperclass()) {
+            final Type superclass = type.getGenericSuperclass();
+            if (!(superclass instanceof ParameterizedType)) {
+                continue;
+            }
+            for (final Type argument : ((ParameterizedType) superclass).getActualTypeArguments()) {
+                if (argument instanceof Class && TransferObject.class.isAssignableFrom((Class<?>) argument)) {
+                    return (Class<?>) argument;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * <pre>
+     * Gets the current generation, to be taken before reading the transfer objects to be cached.
+     * </pre>
+     *
+     * @return the generation
+     */
+    public long generation() {
+        return this.generation.get();
+    }
+
+    /**
+     * Gets the cached tag of the id.
+     *
+     * @param key the id as string
+     * @return the tag, or null if the id is not cached or expired
+     */
+    public String eTag(final String key) {
+        final ByteBuffer slab = this.cache.get(TAG + key);
+        if (slab == null) {
+            return null;
+        }
+        final String value = StandardCharsets.UTF_8.decode(slab)
+                                                   .toString();
+        final int separator = value.indexOf(EXPIRES);
+        if (Long.parseLong(value.substring(0, separator)) <= System.currentTimeMillis()) {
+            this.remove(key);
+            return null;
+        }
+        return value.substring(separator + 1);
+    }
+
+    /**
+     * Gets the cached json of the id, to be read after its tag.
+     *
+     * @param key the id as string
+     * @return the json, or null if the id is not cached
+     */
+    public ByteBuffer get(final String key) {
+        return this.cache.get(key);
+    }
+
+    /**
+     * Assembles a json array from the cached json of the ids, to be read after their tags.
+     *
+     * @param keys the ids as string, in the order of the array
+     * @return the slabs building the array, or null if any id is missing
+     * @see OffHeapCache#getArray(Collection)
+     */
+    public List<ByteBuffer> getArray(final Collection<String> keys) {
+        return this.cache.getArray(keys);
+    }
+
+    /**
+     * <pre>
+     * Caches the json of a transfer object and its tag,
+     * unless any write of the entity happened since the generation was taken.
+     * </pre>
+     *
+     * @param element    the transfer object
+     * @param bytes      the json
+     * @param generation the generation taken before the transfer object was read
+     */
+    public void put(final Object element,
+                    final byte[] bytes,
+                    final long generation) {
+        final String key = String.valueOf(((PrimaryKey<?>) element).getId());
+        final long expiresAt = System.currentTimeMillis() + this.timeToLive;
+        this.cache.put(TAG + key, (expiresAt + EXPIRES + ETags.ofObject(element)).getBytes(StandardCharsets.UTF_8));
+        this.cache.put(key, bytes);
+        // checked after the put, so a write invalidating meanwhile either removes it or is seen here
+        if (this.generation.get() != generation) {
+            this.remove(key);
+        }
+    }
+
+    /**
+     * <pre>
+     * Drops the given ids, and starts a new generation.
+     * </pre>
+     *
+     * @param ids the written ids
+     */
+    public void invalidate(final Collection<?> ids) {
+        this.generation.incrementAndGet();
+        for (final Object id : ids) {
+            this.remove(String.valueOf(id));
+        }
+    }
+
+    private void remove(final String key) {
+        this.cache.remove(TAG + key);
+        this.cache.remove(key);
+    }
+
+    /**
+     * Gets the off heap cache holding the json and the tags.
+     *
+     * @return the cache
+     */
+    public OffHeapCache<String> getCache() {
+        return this.cache;
+    }
+}
@@ -0,0 +1,201 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.utils;
+
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * <pre>
+ * Collapses the concurrent identical calls into one.
+ * The first call for a key runs, the calls for the same key arriving while it runs wait for its result instead of running again.
+ * The waiting calls receive a copy of the result and, if any waited, the first call too, so no caller sees the changes of another.
+ * A call waiting longer than the max wait stops waiting and runs by itself.
+ * A failure of the running call is thrown to all the waiting calls.
+ * </pre>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    /**
+     * <pre>
+     * Runs the call, or waits for the identical call already running and returns a copy of its result.
+     * </pre>
+     *
+     * @param key     the key identifying the call
+     * @param maxWait the max time in milliseconds to wait for a running call, 0 or less to always run
+     * @param call    the call
+     * @param copy    copies a result
+     * @return the result
+     */
+    public V run(final K key,
+                 final long maxWait,
+                 final Supplier<V> call,
+                 final UnaryOperator<V> copy) {
+        if (maxWait <= 0) {
+            return call.get();
+        }
+        while (true) {
+            final Flight<V> flight = new Flight<>();
+            final Flight<V> running = this.flights.putIfAbsent(key, flight);
+            if (running == null) {
+                return this.lead(key, flight, call, copy);
+            }
+            if (running.join()) {
+                return this.follow(running, maxWait, call, copy);
+            }
+            // the running call completed meanwhile, run again
+        }
+    }
+
+    private V lead(final K key,
+                   final Flight<V> flight,
+                   final Supplier<V> call,
+                   final UnaryOperator<V> copy) {
+        this.calls.increment();
+        final V value;
+        try {
+            value = call.get();
+        } catch (final RuntimeException | Error e) {
+            this.flights.remove(key, flight);
+            flight.seal();
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        this.flights.remove(key, flight);
+        final boolean joined = flight.seal();
+        flight.result.complete(value);
+        // the waiting calls copy the value, so it is no longer handed out
+        return joined && value != null ? copy.apply(value) : value;
+    }
+
+    private V follow(final Flight<V> running,
+                     final long maxWait,
+                     final Supplier<V> call,
+                     final UnaryOperator<V> copy) {
+        final V value;
+        try {
+            value = running.result.get(maxWait, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            this.timedOut.increment();
+            this.calls.increment();
+            return call.get();
+        } catch (final ExecutionException e) {
+            this.collapsed.increment();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new UnexpectedException(e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new UnexpectedException(e);
+        }
+        this.collapsed.increment();
+        return value == null ? null : copy.apply(value);
+    }
+
+    /**
+     * <pre>
+     * Forgets the running calls, so that the next calls run again instead of waiting for them, e.g. after a write.
+     * The calls already waiting still receive their result.
+     * </pre>
+     */
+    public void invalidate() {
+        this.flights.clear();
+    }
+
+    /**
+     * Gets the number of calls that ran.
+     *
+     * @return the calls
+     */
+    public long getCalls() {
+        return this.calls.sum();
+    }
+
+    /**
+     * Gets the number of calls answered with the result of an identical running call.
+     *
+     * @return the collapsed calls
+     */
+    public long getCollapsed() {
+        return this.collapsed.sum();
+    }
+
+    /**
+     * Gets the number of calls that stopped waiting after the max wait and ran by themselves.
+     *
+     * @return the timed out calls
+     */
+    public long getTimedOut() {
+        return this.timedOut.sum();
+    }
+
+    /**
+     * Gets the number of calls running now.
+     *
+     * @return the running calls
+     */
+    public int getRunning() {
+        return this.flights.size();
+    }
+
+    private static final class Flight<V> {
+
+        private static final int SEALED = -1;
+
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private boolean join() {
+            int current;
+            do {
+                current = this.waiting.get();
+                if (current == SEALED) {
+                    return false;
+                }
+            } while (!this.waiting.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private boolean seal() {
+            return this.waiting.getAndSet(SEALED) > 0;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * <pre>
+ * A small in memory cache whose values expire after a time to live and that can be invalidated at once, e.g. after a write.
+ * A value loaded while the cache was invalidated is returned but not cached, so a write never leaves an older value behind.
+ * When the cache holds maxEntries values it is cleared, the values are meant to be few and short living.
+ * </pre>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class TtlCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final int maxEntries;
+
+    /**
+     * Instantiates a new Ttl cache.
+     *
+     * @param maxEntries the max number of cached values
+     */
+    public TtlCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * <pre>
+     * Gets the cached value of the key, or loads and caches it for the time to live.
+     * </pre>
+     *
+     * @param key        the key
+     * @param timeToLive the time to live in milliseconds, 0 or less to bypass the cache
+     * @param loader     loads the value
+     * @return the value
+     */
+    public V get(final K key,
+                 final long timeToLive,
+                 final Supplier<V> loader) {
+        if (timeToLive <= 0) {
+            return loader.get();
+        }
+        final long now = System.currentTimeMillis();
+        final Entry<V> cached = this.entries.get(key);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.value;
+        }
+        final long loadedGeneration = this.generation.get();
+        final V value = loader.get();
+        if (this.entries.size() >= this.maxEntries) {
+            this.entries.clear();
+        }
+        this.entries.put(key, new Entry<>(value, now + timeToLive));
+        if (this.generation.get() != loadedGeneration) {
+            // invalidated while loading, the value may predate the write
+            this.entries.remove(key);
+        }
+        return value;
+    }
+
+    /**
+     * <pre>
+     * Drops all the cached values.
+     * </pre>
+     */
+    public void invalidate() {
+        this.generation.incrementAndGet();
+        this.entries.clear();
+    }
+
+    /**
+     * Gets the number of cached values, including the expired ones not yet replaced.
+     *
+     * @return the size
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(final V value,
+                      final long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
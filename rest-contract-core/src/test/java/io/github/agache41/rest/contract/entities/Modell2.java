@@ -17,6 +17,7 @@
 
 package io.github.agache41.rest.contract.entities;
 
+import io.github.agache41.rest.contract.changeLog.ChangeLogged;
 import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
 import io.github.agache41.rest.contract.update.SelfTransferObject;
 import io.github.agache41.rest.contract.update.Update;
@@ -29,6 +30,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Entity
 @Update
+@ChangeLogged
 public class Modell2 implements PrimaryKey<String>, SelfTransferObject<Modell2> {
 
     private static final long serialVersionUID = 265448020827321843L;
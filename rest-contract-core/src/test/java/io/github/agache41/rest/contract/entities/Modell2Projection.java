@@ -0,0 +1,41 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.entities;
+
+import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.update.TransferObject;
+import io.github.agache41.rest.contract.update.Update;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class Modell2Projection implements PrimaryKey<String>, TransferObject<Modell2Projection, Modell2> {
+
+    private static final long serialVersionUID = -3271406409271386735L;
+
+    @Update(nullable = false)
+    private String id;
+
+    @Update
+    private String name;
+
+    @Update(name = "street")
+    private String address;
+
+}
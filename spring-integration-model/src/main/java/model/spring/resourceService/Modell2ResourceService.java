@@ -5,6 +5,8 @@ import io.github.agache41.rest.contract.dataAccess.DataAccess;
 import io.github.agache41.rest.contract.dataAccess.DataBinder;
 import io.github.agache41.rest.contract.entities.Modell2;
 import io.github.agache41.rest.contract.resourceService.AbstractResourceServiceImpl;
+import io.github.agache41.rest.contract.resourceServiceBase.ResourceServiceConfig;
+import io.github.agache41.rest.contract.responseCache.CachedResponses;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -14,11 +16,26 @@ import org.springframework.web.bind.annotation.RestController;
 @Getter
 @RestController
 @RequestMapping("/modell2")
+@CachedResponses
 public class Modell2ResourceService extends AbstractResourceServiceImpl<Modell2, Modell2, String> {
+
+    private static final ResourceServiceConfig config = new ResourceServiceConfig() {
+        // the test model lists the changes without waiting, no write of the tests commits late
+        @Override
+        public long getChangesSettleTime() {
+            return 0;
+        }
+    };
+
     @Autowired
     protected DataAccess<Modell2, String> dataAccess;
 
 
     @Autowired
     protected DataBinder<Modell2, Modell2, String> dataBinder;
-}
\ No newline at end of file
+
+    @Override
+    public ResourceServiceConfig getConfig() {
+        return config;
+    }
+}
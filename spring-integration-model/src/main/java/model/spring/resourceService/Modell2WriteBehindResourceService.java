@@ -0,0 +1,42 @@
+package model.spring.resourceService;
+
+import io.github.agache41.rest.contract.dataAccess.DataAccess;
+import io.github.agache41.rest.contract.dataAccess.DataBinder;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.resourceService.AbstractResourceServiceImpl;
+import io.github.agache41.rest.contract.resourceServiceBase.ResourceServiceConfig;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+
+@Getter
+@RestController
+@RequestMapping("/modell2WriteBehind")
+public class Modell2WriteBehindResourceService extends AbstractResourceServiceImpl<Modell2, Modell2, String> {
+
+    private static final ResourceServiceConfig config = new ResourceServiceConfig() {
+        @Override
+        public boolean isWriteBehind() {
+            return true;
+        }
+
+        @Override
+        public long getWriteBehindFlushInterval() {
+            return 100;
+        }
+    };
+
+    @Autowired
+    protected DataAccess<Modell2, String> dataAccess;
+
+
+    @Autowired
+    protected DataBinder<Modell2, Modell2, String> dataBinder;
+
+    @Override
+    public ResourceServiceConfig getConfig() {
+        return config;
+    }
+}
@@ -0,0 +1,99 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package model.spring.resourceService;
+
+import io.github.agache41.rest.contract.configuration.RestContractCoreTestPersistenceConfiguration;
+import io.github.agache41.rest.contract.entities.Modell;
+import io.github.agache41.rest.contract.producer.Producer;
+import io.github.agache41.rest.contract.resourceService.ResourceServiceTestClient;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+/**
+ * <pre>
+ * Load benchmark running the standard CRUD cycle (post, get, put, delete) with many concurrent clients.
+ * It is not part of the test suite, it is started explicitly once for each thread mode of the server :
+ *      mvn test -Dtest=CrudThreadsBenchmark -Dspring.threads.virtual.enabled=false
+ *      mvn test -Dtest=CrudThreadsBenchmark -Dspring.threads.virtual.enabled=true
+ * The number of clients and cycles can be changed with -Dbenchmark.clients and -Dbenchmark.cycles.
+ * Virtual threads are only used by the server on Java 21 and above.
+ * </pre>
+ */
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+@Import(RestContractCoreTestPersistenceConfiguration.class)
+public class CrudThreadsBenchmark {
+
+    private static final Logger log = Logger.getLogger(CrudThreadsBenchmark.class);
+    private static final int clients = Integer.getInteger("benchmark.clients", 200);
+    private static final int cycles = Integer.getInteger("benchmark.cycles", 20);
+
+    private final ResourceServiceTestClient<Modell, Long> client = new ResourceServiceTestClient<>(Modell.class, "/modell");
+    private final Producer<Modell> producer = Producer.ofClass(Modell.class)
+                                                      .withSize(Config.collectionSize);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Test
+    void crudCycles() throws Exception {
+        // warm up
+        this.cycle();
+        final ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            final long start = System.nanoTime();
+            final List<Future<?>> futures = new ArrayList<>(clients);
+            for (int index = 0; index < clients; index++) {
+                futures.add(executor.submit(() -> {
+                    for (int cycle = 0; cycle < cycles; cycle++) {
+                        this.cycle();
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+            final long millis = (System.nanoTime() - start) / 1_000_000;
+            final long requests = 4L * clients * cycles;
+            final int javaVersion = Runtime.version()
+                                           .feature();
+            log.infof("CRUD benchmark with %s threads on Java %d: %d clients, %d requests in %d ms, %d requests/s.",
+                      this.virtualThreads && javaVersion >= 21 ? "virtual" : "platform", javaVersion, clients, requests, millis, requests * 1000 / Math.max(1, millis));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void cycle() {
+        final Modell inserted = this.client.post(this.producer.produce());
+        final Modell found = this.client.get(inserted.getId());
+        final Modell updated = this.client.put(this.producer.change(found));
+        this.client.delete(updated.getId());
+    }
+}
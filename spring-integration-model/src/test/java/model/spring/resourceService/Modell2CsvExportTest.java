@@ -0,0 +1,77 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package model.spring.resourceService;
+
+import io.github.agache41.rest.contract.configuration.RestContractCoreTestPersistenceConfiguration;
+import io.github.agache41.rest.contract.entities.Modell2;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.http.ContentType.JSON;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+@Import(RestContractCoreTestPersistenceConfiguration.class)
+public class Modell2CsvExportTest {
+
+    private static final String path = "/modell2";
+
+    @Test
+    public void testExportAsCsv() {
+        final Modell2 quoted = new Modell2();
+        quoted.setId("csv1");
+        quoted.setName("Doe, \"J\"");
+        quoted.setAge(1);
+        final Modell2 plain = new Modell2();
+        plain.setId("csv2");
+        plain.setName("plain");
+        plain.setStreet("street");
+        plain.setNumber(2);
+        given().contentType(JSON)
+               .body(List.of(quoted, plain))
+               .post(path + "/list/asList")
+               .then()
+               .statusCode(200);
+
+        given().accept("text/csv")
+               .queryParam("id", "csv1", "csv2")
+               .queryParam("orderBy", "id")
+               .get(path + "/export/asCsv")
+               .then()
+               .statusCode(200)
+               .contentType(startsWith("text/csv"))
+               .body(equalTo("id,name,street,number,age\r\n" +
+                             "csv1,\"Doe, \"\"J\"\"\",,,1\r\n" +
+                             "csv2,plain,street,2,0\r\n"));
+
+        given().accept("text/csv")
+               .queryParam("unknown", "value")
+               .get(path + "/export/asCsv")
+               .then()
+               .statusCode(greaterThanOrEqualTo(400));
+
+        given().delete(path + "/byIds/csv1,csv2")
+               .then()
+               .statusCode(lessThan(300));
+    }
+}
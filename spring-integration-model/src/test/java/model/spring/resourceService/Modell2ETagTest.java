@@ -0,0 +1,97 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package model.spring.resourceService;
+
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.configuration.RestContractCoreTestPersistenceConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.http.ContentType.JSON;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+@Import(RestContractCoreTestPersistenceConfiguration.class)
+public class Modell2ETagTest {
+
+    private static final String path = "/modell2";
+    private static final String id = "eTag";
+
+    @Test
+    public void testConditionalRequests() {
+        final Modell2 modell2 = new Modell2();
+        modell2.setId(id);
+        modell2.setName("name");
+        modell2.setAge(1);
+        given().contentType(JSON)
+               .body(modell2)
+               .post(path)
+               .then()
+               .statusCode(200);
+
+        final String eTag = given().get(path + "/" + id)
+                                   .then()
+                                   .statusCode(200)
+                                   .header("ETag", notNullValue())
+                                   .extract()
+                                   .header("ETag");
+        given().header("If-None-Match", eTag)
+               .get(path + "/" + id)
+               .then()
+               .statusCode(304);
+
+        final String listETag = given().get(path + "/byIds/" + id + "/asList")
+                                       .then()
+                                       .statusCode(200)
+                                       .header("ETag", notNullValue())
+                                       .extract()
+                                       .header("ETag");
+        given().header("If-None-Match", listETag)
+               .get(path + "/byIds/" + id + "/asList")
+               .then()
+               .statusCode(304);
+
+        modell2.setName("changed");
+        given().contentType(JSON)
+               .header("If-Match", "\"outdated\"")
+               .body(modell2)
+               .put(path)
+               .then()
+               .statusCode(412);
+        given().contentType(JSON)
+               .header("If-Match", eTag)
+               .body(modell2)
+               .put(path)
+               .then()
+               .statusCode(200)
+               .body("name", equalTo("changed"));
+
+        given().header("If-None-Match", eTag)
+               .get(path + "/" + id)
+               .then()
+               .statusCode(200)
+               .header("ETag", not(equalTo(eTag)));
+
+        given().delete(path + "/" + id)
+               .then()
+               .statusCode(lessThan(300));
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package model.spring.resourceService;
+
+import io.github.agache41.rest.contract.configuration.RestContractCoreTestPersistenceConfiguration;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.producer.Producer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+@Import(RestContractCoreTestPersistenceConfiguration.class)
+public class Modell2ReactiveResourceServiceTest {
+
+    private static final String path = "/modell2Reactive";
+
+    private final Producer<Modell2> producer = Producer.ofClass(Modell2.class);
+
+    @Autowired
+    protected WebTestClient webTestClient;
+
+    private static List<String> ids(final List<Modell2> modell2s) {
+        return modell2s.stream()
+                       .map(Modell2::getId)
+                       .collect(Collectors.toList());
+    }
+
+    private static String inPath(final List<String> ids) {
+        return String.join(",", ids);
+    }
+
+    private Modell2 change(final Modell2 source) {
+        final Modell2 change = this.producer.change(source);
+        change.setId(source.getId());
+        return change;
+    }
+
+    private List<Modell2> postListAsList(final List<Modell2> modell2s) {
+        return this.webTestClient.post()
+                                 .uri(path + "/list/asList")
+                                 .contentType(APPLICATION_JSON)
+                                 .bodyValue(modell2s)
+                                 .exchange()
+                                 .expectStatus()
+                                 .isOk()
+                                 .expectBodyList(Modell2.class)
+                                 .returnResult()
+                                 .getResponseBody();
+    }
+
+    private List<Modell2> getByIdsAsList(final List<String> ids) {
+        return this.webTestClient.get()
+                                 .uri(path + "/byIds/" + inPath(ids) + "/asList")
+                                 .exchange()
+                                 .expectStatus()
+                                 .isOk()
+                                 .expectBodyList(Modell2.class)
+                                 .returnResult()
+                                 .getResponseBody();
+    }
+
+    private void deleteByIdsInPath(final List<String> ids) {
+        this.webTestClient.delete()
+                          .uri(path + "/byIds/" + inPath(ids))
+                          .exchange()
+                          .expectStatus()
+                          .isOk();
+    }
+
+    @Test
+    public void testPostAndGet() {
+        //given
+        final List<Modell2> insertedData = this.producer.produceList(3);
+        final Modell2 first = insertedData.get(0);
+        final Modell2 second = insertedData.get(1);
+        final Modell2 third = insertedData.get(2);
+
+        //when
+        this.webTestClient.post()
+                          .uri(path)
+                          .contentType(APPLICATION_JSON)
+                          .bodyValue(first)
+                          .exchange()
+                          .expectStatus()
+                          .isOk()
+                          .expectBody(Modell2.class)
+                          .isEqualTo(first);
+        assertEquals(List.of(second, third), this.postListAsList(List.of(second, third)));
+
+        //then
+        this.webTestClient.get()
+                          .uri(path + "/{id}", first.getId())
+                          .exchange()
+                          .expectStatus()
+                          .isOk()
+                          .expectBody(Modell2.class)
+                          .isEqualTo(first);
+        this.webTestClient.post()
+                          .uri(path + "/byId")
+                          .contentType(APPLICATION_JSON)
+                          .bodyValue(second.getId())
+                          .exchange()
+                          .expectStatus()
+                          .isOk()
+                          .expectBody(Modell2.class)
+                          .isEqualTo(second);
+        assertEquals(Set.of(first, third), Set.copyOf(this.getByIdsAsList(List.of(first.getId(), third.getId()))));
+        this.webTestClient.get()
+                          .uri(path + "/{id}", this.producer.produce()
+                                                            .getId())
+                          .exchange()
+                          .expectStatus()
+                          .is5xxServerError();
+
+        this.deleteByIdsInPath(ids(insertedData));
+    }
+
+    @Test
+    public void testPutAndDelete() {
+        //given
+        final List<Modell2> insertedData = this.producer.produceList(4);
+        this.postListAsList(insertedData);
+        final List<String> ids = ids(insertedData);
+        final Modell2 first = this.change(insertedData.get(0));
+        final List<Modell2> changes = List.of(this.change(insertedData.get(1)), this.change(insertedData.get(2)));
+
+        //when
+        this.webTestClient.put()
+                          .uri(path)
+                          .contentType(APPLICATION_JSON)
+                          .bodyValue(first)
+                          .exchange()
+                          .expectStatus()
+                          .isOk()
+                          .expectBody(Modell2.class)
+                          .isEqualTo(first);
+        this.webTestClient.put()
+                          .uri(path + "/list/asList")
+                          .contentType(APPLICATION_JSON)
+                          .bodyValue(changes)
+                          .exchange()
+                          .expectStatus()
+                          .isOk()
+                          .expectBodyList(Modell2.class)
+                          .isEqualTo(changes);
+
+        //then
+        assertEquals(Set.of(first, changes.get(0), changes.get(1), insertedData.get(3)), Set.copyOf(this.getByIdsAsList(ids)));
+
+        //when
+        this.webTestClient.delete()
+                          .uri(path + "/{id}", ids.get(0))
+                          .exchange()
+                          .expectStatus()
+                          .isOk();
+        this.webTestClient.method(HttpMethod.DELETE)
+                          .uri(path + "/byIds")
+                          .contentType(APPLICATION_JSON)
+                          .bodyValue(ids.subList(1, 2))
+                          .exchange()
+                          .expectStatus()
+                          .isOk();
+        this.deleteByIdsInPath(ids.subList(2, 4));
+
+        //then
+        assertEquals(List.of(), this.getByIdsAsList(ids));
+    }
+
+    @Test
+    public void testListAndStream() {
+        //given the entities sharing a name, in the order of the ids
+        final List<Modell2> insertedData = this.producer.produceList(5);
+        final String name = this.producer.produce()
+                                         .getName();
+        insertedData.forEach(modell2 -> modell2.setName(name));
+        insertedData.sort(Comparator.comparing(Modell2::getId));
+        this.postListAsList(insertedData);
+
+        //then listed by a filter and paged
+        this.webTestClient.get()
+                          .uri(uriBuilder -> uriBuilder.path(path + "/all/asList")
+                                                       .queryParam("name", name)
+                                                       .queryParam("orderBy", "id")
+                                                       .build())
+                          .exchange()
+                          .expectStatus()
+                          .isOk()
+                          .expectBodyList(Modell2.class)
+                          .isEqualTo(insertedData);
+        this.webTestClient.get()
+                          .uri(uriBuilder -> uriBuilder.path(path + "/all/asList")
+                                                       .queryParam("name", name)
+                                                       .queryParam("orderBy", "id")
+                                                       .queryParam("firstResult", 1)
+                                                       .queryParam("maxResults", 2)
+                                                       .build())
+                          .exchange()
+                          .expectStatus()
+                          .isOk()
+                          .expectBodyList(Modell2.class)
+                          .isEqualTo(insertedData.subList(1, 3));
+        this.webTestClient.get()
+                          .uri(path + "/filter/name/equals/{value}/asList", name)
+                          .exchange()
+                          .expectStatus()
+                          .isOk()
+                          .expectBodyList(Modell2.class)
+                          .isEqualTo(insertedData);
+
+        //then streamed as newline delimited json, in pages smaller than the result
+        final List<Modell2> streamed = this.webTestClient.get()
+                                                         .uri(uriBuilder -> uriBuilder.path(path + "/all/asStream")
+                                                                                      .queryParam("name", name)
+                                                                                      .queryParam("pageSize", 2)
+                                                                                      .build())
+                                                         .accept(APPLICATION_NDJSON)
+                                                         .exchange()
+                                                         .expectStatus()
+                                                         .isOk()
+                                                         .expectHeader()
+                                                         .contentTypeCompatibleWith(APPLICATION_NDJSON)
+                                                         .returnResult(Modell2.class)
+                                                         .getResponseBody()
+                                                         .collectList()
+                                                         .block();
+        assertEquals(insertedData, streamed);
+
+        this.deleteByIdsInPath(ids(insertedData));
+    }
+}
@@ -0,0 +1,109 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package model.spring.resourceService;
+
+import io.github.agache41.rest.contract.configuration.RestContractCoreTestPersistenceConfiguration;
+import io.github.agache41.rest.contract.dataAccess.DataAccess;
+import io.github.agache41.rest.contract.dataAccess.DataBinder;
+import io.github.agache41.rest.contract.entities.Modell2;
+import io.github.agache41.rest.contract.producer.Producer;
+import io.github.agache41.rest.contract.resourceService.AbstractReactiveResourceServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+@Import(RestContractCoreTestPersistenceConfiguration.class)
+public class Modell2ReactiveStreamTest {
+
+    private final Producer<Modell2> producer = Producer.ofClass(Modell2.class);
+
+    @Autowired
+    protected DataAccess<Modell2, String> dataAccess;
+
+    @Autowired
+    protected DataBinder<Modell2, Modell2, String> dataBinder;
+
+    @Test
+    public void testGetAllAsStream() {
+        //given
+        final List<Modell2> modell2s = this.producer.produceList(6);
+        final String name = this.producer.produce()
+                                         .getName();
+        IntStream.range(0, modell2s.size())
+                 .forEach(index -> {
+                     modell2s.get(index)
+                             .setName(name);
+                     modell2s.get(index)
+                             .setAge(index);
+                 });
+        final AbstractReactiveResourceServiceImpl<Modell2, Modell2, String> resourceService = new AbstractReactiveResourceServiceImpl<>() {
+            @Override
+            public DataBinder<Modell2, Modell2, String> getDataBinder() {
+                return Modell2ReactiveStreamTest.this.dataBinder;
+            }
+
+            @Override
+            public DataAccess<Modell2, String> getDataAccess() {
+                return Modell2ReactiveStreamTest.this.dataAccess;
+            }
+        };
+        resourceService.afterPropertiesSet();
+        this.dataBinder.persist(modell2s);
+        final MultiValueMap<String, String> byName = new LinkedMultiValueMap<>();
+        byName.add("name", name);
+        final MultiValueMap<String, String> byId = new LinkedMultiValueMap<>(byName);
+        byId.add("orderBy", "id");
+        final MultiValueMap<String, String> byAgeDesc = new LinkedMultiValueMap<>(byName);
+        byAgeDesc.add("orderBy", "age desc");
+        final List<String> idsByAgeDesc = modell2s.stream()
+                                                  .sorted(Comparator.comparing(Modell2::getAge)
+                                                                    .reversed())
+                                                  .map(Modell2::getId)
+                                                  .collect(Collectors.toList());
+
+        //then paged by offset in the requested order
+        assertEquals(idsByAgeDesc, ids(resourceService, 4, byAgeDesc));
+        final List<String> idsById = ids(resourceService, 4, byId);
+        assertEquals(modell2s.size(), idsById.size());
+        // paged by id after the last id in the same order, the last page being empty or partial
+        assertEquals(idsById, ids(resourceService, 2, byName));
+        assertEquals(idsById, ids(resourceService, 4, byName));
+        assertEquals(idsById, ids(resourceService, 6, byName));
+    }
+
+    private static List<String> ids(final AbstractReactiveResourceServiceImpl<Modell2, Modell2, String> resourceService,
+                                    final int pageSize,
+                                    final MultiValueMap<String, String> requestParameters) {
+        return resourceService.getAllAsStream(pageSize, requestParameters)
+                              .map(Modell2::getId)
+                              .collectList()
+                              .block();
+    }
+}
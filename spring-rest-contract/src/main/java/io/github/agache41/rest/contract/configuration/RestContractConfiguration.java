@@ -19,7 +19,7 @@ import java.lang.reflect.Field;
  * The type Rest contract configuration.
  */
 @Configuration
-@ComponentScan("io.github.agache41.rest.contract.paramConverter")
+@ComponentScan({"io.github.agache41.rest.contract.paramConverter", "io.github.agache41.rest.contract.responseCache", "io.github.agache41.rest.contract.eTag", "io.github.agache41.rest.contract.deadline", "io.github.agache41.rest.contract.readRouting"})
 public class RestContractConfiguration {
 
     /**
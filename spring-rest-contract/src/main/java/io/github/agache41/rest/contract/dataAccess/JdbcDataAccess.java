@@ -0,0 +1,723 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.dataAccessBase.AbstractDataAccess;
+import io.github.agache41.rest.contract.dataAccessBase.Creator;
+import io.github.agache41.rest.contract.dataAccessBase.Deadline;
+import io.github.agache41.rest.contract.dataAccessBase.DelegatingDataAccess;
+import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.metamodel.mapping.BasicEntityIdentifierMapping;
+import org.hibernate.metamodel.mapping.BasicValuedModelPart;
+import org.hibernate.metamodel.mapping.EntityIdentifierMapping;
+import org.hibernate.metamodel.mapping.JdbcMapping;
+import org.hibernate.metamodel.mapping.SelectableMapping;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import static io.github.agache41.rest.contract.dataAccessBase.PrimaryKey.ID;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * <pre>
+ * Data access backend reading and deleting over plain JDBC, for read heavy resources on flat entities.
+ * It wraps a JPA data access and keeps its contract, so a resource switches to it without API changes :
+ *
+ *      dataBinder.setDataAccess(new JdbcDataAccess&#x3C;&#x3E;(dataAccess));
+ *
+ * The finders, the listBy methods for equals, like, in and content, listAll, the autocomplete of values and the remove methods
+ * run native SQL over the connection of the Entity Manager, in its transaction.
+ * The rows are mapped directly in new entities with precompiled column mappers :
+ * no proxies, no persistence context and no dirty tracking are involved, the returned entities are detached.
+ * The statements are generated from the Hibernate mapping of the entity, so the JPA mapping annotations and the naming strategy apply.
+ * The statement texts are stable per query shape (IN lists are padded to powers of two),
+ * so the prepared statement cache of the driver or of the pool is hit.
+ *
+ * The entities located for updates (findPersisted, mapPersisted), the writes and the other reads are left to JPA.
+ * Only entities mapped in a single table, with a basic id and basic attributes, are supported.
+ * Deletes do not cascade, the removed entities are detached and evicted from the second level cache.
+ * </pre>
+ *
+ * @param <ENTITY> the type parameter
+ * @param <PK>     the type parameter
+ */
+public class JdbcDataAccess<ENTITY extends PrimaryKey<PK>, PK> extends DelegatingDataAccess<ENTITY, PK> {
+
+    /**
+     * <pre>
+     * The table mappings, built once per entity type.
+     * </pre>
+     */
+    private static final Map<EntityPersister, Table> tables = new ConcurrentHashMap<>();
+
+    /**
+     * <pre>
+     * Creates the JDBC backend over a JPA data access, sharing its Entity Managers and its read routing.
+     * </pre>
+     *
+     * @param delegate the JPA data access
+     */
+    public JdbcDataAccess(final AbstractDataAccess<ENTITY, PK> delegate) {
+        super(delegate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ENTITY findById(final PK id, final boolean expected) {
+        if (this.namedQueries.contains(this.findByIdNamedQuery)) {
+            return super.findById(id, expected);
+        }
+        final Where where = new Where().equal(ID, this.assertNotNull(id));
+        return this.assertNotNull(this.select(where, null, 0, 1)
+                                      .stream()
+                                      .findFirst()
+                                      .orElse(null), expected);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The entity is loaded with JPA, as it is to be updated.
+     */
+    @Override
+    public ENTITY findPersisted(final PrimaryKey<PK> source) {
+        this.readRouting.write();
+        return super.findById(this.assertNotNull(source.getId()), true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The entities are loaded with JPA, as they are to be updated.
+     */
+    @Override
+    public Map<PK, ENTITY> mapPersisted(final Collection<? extends PrimaryKey<PK>> filter) {
+        this.readRouting.write();
+        final List<PK> ids = filter.stream()
+                                   .map(PrimaryKey::getId)
+                                   .collect(toList());
+        return super.listByColumnInValues(ID, ids, 0, ids.size(), true)
+                    .stream()
+                    .collect(Collectors.toMap(PrimaryKey<PK>::getId, entity -> entity));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ENTITY> listAll(final int firstResult, final int maxResults, final Map<String, List<String>> requestParameters) {
+        if (this.namedQueries.contains(this.listAllNamedQuery)) {
+            return super.listAll(firstResult, maxResults, requestParameters);
+        }
+        final Map<String, List<Object>> filterQueryParams = this.filterQueryParams(requestParameters);
+        final Where where = new Where();
+        if (!filterQueryParams.isEmpty()) {
+            where.in(filterQueryParams);
+        }
+        return this.select(where, this.orderByQueryParams(requestParameters), firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ENTITY> listByColumnEqualsValue(final String column, final Object value, final int firstResult, final int maxResults, final boolean notNull) {
+        final Where where = new Where();
+        if (this.applyFilter(value, notNull)) {
+            where.equal(column, value);
+        } else {
+            where.isNull(column);
+        }
+        return this.select(where, null, firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ENTITY> listByContentEquals(final Map<String, Object> mapValues, final int firstResult, final int maxResults) {
+        final Where where = new Where();
+        mapValues.entrySet()
+                 .stream()
+                 .filter(this.notReservedNames)
+                 .forEach(entry -> where.equal(entry.getKey(), entry.getValue()));
+        if (where.isEmpty()) {
+            throw new IllegalArgumentException(" Bad Filter Content " + mapValues + " please specify at least one valid field for the field = value (equals) clause! ");
+        }
+        return this.select(where, null, firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ENTITY> listByColumnLikeValue(final String column, final String value, final int firstResult, final int maxResults, final boolean notNull) {
+        return this.select(this.like(column, value, notNull), null, firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> autocompleteByColumnLikeValue(final String column, final String value, final int maxResults, final Map<String, List<String>> requestParameters) {
+        final Where where = this.like(column, value, true);
+        final Map<String, List<Object>> filterQueryParams = this.filterQueryParams(requestParameters);
+        if (!filterQueryParams.isEmpty()) {
+            where.in(filterQueryParams);
+        }
+        final Table table = this.table();
+        final Column selected = table.column(column);
+        final StringBuilder sql = new StringBuilder("select distinct ").append(selected.name)
+                                                                       .append(" from ")
+                                                                       .append(table.name);
+        where.appendTo(sql);
+        sql.append(" order by ")
+           .append(selected.name);
+        return this.execute(sql, where, 0, maxResults, (resultSet, session) -> (String) selected.extract(resultSet, 1, session));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ENTITY> listByColumnInValues(final String column, final Collection<? extends Object> values, final int firstResult, final int maxResults, final boolean notNull) {
+        final Where where = new Where();
+        if (this.applyFilter(values, notNull)) {
+            where.in(column, values);
+        } else {
+            where.isNull(column);
+        }
+        return this.select(where, null, firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ENTITY> listByContentInValues(final Map<String, List<Object>> mapValues, final int firstResult, final int maxResults) {
+        return this.select(new Where().in(mapValues), null, firstResult, maxResults);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(final ENTITY entity) {
+        this.removeById(this.assertNotNull(entity)
+                            .getId());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeById(final PK id) {
+        this.delete(new Where().equal(ID, this.assertNotNull(id)), List.of(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeByIds(final Collection<PK> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        this.delete(new Where().in(ID, ids), ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeByColumnEqualsValue(final String column, final Object value, final boolean notNull) {
+        this.removeByIds(this.listByColumnEqualsValue(column, value, 0, Integer.MAX_VALUE, notNull)
+                             .stream()
+                             .map(PrimaryKey::getId)
+                             .collect(toList()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeByColumnInValues(final String column, final Collection<? extends Object> values, final boolean notNull) {
+        this.removeByIds(this.listByColumnInValues(column, values, 0, Integer.MAX_VALUE, notNull)
+                             .stream()
+                             .map(PrimaryKey::getId)
+                             .collect(toList()));
+    }
+
+    /**
+     * <pre>
+     * The like condition, with the same case and prefix range handling as the JPA like expression.
+     * </pre>
+     *
+     * @param column  the column
+     * @param value   the like pattern
+     * @param notNull if the value can be null
+     * @return the condition
+     */
+    protected Where like(final String column, final String value, final boolean notNull) {
+        final Where where = new Where();
+        if (!this.applyFilter(value, notNull)) {
+            return where.isNull(column);
+        }
+        final boolean ignoreCase = this.likeIgnoreCase(column);
+        final String pattern = ignoreCase ? value.toLowerCase(Locale.ROOT) : value;
+        final String prefix = prefix(pattern);
+        if (prefix != null) {
+            where.compare(column, ignoreCase, " >= ", prefix);
+            final String upperBound = this.upperBound(prefix);
+            if (upperBound != null) {
+                where.compare(column, ignoreCase, " < ", upperBound);
+            }
+        }
+        return where.compare(column, ignoreCase, " like ", pattern);
+    }
+
+    /**
+     * <pre>
+     * Selects the entities matching the condition.
+     * </pre>
+     *
+     * @param where       the condition
+     * @param orderBy     the order, can be null
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the detached entities
+     */
+    protected List<ENTITY> select(final Where where,
+                                  final LinkedHashMap<String, Boolean> orderBy,
+                                  final int firstResult,
+                                  final int maxResults) {
+        final Table table = this.table();
+        final StringBuilder sql = new StringBuilder(table.select);
+        where.appendTo(sql);
+        if (orderBy != null && !orderBy.isEmpty()) {
+            sql.append(orderBy.entrySet()
+                              .stream()
+                              .map(entry -> table.column(entry.getKey()).name + (entry.getValue() ? " asc" : " desc"))
+                              .collect(Collectors.joining(", ", " order by ", "")));
+        }
+        return this.execute(sql, where, firstResult, maxResults, table::read);
+    }
+
+    private <R> List<R> execute(final StringBuilder sql,
+                                final Where where,
+                                final int firstResult,
+                                final int maxResults,
+                                final RowMapper<R> rowMapper) {
+        final SessionImplementor session = this.reader()
+                                               .unwrap(SessionImplementor.class);
+        if (this.isInTransaction()) {
+            session.flush();
+        }
+        final boolean paged = firstResult > 0 || maxResults < Integer.MAX_VALUE;
+        final boolean limitFirst = paged && limitFirst(session.getJdbcServices()
+                                                              .getDialect());
+        if (paged) {
+            sql.append(limitFirst ? " limit ? offset ?" : " offset ? rows fetch next ? rows only");
+        }
+        final int timeout = Deadline.queryTimeoutMillis();
+        return session.doReturningWork(connection -> {
+            try (final PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                if (timeout > 0) {
+                    statement.setQueryTimeout(timeout / 1000);
+                }
+                int index = where.bind(statement, session);
+                if (paged) {
+                    statement.setInt(index++, limitFirst ? maxResults : firstResult);
+                    statement.setInt(index, limitFirst ? firstResult : maxResults);
+                }
+                final List<R> result = new ArrayList<>();
+                try (final ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        result.add(rowMapper.map(resultSet, session));
+                    }
+                }
+                return result;
+            }
+        });
+    }
+
+    private void delete(final Where where,
+                        final Collection<PK> ids) {
+        this.readRouting.write();
+        final Table table = this.table();
+        final SessionImplementor session = this.em()
+                                               .unwrap(SessionImplementor.class);
+        session.flush();
+        final StringBuilder sql = new StringBuilder("delete from ").append(table.name);
+        where.appendTo(sql);
+        final int timeout = Deadline.queryTimeoutMillis();
+        session.doWork(connection -> {
+            try (final PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                if (timeout > 0) {
+                    statement.setQueryTimeout(timeout / 1000);
+                }
+                where.bind(statement, session);
+                statement.executeUpdate();
+            }
+        });
+        for (final PK id : ids) {
+            final EntityKey key = session.generateEntityKey(id, table.persister);
+            final Object managed = session.getPersistenceContextInternal()
+                                          .getEntity(key);
+            if (managed != null) {
+                session.detach(managed);
+            }
+            session.getFactory()
+                   .getCache()
+                   .evictEntityData(table.persister.getEntityName(), id);
+        }
+    }
+
+    private static boolean limitFirst(final Dialect dialect) {
+        return dialect instanceof PostgreSQLDialect || dialect instanceof MySQLDialect || dialect instanceof H2Dialect;
+    }
+
+    /**
+     * <pre>
+     * The table mapping of the entity type, built on first use.
+     * </pre>
+     *
+     * @return the table
+     */
+    protected Table table() {
+        final SessionImplementor session = this.em()
+                                               .unwrap(SessionImplementor.class);
+        return tables.computeIfAbsent(session.getFactory()
+                                             .getMappingMetamodel()
+                                             .getEntityDescriptor(this.type), Table::new);
+    }
+
+    /**
+     * <pre>
+     * The value to bind for a column : strings given for other types are converted in the type of the column.
+     * </pre>
+     *
+     * @param column the column
+     * @param value  the value
+     * @return the converted value
+     */
+    protected Object value(final Column column,
+                           final Object value) {
+        if (value instanceof String && !String.class.equals(column.javaType)) {
+            return this.filterValue(column.attribute, (String) value);
+        }
+        return value;
+    }
+
+    private interface RowMapper<R> {
+        R map(ResultSet resultSet,
+              SessionImplementor session) throws java.sql.SQLException;
+    }
+
+    /**
+     * <pre>
+     * The mapping of an entity type on its table, with a precompiled mapper for each column.
+     * </pre>
+     */
+    protected static class Table {
+        private final EntityPersister persister;
+        private final String name;
+        private final Map<String, Column> columns = new LinkedHashMap<>();
+        private final Column[] selected;
+        private final String select;
+        private final Creator<?> creator;
+
+        /**
+         * Builds the mapping of an entity type.
+         *
+         * @param persister the entity persister
+         * @throws UnexpectedException if the entity is not flat
+         */
+        protected Table(final EntityPersister persister) {
+            this.persister = persister;
+            this.name = persister.getMappedTableDetails()
+                                 .getTableName();
+            this.creator = new Creator<>(persister.getMappedClass());
+            final EntityIdentifierMapping identifierMapping = persister.getIdentifierMapping();
+            if (!(identifierMapping instanceof BasicEntityIdentifierMapping)) {
+                throw new UnexpectedException(persister.getEntityName() + ": JdbcDataAccess supports only basic ids.");
+            }
+            this.add(identifierMapping.getAttributeName(), (BasicEntityIdentifierMapping) identifierMapping, (entity, value) -> identifierMapping.setIdentifier(entity, value, null));
+            persister.forEachAttributeMapping(attribute -> {
+                if (!(attribute instanceof BasicValuedModelPart)) {
+                    throw new UnexpectedException(persister.getEntityName() + ": JdbcDataAccess supports only basic attributes, found " + attribute.getAttributeName());
+                }
+                this.add(attribute.getAttributeName(), (BasicValuedModelPart) attribute, attribute.getPropertyAccess()
+                                                                                                   .getSetter()::set);
+            });
+            this.selected = this.columns.values()
+                                        .toArray(new Column[0]);
+            this.select = Arrays.stream(this.selected)
+                                .map(column -> column.name)
+                                .collect(Collectors.joining(", ", "select ", " from " + this.name));
+        }
+
+        private void add(final String attribute,
+                         final SelectableMapping selectable,
+                         final BiConsumer<Object, Object> setter) {
+            if (selectable.isFormula() || !this.name.equals(selectable.getContainingTableExpression())) {
+                throw new UnexpectedException(this.persister.getEntityName() + ": JdbcDataAccess supports only entities mapped in a single table, found " + selectable.getContainingTableExpression() + "." + selectable.getSelectionExpression());
+            }
+            this.columns.put(attribute, new Column(attribute, selectable.getSelectionExpression(), selectable.getJdbcMapping(), setter));
+        }
+
+        /**
+         * Gets the column mapped by an attribute.
+         *
+         * @param attribute the attribute name
+         * @return the column
+         * @throws IllegalArgumentException if the attribute is not mapped
+         */
+        protected Column column(final String attribute) {
+            final Column column = this.columns.get(attribute);
+            if (column == null) {
+                throw new IllegalArgumentException(" Bad Filter Content " + attribute + " is not a column of " + this.persister.getEntityName() + " !");
+            }
+            return column;
+        }
+
+        private <ENTITY> ENTITY read(final ResultSet resultSet,
+                                     final SessionImplementor session) throws java.sql.SQLException {
+            final ENTITY entity = (ENTITY) this.creator.create();
+            for (int index = 0; index < this.selected.length; index++) {
+                final Column column = this.selected[index];
+                column.setter.accept(entity, column.extract(resultSet, index + 1, session));
+            }
+            return entity;
+        }
+    }
+
+    /**
+     * <pre>
+     * A mapped column.
+     * </pre>
+     */
+    protected static class Column {
+        private final String attribute;
+        private final String name;
+        private final JdbcMapping jdbcMapping;
+        private final Class<?> javaType;
+        private final BiConsumer<Object, Object> setter;
+
+        private Column(final String attribute,
+                       final String name,
+                       final JdbcMapping jdbcMapping,
+                       final BiConsumer<Object, Object> setter) {
+            this.attribute = attribute;
+            this.name = name;
+            this.jdbcMapping = jdbcMapping;
+            this.javaType = jdbcMapping.getJavaTypeDescriptor()
+                                       .getJavaTypeClass();
+            this.setter = setter;
+        }
+
+        private Object extract(final ResultSet resultSet,
+                               final int index,
+                               final SessionImplementor session) throws java.sql.SQLException {
+            return this.jdbcMapping.convertToDomainValue(this.jdbcMapping.getJdbcValueExtractor()
+                                                                         .extract(resultSet, index, session));
+        }
+
+        private void bind(final PreparedStatement statement,
+                          final Object value,
+                          final int index,
+                          final SessionImplementor session) throws java.sql.SQLException {
+            this.jdbcMapping.getJdbcValueBinder()
+                            .bind(statement, this.jdbcMapping.convertToRelationalValue(value), index, session);
+        }
+    }
+
+    /**
+     * <pre>
+     * The conditions of a statement, joined with and, together with the values to bind.
+     * </pre>
+     */
+    protected class Where {
+        private final StringBuilder sql = new StringBuilder();
+        private final List<Column> columns = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+
+        private Where and(final String condition) {
+            this.sql.append(this.sql.length() == 0 ? " where " : " and ")
+                    .append(condition);
+            return this;
+        }
+
+        private Where parameter(final Column column,
+                                final Object value) {
+            this.columns.add(column);
+            this.values.add(JdbcDataAccess.this.value(column, value));
+            return this;
+        }
+
+        /**
+         * Adds column = value.
+         *
+         * @param attribute the attribute
+         * @param value     the value
+         * @return this
+         */
+        protected Where equal(final String attribute,
+                              final Object value) {
+            final Column column = JdbcDataAccess.this.table()
+                                                     .column(attribute);
+            return this.and(column.name + " = ?")
+                       .parameter(column, value);
+        }
+
+        /**
+         * Adds column is null.
+         *
+         * @param attribute the attribute
+         * @return this
+         */
+        protected Where isNull(final String attribute) {
+            return this.and(JdbcDataAccess.this.table()
+                                               .column(attribute).name + " is null");
+        }
+
+        /**
+         * Adds a comparison of the column, optionally in lower case, with a value.
+         *
+         * @param attribute  the attribute
+         * @param lower      if the column is compared in lower case
+         * @param comparison the comparison operator
+         * @param value      the value
+         * @return this
+         */
+        protected Where compare(final String attribute,
+                                final boolean lower,
+                                final String comparison,
+                                final Object value) {
+            final Column column = JdbcDataAccess.this.table()
+                                                     .column(attribute);
+            return this.and((lower ? "lower(" + column.name + ")" : column.name) + comparison + "?")
+                       .parameter(column, value);
+        }
+
+        /**
+         * Adds column in (values), the list of parameters is padded to the next power of two by repeating the last value.
+         *
+         * @param attribute the attribute
+         * @param values    the values
+         * @return this
+         */
+        protected Where in(final String attribute,
+                           final Collection<?> values) {
+            final Column column = JdbcDataAccess.this.table()
+                                                     .column(attribute);
+            if (values.isEmpty()) {
+                return this.and("1 = 0");
+            }
+            final int size = Integer.highestOneBit(values.size() - 1) << 1;
+            final int padded = values.size() == 1 ? 1 : size;
+            this.and(column.name + " in (" + String.join(", ", Collections.nCopies(padded, "?")) + ")");
+            Object last = null;
+            for (final Object value : values) {
+                this.parameter(column, value);
+                last = value;
+            }
+            for (int index = values.size(); index < padded; index++) {
+                this.parameter(column, last);
+            }
+            return this;
+        }
+
+        /**
+         * Adds the conditions of the request filters : in for attributes, comparisons for range filters.
+         *
+         * @param filters the converted filters
+         * @return this
+         */
+        protected Where in(final Map<String, List<Object>> filters) {
+            final boolean empty = this.isEmpty();
+            filters.entrySet()
+                   .stream()
+                   .filter(JdbcDataAccess.this.notReservedNames)
+                   .forEach(entry -> {
+                       final String[] rangeFilter = JdbcDataAccess.this.rangeFilter(entry.getKey());
+                       if (rangeFilter == null) {
+                           this.in(entry.getKey(), entry.getValue());
+                       } else {
+                           entry.getValue()
+                                .forEach(value -> this.compare(rangeFilter[0], false, comparison(rangeFilter[1]), value));
+                       }
+                   });
+            if (empty && this.isEmpty()) {
+                throw new IllegalArgumentException(" Bad Filter Content " + filters + " please provide at least one field for the field in (..values) clause!");
+            }
+            return this;
+        }
+
+        /**
+         * Tells if no condition was added.
+         *
+         * @return the boolean
+         */
+        protected boolean isEmpty() {
+            return this.sql.length() == 0;
+        }
+
+        private void appendTo(final StringBuilder statement) {
+            statement.append(this.sql);
+        }
+
+        private int bind(final PreparedStatement statement,
+                         final SessionImplementor session) throws java.sql.SQLException {
+            for (int index = 0; index < this.values.size(); index++) {
+                this.columns.get(index)
+                            .bind(statement, this.values.get(index), index + 1, session);
+            }
+            return this.values.size() + 1;
+        }
+    }
+
+    private static String comparison(final String operator) {
+        switch (operator) {
+            case GT:
+                return " > ";
+            case GE:
+                return " >= ";
+            case LT:
+                return " < ";
+            case LE:
+                return " <= ";
+            default:
+                throw new IllegalArgumentException(" Bad Filter Content " + operator + " is not a range operator !");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.dataAccessBase.TextSearch;
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * <pre>
+ * Registers in Hibernate the function used by the {@link TextSearch.FullText} strategy.
+ * The function is rendered for the dialect in use :
+ *      PostgreSQL : to_tsvector('simple', column) @@ plainto_tsquery('simple', terms)
+ *                   index : create index ... on table using gin (to_tsvector('simple', column))
+ *      MySQL      : match(column) against(terms in boolean mode), with every term required
+ *                   index : create fulltext index ... on table (column)
+ *      others     : a case insensitive substring search of the terms, without index support,
+ *                   so that the same entities keep working on H2 in the tests.
+ *
+ * The contributor is found by Hibernate through the java.util.ServiceLoader.
+ * </pre>
+ */
+public class TextSearchFunctions implements FunctionContributor {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void contributeFunctions(final FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry()
+                             .registerPattern(TextSearch.FullText.MATCH, pattern(functionContributions.getDialect()), functionContributions.getTypeConfiguration()
+                                                                                                                                          .getBasicTypeRegistry()
+                                                                                                                                          .resolve(StandardBasicTypes.BOOLEAN));
+    }
+
+    /**
+     * The sql pattern of the match function for a dialect.
+     *
+     * @param dialect the dialect
+     * @return the sql pattern, ?1 is the column and ?2 the terms
+     */
+    protected static String pattern(final Dialect dialect) {
+        if (dialect instanceof PostgreSQLDialect) {
+            return "(to_tsvector('simple',?1) @@ plainto_tsquery('simple',?2))";
+        }
+        if (dialect instanceof MySQLDialect) {
+            return "(match(?1) against(concat('+',replace(?2,' ',' +')) in boolean mode))";
+        }
+        return "(lower(?1) like concat('%',lower(?2),'%'))";
+    }
+}
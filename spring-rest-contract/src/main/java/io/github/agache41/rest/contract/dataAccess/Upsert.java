@@ -0,0 +1,412 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.dataAccess;
+
+import io.github.agache41.rest.contract.exceptions.UnexpectedException;
+import io.github.agache41.rest.contract.update.reflector.ClassReflector;
+import io.github.agache41.rest.contract.update.reflector.FieldReflector;
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.metamodel.mapping.*;
+import org.hibernate.metamodel.mapping.internal.ToOneAttributeMapping;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * <pre>
+ * Inserts or updates entities with one native statement per entity, sent in JDBC batches.
+ * The statement is built once per entity type, for the dialect in use :
+ *      PostgreSQL : insert into ... on conflict (id) do update set ...
+ *      MySQL      : insert into ... on duplicate key update ...
+ *      others     : merge into ... using (values ...) ... when matched then update ... when not matched then insert ...
+ *
+ * The columns come from the Hibernate mapping, the update policy from the @ {@link io.github.agache41.rest.contract.update.Update} metadata :
+ *      fields not marked for update, or not updatable, are only written on insert
+ *      dynamic fields keep the current value when the new one is null
+ *      the numeric version is incremented on update, other versions are replaced
+ * Collections are not written and the entity must be mapped in a single table.
+ * The persistence context and the second level cache entries of the written entities are cleared.
+ * </pre>
+ *
+ * @param <ENTITY> the type parameter
+ */
+public class Upsert<ENTITY> {
+
+    private static final Map<EntityPersister, Upsert<?>> cache = new ConcurrentHashMap<>();
+
+    private final EntityPersister persister;
+    private final List<AttributeMapping> attributes = new ArrayList<>();
+    private final List<Column> columns = new ArrayList<>();
+    private final String sql;
+
+    /**
+     * <pre>
+     * Builds the statement for the entity type.
+     * </pre>
+     *
+     * @param persister the entity persister
+     * @param type      the entity type
+     * @param dialect   the dialect
+     */
+    protected Upsert(final EntityPersister persister,
+                     final Class<ENTITY> type,
+                     final Dialect dialect) {
+        this.persister = persister;
+        final String table = persister.getMappedTableDetails()
+                                      .getTableName();
+        final Map<String, FieldReflector<ENTITY, ENTITY, ?, ?>> reflectors = ClassReflector.ofClass(type)
+                                                                                           .getReflectors();
+        persister.getIdentifierMapping()
+                 .forEachSelectable((index, selectable) -> this.add(table, selectable, Role.ID));
+        final EntityVersionMapping versionMapping = persister.getVersionMapping();
+        persister.forEachAttributeMapping(attribute -> {
+            if (attribute instanceof PluralAttributeMapping || (versionMapping != null && attribute == versionMapping.getVersionAttribute())) {
+                return;
+            }
+            // the inverse side of a to one association has no column in the table
+            if (attribute instanceof ToOneAttributeMapping && ((ToOneAttributeMapping) attribute).getSideNature() != ForeignKeyDescriptor.Nature.KEY) {
+                return;
+            }
+            final FieldReflector<ENTITY, ENTITY, ?, ?> reflector = reflectors.get(attribute.getAttributeName());
+            final Role role;
+            if (reflector == null || !reflector.isActiv() || !reflector.isUpdatable()) {
+                role = Role.INSERT;
+            } else if (reflector.isDynamic()) {
+                role = Role.DYNAMIC;
+            } else {
+                role = Role.UPDATE;
+            }
+            this.attributes.add(attribute);
+            attribute.forEachSelectable((index, selectable) -> {
+                if (included(selectable)) {
+                    this.add(table, selectable, role);
+                }
+            });
+        });
+        if (versionMapping != null) {
+            this.add(table, versionMapping, Number.class.isAssignableFrom(versionMapping.getJavaType()
+                                                                                        .getJavaTypeClass()) ? Role.INCREMENT : Role.UPDATE);
+        }
+        this.sql = sql(dialect, table, this.columns);
+    }
+
+    /**
+     * <pre>
+     * The upsert of an entity type, built on first use.
+     * </pre>
+     *
+     * @param <ENTITY> the type parameter
+     * @param em       the entity manager
+     * @param type     the entity type
+     * @return the upsert
+     */
+    @SuppressWarnings("unchecked")
+    public static <ENTITY> Upsert<ENTITY> of(final EntityManager em,
+                                             final Class<ENTITY> type) {
+        final SessionImplementor session = em.unwrap(SessionImplementor.class);
+        final EntityPersister persister = session.getFactory()
+                                                 .getMappingMetamodel()
+                                                 .getEntityDescriptor(type);
+        return (Upsert<ENTITY>) cache.computeIfAbsent(persister, key -> new Upsert<>(key, type, session.getJdbcServices()
+                                                                                                       .getDialect()));
+    }
+
+    /**
+     * <pre>
+     * Writes the entities, flushing first the pending changes of the persistence context.
+     * </pre>
+     *
+     * @param em        the entity manager
+     * @param sources   the entities
+     * @param batchSize the number of statements sent in one batch
+     * @return the number of entities written
+     */
+    public int execute(final EntityManager em,
+                       final Collection<ENTITY> sources,
+                       final int batchSize) {
+        final SessionImplementor session = em.unwrap(SessionImplementor.class);
+        session.flush();
+        final List<Object> ids = new ArrayList<>(sources.size());
+        final List<Object[]> rows = new ArrayList<>(sources.size());
+        for (final ENTITY source : sources) {
+            final Object id = this.persister.getIdentifier(source, session);
+            if (id == null) {
+                throw new UnexpectedException(this.persister.getEntityName() + ": Expecting the id of every entity in upsert.");
+            }
+            ids.add(id);
+            rows.add(this.values(source, id, session));
+        }
+        session.doWork(connection -> {
+            try (final PreparedStatement statement = connection.prepareStatement(this.sql)) {
+                int batched = 0;
+                for (final Object[] row : rows) {
+                    for (int index = 0; index < row.length; index++) {
+                        this.columns.get(index).jdbcMapping.getJdbcValueBinder()
+                                                           .bind(statement, row[index], index + 1, session);
+                    }
+                    statement.addBatch();
+                    if (++batched % batchSize == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                if (batched % batchSize != 0) {
+                    statement.executeBatch();
+                }
+            }
+        });
+        for (final Object id : ids) {
+            final EntityKey key = session.generateEntityKey(id, this.persister);
+            final Object managed = session.getPersistenceContextInternal()
+                                          .getEntity(key);
+            if (managed != null) {
+                session.detach(managed);
+            }
+            session.getFactory()
+                   .getCache()
+                   .evictEntityData(this.persister.getEntityName(), id);
+        }
+        return rows.size();
+    }
+
+    /**
+     * The native statement.
+     *
+     * @return the sql
+     */
+    public String getSql() {
+        return this.sql;
+    }
+
+    private Object[] values(final ENTITY source,
+                            final Object id,
+                            final SessionImplementor session) {
+        final List<Object> values = new ArrayList<>(this.columns.size());
+        this.persister.getIdentifierMapping()
+                      .breakDownJdbcValues(id, (index, value, selectable) -> values.add(value), session);
+        final ModelPart.JdbcValueConsumer consumer = (index, value, selectable) -> {
+            if (included(selectable)) {
+                values.add(value);
+            }
+        };
+        for (final AttributeMapping attribute : this.attributes) {
+            final Object value = attribute.getValue(source);
+            if (attribute instanceof ToOneAttributeMapping) {
+                // the key is read from the associated entity as it is, the entity is not attached to the session
+                final ForeignKeyDescriptor foreignKey = ((ToOneAttributeMapping) attribute).getForeignKeyDescriptor();
+                foreignKey.getKeyPart()
+                          .breakDownJdbcValues(value == null ? null : targetValue(foreignKey.getTargetPart(), value), consumer, session);
+            } else {
+                attribute.breakDownJdbcValues(value, consumer, session);
+            }
+        }
+        final EntityVersionMapping versionMapping = this.persister.getVersionMapping();
+        if (versionMapping != null) {
+            values.add(versionMapping.getJavaType()
+                                     .seed(null, null, null, session));
+        }
+        return values.toArray();
+    }
+
+    private static Object targetValue(final ValuedModelPart targetPart,
+                                      final Object associated) {
+        if (targetPart instanceof EntityIdentifierMapping) {
+            return ((EntityIdentifierMapping) targetPart).getIdentifier(associated);
+        }
+        return ((AttributeMapping) targetPart).getValue(associated);
+    }
+
+    private void add(final String table,
+                     final SelectableMapping selectable,
+                     final Role role) {
+        if (!table.equals(selectable.getContainingTableExpression())) {
+            throw new UnexpectedException(this.persister.getEntityName() + ": Upsert supports only entities mapped in a single table, found " + selectable.getContainingTableExpression() + "." + selectable.getSelectionExpression());
+        }
+        this.columns.add(new Column(selectable.getSelectionExpression(), selectable.getJdbcMapping(), role));
+    }
+
+    private static boolean included(final SelectableMapping selectable) {
+        return !selectable.isFormula() && selectable.isInsertable();
+    }
+
+    /**
+     * <pre>
+     * Builds the upsert statement for a dialect.
+     * </pre>
+     *
+     * @param dialect the dialect
+     * @param table   the table
+     * @param columns the columns, in the order of the parameters
+     * @return the sql
+     */
+    protected static String sql(final Dialect dialect,
+                                final String table,
+                                final List<Column> columns) {
+        final String names = join(columns, "", ", ");
+        final String parameters = columns.stream()
+                                         .map(column -> "?")
+                                         .collect(Collectors.joining(", "));
+        final List<Column> ids = columns.stream()
+                                        .filter(column -> column.role == Role.ID)
+                                        .collect(Collectors.toList());
+        final List<Column> updated = columns.stream()
+                                            .filter(column -> column.role != Role.ID && column.role != Role.INSERT)
+                                            .collect(Collectors.toList());
+        final StringBuilder sql = new StringBuilder();
+        if (dialect instanceof PostgreSQLDialect) {
+            sql.append("insert into ")
+               .append(table)
+               .append(" as t (")
+               .append(names)
+               .append(") values (")
+               .append(parameters)
+               .append(") on conflict (")
+               .append(join(ids, "", ", "))
+               .append(") do ")
+               .append(updated.isEmpty() ? "nothing" : "update set " + set(updated, "excluded.", "t."));
+        } else if (dialect instanceof MySQLDialect) {
+            sql.append("insert into ")
+               .append(table)
+               .append(" (")
+               .append(names)
+               .append(") values (")
+               .append(parameters)
+               .append(") on duplicate key update ")
+               .append(updated.isEmpty() ? ids.get(0).name + " = " + ids.get(0).name : updated.stream()
+                                                                                             .map(column -> column.name + " = " + column.value("values(" + column.name + ")", column.name))
+                                                                                             .collect(Collectors.joining(", ")));
+        } else {
+            sql.append("merge into ")
+               .append(table)
+               .append(" t using (values (")
+               .append(parameters)
+               .append(")) s (")
+               .append(names)
+               .append(") on (")
+               .append(ids.stream()
+                          .map(column -> "t." + column.name + " = s." + column.name)
+                          .collect(Collectors.joining(" and ")))
+               .append(")");
+            if (!updated.isEmpty()) {
+                sql.append(" when matched then update set ")
+                   .append(set(updated, "s.", "t."));
+            }
+            sql.append(" when not matched then insert (")
+               .append(names)
+               .append(") values (")
+               .append(join(columns, "s.", ", "))
+               .append(")");
+        }
+        return sql.toString();
+    }
+
+    private static String join(final List<Column> columns,
+                               final String prefix,
+                               final String delimiter) {
+        return columns.stream()
+                      .map(column -> prefix + column.name)
+                      .collect(Collectors.joining(delimiter));
+    }
+
+    private static String set(final List<Column> columns,
+                              final String source,
+                              final String target) {
+        return columns.stream()
+                      .map(column -> column.name + " = " + column.value(source + column.name, target + column.name))
+                      .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * The role of a column in the statement.
+     */
+    protected enum Role {
+        /**
+         * Part of the primary key, matched on conflict.
+         */
+        ID,
+        /**
+         * Written only on insert.
+         */
+        INSERT,
+        /**
+         * Replaced on update.
+         */
+        UPDATE,
+        /**
+         * Replaced on update by a non null value.
+         */
+        DYNAMIC,
+        /**
+         * The version, incremented on update.
+         */
+        INCREMENT
+    }
+
+    /**
+     * A column of the statement.
+     */
+    protected static class Column {
+        private final String name;
+        private final JdbcMapping jdbcMapping;
+        private final Role role;
+
+        /**
+         * Instantiates a new Column.
+         *
+         * @param name        the column name
+         * @param jdbcMapping the jdbc mapping
+         * @param role        the role
+         */
+        protected Column(final String name,
+                         final JdbcMapping jdbcMapping,
+                         final Role role) {
+            this.name = name;
+            this.jdbcMapping = jdbcMapping;
+            this.role = role;
+        }
+
+        /**
+         * Gets the column name.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        private String value(final String newValue,
+                             final String currentValue) {
+            switch (this.role) {
+                case DYNAMIC:
+                    return "coalesce(" + newValue + ", " + currentValue + ")";
+                case INCREMENT:
+                    return currentValue + " + 1";
+                default:
+                    return newValue;
+            }
+        }
+    }
+}
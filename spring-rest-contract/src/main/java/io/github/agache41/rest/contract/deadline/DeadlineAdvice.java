@@ -0,0 +1,78 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.deadline;
+
+import io.github.agache41.rest.contract.dataAccessBase.Deadline;
+import io.github.agache41.rest.contract.exceptions.DeadlineExceededException;
+import io.github.agache41.rest.contract.resourceService.ResourceService;
+import jakarta.persistence.QueryTimeoutException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * <pre>
+ * Starts the Deadline of the requests on the resource services.
+ * The timeout is the shorter one of the X-Request-Timeout header and the timeout configured for the endpoint
+ * in the ResourceServiceConfig of the resource service. The deadline is removed after completion.
+ * Expired deadlines and query timeouts are answered with 503 Service Unavailable.
+ * </pre>
+ */
+@ControllerAdvice
+public class DeadlineAdvice implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request,
+                             final HttpServletResponse response,
+                             final Object handler) {
+        long configured = 0;
+        if (handler instanceof HandlerMethod handlerMethod && handlerMethod.getBean() instanceof ResourceService<?, ?> resourceService) {
+            configured = resourceService.getConfig()
+                                        .getTimeout(handlerMethod.getMethod()
+                                                                 .getName(), request.getMethod());
+        }
+        Deadline.start(Deadline.timeout(Deadline.parse(request.getHeader(Deadline.HEADER)), configured));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(final HttpServletRequest request,
+                                final HttpServletResponse response,
+                                final Object handler,
+                                final Exception exception) {
+        Deadline.clear();
+    }
+
+    /**
+     * Translates an expired deadline or a query timeout in 503 Service Unavailable.
+     *
+     * @param exception the exception
+     * @return the response
+     */
+    @ExceptionHandler({DeadlineExceededException.class, QueryTimeoutException.class})
+    public ResponseEntity<String> deadlineExceeded(final RuntimeException exception) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                             .body(exception.getMessage());
+    }
+}
@@ -0,0 +1,74 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.eTag;
+
+import io.github.agache41.rest.contract.utils.ETags;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * <pre>
+ * Adds a strong ETag header to the GET responses carrying a transfer object or a list of transfer objects.
+ * When the request holds a matching If-None-Match header, the body is dropped and 304 Not Modified is returned,
+ * so the payload is neither serialized nor transferred.
+ * The advice runs first, so that the header is set before any other advice writes the body.
+ * </pre>
+ */
+@ControllerAdvice
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ETagAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(final MethodParameter returnType,
+                            final Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(final Object body,
+                                  final MethodParameter returnType,
+                                  final MediaType selectedContentType,
+                                  final Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  final ServerHttpRequest request,
+                                  final ServerHttpResponse response) {
+        if (!HttpMethod.GET.equals(request.getMethod()) || !(request instanceof ServletServerHttpRequest) || !(response instanceof ServletServerHttpResponse)) {
+            return body;
+        }
+        final String eTag = ETags.of(body);
+        if (eTag == null) {
+            return body;
+        }
+        final ServletWebRequest webRequest = new ServletWebRequest(((ServletServerHttpRequest) request).getServletRequest(), ((ServletServerHttpResponse) response).getServletResponse());
+        if (webRequest.checkNotModified(eTag)) {
+            // the status is set to 304, nothing is left for the message converter
+            return null;
+        }
+        return body;
+    }
+}
@@ -0,0 +1,115 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.readRouting;
+
+import io.github.agache41.rest.contract.dataAccessBase.ReadRouting;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * <pre>
+ * Carries the time of the last write of the client for the {@link ReadRouting}.
+ * The request starts with the time read from the X-Last-Write header or the last-write cookie,
+ * a response to a request that wrote returns the time of its write in both, and the state is removed after completion.
+ * </pre>
+ */
+@ControllerAdvice
+public class ReadRoutingAdvice implements HandlerInterceptor, ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request,
+                             final HttpServletResponse response,
+                             final Object handler) {
+        Long clientLastWrite = ReadRouting.parse(request.getHeader(ReadRouting.HEADER));
+        if (clientLastWrite == null && request.getCookies() != null) {
+            for (final Cookie cookie : request.getCookies()) {
+                if (ReadRouting.COOKIE.equals(cookie.getName())) {
+                    clientLastWrite = ReadRouting.parse(cookie.getValue());
+                }
+            }
+        }
+        ReadRouting.start(clientLastWrite);
+        return true;
+    }
+
+    @Override
+    public boolean supports(final MethodParameter returnType,
+                            final Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(final Object body,
+                                  final MethodParameter returnType,
+                                  final MediaType selectedContentType,
+                                  final Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  final ServerHttpRequest request,
+                                  final ServerHttpResponse response) {
+        // the headers must be set before the body is written
+        final long written = ReadRouting.written();
+        if (written > 0) {
+            response.getHeaders()
+                    .set(ReadRouting.HEADER, String.valueOf(written));
+            response.getHeaders()
+                    .add(HttpHeaders.SET_COOKIE, cookie(written));
+        }
+        return body;
+    }
+
+    @Override
+    public void postHandle(final HttpServletRequest request,
+                           final HttpServletResponse response,
+                           final Object handler,
+                           final ModelAndView modelAndView) {
+        // the responses without body are not seen by beforeBodyWrite
+        final long written = ReadRouting.written();
+        if (written > 0 && !response.isCommitted() && !response.containsHeader(ReadRouting.HEADER)) {
+            response.setHeader(ReadRouting.HEADER, String.valueOf(written));
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie(written));
+        }
+    }
+
+    private static String cookie(final long written) {
+        return ResponseCookie.from(ReadRouting.COOKIE, String.valueOf(written))
+                             .path("/")
+                             .httpOnly(true)
+                             .build()
+                             .toString();
+    }
+
+    @Override
+    public void afterCompletion(final HttpServletRequest request,
+                                final HttpServletResponse response,
+                                final Object handler,
+                                final Exception exception) {
+        ReadRouting.clear();
+    }
+}
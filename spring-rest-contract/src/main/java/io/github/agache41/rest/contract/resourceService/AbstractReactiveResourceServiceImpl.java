@@ -0,0 +1,551 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.github.agache41.rest.contract.resourceService;
+
+import io.github.agache41.rest.contract.dataAccess.DataAccess;
+import io.github.agache41.rest.contract.dataAccess.DataBinder;
+import io.github.agache41.rest.contract.dataAccessBase.AbstractDataAccess;
+import io.github.agache41.rest.contract.dataAccessBase.IdGroup;
+import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.resourceServiceBase.ResourceServiceConfig;
+import io.github.agache41.rest.contract.update.TransferObject;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+
+/**
+ * <pre>
+ * Base class for resource REST APIs on Spring WebFlux.
+ * It offers the same paths as the {@link AbstractResourceServiceImpl}, returning Mono for single objects and Flux for lists.
+ * The JPA calls are blocking, so they are executed on the scheduler provided by {@link #getScheduler()},
+ * by default the bounded elastic scheduler, and never on the event loop.
+ * A deriving class using a reactive data access layer can override {@link #blocking(Callable)} to call it directly.
+ * Associations of the transfer objects are rendered after the transaction ended, so they must be eager or fetched.
+ * </pre>
+ *
+ * @param <TO>     the type parameter
+ * @param <ENTITY> the type parameter
+ * @param <PK>     the type parameter
+ */
+public abstract class AbstractReactiveResourceServiceImpl<TO extends PrimaryKey<PK> & TransferObject<TO, ENTITY>, ENTITY extends PrimaryKey<PK>, PK> implements InitializingBean {
+
+    /**
+     * afterPropertiesSet() is called to assure correct init
+     */
+    @Override
+    public void afterPropertiesSet() {
+        this.getDataBinder()
+            .setDataAccess(this.getDataAccess());
+    }
+
+    /**
+     * Finds and returns the corresponding entity for the given id.
+     *
+     * @param id the id
+     * @return the to
+     */
+    @GetMapping(path = "/{id}", produces = APPLICATION_JSON_VALUE)
+    public Mono<TO> get(@PathVariable("id") final PK id) {
+        return this.blocking(() -> this.getDataBinder()
+                                       .findById(id));
+    }
+
+    /**
+     * Finds and returns the corresponding entity for the given id.
+     *
+     * @param id the id
+     * @return the to
+     */
+    @PostMapping(path = "/byId", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public Mono<TO> postById(@RequestBody final PK id) {
+        return this.get(id);
+    }
+
+    /**
+     * Returns all the entities for the given table.
+     *
+     * @param firstResult       the first result
+     * @param maxResults        the max results
+     * @param requestParameters the request parameters
+     * @return the flux of to
+     */
+    @GetMapping(path = "/all/asList", produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> getAllAsList(@RequestParam(name = "firstResult", required = false) final Integer firstResult,
+                                 @RequestParam(name = "maxResults", required = false) final Integer maxResults,
+                                 @RequestParam final MultiValueMap<String, String> requestParameters) {
+        return this.blockingList(() -> this.getDataBinder()
+                                           .listAll(this.getConfig()
+                                                        .getFirstResult(firstResult), this.getConfig()
+                                                                                          .getMaxResults(maxResults), requestParameters));
+    }
+
+    /**
+     * <pre>
+     * Streams all the entities for the given table as newline delimited json.
+     * The entities are read in pages of pageSize, the next page is only read when the client requested more elements,
+     * so a slow client does not cause the whole table to be loaded in memory.
+     * Without an orderBy parameter the entities are ordered by id and each page starts after the last id of the previous one,
+     * so reading a page costs the same at any depth of the table.
+     * With an orderBy parameter or a key that is not comparable the pages are read by offset.
+     * </pre>
+     *
+     * @param pageSize          the page size
+     * @param requestParameters the request parameters
+     * @return the flux of to
+     */
+    @GetMapping(path = "/all/asStream", produces = APPLICATION_NDJSON_VALUE)
+    public Flux<TO> getAllAsStream(@RequestParam(name = "pageSize", required = false) final Integer pageSize,
+                                   @RequestParam final MultiValueMap<String, String> requestParameters) {
+        final int size = this.getConfig()
+                             .getMaxResults(pageSize);
+        final MultiValueMap<String, String> parameters = new LinkedMultiValueMap<>(requestParameters);
+        if (parameters.containsKey("orderBy") || !Comparable.class.isAssignableFrom(this.getDataAccess()
+                                                                                        .getKeyType())) {
+            return Flux.range(0, Integer.MAX_VALUE)
+                       .concatMap(page -> this.blocking(() -> this.getDataBinder()
+                                                                  .listAll(Math.multiplyExact(page, size), size, parameters)), 1)
+                       .takeUntil(page -> page.size() < size)
+                       .concatMapIterable(Function.identity());
+        }
+        parameters.put("orderBy", List.of(PrimaryKey.ID));
+        return this.pageAfter(null, size, parameters)
+                   .expand(page -> page.size() < size ? Mono.empty() : this.pageAfter(page.get(page.size() - 1)
+                                                                                          .getId(), size, parameters))
+                   .concatMapIterable(Function.identity());
+    }
+
+    /**
+     * <pre>
+     * Reads the page of entities ordered by id following the given id.
+     * </pre>
+     *
+     * @param lastId     the last id of the previous page, null for the first page
+     * @param size       the page size
+     * @param parameters the request parameters
+     * @return the mono of the page
+     */
+    protected Mono<List<TO>> pageAfter(final PK lastId,
+                                       final int size,
+                                       final MultiValueMap<String, String> parameters) {
+        final MultiValueMap<String, String> pageParameters = new LinkedMultiValueMap<>(parameters);
+        if (lastId != null) {
+            // the last id is above any lower bound given by the client, so it replaces it
+            pageParameters.put(PrimaryKey.ID + "." + AbstractDataAccess.GT, List.of(String.valueOf(lastId)));
+        }
+        return this.blocking(() -> this.getDataBinder()
+                                       .listAll(0, size, pageParameters));
+    }
+
+    /**
+     * Finds and returns the corresponding entities for the given list of ids.
+     *
+     * @param ids the ids
+     * @return the flux of to
+     */
+    @GetMapping(path = "/byIds/{ids}/asList", produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> getByIdsAsList(@PathVariable("ids") final List<PK> ids) {
+        return this.blockingList(() -> this.getDataBinder()
+                                           .listByIds(ids));
+    }
+
+    /**
+     * Finds and returns the corresponding entities for the given list of ids.
+     *
+     * @param ids the ids
+     * @return the flux of to
+     */
+    @PostMapping(path = "/byIds/asList", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> postByIdsAsList(@RequestBody final List<PK> ids) {
+        return this.getByIdsAsList(ids);
+    }
+
+    /**
+     * Finds all entities whose value in a specified field is equal the given value.
+     *
+     * @param stringField the field to use in filter, can only be a string value
+     * @param value       the string value to equal
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the flux of to
+     */
+    @GetMapping(path = "/filter/{stringField}/equals/{value}/asList", produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> getFilterStringFieldEqualsValueAsList(@PathVariable("stringField") final String stringField,
+                                                          @PathVariable("value") final String value,
+                                                          @RequestParam(name = "firstResult", required = false) final Integer firstResult,
+                                                          @RequestParam(name = "maxResults", required = false) final Integer maxResults) {
+        return this.blockingList(() -> this.getDataBinder()
+                                           .listByColumnEqualsValue(stringField, value, this.getConfig()
+                                                                                            .getFirstResult(firstResult), this.getConfig()
+                                                                                                                              .getMaxResults(maxResults)));
+    }
+
+    /**
+     * Finds all entities whose value in a specified field is like the given value.
+     *
+     * @param stringField the field to use in filter, can only be a string value
+     * @param value       the string value to be like
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the flux of to
+     */
+    @GetMapping(path = "/filter/{stringField}/like/{value}/asList", produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> getFilterStringFieldLikeValueAsList(@PathVariable("stringField") final String stringField,
+                                                        @PathVariable("value") final String value,
+                                                        @RequestParam(name = "firstResult", required = false) final Integer firstResult,
+                                                        @RequestParam(name = "maxResults", required = false) final Integer maxResults) {
+        return this.blockingList(() -> this.getDataBinder()
+                                           .listByColumnLikeValue(stringField, value, this.getConfig()
+                                                                                          .getFirstResult(firstResult), this.getConfig()
+                                                                                                                            .getMaxResults(maxResults)));
+    }
+
+    /**
+     * Finds all entities whose value in a specified field lies between the given bounds, an open bound is given as *.
+     *
+     * @param field       the field to use in filter
+     * @param from        the lower bound
+     * @param to          the upper bound
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the flux of to
+     */
+    @GetMapping(path = "/filter/{field}/between/{from}/{to}/asList", produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> getFilterFieldBetweenValuesAsList(@PathVariable("field") final String field,
+                                                      @PathVariable("from") final String from,
+                                                      @PathVariable("to") final String to,
+                                                      @RequestParam(name = "firstResult", required = false) final Integer firstResult,
+                                                      @RequestParam(name = "maxResults", required = false) final Integer maxResults) {
+        return this.blockingList(() -> this.getDataBinder()
+                                           .listByColumnBetweenValues(field, from, to, this.getConfig()
+                                                                                           .getFirstResult(firstResult), this.getConfig()
+                                                                                                                             .getMaxResults(maxResults)));
+    }
+
+    /**
+     * Finds all entities whose value in a specified field matches the given search terms, with the TextSearch strategy of the field.
+     *
+     * @param stringField the field to search, can only be a string value
+     * @param terms       the search terms
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the flux of to
+     */
+    @GetMapping(path = "/search/{stringField}/{terms}/asList", produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> getSearchStringFieldTermsAsList(@PathVariable("stringField") final String stringField,
+                                                    @PathVariable("terms") final String terms,
+                                                    @RequestParam(name = "firstResult", required = false) final Integer firstResult,
+                                                    @RequestParam(name = "maxResults", required = false) final Integer maxResults) {
+        return this.blockingList(() -> this.getDataBinder()
+                                           .listByColumnSearchTerms(stringField, terms, this.getConfig()
+                                                                                            .getFirstResult(firstResult), this.getConfig()
+                                                                                                                              .getMaxResults(maxResults)));
+    }
+
+    /**
+     * Finds all entities whose value in a specified field is in the given values list.
+     *
+     * @param stringField the field to use in filter, can only be a string value
+     * @param values      the values list
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the flux of to
+     */
+    @GetMapping(path = "/filter/{stringField}/in/{values}/asList", produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> getFilterStringFieldInValuesAsList(@PathVariable("stringField") final String stringField,
+                                                       @PathVariable("values") final List<String> values,
+                                                       @RequestParam(name = "firstResult", required = false) final Integer firstResult,
+                                                       @RequestParam(name = "maxResults", required = false) final Integer maxResults) {
+        return this.blockingList(() -> this.getDataBinder()
+                                           .listByColumnInValues(stringField, values, this.getConfig()
+                                                                                          .getFirstResult(firstResult), this.getConfig()
+                                                                                                                            .getMaxResults(maxResults)));
+    }
+
+    /**
+     * Autocomplete returns the sorted set of values of a string field that are like the given value.
+     *
+     * @param stringField       the string field
+     * @param value             the value
+     * @param cut               the minimal length of the value
+     * @param maxResults        the max results
+     * @param requestParameters the request parameters
+     * @return the flux of values
+     */
+    @GetMapping(path = "autocomplete/{stringField}/like/{value}/asSortedSet", produces = APPLICATION_JSON_VALUE)
+    public Flux<String> getAutocompleteStringFieldLikeValueAsSortedSet(@PathVariable("stringField") final String stringField,
+                                                                       @PathVariable("value") final String value,
+                                                                       @RequestParam(name = "cut", required = false) final Integer cut,
+                                                                       @RequestParam(name = "maxResults", required = false) final Integer maxResults,
+                                                                       @RequestParam final MultiValueMap<String, String> requestParameters) {
+        if (value == null || value.length() < this.getConfig()
+                                                  .getAutocompleteCut(cut)) {
+            return Flux.empty();
+        }
+        return this.blockingList(() -> this.getDataAccess()
+                                           .readOnly(() -> this.getDataAccess()
+                                                               .autocompleteByColumnLikeValue(stringField, value, this.getConfig()
+                                                                                                                      .getAutocompleteMaxResults(maxResults), requestParameters)));
+    }
+
+    /**
+     * Autocomplete returns the ids grouped by the values of a string field that are like the given value.
+     *
+     * @param stringField       the string field
+     * @param value             the value
+     * @param cut               the minimal length of the value
+     * @param maxResults        the max results
+     * @param requestParameters the request parameters
+     * @return the flux of id groups
+     */
+    @GetMapping(path = "autocompleteIds/{stringField}/like/{value}/asList", produces = APPLICATION_JSON_VALUE)
+    public Flux<IdGroup<PK>> getAutocompleteIdsStringFieldLikeValueAsList(@PathVariable("stringField") final String stringField,
+                                                                          @PathVariable("value") final String value,
+                                                                          @RequestParam(name = "cut", required = false) final Integer cut,
+                                                                          @RequestParam(name = "maxResults", required = false) final Integer maxResults,
+                                                                          @RequestParam final MultiValueMap<String, String> requestParameters) {
+        if (value == null || value.length() < this.getConfig()
+                                                  .getAutocompleteCut(cut)) {
+            return Flux.empty();
+        }
+        return this.blockingList(() -> this.getDataAccess()
+                                           .readOnly(() -> this.getDataAccess()
+                                                               .autocompleteIdsByColumnLikeValue(stringField, value, this.getConfig()
+                                                                                                                         .getAutocompleteMaxResults(maxResults), requestParameters)));
+    }
+
+    /**
+     * Finds all entities whose values are equal to the given field values.
+     *
+     * @param value       the map of field names and values
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the flux of to
+     */
+    @PostMapping(path = "/filter/content/equals/value/asList", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> postFilterContentEqualsAsList(@RequestBody final Map<String, Object> value,
+                                                  @RequestParam(name = "firstResult", required = false) final Integer firstResult,
+                                                  @RequestParam(name = "maxResults", required = false) final Integer maxResults) {
+        return this.blockingList(() -> this.getDataBinder()
+                                           .listByContentEquals(value, this.getConfig()
+                                                                           .getFirstResult(firstResult), this.getConfig()
+                                                                                                             .getMaxResults(maxResults)));
+    }
+
+    /**
+     * Finds all entities whose values are in the given field values lists.
+     *
+     * @param values      the map of field names and values lists
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the flux of to
+     */
+    @PostMapping(path = "/filter/content/in/values/asList", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> postFilterContentInAsList(@RequestBody final Map<String, List<Object>> values,
+                                              @RequestParam(name = "firstResult", required = false) final Integer firstResult,
+                                              @RequestParam(name = "maxResults", required = false) final Integer maxResults) {
+        return this.blockingList(() -> this.getDataBinder()
+                                           .listByContentInValues(values, this.getConfig()
+                                                                              .getFirstResult(firstResult), this.getConfig()
+                                                                                                                .getMaxResults(maxResults)));
+    }
+
+    /**
+     * Inserts a new entity in the database.
+     *
+     * @param to the to
+     * @return the inserted to
+     */
+    @PostMapping(path = "", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public Mono<TO> post(@RequestBody final TO to) {
+        return this.blocking(() -> this.getDataBinder()
+                                       .persist(to));
+    }
+
+    /**
+     * Inserts a list of new entities in the database.
+     *
+     * @param toList the list of new data
+     * @return the flux of inserted to
+     */
+    @PostMapping(path = "/list/asList", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> postListAsList(@RequestBody final List<TO> toList) {
+        return this.blockingList(() -> this.getDataBinder()
+                                           .persist(toList));
+    }
+
+    /**
+     * Updates an existing entity by id.
+     *
+     * @param to the to
+     * @return the updated to
+     */
+    @PutMapping(path = "", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public Mono<TO> put(@RequestBody final TO to) {
+        return this.blocking(() -> this.getDataBinder()
+                                       .updateById(to));
+    }
+
+    /**
+     * Updates existing entities by id.
+     *
+     * @param toList the list of to
+     * @return the flux of updated to
+     */
+    @PutMapping(path = "/list/asList", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> putListAsList(@RequestBody final List<TO> toList) {
+        return this.blockingList(() -> this.getDataBinder()
+                                           .updateByIds(toList, true));
+    }
+
+    /**
+     * Inserts the new entities and updates the existing ones by id, in native batches.
+     *
+     * @param toList the list of to, every to must carry its id
+     * @return the flux of persisted to
+     */
+    @PutMapping(path = "/upsert/asList", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public Flux<TO> putUpsertListAsList(@RequestBody final List<TO> toList) {
+        return this.blockingList(() -> this.getDataBinder()
+                                           .upsert(toList));
+    }
+
+    /**
+     * Deletes the entity for the given id.
+     *
+     * @param id the id
+     * @return the completion
+     */
+    @DeleteMapping(path = "/{id}")
+    public Mono<Void> delete(@PathVariable("id") final PK id) {
+        return this.blocking(() -> {
+                       this.getDataBinder()
+                           .removeById(id);
+                       return Boolean.TRUE;
+                   })
+                   .then();
+    }
+
+    /**
+     * Deletes all the entities for the given ids in the request Body.
+     *
+     * @param ids the ids
+     * @return the completion
+     */
+    @DeleteMapping(path = "/byIds")
+    public Mono<Void> deleteByIds(@RequestBody final List<PK> ids) {
+        return this.deleteByIdsInPath(ids);
+    }
+
+    /**
+     * Deletes all the entities for the given ids.
+     *
+     * @param ids the ids
+     * @return the completion
+     */
+    @DeleteMapping(path = "/byIds/{ids}")
+    public Mono<Void> deleteByIdsInPath(@PathVariable("ids") final List<PK> ids) {
+        return this.blocking(() -> {
+                       this.getDataBinder()
+                           .removeByIds(ids);
+                       return Boolean.TRUE;
+                   })
+                   .then();
+    }
+
+    /**
+     * <pre>
+     * Executes a blocking call on the scheduler of the service.
+     * The call is deferred until subscription, a null result completes the Mono empty.
+     * </pre>
+     *
+     * @param <R>  the type parameter
+     * @param call the blocking call
+     * @return the mono
+     */
+    protected <R> Mono<R> blocking(final Callable<R> call) {
+        return Mono.fromCallable(call)
+                   .subscribeOn(this.getScheduler());
+    }
+
+    /**
+     * <pre>
+     * Executes a blocking call returning a list on the scheduler of the service.
+     * The elements are emitted according to the demand of the subscriber.
+     * </pre>
+     *
+     * @param <R>  the type parameter
+     * @param call the blocking call
+     * @return the flux
+     */
+    protected <R> Flux<R> blockingList(final Callable<? extends List<R>> call) {
+        return this.blocking(call)
+                   .flatMapIterable(Function.identity());
+    }
+
+    /**
+     * <pre>
+     * The scheduler executing the blocking JPA calls.
+     * The default bounded elastic scheduler caps the number of threads, so a burst of requests
+     * is queued instead of exhausting the database connections.
+     * </pre>
+     *
+     * @return the scheduler
+     */
+    public Scheduler getScheduler() {
+        return Schedulers.boundedElastic();
+    }
+
+    /**
+     * Gets the default configuration object.
+     * The deriving classes can override this method by means of a simple getter.
+     *
+     * @return the config object
+     */
+    public ResourceServiceConfig getConfig() {
+        return new ResourceServiceConfig() {
+        };
+    }
+
+    /**
+     * The data binder getter
+     *
+     * @return the data binder
+     */
+    public abstract DataBinder<TO, ENTITY, PK> getDataBinder();
+
+    /**
+     * The data access getter
+     *
+     * @return the data access
+     */
+    public abstract DataAccess<ENTITY, PK> getDataAccess();
+}
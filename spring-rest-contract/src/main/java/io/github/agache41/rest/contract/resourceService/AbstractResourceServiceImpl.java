@@ -18,19 +18,47 @@
 package io.github.agache41.rest.contract.resourceService;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import io.github.agache41.rest.contract.dataAccess.DataAccess;
 import io.github.agache41.rest.contract.dataAccess.DataBinder;
+import io.github.agache41.rest.contract.dataAccessBase.Changes;
+import io.github.agache41.rest.contract.dataAccessBase.ChunkedImport;
 import io.github.agache41.rest.contract.dataAccessBase.IdGroup;
+import io.github.agache41.rest.contract.dataAccessBase.ImportChunk;
 import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.dataAccessBase.WriteBehind;
+import io.github.agache41.rest.contract.exceptions.PreconditionFailedException;
+import io.github.agache41.rest.contract.exceptions.VersionConflictException;
+import io.github.agache41.rest.contract.resourceServiceBase.ResourceServiceConfig;
 import io.github.agache41.rest.contract.update.TransferObject;
+import io.github.agache41.rest.contract.utils.CsvFormat;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
@@ -38,13 +66,20 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
  * <pre>
  * Base class for resource REST APIs.
  * The class implements methods for basic REST operations on the underlying Class
+ * On Java 21 the endpoints run on virtual threads when the application enables them in Spring Boot :
+ *      spring.threads.virtual.enabled=true
  * </pre>
  *
  * @param <TO>     the type parameter
  * @param <ENTITY> the type parameter
  * @param <PK>     the type parameter
  */
-public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & TransferObject<TO, ENTITY>, ENTITY extends PrimaryKey<PK>, PK> implements ResourceService<TO, PK>, InitializingBean {
+public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & TransferObject<TO, ENTITY>, ENTITY extends PrimaryKey<PK>, PK> implements ResourceService<TO, PK>, InitializingBean, DisposableBean {
+    /**
+     * The object mapper used when the application does not provide one.
+     */
+    private static final ObjectMapper DEFAULT_OBJECT_MAPPER = new ObjectMapper();
+
     /**
      * <pre>
      * Default data access layer , used for communicating with the database.
@@ -61,6 +96,17 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
     //@Named("DataBinder")
     //protected DataBinder<TO, ENTITY, PK> dataBinder;
 
+    /**
+     * The object mapper of the application, used for reading the lines of the streamed imports.
+     */
+    @Autowired(required = false)
+    protected ObjectMapper objectMapper;
+
+    /**
+     * The buffer of the updates written behind, created on first use if enabled in the config.
+     */
+    private volatile WriteBehind<TO, PK> writeBehind;
+
 
     /**
      * afterPropertiesSet() is called to assure correct init
@@ -71,14 +117,40 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
             .setDataAccess(this.getDataAccess());
     }
 
+    /**
+     * destroy() flushes the updates written behind, if any.
+     */
+    @Override
+    public void destroy() {
+        if (this.writeBehind != null) {
+            this.writeBehind.close();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     @GetMapping(path = "/{id}", produces = APPLICATION_JSON_VALUE)
     public TO get(@PathVariable("id") final PK id) {
-        return this.getDataBinder()
-                   .findById(id);
+        final ServletWebRequest webRequest = this.currentWebRequest();
+        if (webRequest == null || webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) == null) {
+            return this.getDataBinder()
+                       .findById(id);
+        }
+        // the lightweight tag avoids loading and rendering an unchanged versioned entity,
+        // otherwise the transfer object rendered for the tag is the response.
+        final TO to = this.getDataBinder()
+                          .isVersionTagged() ? null : this.getDataBinder()
+                                                          .findById(id);
+        final String eTag = to == null ? this.getDataBinder()
+                                             .eTag(id) : this.getDataBinder()
+                                                             .eTag(to);
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return to != null ? to : this.getDataBinder()
+                                     .findById(id);
     }
 
 
@@ -105,6 +177,68 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
                                                                   .getMaxResults(maxResults), requestParameters);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GetMapping(path = "/export/asCsv", produces = CsvFormat.TEXT_CSV)
+    public ResponseEntity<StreamingResponseBody> getExportAsCsv(@RequestParam final MultiValueMap<String, String> requestParameters) {
+        // the query runs here, so bad filters are answered with an error status before the first row is written
+        final Stream<TO> rows = this.getDataBinder()
+                                    .streamAll(requestParameters, this.getConfig()
+                                                                      .getExportFetchSize());
+        return ResponseEntity.ok()
+                             .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                             .body(output -> {
+                                 final Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+                                 this.getDataBinder()
+                                     .writeAsCsv(rows, writer);
+                             });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GetMapping(path = "/aggregate", produces = APPLICATION_JSON_VALUE)
+    public List<Map<String, Object>> getAggregate(@RequestParam(name = "groupBy", required = false) final List<String> groupBy,
+                                                  @RequestParam(name = "measure", required = false) final List<String> measures,
+                                                  @RequestParam(name = "firstResult", required = false) final Integer firstResult,
+                                                  @RequestParam(name = "maxResults", required = false) final Integer maxResults,
+                                                  @RequestParam final MultiValueMap<String, String> requestParameters) {
+        return this.getDataAccess()
+                   .readOnly(() -> this.getDataAccess()
+                                       .aggregate(groupBy, measures, this.getConfig()
+                                                                         .getFirstResult(firstResult), this.getConfig()
+                                                                                                           .getMaxResults(maxResults), requestParameters));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GetMapping(path = "/facets", produces = APPLICATION_JSON_VALUE)
+    public Map<String, Map<Object, Long>> getFacets(@RequestParam(name = "fields", required = false) final List<String> fields,
+                                                    @RequestParam(name = "maxResults", required = false) final Integer maxResults,
+                                                    @RequestParam final MultiValueMap<String, String> requestParameters) {
+        return this.getDataBinder()
+                   .facets(fields, this.getConfig()
+                                       .getMaxResults(maxResults), requestParameters);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GetMapping(path = "/changes", produces = APPLICATION_JSON_VALUE)
+    public Changes<TO, PK> getChanges(@RequestParam(name = "since", required = false) final String since,
+                                      @RequestParam(name = "maxResults", required = false) final Integer maxResults) {
+        return this.getDataBinder()
+                   .changes(since, this.getConfig()
+                                       .getMaxResults(maxResults), this.getConfig()
+                                                                       .getChangesSettleTime());
+    }
+
 
     /**
      * {@inheritDoc}
@@ -113,7 +247,7 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
     @GetMapping(path = "/byIds/{ids}/asList", produces = APPLICATION_JSON_VALUE)
     public List<TO> getByIdsAsList(@PathVariable("ids") final List<PK> ids) {
         return this.getDataBinder()
-                   .listByIds(ids);
+                   .listByIdsInOrder(ids);
     }
 
     /**
@@ -155,6 +289,37 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
                                                                                                     .getMaxResults(maxResults));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GetMapping(path = "/filter/{field}/between/{from}/{to}/asList", produces = APPLICATION_JSON_VALUE)
+    public List<TO> getFilterFieldBetweenValuesAsList(@PathVariable("field") final String field,
+                                                      @PathVariable("from") final String from,
+                                                      @PathVariable("to") final String to,
+                                                      @RequestParam(name = "firstResult", required = false) final Integer firstResult,
+                                                      @RequestParam(name = "maxResults", required = false) final Integer maxResults) {
+        return this.getDataBinder()
+                   .listByColumnBetweenValues(field, from, to, this.getConfig()
+                                                                   .getFirstResult(firstResult), this.getConfig()
+                                                                                                     .getMaxResults(maxResults));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GetMapping(path = "/search/{stringField}/{terms}/asList", produces = APPLICATION_JSON_VALUE)
+    public List<TO> getSearchStringFieldTermsAsList(@PathVariable("stringField") final String stringField,
+                                                    @PathVariable("terms") final String terms,
+                                                    @RequestParam(name = "firstResult", required = false) final Integer firstResult,
+                                                    @RequestParam(name = "maxResults", required = false) final Integer maxResults) {
+        return this.getDataBinder()
+                   .listByColumnSearchTerms(stringField, terms, this.getConfig()
+                                                                    .getFirstResult(firstResult), this.getConfig()
+                                                                                                      .getMaxResults(maxResults));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -185,8 +350,9 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
             return Collections.emptyList();
         }
         return this.getDataAccess()
-                   .autocompleteByColumnLikeValue(stringField, value, this.getConfig()
-                                                                          .getAutocompleteMaxResults(maxResults), requestParameters);
+                   .readOnly(() -> this.getDataAccess()
+                                       .autocompleteByColumnLikeValue(stringField, value, this.getConfig()
+                                                                                              .getAutocompleteMaxResults(maxResults), requestParameters));
     }
 
     /**
@@ -204,8 +370,9 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
             return Collections.emptyList();
         }
         return this.getDataAccess()
-                   .autocompleteIdsByColumnLikeValue(stringField, value, this.getConfig()
-                                                                             .getAutocompleteMaxResults(maxResults), requestParameters);
+                   .readOnly(() -> this.getDataAccess()
+                                       .autocompleteIdsByColumnLikeValue(stringField, value, this.getConfig()
+                                                                                                 .getAutocompleteMaxResults(maxResults), requestParameters));
     }
 
     /**
@@ -258,15 +425,79 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
         return this.doVerify(persisted);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @PostMapping(path = "/import/asStream", consumes = ChunkedImport.APPLICATION_NDJSON, produces = APPLICATION_JSON_VALUE)
+    public List<ImportChunk> postImportAsStream(final InputStream input,
+                                                @RequestParam(name = "skip", required = false) final Long skip,
+                                                @RequestParam(name = "chunkSize", required = false) final Integer chunkSize) {
+        final ObjectReader reader = (this.objectMapper != null ? this.objectMapper : DEFAULT_OBJECT_MAPPER).readerFor(this.getDataBinder()
+                                                                                                                           .getToClass());
+        final ChunkedImport<TO> chunkedImport = new ChunkedImport<>((line, length) -> reader.readValue(line, 0, length), this.getConfig()
+                                                                                                                           .getImportChunkSize(chunkSize));
+        try {
+            // every chunk goes through the binder proxy, so that it commits in its own transaction
+            return chunkedImport.run(input, skip == null ? 0 : skip, chunk -> this.getDataBinder()
+                                                                                  .importChunk(chunk));
+        } catch (final IOException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, exception.getMessage(), exception);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     @PutMapping(path = "", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
     public TO put(@RequestBody final TO to) {
-        final TO updated = this.getDataBinder()
-                               .updateById(to);
-        return this.doVerify(updated);
+        final ServletWebRequest webRequest = this.currentWebRequest();
+        final String ifMatch = webRequest == null ? null : webRequest.getHeader(HttpHeaders.IF_MATCH);
+        if (ifMatch == null && this.getConfig()
+                                   .isWriteBehind()) {
+            this.getWriteBehind()
+                .submit(to);
+            if (webRequest != null && webRequest.getResponse() != null) {
+                webRequest.getResponse()
+                          .setStatus(HttpStatus.ACCEPTED.value());
+            }
+            return to;
+        }
+        try {
+            if (ifMatch == null) {
+                final TO updated = this.getDataBinder()
+                                       .updateById(to);
+                return this.doVerify(updated);
+            }
+            final TO updated = this.getDataBinder()
+                                   .updateById(to, ifMatch);
+            return this.doVerify(updated);
+        } catch (final PreconditionFailedException exception) {
+            if (exception.getETag() != null && webRequest.getResponse() != null) {
+                webRequest.getResponse()
+                          .setHeader(HttpHeaders.ETAG, "\"" + exception.getETag() + "\"");
+            }
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, exception.getMessage(), exception);
+        } catch (final VersionConflictException exception) {
+            throw this.conflict(exception);
+        }
+    }
+
+    /**
+     * <pre>
+     * Translates a version conflict in a 409 Conflict response.
+     * The problem details carry the primary keys of the conflicting entities mapped to their current versions.
+     * </pre>
+     *
+     * @param exception the version conflict
+     * @return the response status exception to throw
+     */
+    protected ResponseStatusException conflict(final VersionConflictException exception) {
+        final ResponseStatusException conflict = new ResponseStatusException(HttpStatus.CONFLICT, exception.getMessage(), exception);
+        conflict.getBody()
+                .setProperty("conflicts", exception.getConflicts());
+        return conflict;
     }
 
     /**
@@ -275,9 +506,24 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
     @Override
     @PutMapping(path = "/list/asList", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
     public List<TO> putListAsList(@RequestBody final List<TO> toList) {
-        final List<TO> updated = this.getDataBinder()
-                                     .updateByIds(toList, true);
-        return this.doVerify(updated);
+        try {
+            final List<TO> updated = this.getDataBinder()
+                                         .updateByIds(toList, true);
+            return this.doVerify(updated);
+        } catch (final VersionConflictException exception) {
+            throw this.conflict(exception);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @PutMapping(path = "/upsert/asList", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public List<TO> putUpsertListAsList(@RequestBody final List<TO> toList) {
+        final List<TO> upserted = this.getDataBinder()
+                                      .upsert(toList);
+        return this.doVerify(upserted);
     }
 
     /**
@@ -326,13 +572,28 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
         if (id == null) {
             throw new RuntimeException(" Verify fail " + updated + " has null id! ");
         }
-        final TO actual = this.get(id);
+        final TO actual = this.getDataBinder()
+                              .findById(id);
         if (!updated.equals(actual)) {
             throw new RuntimeException(" Verify fail " + updated + " <> " + actual);
         }
         return actual;
     }
 
+    /**
+     * Gets the web request bound to the current thread.
+     *
+     * @return the web request or null if the method is not called within a servlet request
+     */
+    protected ServletWebRequest currentWebRequest() {
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes instanceof ServletRequestAttributes) {
+            final ServletRequestAttributes servletRequestAttributes = (ServletRequestAttributes) requestAttributes;
+            return new ServletWebRequest(servletRequestAttributes.getRequest(), servletRequestAttributes.getResponse());
+        }
+        return null;
+    }
+
     /**
      * Does verify methode on a list.
      *
@@ -345,6 +606,30 @@ public abstract class AbstractResourceServiceImpl<TO extends PrimaryKey<PK> & Tr
                       .collect(Collectors.toList());
     }
 
+    /**
+     * <pre>
+     * The buffer of the updates written behind, created on first use with the settings of the config.
+     * The buffer exposes the counters of the updates submitted, coalesced, written and failed.
+     * </pre>
+     *
+     * @return the write behind buffer
+     * @see ResourceServiceConfig#isWriteBehind()
+     */
+    public WriteBehind<TO, PK> getWriteBehind() {
+        WriteBehind<TO, PK> current = this.writeBehind;
+        if (current == null) {
+            synchronized (this) {
+                if (this.writeBehind == null) {
+                    final ResourceServiceConfig config = this.getConfig();
+                    final DataBinder<TO, ENTITY, PK> binder = this.getDataBinder();
+                    this.writeBehind = new WriteBehind<>(binder.getToClass(), binder, config.getWriteBehindCapacity(), config.getWriteBehindBatchSize(), config.getWriteBehindFlushInterval(), batch -> binder.updateByIds(batch, true));
+                }
+                current = this.writeBehind;
+            }
+        }
+        return current;
+    }
+
     /**
      * The data binder getter
      *
@@ -17,11 +17,16 @@
 
 package io.github.agache41.rest.contract.resourceService;
 
+import io.github.agache41.rest.contract.dataAccessBase.Changes;
 import io.github.agache41.rest.contract.dataAccessBase.IdGroup;
+import io.github.agache41.rest.contract.dataAccessBase.ImportChunk;
 import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
 import io.github.agache41.rest.contract.resourceServiceBase.ResourceServiceConfig;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -71,10 +76,85 @@ public interface ResourceService<TO extends PrimaryKey<K>, K> {
                           Integer maxResults,
                           MultiValueMap<String, String> requestParameters);
 
+    /**
+     * <pre>
+     * Exports all the entities for the given table as CSV, filtered and ordered by the request parameters like getAllAsList.
+     * The rows are streamed from a server side cursor, no paging is applied.
+     * </pre>
+     *
+     * @param requestParameters the uri info
+     * @return the CSV content
+     */
+    ResponseEntity<StreamingResponseBody> getExportAsCsv(MultiValueMap<String, String> requestParameters);
+
+    /**
+     * <pre>
+     * Aggregates the entities in the database, grouped by the given columns, and returns only the aggregated rows.
+     * Each row maps the group columns and the measure labels to their values.
+     * The measures are count, count(column), sum(column), min(column) and max(column).
+     * The rows can be filtered with the same query parameters as listAll, e.g. age.ge=18, and ordered with orderBy on the group columns.
+     * Example:
+     *      /aggregate?groupBy=street&#x26;measure=count,sum(age)&#x26;age.ge=18
+     * FirstResult and maxResults parameters are optional. If not provided they will default to configured values.
+     * </pre>
+     *
+     * @param groupBy     the columns to group by, comma separated, can be empty for one aggregated row
+     * @param measures    the measures, comma separated
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @param requestParameters the request parameters
+     * @return the aggregated rows
+     */
+    List<Map<String, Object>> getAggregate(List<String> groupBy,
+                                           List<String> measures,
+                                           Integer firstResult,
+                                           Integer maxResults,
+                                           MultiValueMap<String, String> requestParameters);
+
+    /**
+     * <pre>
+     * Counts the distinct values of several columns at once, e.g. for the filter sidebars.
+     * Returns for every column the values and their counts, by descending count, null values are not counted.
+     * The counts can be filtered with the same query parameters as listAll, e.g. age.ge=18.
+     * The results are cached for a few seconds and dropped on every write.
+     * Example:
+     *      /facets?fields=street,age&#x26;name=Doe
+     * MaxResults parameter limits the values per column. If not provided it will default to configured value.
+     * </pre>
+     *
+     * @param fields     the columns, comma separated
+     * @param maxResults the max number of values per column
+     * @param requestParameters the request parameters
+     * @return the value counts by column
+     */
+    Map<String, Map<Object, Long>> getFacets(List<String> fields,
+                                             Integer maxResults,
+                                             MultiValueMap<String, String> requestParameters);
+
+    /**
+     * <pre>
+     * Reads the changes since the last synchronization of the client, instead of reading all the entities again.
+     * Returns the inserted or updated entities in their current state, the ids of the deleted ones and the token for the next call.
+     * The entity must be annotated with &#x40;ChangeLogged, so that its writes are recorded in the change log.
+     * More tells that the next page of changes can be read right away with the returned token.
+     * Example:
+     *      /changes                 first call, all the changes
+     *      /changes?since=1234      next calls, with the returned token
+     * MaxResults parameter limits the changes read in one call. If not provided it will default to configured value.
+     * </pre>
+     *
+     * @param since      the token returned by the previous call
+     * @param maxResults the max number of changes
+     * @return the changes
+     */
+    Changes<TO, K> getChanges(String since,
+                              Integer maxResults);
+
     /**
      * <pre>
      * Finds and returns the corresponding entity for the given list of ids.
      * The id type must be basic (e.g. String, Long) or have a simple rest representation that can be used in a url path segment.
+     * The entities are returned in the order of the ids, an id given more than once is returned every time.
      * </pre>
      *
      * @param ids the list of ids
@@ -111,6 +191,49 @@ public interface ResourceService<TO extends PrimaryKey<K>, K> {
                                                    Integer firstResult,
                                                    Integer maxResults);
 
+    /**
+     * <pre>
+     * Finds all entities whose value in a specified field lies between the given bounds, both inclusive.
+     * The bounds are converted to the type of the field, so the field can be a number, a date or a string.
+     * An open bound is given as *.
+     * The result is sorted by the field.
+     * FirstResult parameter will be applied on the sql Query.If not provided it will default to configured value.
+     * MaxResults parameter will be applied on the sql Query.If not provided it will default to configured value.
+     * </pre>
+     *
+     * @param field       the field to use in filter
+     * @param from        the lower bound, * for open
+     * @param to          the upper bound, * for open
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the list of entities matching
+     */
+    List<TO> getFilterFieldBetweenValuesAsList(String field,
+                                               String from,
+                                               String to,
+                                               Integer firstResult,
+                                               Integer maxResults);
+
+    /**
+     * <pre>
+     * Finds all entities whose value in a specified field matches the given search terms.
+     * The field can only be of String type.
+     * The search strategy is given by the TextSearch annotation on the field, a plain substring search by default.
+     * FirstResult parameter will be applied on the sql Query.If not provided it will default to configured value.
+     * MaxResults parameter will be applied on the sql Query.If not provided it will default to configured value.
+     * </pre>
+     *
+     * @param stringField the field to search, can only be a string value
+     * @param terms       the search terms
+     * @param firstResult the first result
+     * @param maxResults  the max results
+     * @return the list of entities matching
+     */
+    List<TO> getSearchStringFieldTermsAsList(String stringField,
+                                             String terms,
+                                             Integer firstResult,
+                                             Integer maxResults);
+
     /**
      * <pre>
      * Finds all entities whose value in a specified field is like the given value.
@@ -262,10 +385,30 @@ public interface ResourceService<TO extends PrimaryKey<K>, K> {
      */
     List<TO> postListAsList(List<TO> sources);
 
+    /**
+     * <pre>
+     * Imports entities from newline delimited JSON (NDJSON), one entity per line, streamed and committed in chunks.
+     * The chunks are committed one after the other, each in its own transaction, while the input is read.
+     * The import stops on the first chunk that fails, the previous chunks stay committed.
+     * Skip parameter tells how many lines to skip, for resuming an import from the nextLine of the last committed chunk.
+     * ChunkSize parameter gives the number of entities per chunk.If not provided it will default to configured value.
+     * </pre>
+     *
+     * @param input     the NDJSON input
+     * @param skip      the number of lines to skip
+     * @param chunkSize the chunk size
+     * @return the summary of every chunk
+     */
+    List<ImportChunk> postImportAsStream(InputStream input,
+                                         Long skip,
+                                         Integer chunkSize);
+
     /**
      * <pre>
      * Updates an existing entity by id.
      * The Entity with the given id must exist in the Database or a UnexpectedException is thrown.
+     * If write behind is enabled in the config, the update is queued and acknowledged with 202 Accepted,
+     * the source is returned and a missing Entity is only reported in the log.
      * </pre>
      *
      * @param source the source
@@ -284,6 +427,18 @@ public interface ResourceService<TO extends PrimaryKey<K>, K> {
      */
     List<TO> putListAsList(List<TO> sources);
 
+    /**
+     * <pre>
+     * Inserts the new entities and updates the existing ones by id, without loading them first.
+     * Every entity must carry its id, the collections of the entities are not written.
+     * The fields are updated according to the @ {@link io.github.agache41.rest.contract.update.Update} annotation.
+     * </pre>
+     *
+     * @param sources the source
+     * @return the persisted entities
+     */
+    List<TO> putUpsertListAsList(List<TO> sources);
+
     /**
      * <pre>
      * Deletes the entity for the given id.
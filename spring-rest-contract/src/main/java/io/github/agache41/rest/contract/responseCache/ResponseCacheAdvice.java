@@ -0,0 +1,230 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.responseCache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.agache41.rest.contract.dataAccessBase.PrimaryKey;
+import io.github.agache41.rest.contract.utils.ETags;
+import io.github.agache41.rest.contract.utils.OffHeapCache;
+import io.github.agache41.rest.contract.utils.ResponseCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <pre>
+ * Serves the get and getByIdsAsList methods of the resource services annotated with {@link CachedResponses}
+ * from an off heap cache holding the serialized json of every transfer object per id.
+ * On a hit the cached bytes are written to the servlet output in preHandle, the controller method is not invoked.
+ * On a miss the transfer objects are serialized one by one, cached and written, the message converter is skipped.
+ * Lists are assembled by concatenating the cached fragments in the order of the ids,
+ * the order the resource service lists them in on a miss, so both carry the same body and ETag.
+ * The strong tag of every transfer object is cached next to its json, so cached responses carry the same ETag.
+ * The ids written through any data binder of the entity are dropped, the other entries expire after the time to live.
+ * Conditional requests holding an If-None-Match header are not served from the cache.
+ * </pre>
+ *
+ * @see ResponseCache
+ */
+@ControllerAdvice
+public class ResponseCacheAdvice implements ResponseBodyAdvice<Object>, HandlerInterceptor {
+
+    private static final String CACHE_ATTRIBUTE = ResponseCacheAdvice.class.getName() + ".cache";
+    private static final String GENERATION_ATTRIBUTE = ResponseCacheAdvice.class.getName() + ".generation";
+    private static final String GET = "get";
+    private static final String GET_BY_IDS_AS_LIST = "getByIdsAsList";
+    private static final String ID = "id";
+    private static final String IDS = "ids";
+    private static final String SEPARATOR = ",";
+
+    private final Map<Class<?>, ResponseCache> caches = new ConcurrentHashMap<>();
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Instantiates a new Response cache advice.
+     *
+     * @param objectMapper the object mapper used by the application, a default one is used if none is provided
+     */
+    public ResponseCacheAdvice(final ObjectProvider<ObjectMapper> objectMapper) {
+        this.objectMapper = objectMapper.getIfAvailable(ObjectMapper::new);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean preHandle(final HttpServletRequest request,
+                             final HttpServletResponse response,
+                             final Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        final HandlerMethod handlerMethod = (HandlerMethod) handler;
+        final ResponseCache cache = this.getCache(handlerMethod.getBeanType());
+        if (cache == null || !HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            // conditional requests are answered by the resource service with the lightweight tag
+            return true;
+        }
+        final Map<String, String> pathVariables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (pathVariables == null) {
+            return true;
+        }
+        // taken before the transfer objects are read, a write meanwhile prevents caching them
+        final long generation = cache.generation();
+        final String methodName = handlerMethod.getMethod()
+                                               .getName();
+        if (GET.equals(methodName)) {
+            final String id = pathVariables.get(ID);
+            final String eTag = cache.eTag(id);
+            final ByteBuffer slab = eTag == null ? null : cache.get(id);
+            if (slab != null) {
+                writeHeaders(response, eTag);
+                OffHeapCache.writeTo(slab, response.getOutputStream());
+                return false;
+            }
+        } else if (GET_BY_IDS_AS_LIST.equals(methodName)) {
+            final String ids = pathVariables.get(IDS);
+            final List<String> keys = ids == null ? Collections.emptyList() : Arrays.asList(ids.split(SEPARATOR));
+            final List<String> eTags = new ArrayList<>(keys.size());
+            for (final String key : keys) {
+                final String eTag = cache.eTag(key);
+                eTags.add(eTag == null ? null : ETags.ofElement(key, eTag));
+            }
+            final List<ByteBuffer> slabs = keys.isEmpty() || eTags.contains(null) ? null : cache.getArray(keys);
+            if (slabs != null) {
+                writeHeaders(response, ETags.combine(eTags));
+                OffHeapCache.writeTo(slabs, response.getOutputStream());
+                return false;
+            }
+        } else {
+            return true;
+        }
+        request.setAttribute(CACHE_ATTRIBUTE, cache);
+        request.setAttribute(GENERATION_ATTRIBUTE, generation);
+        return true;
+    }
+
+    @Override
+    public boolean supports(final MethodParameter returnType,
+                            final Class<? extends HttpMessageConverter<?>> converterType) {
+        final String methodName = returnType.getExecutable()
+                                            .getName();
+        return (GET.equals(methodName) || GET_BY_IDS_AS_LIST.equals(methodName)) && returnType.getContainingClass()
+                                                                                              .isAnnotationPresent(CachedResponses.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(final Object body,
+                                  final MethodParameter returnType,
+                                  final MediaType selectedContentType,
+                                  final Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  final ServerHttpRequest request,
+                                  final ServerHttpResponse response) {
+        if (body == null || !(request instanceof ServletServerHttpRequest)) {
+            return body;
+        }
+        final HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+        final ResponseCache cache = (ResponseCache) servletRequest.getAttribute(CACHE_ATTRIBUTE);
+        if (cache == null) {
+            return body;
+        }
+        final long generation = (Long) servletRequest.getAttribute(GENERATION_ATTRIBUTE);
+        try {
+            if (body instanceof PrimaryKey) {
+                final byte[] bytes = this.objectMapper.writeValueAsBytes(body);
+                cache.put(body, bytes, generation);
+                response.getHeaders()
+                        .setContentType(MediaType.APPLICATION_JSON);
+                response.getBody()
+                        .write(bytes);
+            } else if (body instanceof List && ((List<?>) body).stream()
+                                                               .allMatch(PrimaryKey.class::isInstance)) {
+                final List<?> list = (List<?>) body;
+                final List<byte[]> fragments = new ArrayList<>(list.size());
+                for (final Object element : list) {
+                    final byte[] bytes = this.objectMapper.writeValueAsBytes(element);
+                    cache.put(element, bytes, generation);
+                    fragments.add(bytes);
+                }
+                response.getHeaders()
+                        .setContentType(MediaType.APPLICATION_JSON);
+                writeArray(fragments, response.getBody());
+            } else {
+                return body;
+            }
+            response.flush();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        // the body is written, nothing is left for the message converter
+        return null;
+    }
+
+    /**
+     * Gets the cache of the given resource service.
+     *
+     * @param resourceClass the resource service class
+     * @return the cache or null if the resource service is not annotated with {@link CachedResponses}
+     */
+    protected ResponseCache getCache(final Class<?> resourceClass) {
+        final CachedResponses cachedResponses = resourceClass.getAnnotation(CachedResponses.class);
+        if (cachedResponses == null) {
+            return null;
+        }
+        return this.caches.computeIfAbsent(resourceClass, rc -> new ResponseCache(rc, cachedResponses.maxBytes(), cachedResponses.timeToLive()));
+    }
+
+    private static void writeArray(final List<byte[]> fragments,
+                                   final OutputStream output) throws IOException {
+        output.write('[');
+        for (int index = 0; index < fragments.size(); index++) {
+            if (index > 0) {
+                output.write(',');
+            }
+            output.write(fragments.get(index));
+        }
+        output.write(']');
+    }
+
+    private static void writeHeaders(final HttpServletResponse response,
+                                     final String eTag) {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.ETAG, "\"" + eTag + "\"");
+    }
+}
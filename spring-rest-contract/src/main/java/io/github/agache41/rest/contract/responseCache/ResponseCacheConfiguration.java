@@ -0,0 +1,48 @@
+
+/*
+ *    Copyright 2022-2023  Alexandru Agache
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.agache41.rest.contract.responseCache;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * <pre>
+ * Registers the {@link ResponseCacheAdvice} as handler interceptor,
+ * so that cached responses are written before the resource service method is invoked.
+ * </pre>
+ */
+@Configuration
+public class ResponseCacheConfiguration implements WebMvcConfigurer {
+
+    private final ResponseCacheAdvice responseCacheAdvice;
+
+    /**
+     * Instantiates a new Response cache configuration.
+     *
+     * @param responseCacheAdvice the response cache advice
+     */
+    public ResponseCacheConfiguration(final ResponseCacheAdvice responseCacheAdvice) {
+        this.responseCacheAdvice = responseCacheAdvice;
+    }
+
+    @Override
+    public void addInterceptors(final InterceptorRegistry registry) {
+        registry.addInterceptor(this.responseCacheAdvice);
+    }
+}
@@ -142,6 +142,13 @@ public abstract class AbstractResourceServiceImplTest<T extends PrimaryKey<K>, K
         super.testPutListAsList();
     }
 
+    @Override
+    @Test
+    @Order(65)
+    public void testPutUpsertListAsList() {
+        super.testPutUpsertListAsList();
+    }
+
     @Override
     @Test
     @Order(70)
@@ -178,6 +185,20 @@ public abstract class AbstractResourceServiceImplTest<T extends PrimaryKey<K>, K
         super.testGetFilterStringFieldInValuesAsList();
     }
 
+    @Override
+    @Test
+    @Order(115)
+    public void testGetFilterFieldBetweenValuesAsList() {
+        super.testGetFilterFieldBetweenValuesAsList();
+    }
+
+    @Override
+    @Test
+    @Order(116)
+    public void testGetSearchStringFieldTermsAsList() {
+        super.testGetSearchStringFieldTermsAsList();
+    }
+
 
     @Override
     @Test
@@ -209,4 +230,32 @@ public abstract class AbstractResourceServiceImplTest<T extends PrimaryKey<K>, K
         super.testPostFilterContentInAsList();
     }
 
+    @Override
+    @Test
+    @Order(150)
+    public void testGetAggregate() {
+        super.testGetAggregate();
+    }
+
+    @Override
+    @Test
+    @Order(160)
+    public void testGetFacets() {
+        super.testGetFacets();
+    }
+
+    @Override
+    @Test
+    @Order(165)
+    public void testGetFacetsAfterDelete() {
+        super.testGetFacetsAfterDelete();
+    }
+
+    @Override
+    @Test
+    @Order(170)
+    public void testGetChanges() {
+        super.testGetChanges();
+    }
+
 }